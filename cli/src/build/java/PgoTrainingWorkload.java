@@ -0,0 +1,140 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Training workload for profile-guided optimization of the native binary, see the {@code native-pgo} profile in
+ * cli/pom.xml.
+ *
+ * <p>Runs the instrumented binary with every subcommand, named config and import order over a corpus of Java sources.
+ * Each run dumps its own {@code .iprof} file. Finally writes an argument file for native-image, which passes all of
+ * them with {@code --pgo}.</p>
+ *
+ * <p>Runs as single-file source program:</p>
+ *
+ * <pre>java PgoTrainingWorkload.java &lt;instrumented binary&gt; &lt;output directory&gt; &lt;corpus directory&gt;...</pre>
+ */
+public class PgoTrainingWorkload {
+
+    private static final List<String> SUBCOMMANDS = List.of("list", "print", "diff", "write");
+
+    private static final List<String> CONFIGS = List.of("builtin", "equalsverifier");
+
+    private static final List<String> IMPORT_ORDERS =
+        List.of("defaultorder", "equalsverifier", "google", "eclipse", "intellij", "enterprise", "apache");
+
+    /// Additional runs for code paths not taken with the default options.
+    private static final List<List<String>> EXTRA_RUNS = List.of(
+        List.of("write", "--imports-only"),
+        List.of("write", "--parallel-format-threshold", "4k"),
+        List.of("list", "--skip-generated", "-j", "1")
+    );
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 3) {
+            throw new IllegalArgumentException(
+                "Usage: PgoTrainingWorkload <instrumented binary> <output directory> <corpus directory>..."
+            );
+        }
+
+        final Path binary = Path.of(args[0]);
+        final Path outputDirectory = Path.of(args[1]);
+        final List<Path> corpus = Stream.of(args).skip(2).map(Path::of).toList();
+
+        deleteRecursively(outputDirectory);
+        Files.createDirectories(outputDirectory);
+
+        final List<List<String>> runs = new ArrayList<>();
+        for (String subcommand : SUBCOMMANDS) {
+            for (String config : CONFIGS) {
+                for (String importOrder : IMPORT_ORDERS) {
+                    runs.add(List.of(subcommand, "--config", config, "--import-order", importOrder));
+                }
+            }
+        }
+        runs.addAll(EXTRA_RUNS);
+
+        final List<String> profiles = new ArrayList<>(runs.size());
+        for (int index = 0; index < runs.size(); index++) {
+            final Path profile = outputDirectory.resolve("run-" + index + ".iprof").toAbsolutePath();
+            // write changes the files, so every run gets a fresh copy of the corpus.
+            final Path workDirectory = copyCorpus(corpus, outputDirectory.resolve("work-" + index));
+
+            run(binary, profile, runs.get(index), workDirectory);
+
+            profiles.add(profile.toString());
+            deleteRecursively(workDirectory);
+        }
+
+        Files.writeString(
+            outputDirectory.resolve("pgo-args.txt"),
+            "--pgo=" + String.join(",", profiles) + "\n",
+            StandardCharsets.UTF_8
+        );
+        System.out.println("Collected " + profiles.size() + " profiles in " + outputDirectory);
+    }
+
+    private static void run(Path binary, Path profile, List<String> arguments, Path workDirectory)
+        throws IOException, InterruptedException {
+        final List<String> command = new ArrayList<>();
+        command.add(binary.toString());
+        command.add("-XX:ProfilesDumpFile=" + profile);
+        command.addAll(arguments);
+        command.add(workDirectory.toString());
+
+        final Process process = new ProcessBuilder(command)
+            .redirectErrorStream(true)
+            .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+            .start();
+        if (!process.waitFor(10, TimeUnit.MINUTES)) {
+            process.destroyForcibly();
+            throw new IllegalStateException("Training run timed out: " + command);
+        }
+
+        // 1 only means that files are not formatted, which is expected for list and diff.
+        if (process.exitValue() > 1) {
+            throw new IllegalStateException(
+                "Training run failed with exit code " + process.exitValue() + ": " + command
+            );
+        }
+
+        if (!Files.isRegularFile(profile)) {
+            throw new IllegalStateException("Training run wrote no profile, is the binary instrumented? " + command);
+        }
+    }
+
+    private static Path copyCorpus(List<Path> corpus, Path target) throws IOException {
+        for (Path source : corpus) {
+            final Path sourceTarget = target.resolve(source.getFileName().toString());
+
+            try (Stream<Path> files = Files.walk(source)) {
+                for (Path file : files.filter(Files::isRegularFile).toList()) {
+                    final Path copy = sourceTarget.resolve(source.relativize(file).toString());
+                    Files.createDirectories(copy.getParent());
+                    Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+
+        return target;
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(file);
+            }
+        }
+    }
+}
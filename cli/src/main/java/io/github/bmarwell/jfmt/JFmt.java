@@ -1,10 +1,14 @@
 package io.github.bmarwell.jfmt;
 
 import io.github.bmarwell.jfmt.commands.AbstractCommand;
+import io.github.bmarwell.jfmt.commands.Bench;
 import io.github.bmarwell.jfmt.commands.Diff;
 import io.github.bmarwell.jfmt.commands.List;
+import io.github.bmarwell.jfmt.commands.Lsp;
 import io.github.bmarwell.jfmt.commands.Print;
+import io.github.bmarwell.jfmt.commands.Watch;
 import io.github.bmarwell.jfmt.commands.Write;
+import io.github.bmarwell.jfmt.nio.SharedArchiveDirectory;
 import java.util.concurrent.Callable;
 import picocli.CommandLine;
 import picocli.jansi.graalvm.AnsiConsole;
@@ -25,6 +29,9 @@ import picocli.jansi.graalvm.AnsiConsole;
         Write.class,
         Print.class,
         Diff.class,
+        Lsp.class,
+        Watch.class,
+        Bench.class,
     }
 )
 public class JFmt implements Callable<Integer> {
@@ -33,6 +40,9 @@ public class JFmt implements Callable<Integer> {
     CommandLine.Model.CommandSpec spec;
 
     public static void main(String[] args) {
+        // the JVM writes the CDS archive on exit, into a directory which must exist by then.
+        SharedArchiveDirectory.prepare();
+
         int exitCode;
 
         try (AnsiConsole ansi = AnsiConsole.windowsInstall()) {
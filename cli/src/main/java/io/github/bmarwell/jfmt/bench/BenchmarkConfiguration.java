@@ -0,0 +1,50 @@
+package io.github.bmarwell.jfmt.bench;
+
+import io.github.bmarwell.jfmt.scheduling.SchedulingPolicy;
+
+/**
+ * One point of the sweep of {@code jfmt bench}.
+ *
+ * @param jobs
+ *     the number of files processed concurrently, like {@code --jobs}.
+ * @param schedulingPolicy
+ *     the order of the files, like {@code --schedule}.
+ * @param formatterCache
+ *     whether the formatter is shared by all iterations.
+ */
+public record BenchmarkConfiguration(int jobs, SchedulingPolicy schedulingPolicy, FormatterCache formatterCache) {
+
+    public BenchmarkConfiguration {
+        if (jobs < 1) {
+            throw new IllegalArgumentException("jobs must be at least 1, but was " + jobs);
+        }
+    }
+
+    /**
+     * Whether the parsed configs and the pooled JDT formatters survive from one iteration to the next.
+     */
+    public enum FormatterCache {
+        /**
+         * One formatter for all iterations, like {@code watch} or the build plugins.
+         */
+        ON("on"),
+        /**
+         * A new formatter per iteration, like separate {@code jfmt} runs in a warm JVM.
+         */
+        OFF("off");
+
+        private final String cliName;
+
+        FormatterCache(String cliName) {
+            this.cliName = cliName;
+        }
+
+        /**
+         * The name used on the command line, which picocli also uses for parsing and completion candidates.
+         */
+        @Override
+        public String toString() {
+            return this.cliName;
+        }
+    }
+}
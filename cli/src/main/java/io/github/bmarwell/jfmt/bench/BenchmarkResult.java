@@ -0,0 +1,85 @@
+package io.github.bmarwell.jfmt.bench;
+
+import java.util.Arrays;
+
+/**
+ * The measured iterations of one {@link BenchmarkConfiguration}.
+ *
+ * @param configuration
+ *     what was measured.
+ * @param filesPerSecond
+ *     files processed per second of wall time, over all measured iterations.
+ * @param megabytesPerSecond
+ *     source megabytes (10<sup>6</sup> bytes) processed per second of wall time.
+ * @param p50Nanos
+ *     median time from reading a file until its diff was computed.
+ * @param p90Nanos
+ *     90th percentile of the time per file.
+ * @param p99Nanos
+ *     99th percentile of the time per file.
+ * @param maxNanos
+ *     the slowest file.
+ * @param gcMillisPerIteration
+ *     the time spent in garbage collections per iteration.
+ * @param peakHeapBytes
+ *     the sum of the peak usages of the heap pools while measuring: an upper bound of the heap needed.
+ * @param failedFiles
+ *     files per iteration which could not be formatted, e.g. because of syntax errors.
+ */
+public record BenchmarkResult(
+    BenchmarkConfiguration configuration,
+    double filesPerSecond,
+    double megabytesPerSecond,
+    long p50Nanos,
+    long p90Nanos,
+    long p99Nanos,
+    long maxNanos,
+    long gcMillisPerIteration,
+    long peakHeapBytes,
+    int failedFiles
+) {
+
+    /**
+     * Summarizes the measured iterations.
+     *
+     * @param latencies
+     *     the time of each file in each measured iteration, sorted in place.
+     */
+    static BenchmarkResult of(
+        BenchmarkConfiguration configuration,
+        int iterations,
+        long sourceBytes,
+        long wallNanos,
+        long[] latencies,
+        long gcMillis,
+        long peakHeapBytes,
+        int failedFiles
+    ) {
+        Arrays.sort(latencies);
+        final double seconds = Math.max(1L, wallNanos) / 1e9;
+
+        return new BenchmarkResult(
+            configuration,
+            latencies.length / seconds,
+            sourceBytes * (double) iterations / 1e6 / seconds,
+            percentile(latencies, 50),
+            percentile(latencies, 90),
+            percentile(latencies, 99),
+            latencies.length == 0 ? 0L : latencies[latencies.length - 1],
+            gcMillis / iterations,
+            peakHeapBytes,
+            failedFiles / iterations
+        );
+    }
+
+    /// Nearest-rank percentile of sorted values, {@code 0} without values.
+    static long percentile(long[] sorted, int percent) {
+        if (sorted.length == 0) {
+            return 0L;
+        }
+
+        final int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+
+        return sorted[Math.clamp(rank - 1, 0, sorted.length - 1)];
+    }
+}
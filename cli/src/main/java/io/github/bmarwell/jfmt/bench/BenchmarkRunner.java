@@ -0,0 +1,215 @@
+package io.github.bmarwell.jfmt.bench;
+
+import com.github.difflib.DiffUtils;
+import io.github.bmarwell.jfmt.concurrency.BoundedVirtualThreadExecutor;
+import io.github.bmarwell.jfmt.concurrency.ConcurrencyLimit;
+import io.github.bmarwell.jfmt.concurrency.MemoryBudget;
+import io.github.bmarwell.jfmt.format.FormatResult;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.format.SourceDecoder;
+import io.github.bmarwell.jfmt.nio.ReadAheadStage;
+import io.github.bmarwell.jfmt.nio.SourceContent;
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import io.github.bmarwell.jfmt.scheduling.FailureHistory;
+import io.github.bmarwell.jfmt.scheduling.WorkUnit;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the pipeline of {@code jfmt list} over a set of files, without any output: read ahead, format and diff, with
+ * the same scheduling, batching, concurrency limit and memory budget.
+ *
+ * <p>Nothing is written, neither the files nor the failure history or the tuned number of jobs. After the warm-up
+ * iterations, the files are usually in the page cache, so the disk is only measured if it is slower than that.</p>
+ */
+public final class BenchmarkRunner {
+
+    private final Supplier<JFmtFormatter> formatterFactory;
+
+    private final long batchBytes;
+
+    private final int readAhead;
+
+    /**
+     * Creates a runner.
+     *
+     * @param formatterFactory
+     *     creates a formatter, once per configuration or once per iteration, see
+     *     {@link BenchmarkConfiguration.FormatterCache}.
+     * @param batchBytes
+     *     small files are processed in batches of this many bytes, like {@code --batch-bytes}.
+     * @param readAhead
+     *     the number of files read ahead, like {@code --read-ahead}.
+     */
+    public BenchmarkRunner(Supplier<JFmtFormatter> formatterFactory, long batchBytes, int readAhead) {
+        this.formatterFactory = formatterFactory;
+        this.batchBytes = batchBytes;
+        this.readAhead = readAhead;
+    }
+
+    /**
+     * Runs the warm-up iterations, then measures the others.
+     *
+     * @param configuration
+     *     the configuration to measure.
+     * @param files
+     *     the discovered files.
+     * @param warmupIterations
+     *     iterations which are not measured, so that the JIT and the caches are warm.
+     * @param measuredIterations
+     *     iterations which are measured, at least one.
+     * @return the summary of the measured iterations.
+     * @throws InterruptedException
+     *     if interrupted.
+     */
+    public BenchmarkResult run(
+        BenchmarkConfiguration configuration,
+        List<SourceFile> files,
+        int warmupIterations,
+        int measuredIterations
+    ) throws InterruptedException {
+        if (measuredIterations < 1) {
+            throw new IllegalArgumentException("At least one measured iteration is needed");
+        }
+
+        final List<SourceFile> scheduledFiles = configuration.schedulingPolicy().order(files, FailureHistory.empty());
+        final long sourceBytes = files.stream().mapToLong(SourceFile::size).sum();
+        final Supplier<JFmtFormatter> formatters = formatters(configuration.formatterCache());
+
+        for (int iteration = 0; iteration < warmupIterations; iteration++) {
+            runIteration(configuration, scheduledFiles, formatters.get(), new long[files.size()]);
+        }
+
+        // do not bill the garbage of the warm-up, or of the previous configuration, to this one.
+        System.gc();
+        final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans()
+            .stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        final long gcMillisBefore = gcMillis();
+
+        final long[] latencies = new long[files.size() * measuredIterations];
+        int failedFiles = 0;
+        long wallNanos = 0L;
+
+        for (int iteration = 0; iteration < measuredIterations; iteration++) {
+            final long[] iterationLatencies = new long[files.size()];
+            final long start = System.nanoTime();
+            failedFiles += runIteration(configuration, scheduledFiles, formatters.get(), iterationLatencies);
+            wallNanos += System.nanoTime() - start;
+            System.arraycopy(iterationLatencies, 0, latencies, iteration * files.size(), files.size());
+        }
+
+        final long peakHeapBytes = heapPools.stream()
+            .mapToLong(pool -> pool.getPeakUsage().getUsed())
+            .sum();
+
+        return BenchmarkResult.of(
+            configuration,
+            measuredIterations,
+            sourceBytes,
+            wallNanos,
+            latencies,
+            gcMillis() - gcMillisBefore,
+            peakHeapBytes,
+            failedFiles
+        );
+    }
+
+    private Supplier<JFmtFormatter> formatters(BenchmarkConfiguration.FormatterCache formatterCache) {
+        if (formatterCache == BenchmarkConfiguration.FormatterCache.OFF) {
+            return this.formatterFactory;
+        }
+
+        final JFmtFormatter sharedFormatter = this.formatterFactory.get();
+
+        return () -> sharedFormatter;
+    }
+
+    /**
+     * Processes all files once.
+     *
+     * @param latencies
+     *     receives the time of each file, in completion order.
+     * @return the number of files which could not be formatted.
+     */
+    private int runIteration(
+        BenchmarkConfiguration configuration,
+        List<SourceFile> scheduledFiles,
+        JFmtFormatter formatter,
+        long[] latencies
+    ) throws InterruptedException {
+        final MemoryBudget memoryBudget = MemoryBudget.fromMaxHeap();
+        final BoundedVirtualThreadExecutor executor =
+            BoundedVirtualThreadExecutor.create(ConcurrencyLimit.fixed(configuration.jobs()), memoryBudget);
+        final List<WorkUnit> workUnits = WorkUnit.coarsen(scheduledFiles, this.batchBytes, configuration.jobs());
+        final List<Path> readOrder = workUnits.stream()
+            .flatMap(workUnit -> workUnit.files().stream())
+            .map(SourceFile::path)
+            .toList();
+        final AtomicInteger completed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+
+        try (memoryBudget; var readAheadStage = ReadAheadStage.start(readOrder, this.readAhead);
+            var scope = StructuredTaskScope.open(
+                StructuredTaskScope.Joiner.<Void>allSuccessfulOrThrow(),
+                cf -> cf.withThreadFactory(executor.threadFactory())
+            )) {
+            executor.forkAll(scope, workUnits.iterator(), WorkUnit::sourceBytes, workUnit -> () -> {
+                for (SourceFile sourceFile : workUnit.files()) {
+                    final long start = System.nanoTime();
+                    if (!process(formatter, readAheadStage, sourceFile.path())) {
+                        failed.incrementAndGet();
+                    }
+                    latencies[completed.getAndIncrement()] = System.nanoTime() - start;
+                }
+
+                return null;
+            });
+            scope.join();
+        }
+
+        return failed.get();
+    }
+
+    /**
+     * Reads, formats and diffs a file, like {@code list}.
+     *
+     * @return whether the file could be read and formatted.
+     */
+    private static boolean process(JFmtFormatter formatter, ReadAheadStage readAheadStage, Path javaFile)
+        throws InterruptedException {
+        final String source;
+        try (SourceContent content = readAheadStage.take(javaFile)) {
+            source = SourceDecoder.decode(content.buffer());
+        } catch (IOException ioException) {
+            return false;
+        }
+
+        final FormatResult result = formatter.format(javaFile, source);
+        if (!result.succeeded()) {
+            return false;
+        }
+
+        DiffUtils.diff(List.of(source.split("\n")), List.of(result.formatted().split("\n")));
+
+        return true;
+    }
+
+    private static long gcMillis() {
+        return ManagementFactory.getGarbageCollectorMXBeans()
+            .stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+            .filter(millis -> millis > 0L)
+            .sum();
+    }
+}
@@ -1,46 +1,45 @@
 package io.github.bmarwell.jfmt.commands;
 
-import static java.nio.file.Files.isRegularFile;
-
 import com.github.difflib.DiffUtils;
 import com.github.difflib.patch.Patch;
 import io.github.bmarwell.jfmt.concurrency.BoundedVirtualThreadExecutor;
+import io.github.bmarwell.jfmt.concurrency.ConcurrencyLimit;
 import io.github.bmarwell.jfmt.concurrency.FailFastFileProcessingResultJoiner;
-import io.github.bmarwell.jfmt.config.ConfigLoader;
-import io.github.bmarwell.jfmt.config.NamedConfig;
+import io.github.bmarwell.jfmt.concurrency.MemoryBudget;
+import io.github.bmarwell.jfmt.concurrency.TunedConcurrency;
+import io.github.bmarwell.jfmt.config.StyleResolver;
 import io.github.bmarwell.jfmt.format.FileProcessingResult;
+import io.github.bmarwell.jfmt.format.FileTimeoutException;
+import io.github.bmarwell.jfmt.format.FormatResult;
 import io.github.bmarwell.jfmt.format.FormatterMode;
 import io.github.bmarwell.jfmt.format.InvalidSyntaxException;
-import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
-import io.github.bmarwell.jfmt.imports.ImportOrderConfiguration;
-import io.github.bmarwell.jfmt.imports.ImportOrderLoader;
-import io.github.bmarwell.jfmt.imports.NamedImportOrder;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.format.SourceDecoder;
+import io.github.bmarwell.jfmt.nio.GeneratedSourceSniffer;
+import io.github.bmarwell.jfmt.nio.IoRateLimiter;
 import io.github.bmarwell.jfmt.nio.PathUtils;
+import io.github.bmarwell.jfmt.nio.ReadAheadStage;
+import io.github.bmarwell.jfmt.nio.SourceContent;
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import io.github.bmarwell.jfmt.nio.UserCacheDirectory;
+import io.github.bmarwell.jfmt.scheduling.FailureHistory;
+import io.github.bmarwell.jfmt.scheduling.SchedulingPolicy;
+import io.github.bmarwell.jfmt.scheduling.WorkUnit;
+import io.github.bmarwell.jfmt.trace.TraceRecorder;
 import io.github.bmarwell.jfmt.writer.OutputWriter;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.io.UncheckedIOException;
-import java.nio.ByteBuffer;
-import java.nio.charset.CharacterCodingException;
-import java.nio.charset.CodingErrorAction;
-import java.nio.charset.StandardCharsets;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
 import java.util.concurrent.StructuredTaskScope;
-import org.eclipse.core.runtime.CoreException;
-import org.eclipse.jdt.core.JavaCore;
-import org.eclipse.jdt.core.ToolFactory;
+import java.util.function.Supplier;
+import org.eclipse.core.runtime.OperationCanceledException;
 import org.eclipse.jdt.core.compiler.IProblem;
-import org.eclipse.jdt.core.dom.AST;
-import org.eclipse.jdt.core.dom.ASTParser;
-import org.eclipse.jdt.core.dom.CompilationUnit;
-import org.eclipse.jdt.core.formatter.CodeFormatter;
-import org.eclipse.jface.text.BadLocationException;
-import org.eclipse.jface.text.Document;
-import org.eclipse.jface.text.IDocument;
 import picocli.CommandLine;
 
 public abstract class AbstractCommand implements Callable<Integer> {
@@ -51,6 +50,9 @@ public abstract class AbstractCommand implements Callable<Integer> {
     /// Messages displayed when no arguments point to `.java` files.
     private static final String ERR_MSG_NO_JAVA_FILES = "No Java files found in the specified paths";
 
+    /// In `--background` mode, a worker pauses for the time spent on a file divided by this value.
+    private static final long BACKGROUND_PAUSE_DIVISOR = 2L;
+
     @CommandLine.Spec
     CommandLine.Model.CommandSpec spec;
 
@@ -59,11 +61,18 @@ public abstract class AbstractCommand implements Callable<Integer> {
 
     private OutputWriter writer;
 
+    private IoRateLimiter ioRateLimiter = IoRateLimiter.unlimited();
+
+    private ReadAheadStage readAheadStage = ReadAheadStage.onDemand();
+
+    private JFmtFormatter formatter;
+
+    private TraceRecorder traceRecorder = TraceRecorder.disabled();
+
     public void init() {
-        CommandLine.Help.Ansi ansiMode =
-            this.globalOptions.noColor ? CommandLine.Help.Ansi.OFF : CommandLine.Help.Ansi.AUTO;
+        CommandLine.Help.Ansi ansiMode = this.globalOptions.colorOptions.toAnsi();
 
-        OutputWriter.VerbosityLevel verbosity = determineVerbosityLevel();
+        OutputWriter.VerbosityLevel verbosity = this.globalOptions.verbosityOptions.toVerbosityLevel();
 
         this.writer = new OutputWriter(
             ansiMode,
@@ -71,18 +80,41 @@ public abstract class AbstractCommand implements Callable<Integer> {
             spec.commandLine().getOut(),
             spec.commandLine().getErr()
         );
-    }
 
-    private OutputWriter.VerbosityLevel determineVerbosityLevel() {
-        if (this.globalOptions.verbosityOptions.isVerbose()) {
-            return OutputWriter.VerbosityLevel.VERBOSE;
+        if (this.globalOptions.traceFile != null) {
+            this.traceRecorder = TraceRecorder.create();
         }
 
-        if (this.globalOptions.verbosityOptions.isSilent()) {
-            return OutputWriter.VerbosityLevel.SILENT;
-        }
+        this.formatter = createFormatter();
+        startWarmUp();
+    }
+
+    /**
+     * Formats a {@link FormatterWarmUp#SAMPLE sample} on a background thread, while {@link #call()} discovers the
+     * files.
+     *
+     * <p>Nothing depends on it: a failed or unfinished warm-up only means that the first file loads the JDT classes
+     * itself.</p>
+     */
+    private void startWarmUp() {
+        final Path sampleFile = FormatterWarmUp.sampleFile(this.globalOptions.filesOrDirectories);
 
-        return OutputWriter.VerbosityLevel.DEFAULT;
+        Thread.ofVirtual().name("jfmt-warm-up").start(() -> warmUp(sampleFile));
+    }
+
+    private void warmUp(Path sampleFile) {
+        final long start = System.nanoTime();
+
+        try {
+            this.formatter.format(sampleFile, FormatterWarmUp.SAMPLE);
+
+            getWriter().debug("Warmed up formatter", Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        } catch (OperationCanceledException canceledException) {
+            // the run is over before the warm-up.
+        } catch (RuntimeException | LinkageError warmUpException) {
+            // e.g. an invalid config, which is reported for the first real file.
+            getWriter().debug("Warm-up failed", String.valueOf(warmUpException.getMessage()));
+        }
     }
 
     /**
@@ -101,10 +133,7 @@ public abstract class AbstractCommand implements Callable<Integer> {
     abstract FormatterMode getFormatterMode();
 
     /**
-     * Processes all files in parallel using Structured Concurrency.
-     *
-     * <p>Uses custom joiner for fail-fast support (--no-all flag) while preserving output from completed tasks.
-     * Structured Concurrency provides automatic cleanup and prevents thread leaks.</p>
+     * Discovers and processes all files given on the command line, see {@link #processAll(List)}.
      *
      * @return {@code 0} if all files formatted correctly, {@code 1} otherwise.
      * @throws Exception
@@ -112,14 +141,20 @@ public abstract class AbstractCommand implements Callable<Integer> {
      */
     @Override
     public Integer call() throws Exception {
+        try {
+            return discoverAndProcessAll();
+        } finally {
+            writeTrace();
+            // the writer thread must be done before the exit.
+            getWriter().flush();
+        }
+    }
 
-        final List<Callable<FileProcessingResult>> allFilesAndDirs;
+    private int discoverAndProcessAll() throws Exception {
+        final List<SourceFile> allFilesAndDirs;
 
         try {
-            allFilesAndDirs =
-                PathUtils.streamAll(List.of(this.globalOptions.filesOrDirectories))
-                    .map(javaFile -> (Callable<FileProcessingResult>) () -> processFile(javaFile))
-                    .toList();
+            allFilesAndDirs = PathUtils.discover(List.of(this.globalOptions.filesOrDirectories), this.traceRecorder);
         } catch (IllegalArgumentException pathException) {
             getWriter().error(ERR_PRFX_ARGS, ERR_MSG_NO_JAVA_FILES);
             // TODO: exception stack trace on verbose?
@@ -131,12 +166,56 @@ public abstract class AbstractCommand implements Callable<Integer> {
             return 1;
         }
 
-        try (var scope = StructuredTaskScope.open(
+        this.ioRateLimiter = createIoRateLimiter();
+
+        return processAll(allFilesAndDirs);
+    }
+
+    /**
+     * Processes the given files in parallel using Structured Concurrency, and reports the results.
+     *
+     * <p>Uses custom joiner for fail-fast support (--no-all flag) while preserving output from completed tasks.
+     * Structured Concurrency provides automatic cleanup and prevents thread leaks.</p>
+     *
+     * <p>Subtasks are forked through a bounded window (see {@link BoundedVirtualThreadExecutor#forkAll}), so only
+     * a handful of virtual threads exist at any time, regardless of the number of files. Small files are batched into
+     * {@link WorkUnit}s (see {@code --batch-bytes}), one subtask per unit. A unit is only started once its
+     * estimated working set fits into the {@link MemoryBudget} (see {@code --memory-budget}).</p>
+     *
+     * @param discoveredFiles
+     *     the files to process, before skipping generated sources.
+     * @return {@code 0} if all files formatted correctly, {@code 1} otherwise.
+     * @throws Exception
+     *     if processing fails
+     */
+    int processAll(List<SourceFile> discoveredFiles) throws Exception {
+        final List<SourceFile> sourceFiles = skipGeneratedSources(discoveredFiles);
+        final SchedulingPolicy schedulingPolicy = this.globalOptions.schedulingPolicy;
+        final FailureHistory failureHistory = loadFailureHistory(schedulingPolicy);
+        final List<SourceFile> scheduledFiles = schedulingPolicy.order(sourceFiles, failureHistory);
+        final MemoryBudget memoryBudget = createMemoryBudget();
+        final TunedConcurrency tunedConcurrency = loadTunedConcurrency();
+        final ConcurrencyLimit concurrencyLimit = createConcurrencyLimit(tunedConcurrency);
+        final BoundedVirtualThreadExecutor executor =
+            BoundedVirtualThreadExecutor.create(concurrencyLimit, memoryBudget, this.traceRecorder);
+        final List<WorkUnit> workUnits =
+            WorkUnit.coarsen(scheduledFiles, this.globalOptions.batchBytes, concurrencyLimit.current());
+        this.readAheadStage = startReadAhead(workUnits);
+
+        try (memoryBudget; var readAhead = this.readAheadStage; var scope = StructuredTaskScope.open(
             new FailFastFileProcessingResultJoiner(),
-            cf -> cf.withThreadFactory(BoundedVirtualThreadExecutor.create())
+            cf -> cf.withThreadFactory(executor.threadFactory())
         )) {
-            allFilesAndDirs.forEach(scope::fork);
+            // closures are created lazily, one per free permit and once the memory budget allows
+            executor.forkAll(
+                scope,
+                workUnits.iterator(),
+                WorkUnit::sourceBytes,
+                workUnit -> () -> processUnit(workUnit)
+            );
             final List<FileProcessingResult> results = scope.join();
+            saveFailureHistory(failureHistory, results);
+            saveTunedConcurrency(tunedConcurrency, concurrencyLimit);
 
             reportExceptions(results);
             printOutput(results);
@@ -146,6 +225,128 @@ public abstract class AbstractCommand implements Callable<Integer> {
         }
     }
 
+    /**
+     * Removes generated sources if {@code --skip-generated} is set.
+     *
+     * <p>Only the header of each file is sniffed, in parallel like the discovery. Skipped files are never read
+     * completely, parsed or formatted.</p>
+     */
+    private List<SourceFile> skipGeneratedSources(List<SourceFile> sourceFiles) {
+        if (!this.globalOptions.skipGenerated) {
+            return sourceFiles;
+        }
+
+        final GeneratedSourceSniffer sniffer = GeneratedSourceSniffer.of(this.globalOptions.generatedMarkers);
+        final List<SourceFile> handWritten = sourceFiles.parallelStream()
+            .filter(sourceFile -> !sniffer.isGenerated(sourceFile.path()))
+            .toList();
+        getWriter().info("Skipped generated files", String.valueOf(sourceFiles.size() - handWritten.size()));
+
+        return handWritten;
+    }
+
+    private TunedConcurrency loadTunedConcurrency() {
+        if (!this.globalOptions.rememberJobs || this.globalOptions.jobs != JobsConverter.AUTO) {
+            return TunedConcurrency.empty();
+        }
+
+        return TunedConcurrency.load(UserCacheDirectory.resolve());
+    }
+
+    private ReadAheadStage startReadAhead(List<WorkUnit> workUnits) {
+        final List<Path> readOrder = workUnits.stream()
+            .flatMap(workUnit -> workUnit.files().stream())
+            .map(SourceFile::path)
+            .toList();
+
+        return ReadAheadStage.start(readOrder, this.globalOptions.readAhead, writesBack(), this.ioRateLimiter);
+    }
+
+    /// Files written back must not be memory-mapped, see {@link ReadAheadStage}.
+    private boolean writesBack() {
+        return getFormatterMode() == FormatterMode.WRITE;
+    }
+
+    private IoRateLimiter createIoRateLimiter() {
+        if (this.globalOptions.ioRate == null) {
+            return IoRateLimiter.unlimited();
+        }
+
+        if (this.globalOptions.ioRate <= 0.0) {
+            throw new CommandLine.ParameterException(
+                spec.commandLine(),
+                "--io-rate must be positive, but was " + this.globalOptions.ioRate
+            );
+        }
+
+        return IoRateLimiter.ofMegabytesPerSecond(this.globalOptions.ioRate);
+    }
+
+    private ConcurrencyLimit createConcurrencyLimit(TunedConcurrency tunedConcurrency) {
+        if (this.globalOptions.jobs != JobsConverter.AUTO) {
+            return ConcurrencyLimit.fixed(this.globalOptions.jobs);
+        }
+
+        if (this.globalOptions.background) {
+            // neither tune towards the peak nor remember the value, the point is to leave resources to others.
+            return ConcurrencyLimit.fixed(GlobalOptions.backgroundJobs());
+        }
+
+        final int initial = tunedConcurrency.jobs().orElseGet(BoundedVirtualThreadExecutor::defaultConcurrency);
+        getWriter().debug("Initial jobs", String.valueOf(initial));
+
+        return ConcurrencyLimit.adaptive(initial, ConcurrencyLimit.defaultMaximum());
+    }
+
+    private void saveTunedConcurrency(TunedConcurrency tunedConcurrency, ConcurrencyLimit concurrencyLimit) {
+        if (!concurrencyLimit.isAdaptive()) {
+            return;
+        }
+
+        getWriter().debug("Tuned jobs", String.valueOf(concurrencyLimit.bestLimit()));
+
+        try {
+            tunedConcurrency.save(concurrencyLimit);
+        } catch (IOException ioException) {
+            // only a starting point for the next run, never fail the run because of it.
+            getWriter().warn("Could not save tuned number of jobs", ioException.getMessage());
+        }
+    }
+
+    private MemoryBudget createMemoryBudget() {
+        final Long configuredBudget = this.globalOptions.memoryBudget;
+
+        if (configuredBudget != null && configuredBudget == 0L) {
+            return MemoryBudget.unlimited();
+        }
+
+        final MemoryBudget memoryBudget = configuredBudget == null
+            ? MemoryBudget.fromMaxHeap()
+            : MemoryBudget.of(configuredBudget);
+        getWriter().debug("Memory budget", memoryBudget.budgetBytes() + " bytes");
+
+        return memoryBudget.learnFromGarbageCollections();
+    }
+
+    private static FailureHistory loadFailureHistory(SchedulingPolicy schedulingPolicy) {
+        if (!schedulingPolicy.usesFailureHistory()) {
+            return FailureHistory.empty();
+        }
+
+        return FailureHistory.load(UserCacheDirectory.resolve());
+    }
+
+    private void saveFailureHistory(FailureHistory failureHistory, List<FileProcessingResult> results) {
+        failureHistory.record(results, System.currentTimeMillis());
+
+        try {
+            failureHistory.save();
+        } catch (IOException ioException) {
+            // only a scheduling hint, never fail the run because of it.
+            getWriter().warn("Could not save failure history", ioException.getMessage());
+        }
+    }
+
     private void reportExceptions(List<FileProcessingResult> results) {
         for (FileProcessingResult result : results) {
             reportException(result);
@@ -154,13 +355,22 @@ public abstract class AbstractCommand implements Callable<Integer> {
 
     private void reportException(FileProcessingResult fileProcessingResult) {
         fileProcessingResult.exception().ifPresent((e) -> {
+            if (e instanceof FileTimeoutException) {
+                getWriter().error("Timed out", fileProcessingResult.javaFile().toString());
+                getWriter().debug("Timeout details", e.getMessage());
+
+                return;
+            }
+
             getWriter().error("Error processing file", e.getMessage());
 
             if (!(e instanceof InvalidSyntaxException ise)) {
-                getWriter().debug(
-                    "Exception details for " + fileProcessingResult.javaFile(),
-                    e.getClass().getSimpleName() + ": " + e.getMessage()
-                );
+                if (getWriter().isDebugEnabled()) {
+                    getWriter().debug(
+                        "Exception details for " + fileProcessingResult.javaFile(),
+                        e.getClass().getSimpleName() + ": " + e.getMessage()
+                    );
+                }
 
                 return;
             }
@@ -209,6 +419,11 @@ public abstract class AbstractCommand implements Callable<Integer> {
     }
 
     private boolean shouldReportError(FileProcessingResult result) {
+        // Timeouts were already reported by reportExceptions, they are not formatting errors.
+        if (result.timedOut()) {
+            return false;
+        }
+
         // List and Write modes report all files with diffs
         if (getFormatterMode() == FormatterMode.LIST || getFormatterMode() == FormatterMode.WRITE) {
             return result.hasDiff();
@@ -222,28 +437,119 @@ public abstract class AbstractCommand implements Callable<Integer> {
             .anyMatch(st -> st.exception().isPresent() || !st.shouldContinue() || st.hasDiff());
     }
 
-    FileProcessingResult processFile(Path javaFile) {
-        getWriter().debug("Processing file", javaFile.toString());
+    /**
+     * Processes the files of a unit one after another.
+     *
+     * <p>All workers share one {@link JFmtFormatter}, so files of different styles (see {@link StyleResolver}) can
+     * still be batched into one unit. Stops after the first file which should not continue (--no-all), and between
+     * files once the scope was cancelled, so fail-fast still works at file granularity. In {@code --background} mode,
+     * the worker pauses after each file.</p>
+     *
+     * @param workUnit
+     *     the files to process.
+     * @return the results of all processed files, in unit order.
+     */
+    List<FileProcessingResult> processUnit(WorkUnit workUnit) {
+        final List<FileProcessingResult> results = new ArrayList<>(workUnit.files().size());
+
+        for (SourceFile sourceFile : workUnit.files()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+
+            final FileProcessingResult result = pausingInBackground(() -> processFile(sourceFile.path()));
+            results.add(result);
+
+            if (!result.shouldContinue()) {
+                break;
+            }
+        }
+
+        return List.copyOf(results);
+    }
+
+    /**
+     * Runs the given file processing and, in {@code --background} mode, pauses afterwards.
+     *
+     * <p>{@link Thread#yield()} on a virtual thread only lets other virtual threads run on the carrier, it never
+     * gives CPU time back to other processes. Yielding is therefore a short sleep proportional to the time spent on
+     * the file, which caps the duty cycle of each worker.</p>
+     */
+    private FileProcessingResult pausingInBackground(Supplier<FileProcessingResult> fileProcessing) {
+        if (!this.globalOptions.background) {
+            return fileProcessing.get();
+        }
+
+        final long start = System.nanoTime();
+        final FileProcessingResult result = fileProcessing.get();
 
         try {
-            final var javaSourceBytes = Files.readAllBytes(javaFile);
-            final var sourceCode = getEncodedSourceCode(javaSourceBytes);
-            final var formatter = createCodeFormatter();
-            final var revisedSourceCode = createRevisedSourceCode(formatter, javaFile, sourceCode);
+            Thread.sleep(Duration.ofNanos((System.nanoTime() - start) / BACKGROUND_PAUSE_DIVISOR));
+        } catch (InterruptedException interruptedException) {
+            // cancelled: keep the result, the unit stops before the next file.
+            Thread.currentThread().interrupt();
+        }
+
+        return result;
+    }
+
+    /**
+     * Waits until the {@code --io-rate} allows reading or writing the given number of bytes.
+     *
+     * @param bytes
+     *     the number of bytes.
+     * @throws OperationCanceledException
+     *     if interrupted while waiting, e.g. by fail-fast cancellation.
+     */
+    void throttleIo(long bytes) {
+        try {
+            this.ioRateLimiter.acquire(bytes);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Cancelled while waiting for I/O rate");
+        }
+    }
 
-            final List<String> originalSourceLines = List.of(sourceCode.split("\n"));
-            final List<String> revisedSourceLines = List.of(revisedSourceCode.split("\n"));
-            final Patch<String> patch = DiffUtils.diff(originalSourceLines, revisedSourceLines);
+    FileProcessingResult processFile(Path javaFile) {
+        getWriter().debug("Processing file", javaFile::toString);
+
+        final String sourceCode = readSourceCode(javaFile);
+        final FormatResult formatResult = this.formatter.format(javaFile, sourceCode);
+        if (formatResult.failure().isPresent()) {
+            return failedFile(javaFile, formatResult.failure().get());
+        }
+
+        final long diffStart = System.nanoTime();
+        final String revisedSourceCode = formatResult.formatted();
+        final List<String> originalSourceLines = List.of(sourceCode.split("\n"));
+        final List<String> revisedSourceLines = List.of(revisedSourceCode.split("\n"));
+        final Patch<String> patch = DiffUtils.diff(originalSourceLines, revisedSourceLines);
+        this.traceRecorder.record("diff", javaFile, diffStart);
+
+        return processRevisedSourceCode(
+            javaFile,
+            sourceCode,
+            revisedSourceCode,
+            originalSourceLines,
+            revisedSourceLines,
+            patch
+        );
+    }
 
-            return processRevisedSourceCode(
+    private FileProcessingResult failedFile(Path javaFile, Exception failure) {
+        if (failure instanceof FileTimeoutException) {
+            // Neither a syntax error nor a diff: the file could not be checked within the budget.
+            return new FileProcessingResult(
                 javaFile,
-                sourceCode,
-                revisedSourceCode,
-                originalSourceLines,
-                revisedSourceLines,
-                patch
+                false,
+                false,
+                this.globalOptions.reportAll(),
+                List.of(),
+                Optional.of(failure)
             );
-        } catch (InvalidSyntaxException invalidSyntaxException) {
+        }
+
+        if (failure instanceof InvalidSyntaxException) {
             // File has syntax errors - skip formatting but mark as having diffs
             // shouldContinue based on reportAll flag for fail-fast behavior
             // Exception is stored for verbose logging
@@ -253,26 +559,33 @@ public abstract class AbstractCommand implements Callable<Integer> {
                 false,
                 this.globalOptions.reportAll(),
                 List.of(),
-                Optional.of(invalidSyntaxException)
+                Optional.of(failure)
             );
-        } catch (IOException ioException) {
-            throw new UncheckedIOException("Failed to process file: " + javaFile, ioException);
-        } catch (BadLocationException | CoreException ble) {
-            getWriter().error("Error formatting file", javaFile.toString());
-            throw new IllegalStateException("Failed to format file: " + javaFile, ble);
         }
+
+        getWriter().error("Error formatting file", javaFile.toString());
+        throw new IllegalStateException("Failed to format file: " + javaFile, failure);
     }
 
-    private static String getEncodedSourceCode(byte[] bytes) {
-        try {
-            // Simple UTF-8 validity check
-            return StandardCharsets.UTF_8.newDecoder()
-                .onMalformedInput(CodingErrorAction.REPORT)
-                .decode(ByteBuffer.wrap(bytes))
-                .toString();
-        } catch (CharacterCodingException e) {
-            // Otherwise, assume ISO-8859-1 or CP1252 (safe Latin fallbacks)
-            return new String(bytes, StandardCharsets.ISO_8859_1);
+    private String readSourceCode(Path javaFile) {
+        final long start = System.nanoTime();
+
+        try (SourceContent content = this.readAheadStage.take(javaFile)) {
+            // the --io-rate was already applied by the read-ahead stage, before reading the file.
+            // decode straight from the (direct or mapped) buffer, without an intermediate byte[]
+            return SourceDecoder.decode(content.buffer());
+        } catch (InterruptedIOException interruptedIoException) {
+            // interrupted while waiting for the --io-rate, e.g. by fail-fast cancellation.
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Cancelled while formatting " + javaFile);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Failed to process file: " + javaFile, ioException);
+        } catch (InterruptedException interruptedException) {
+            // cancelled by the scope (fail-fast), the result will be discarded anyway.
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Cancelled while formatting " + javaFile);
+        } finally {
+            this.traceRecorder.record("read", javaFile, start);
         }
     }
 
@@ -285,75 +598,47 @@ public abstract class AbstractCommand implements Callable<Integer> {
         Patch<String> patch
     );
 
-    protected CodeFormatter createCodeFormatter() {
-        if (this.globalOptions.configFile != null && Files.isRegularFile(this.globalOptions.configFile)) {
-            final Map<String, String> config = ConfigLoader.load(this.globalOptions.configFile);
-
-            return ToolFactory.createCodeFormatter(config);
-        }
-
-        final NamedConfig nc = NamedConfig.valueOf(this.globalOptions.config.name());
-        final Map<String, String> config = ConfigLoader.load(nc.getResourcePath());
-
-        return ToolFactory.createCodeFormatter(config);
+    /**
+     * Creates the formatter shared by all workers.
+     */
+    private JFmtFormatter createFormatter() {
+        return this.globalOptions.formatterOptions.createFormatter(
+            spec.commandLine().getParseResult(),
+            this.traceRecorder
+        );
     }
 
-    String createRevisedSourceCode(CodeFormatter formatter, Path javaFile, String sourceCode)
-        throws BadLocationException, CoreException, InvalidSyntaxException {
-        var unixSourceCode = sourceCode.replace("\r\n", "\n");
-        CompilationUnit compilationUnit = getCompilationUnitFrom(unixSourceCode, javaFile);
-
-        if (compilationUnit.getProblems() != null && compilationUnit.getProblems().length > 0) {
-            throw new InvalidSyntaxException("CompilationUnit has syntax errors", compilationUnit.getProblems());
+    /**
+     * Writes everything recorded so far to the {@code --trace-file}, if given.
+     *
+     * <p>A trace is a diagnostic aid only: failing to write it does not fail the run.</p>
+     */
+    void writeTrace() {
+        final Path traceFile = this.globalOptions.traceFile;
+        if (traceFile == null) {
+            return;
         }
 
-        // If there are imports, reorder them deterministically, according to style.
-        final IDocument workingDoc = new Document(unixSourceCode);
-
-        ImportOrderProcessor importOrderProcessor = createImportOrderProcessor();
-        importOrderProcessor.rewriteImportsIfAny(compilationUnit, workingDoc);
-
-        // Now format the (possibly) updated document
-        FormatterProcessor formatterProcessor = new FormatterProcessor(formatter);
-        formatterProcessor.formatDocument(workingDoc);
-
-        return workingDoc.get();
-    }
-
-    private ImportOrderProcessor createImportOrderProcessor() {
-        // Resolve import-order tokens from CLI options
-        if (this.globalOptions.importOrderFile != null && isRegularFile(this.globalOptions.importOrderFile)) {
-            var importOrderConfig = new ImportOrderLoader().loadFromFile(this.globalOptions.importOrderFile);
-
-            return new ImportOrderProcessor(importOrderConfig);
-
+        try {
+            this.traceRecorder.writeTo(traceFile);
+            getWriter().debug("Wrote trace", traceFile.toString());
+        } catch (IOException ioException) {
+            getWriter().warn("Could not write trace", ioException.getMessage());
         }
-        CliNamedImportOrder cli = this.globalOptions.importOrder;
-        var named = NamedImportOrder.fromCli(cli);
-        ImportOrderConfiguration importOrderTokens = new ImportOrderLoader().loadFromResource(named.getResourcePath());
-
-        return new ImportOrderProcessor(importOrderTokens);
     }
 
-    private static CompilationUnit getCompilationUnitFrom(String sourceCode, Path javaFile) {
-        // extract package from file
-        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
-        parser.setSource(sourceCode.toCharArray());
-        parser.setUnitName(javaFile.getFileName().toString());
-        parser.setKind(ASTParser.K_COMPILATION_UNIT);
-
-        // Configure compiler options
-        Map<String, String> options = JavaCore.getOptions();
-        options.put(JavaCore.COMPILER_SOURCE, String.valueOf(AST.getJLSLatest()));
-        options.put(JavaCore.COMPILER_COMPLIANCE, String.valueOf(AST.getJLSLatest()));
-        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, String.valueOf(AST.getJLSLatest()));
-        parser.setCompilerOptions(options);
+    /// Creates the formatter again, so that changed {@code .jfmt} and config files are read again, e.g. while watching.
+    void recreateFormatter() {
+        this.formatter = createFormatter();
+    }
 
-        CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
-        compilationUnit.recordModifications();
+    /// Checks the config files of the warm formatter for changes again, e.g. before each batch while watching.
+    void recheckConfigFiles() {
+        this.formatter.recheckConfigFiles();
+    }
 
-        // Create a package + CU
-        return compilationUnit;
+    TraceRecorder getTraceRecorder() {
+        return this.traceRecorder;
     }
 
     public OutputWriter getWriter() {
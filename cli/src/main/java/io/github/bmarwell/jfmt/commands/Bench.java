@@ -0,0 +1,277 @@
+package io.github.bmarwell.jfmt.commands;
+
+import io.github.bmarwell.jfmt.bench.BenchmarkConfiguration;
+import io.github.bmarwell.jfmt.bench.BenchmarkResult;
+import io.github.bmarwell.jfmt.bench.BenchmarkRunner;
+import io.github.bmarwell.jfmt.concurrency.BoundedVirtualThreadExecutor;
+import io.github.bmarwell.jfmt.nio.PathUtils;
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import io.github.bmarwell.jfmt.scheduling.SchedulingPolicy;
+import io.github.bmarwell.jfmt.writer.OutputWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.stream.IntStream;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+    name = "bench",
+    description = """
+                  Measure the formatting pipeline on this machine, to choose --jobs and the heap size.
+                  Files are read, formatted and diffed like with list, but nothing is written.
+                  Each combination of --jobs, --schedule and --cache is warmed up, then measured.""",
+    mixinStandardHelpOptions = true
+)
+public class Bench implements Callable<Integer> {
+
+    private static final String ROW_FORMAT = "%5s  %-24s  %5s  %9s  %7s  %8s  %8s  %8s  %8s  %7s  %9s";
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec;
+
+    @CommandLine.Mixin
+    FormatterOptions formatterOptions = new FormatterOptions();
+
+    @CommandLine.Mixin
+    VerbosityOptions verbosityOptions = new VerbosityOptions();
+
+    @CommandLine.Mixin
+    ColorOptions colorOptions = new ColorOptions();
+
+    @CommandLine.Parameters(
+        description = "Files or directories to measure. Nothing is written.",
+        arity = "1..*",
+        paramLabel = "<fileOrDirectory>"
+    )
+    List<Path> filesOrDirectories = new ArrayList<>();
+
+    @CommandLine.Option(
+        names = { "--warmup" },
+        description = "Iterations per configuration before measuring. Default: ${DEFAULT-VALUE}.",
+        defaultValue = "2"
+    )
+    int warmupIterations = 2;
+
+    @CommandLine.Option(
+        names = { "--iterations" },
+        description = "Measured iterations per configuration. Default: ${DEFAULT-VALUE}.",
+        defaultValue = "5"
+    )
+    int measuredIterations = 5;
+
+    @CommandLine.Option(
+        names = { "-j", "--jobs" },
+        description = """
+                      Numbers of concurrent files to compare, e.g. 4,8,16. Default: 1, half the processors,
+                      the processors, the default of --jobs and twice the processors.""",
+        split = ",",
+        paramLabel = "<jobs>"
+    )
+    List<Integer> jobs = new ArrayList<>();
+
+    @CommandLine.Option(
+        names = { "--schedule" },
+        description = """
+                      Orders to compare. Default: ${DEFAULT-VALUE}.
+                      Available: ${COMPLETION-CANDIDATES}.""",
+        defaultValue = "largest-first,discovery",
+        split = ","
+    )
+    List<SchedulingPolicy> schedulingPolicies = new ArrayList<>();
+
+    @CommandLine.Option(
+        names = { "--cache" },
+        description = """
+                      Whether the formatter, with its parsed configs and pooled JDT formatters, is kept between
+                      iterations (on) or created for each one (off). Default: ${DEFAULT-VALUE}.""",
+        defaultValue = "on,off",
+        split = ","
+    )
+    List<BenchmarkConfiguration.FormatterCache> formatterCaches = new ArrayList<>();
+
+    @CommandLine.Option(
+        names = { "--batch-bytes" },
+        description = "Like the option of list. Default: ${DEFAULT-VALUE}.",
+        defaultValue = "64k",
+        converter = ByteSizeConverter.class
+    )
+    long batchBytes = 64L * 1024L;
+
+    @CommandLine.Option(
+        names = { "--read-ahead" },
+        description = "Like the option of list. Default: ${DEFAULT-VALUE}.",
+        defaultValue = "16"
+    )
+    int readAhead = 16;
+
+    @Override
+    public Integer call() throws Exception {
+        validate();
+
+        final OutputWriter writer = new OutputWriter(
+            this.colorOptions.toAnsi(),
+            this.verbosityOptions.toVerbosityLevel(),
+            spec.commandLine().getOut(),
+            spec.commandLine().getErr()
+        );
+
+        try {
+            return bench(writer);
+        } finally {
+            writer.flush();
+        }
+    }
+
+    private int bench(OutputWriter writer) throws InterruptedException {
+        final List<SourceFile> files = PathUtils.discover(this.filesOrDirectories);
+        if (files.isEmpty()) {
+            writer.error("No Java files found", String.valueOf(this.filesOrDirectories));
+            return 1;
+        }
+
+        final long sourceBytes = files.stream().mapToLong(SourceFile::size).sum();
+        writer.info(
+            "Measuring",
+            String.format(
+                Locale.ROOT,
+                "%d files, %.1f MB, %d warm-up and %d measured iterations per configuration, max heap %d MB",
+                files.size(),
+                sourceBytes / 1e6,
+                this.warmupIterations,
+                this.measuredIterations,
+                Runtime.getRuntime().maxMemory() / 1_000_000L
+            )
+        );
+
+        final CommandLine.ParseResult parseResult = spec.commandLine().getParseResult();
+        final BenchmarkRunner runner = new BenchmarkRunner(
+            () -> this.formatterOptions.createFormatter(parseResult),
+            this.batchBytes,
+            this.readAhead
+        );
+
+        writer.output(
+            String.format(
+                Locale.ROOT,
+                ROW_FORMAT,
+                "jobs",
+                "schedule",
+                "cache",
+                "files/s",
+                "MB/s",
+                "p50 ms",
+                "p90 ms",
+                "p99 ms",
+                "max ms",
+                "GC ms",
+                "heap MB"
+            )
+        );
+
+        final List<BenchmarkResult> results = new ArrayList<>();
+        for (BenchmarkConfiguration configuration : configurations()) {
+            writer.debug("Measuring configuration", configuration::toString);
+            final BenchmarkResult result =
+                runner.run(configuration, files, this.warmupIterations, this.measuredIterations);
+            results.add(result);
+            writer.output(toRow(result));
+
+            if (result.failedFiles() > 0) {
+                writer.warn("Files not formatted", result.failedFiles() + " per iteration, e.g. syntax errors");
+            }
+        }
+
+        final BenchmarkConfiguration fastest = results.stream()
+            .max(Comparator.comparingDouble(BenchmarkResult::filesPerSecond))
+            .orElseThrow()
+            .configuration();
+        writer.info(
+            "Fastest",
+            String.format(
+                Locale.ROOT,
+                "--jobs %d --schedule %s (cache %s)",
+                fastest.jobs(),
+                fastest.schedulingPolicy(),
+                fastest.formatterCache()
+            )
+        );
+
+        return 0;
+    }
+
+    private void validate() {
+        if (this.warmupIterations < 0) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--warmup must not be negative");
+        }
+
+        if (this.measuredIterations < 1) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--iterations must be at least 1");
+        }
+
+        if (this.jobs.stream().anyMatch(jobCount -> jobCount < 1)) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--jobs must be at least 1");
+        }
+    }
+
+    /// All combinations, jobs first, so that the rows of one number of jobs are next to each other.
+    private List<BenchmarkConfiguration> configurations() {
+        final List<BenchmarkConfiguration> configurations = new ArrayList<>();
+
+        for (int jobCount : jobCounts()) {
+            for (SchedulingPolicy schedulingPolicy : this.schedulingPolicies) {
+                for (BenchmarkConfiguration.FormatterCache formatterCache : this.formatterCaches) {
+                    configurations.add(new BenchmarkConfiguration(jobCount, schedulingPolicy, formatterCache));
+                }
+            }
+        }
+
+        return configurations;
+    }
+
+    private List<Integer> jobCounts() {
+        if (!this.jobs.isEmpty()) {
+            return this.jobs.stream().distinct().toList();
+        }
+
+        final int processors = Runtime.getRuntime().availableProcessors();
+
+        return IntStream.of(
+            1,
+            Math.max(1, processors / 2),
+            processors,
+            BoundedVirtualThreadExecutor.defaultConcurrency(),
+            processors * 2
+        )
+            .distinct()
+            .sorted()
+            .boxed()
+            .toList();
+    }
+
+    private static String toRow(BenchmarkResult result) {
+        final BenchmarkConfiguration configuration = result.configuration();
+
+        return String.format(
+            Locale.ROOT,
+            ROW_FORMAT,
+            configuration.jobs(),
+            configuration.schedulingPolicy(),
+            configuration.formatterCache(),
+            String.format(Locale.ROOT, "%.1f", result.filesPerSecond()),
+            String.format(Locale.ROOT, "%.2f", result.megabytesPerSecond()),
+            millis(result.p50Nanos()),
+            millis(result.p90Nanos()),
+            millis(result.p99Nanos()),
+            millis(result.maxNanos()),
+            result.gcMillisPerIteration(),
+            result.peakHeapBytes() / 1_000_000L
+        );
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.2f", nanos / 1e6);
+    }
+}
@@ -0,0 +1,56 @@
+package io.github.bmarwell.jfmt.commands;
+
+import java.util.Locale;
+import picocli.CommandLine;
+
+/**
+ * Converts human-friendly byte sizes like {@code 64k}, {@code 512KiB} or {@code 2m} into a number of bytes.
+ *
+ * <p>Units are binary (1k = 1024 bytes). A plain number is interpreted as bytes. Zero is allowed, options using
+ * this converter document what it means.</p>
+ */
+public class ByteSizeConverter implements CommandLine.ITypeConverter<Long> {
+
+    @Override
+    public Long convert(String value) {
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+        String withoutSuffix = stripSuffix(stripSuffix(trimmed, "ib"), "b");
+
+        if (withoutSuffix.endsWith("k")) {
+            return parseAmount(value, withoutSuffix.substring(0, withoutSuffix.length() - 1), 1L << 10);
+        }
+
+        if (withoutSuffix.endsWith("m")) {
+            return parseAmount(value, withoutSuffix.substring(0, withoutSuffix.length() - 1), 1L << 20);
+        }
+
+        if (withoutSuffix.endsWith("g")) {
+            return parseAmount(value, withoutSuffix.substring(0, withoutSuffix.length() - 1), 1L << 30);
+        }
+
+        return parseAmount(value, withoutSuffix, 1L);
+    }
+
+    private static String stripSuffix(String value, String suffix) {
+        if (!value.endsWith(suffix)) {
+            return value;
+        }
+
+        return value.substring(0, value.length() - suffix.length());
+    }
+
+    private static long parseAmount(String original, String amount, long multiplier) {
+        try {
+            long parsed = Long.parseLong(amount.trim());
+            if (parsed < 0) {
+                throw new CommandLine.TypeConversionException("Size must not be negative: " + original);
+            }
+
+            return Math.multiplyExact(parsed, multiplier);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new CommandLine.TypeConversionException(
+                "Invalid size '" + original + "', expected e.g. 4096, 64k, 512KiB or 2m"
+            );
+        }
+    }
+}
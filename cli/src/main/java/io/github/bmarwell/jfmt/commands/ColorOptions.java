@@ -0,0 +1,21 @@
+package io.github.bmarwell.jfmt.commands;
+
+import picocli.CommandLine;
+
+/**
+ * Mixin for turning off colored output.
+ *
+ * <p>Colors are used if the terminal supports them, unless --no-color is given.
+ */
+public class ColorOptions {
+
+    @CommandLine.Option(
+        names = { "--no-colour", "--no-color" },
+        description = "Force no colored output, even if the terminal supports it."
+    )
+    boolean noColor;
+
+    public CommandLine.Help.Ansi toAnsi() {
+        return noColor ? CommandLine.Help.Ansi.OFF : CommandLine.Help.Ansi.AUTO;
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.bmarwell.jfmt.commands;
+
+import java.time.Duration;
+import java.util.Locale;
+import picocli.CommandLine;
+
+/**
+ * Converts human-friendly durations like {@code 500ms}, {@code 30s} or {@code 2m} into a {@link Duration}.
+ *
+ * <p>A plain number is interpreted as seconds. ISO-8601 values like {@code PT30S} are accepted as well.</p>
+ */
+public class DurationConverter implements CommandLine.ITypeConverter<Duration> {
+
+    @Override
+    public Duration convert(String value) {
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+
+        if (trimmed.startsWith("pt")) {
+            return Duration.parse(trimmed);
+        }
+
+        if (trimmed.endsWith("ms")) {
+            return Duration.ofMillis(parseAmount(value, trimmed.substring(0, trimmed.length() - 2)));
+        }
+
+        if (trimmed.endsWith("s")) {
+            return Duration.ofSeconds(parseAmount(value, trimmed.substring(0, trimmed.length() - 1)));
+        }
+
+        if (trimmed.endsWith("m")) {
+            return Duration.ofMinutes(parseAmount(value, trimmed.substring(0, trimmed.length() - 1)));
+        }
+
+        return Duration.ofSeconds(parseAmount(value, trimmed));
+    }
+
+    private static long parseAmount(String original, String amount) {
+        try {
+            long parsed = Long.parseLong(amount.trim());
+            if (parsed <= 0) {
+                throw new CommandLine.TypeConversionException("Duration must be positive: " + original);
+            }
+
+            return parsed;
+        } catch (NumberFormatException nfe) {
+            throw new CommandLine.TypeConversionException(
+                "Invalid duration '" + original + "', expected e.g. 500ms, 30s or 2m"
+            );
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.bmarwell.jfmt.commands;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import io.github.bmarwell.jfmt.format.FormatPhaseListener;
+import io.github.bmarwell.jfmt.format.FormatterSettings;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.nio.file.Path;
+import java.time.Duration;
+import picocli.CommandLine;
+
+/**
+ * Mixin for the options which decide how a file is formatted.
+ *
+ * <p>Shared by the commands working on files and by {@link Lsp}, so that an editor formats exactly like the command
+ * line.</p>
+ */
+public class FormatterOptions {
+
+    @CommandLine.Option(
+        names = { "--config" },
+        description = """
+                      Named config. Default: ${DEFAULT-VALUE}.
+                      Available configs: ${COMPLETION-CANDIDATES}""",
+        defaultValue = "builtin"
+    )
+    CliNamedConfig config = CliNamedConfig.builtin;
+
+    @CommandLine.Option(
+        names = { "--config-file" },
+        description = """
+                      Path to a config file. If unset (default), the named config (--config) will be used."""
+    )
+    Path configFile;
+
+    @CommandLine.Option(
+        names = { "--import-order" },
+        description = "Named import order. Default: ${DEFAULT-VALUE}. Available: ${COMPLETION-CANDIDATES}",
+        defaultValue = "defaultorder"
+    )
+    public CliNamedImportOrder importOrder = CliNamedImportOrder.defaultorder;
+
+    @CommandLine.Option(
+        names = { "--import-order-file" },
+        description = "Path to an import-order properties file. If set, overrides --import-order."
+    )
+    public Path importOrderFile;
+
+    @CommandLine.Option(
+        names = { "--imports-only" },
+        description = """
+                      Only reorder imports, without running the formatter. The import block is located
+                      without parsing the whole file, so syntax errors after the imports go unnoticed."""
+    )
+    boolean importsOnly;
+
+    @CommandLine.Option(
+        names = { "--parallel-format-threshold" },
+        description = """
+                      Files of at least this size, e.g. 512k, are split at member boundaries and formatted
+                      on several threads. 0 disables it. Default: ${DEFAULT-VALUE}.""",
+        defaultValue = "512k",
+        converter = ByteSizeConverter.class
+    )
+    long parallelFormatThreshold = 512L * 1024L;
+
+    @CommandLine.Option(
+        names = { "--file-timeout" },
+        description = """
+                      Maximum time to spend on a single file, e.g. 500ms, 30s or 2m.
+                      Files exceeding it are reported as timed out. Default: no timeout.""",
+        converter = DurationConverter.class
+    )
+    Duration fileTimeout;
+
+    /**
+     * Creates the formatter for these options.
+     *
+     * <p>The options are the defaults for the style of each file (see {@link StyleResolver}), unless given explicitly:
+     * then they override all {@code .jfmt} files.</p>
+     *
+     * @param parseResult
+     *     the parsed command line, to tell explicit options from defaults.
+     * @return a new formatter.
+     */
+    JFmtFormatter createFormatter(CommandLine.ParseResult parseResult) {
+        return createFormatter(parseResult, FormatPhaseListener.NONE);
+    }
+
+    /**
+     * Like {@link #createFormatter(CommandLine.ParseResult)}, but tells the listener about each phase of each file.
+     */
+    JFmtFormatter createFormatter(CommandLine.ParseResult parseResult, FormatPhaseListener phaseListener) {
+        final FormatterStyle defaults = new FormatterStyle(
+            this.config,
+            this.configFile,
+            this.importOrder,
+            this.importOrderFile
+        );
+
+        final StyleOverrides commandLine = new StyleOverrides(
+            parseResult.hasMatchedOption("--config") ? this.config : null,
+            this.configFile,
+            parseResult.hasMatchedOption("--import-order") ? this.importOrder : null,
+            this.importOrderFile,
+            false
+        );
+
+        final FormatterSettings settings = FormatterSettings.of(new StyleResolver(defaults, commandLine))
+            .withImportsOnly(this.importsOnly)
+            .withParallelFormatThreshold(this.parallelFormatThreshold)
+            .withTimeout(this.fileTimeout)
+            .withPhaseListener(phaseListener);
+
+        return JFmtFormatter.create(settings);
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.bmarwell.jfmt.commands;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A tiny source file formatted on a background thread while the file tree is discovered.
+ *
+ * <p>Formatting it loads and initializes the classes of the JDT parser, the import rewrite and the formatter, and
+ * leaves a ready formatter in the pool of the {@link io.github.bmarwell.jfmt.format.JFmtFormatter}. The first real
+ * file then does not pay for it.</p>
+ */
+final class FormatterWarmUp {
+
+    /// Formatted on a background thread at startup, to load and JIT-compile the JDT classes with the usual constructs.
+    /// The record is not public, so the file name it is formatted as does not matter.
+    static final String SAMPLE =
+        """
+        package jfmt.warmup;
+
+        import static java.util.Objects.requireNonNull;
+
+        import java.util.List;
+        import java.util.function.Predicate;
+
+        /**
+         * Covers the usual constructs, {@code record}, {@code switch} and lambdas.
+         */
+        record WarmUp(List<String> values) {
+
+            WarmUp {
+                requireNonNull(values);
+            }
+
+            long count(Object value) {
+                return switch (value) {
+                    case String text when !text.isEmpty() -> values.stream().filter(Predicate.isEqual(text)).count();
+                    default -> 0L;
+                };
+            }
+        }
+        """;
+
+    /// Name of the (non-existing) sample file.
+    static final String SAMPLE_FILE_NAME = "JfmtWarmUp.java";
+
+    private FormatterWarmUp() {
+        // utility class
+    }
+
+    /**
+     * Where the sample pretends to be, so that it is formatted in the style of the first given file or directory.
+     *
+     * @param filesOrDirectories
+     *     the files and directories given on the command line.
+     * @return a path of a Java file, which does not exist.
+     */
+    static Path sampleFile(Path @Nullable [] filesOrDirectories) {
+        if (filesOrDirectories == null || filesOrDirectories.length == 0) {
+            return Path.of(SAMPLE_FILE_NAME);
+        }
+
+        final Path first = filesOrDirectories[0];
+        if (Files.isDirectory(first)) {
+            return first.resolve(SAMPLE_FILE_NAME);
+        }
+
+        return first.resolveSibling(SAMPLE_FILE_NAME);
+    }
+}
@@ -1,8 +1,9 @@
 package io.github.bmarwell.jfmt.commands;
 
-import io.github.bmarwell.jfmt.config.CliNamedConfig;
-import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import io.github.bmarwell.jfmt.scheduling.SchedulingPolicy;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import picocli.CommandLine;
 
 public class GlobalOptions {
@@ -28,39 +29,118 @@ public class GlobalOptions {
     }
 
     @CommandLine.Option(
-        names = { "--config" },
+        names = { "-j", "--jobs" },
         description = """
-                      Named config. Default: ${DEFAULT-VALUE}.
-                      Available configs: ${COMPLETION-CANDIDATES}""",
-        defaultValue = "builtin"
+                      Number of files processed concurrently, or auto to tune it while running.
+                      Default: ${DEFAULT-VALUE}. See --remember-jobs.""",
+        defaultValue = "auto",
+        converter = JobsConverter.class
     )
-    CliNamedConfig config = CliNamedConfig.builtin;
+    int jobs = JobsConverter.AUTO;
 
     @CommandLine.Option(
-        names = { "--config-file" },
+        names = { "--remember-jobs" },
         description = """
-                      Path to a config file. If unset (default), the named config (--config) will be used."""
+                      With --jobs auto, start at the number of jobs tuned by the previous run on this host,
+                      and remember the one tuned by this run. It is kept in the user cache directory."""
     )
-    Path configFile;
+    boolean rememberJobs;
 
     @CommandLine.Option(
-        names = { "--no-colour", "--no-color" },
-        description = "Force no colored output, even if the terminal supports it."
+        names = { "--io-rate" },
+        description = """
+                      Maximum disk throughput for reading and writing files in MB/s, e.g. 20 or 0.5.
+                      Default: unlimited."""
     )
-    public boolean noColor;
+    Double ioRate;
 
     @CommandLine.Option(
-        names = { "--import-order" },
-        description = "Named import order. Default: ${DEFAULT-VALUE}. Available: ${COMPLETION-CANDIDATES}",
-        defaultValue = "defaultorder"
+        names = { "--background" },
+        description = """
+                      Run with low priority on shared hosts: use only a quarter of the processors
+                      (unless --jobs is set to a number) and pause briefly after each file."""
     )
-    public CliNamedImportOrder importOrder = CliNamedImportOrder.defaultorder;
+    boolean background;
+
+    // Workers used in --background mode, unless set explicitly with --jobs.
+    static int backgroundJobs() {
+        return Math.max(1, Runtime.getRuntime().availableProcessors() / 4);
+    }
 
     @CommandLine.Option(
-        names = { "--import-order-file" },
-        description = "Path to an import-order properties file. If set, overrides --import-order."
+        names = { "--skip-generated" },
+        description = """
+                      Skip generated sources. Only the first few KB of each file are read
+                      to look for the markers of --generated-marker."""
+    )
+    boolean skipGenerated;
+
+    @CommandLine.Option(
+        names = { "--generated-marker" },
+        description = """
+                      Marker identifying a generated source in its first few KB, used with --skip-generated.
+                      It must not be followed by a letter or digit; annotations also match qualified, e.g.
+                      @javax.annotation.processing.Generated. Can be repeated.
+                      Default: @Generated, DO NOT EDIT and Generated by.""",
+        paramLabel = "<marker>"
+    )
+    List<String> generatedMarkers = new ArrayList<>();
+
+    @CommandLine.Option(
+        names = { "--schedule" },
+        description = """
+                      Order in which files are processed. Default: ${DEFAULT-VALUE}.
+                      Available: ${COMPLETION-CANDIDATES}.
+                      previously-failed-first keeps a small failure history in the user cache directory.""",
+        defaultValue = "largest-first"
+    )
+    SchedulingPolicy schedulingPolicy = SchedulingPolicy.LARGEST_FIRST;
+
+    @CommandLine.Option(
+        names = { "--batch-bytes" },
+        description = """
+                      Small files are processed in batches of up to this many bytes by a single worker, e.g. 64k.
+                      Larger files are always processed on their own. 0 disables batching.
+                      Default: ${DEFAULT-VALUE}.""",
+        defaultValue = "64k",
+        converter = ByteSizeConverter.class
     )
-    public Path importOrderFile;
+    long batchBytes = 64L * 1024L;
+
+    @CommandLine.Option(
+        names = { "--read-ahead" },
+        description = """
+                      Number of files read ahead of the workers, in processing order. 0 reads files on demand.
+                      Default: ${DEFAULT-VALUE}.""",
+        defaultValue = "16"
+    )
+    int readAhead = 16;
+
+    @CommandLine.Option(
+        names = { "--memory-budget" },
+        description = """
+                      Maximum estimated heap used by files in flight, e.g. 512m. A file only starts when its
+                      estimate fits, files larger than the budget run alone. 0 disables the limit.
+                      Default: half of the maximum heap size.""",
+        converter = ByteSizeConverter.class
+    )
+    Long memoryBudget;
+
+    @CommandLine.Option(
+        names = { "--trace-file" },
+        description = """
+                      Write a timeline of the run to this file, in the Chrome trace event format:
+                      a span per file and phase on each thread. Open it in ui.perfetto.dev or chrome://tracing.
+                      While watching, the file is replaced after each batch of changes.""",
+        paramLabel = "<file>"
+    )
+    Path traceFile;
+
+    @CommandLine.Mixin
+    public ColorOptions colorOptions = new ColorOptions();
+
+    @CommandLine.Mixin
+    public FormatterOptions formatterOptions = new FormatterOptions();
 
     @CommandLine.Mixin
     public VerbosityOptions verbosityOptions = new VerbosityOptions();
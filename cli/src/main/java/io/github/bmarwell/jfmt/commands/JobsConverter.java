@@ -0,0 +1,35 @@
+package io.github.bmarwell.jfmt.commands;
+
+import java.util.Locale;
+import picocli.CommandLine;
+
+/**
+ * Converts the {@code --jobs} value: a positive number of concurrent jobs, or {@code auto}.
+ */
+public class JobsConverter implements CommandLine.ITypeConverter<Integer> {
+
+    /// Value representing {@code auto}: tune the number of jobs while running.
+    public static final int AUTO = 0;
+
+    @Override
+    public Integer convert(String value) {
+        String trimmed = value.trim().toLowerCase(Locale.ROOT);
+
+        if ("auto".equals(trimmed)) {
+            return AUTO;
+        }
+
+        try {
+            int jobs = Integer.parseInt(trimmed);
+            if (jobs < 1) {
+                throw new CommandLine.TypeConversionException("Number of jobs must be at least 1: " + value);
+            }
+
+            return jobs;
+        } catch (NumberFormatException nfe) {
+            throw new CommandLine.TypeConversionException(
+                "Invalid number of jobs '" + value + "', expected a positive number or auto"
+            );
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.bmarwell.jfmt.commands;
+
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.lsp.LanguageServer;
+import io.github.bmarwell.jfmt.writer.OutputWriter;
+import java.io.BufferedInputStream;
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+    name = "lsp",
+    description = """
+                  Run a language server on stdin and stdout, to format in editors.
+                  Supports textDocument/formatting, rangeFormatting and onTypeFormatting.
+                  The formatter stays warm between requests. The options apply to all
+                  documents, .jfmt files are honoured like on the command line.""",
+    mixinStandardHelpOptions = true
+)
+public class Lsp implements Callable<Integer> {
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec;
+
+    @CommandLine.Mixin
+    FormatterOptions formatterOptions = new FormatterOptions();
+
+    @CommandLine.Mixin
+    VerbosityOptions verbosityOptions = new VerbosityOptions();
+
+    @Override
+    public Integer call() throws Exception {
+        // stdout belongs to the protocol: diagnostics go to stderr only, without colours, as editors log them.
+        final PrintWriter err = spec.commandLine().getErr();
+        final OutputWriter writer =
+            new OutputWriter(CommandLine.Help.Ansi.OFF, this.verbosityOptions.toVerbosityLevel(), err, err);
+        final JFmtFormatter formatter = this.formatterOptions.createFormatter(spec.commandLine().getParseResult());
+        Thread.ofVirtual().name("jfmt-warm-up").start(() -> warmUp(formatter, writer));
+
+        final OutputStream out = new FileOutputStream(FileDescriptor.out);
+        final LanguageServer server = LanguageServer.create(
+            formatter,
+            new BufferedInputStream(new FileInputStream(FileDescriptor.in)),
+            out,
+            writer
+        );
+
+        try {
+            return server.run();
+        } finally {
+            writer.flush();
+        }
+    }
+
+    /**
+     * Formats a {@link FormatterWarmUp#SAMPLE sample} before the first request, usually while the editor is still
+     * starting up.
+     */
+    private static void warmUp(JFmtFormatter formatter, OutputWriter writer) {
+        final long start = System.nanoTime();
+
+        try {
+            formatter.format(Path.of(FormatterWarmUp.SAMPLE_FILE_NAME), FormatterWarmUp.SAMPLE);
+
+            writer.debug("Warmed up formatter", Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms");
+        } catch (RuntimeException | LinkageError warmUpException) {
+            // e.g. an invalid config, which is reported for the first request.
+            writer.debug("Warm-up failed", String.valueOf(warmUpException.getMessage()));
+        }
+    }
+}
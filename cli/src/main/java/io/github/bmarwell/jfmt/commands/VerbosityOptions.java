@@ -1,5 +1,6 @@
 package io.github.bmarwell.jfmt.commands;
 
+import io.github.bmarwell.jfmt.writer.OutputWriter;
 import picocli.CommandLine;
 
 /**
@@ -38,4 +39,16 @@ public class VerbosityOptions {
     public boolean isDefault() {
         return !verbosityLevel.verbose && !verbosityLevel.silent;
     }
+
+    public OutputWriter.VerbosityLevel toVerbosityLevel() {
+        if (isVerbose()) {
+            return OutputWriter.VerbosityLevel.VERBOSE;
+        }
+
+        if (isSilent()) {
+            return OutputWriter.VerbosityLevel.SILENT;
+        }
+
+        return OutputWriter.VerbosityLevel.DEFAULT;
+    }
 }
@@ -0,0 +1,233 @@
+package io.github.bmarwell.jfmt.commands;
+
+import com.github.difflib.patch.Patch;
+import io.github.bmarwell.jfmt.format.FileProcessingResult;
+import io.github.bmarwell.jfmt.format.FormatterMode;
+import io.github.bmarwell.jfmt.nio.DirectoryWatcher;
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
+import picocli.CommandLine;
+
+@CommandLine.Command(
+    name = "watch",
+    description = """
+                  Check all files once, then keep watching them and re-check the changed files.
+                  With --write, files are formatted instead.
+                  Hidden directories like .git are not watched. Stop with Ctrl+C.""",
+    mixinStandardHelpOptions = true
+)
+public class Watch extends AbstractCommand {
+
+    @CommandLine.Option(
+        names = { "-w", "--write" },
+        description = "Write the formatted source code back to changed files, instead of listing them."
+    )
+    boolean write;
+
+    @CommandLine.Option(
+        names = { "--debounce" },
+        description = """
+                      Time without further changes before changed files are processed, e.g. 300ms.
+                      A burst of changes, like a git checkout, is processed at once. Default: ${DEFAULT-VALUE}.""",
+        defaultValue = "300ms",
+        converter = DurationConverter.class
+    )
+    Duration debounce = Duration.ofMillis(300);
+
+    /// The state of each file after it was written, to tell our own writes from changes by others.
+    private final ConcurrentMap<Path, SourceFile> ownWrites = new ConcurrentHashMap<>();
+
+    @Override
+    FormatterMode getFormatterMode() {
+        return this.write ? FormatterMode.WRITE : FormatterMode.LIST;
+    }
+
+    /**
+     * Processes all files like {@code list} or {@code write}, then processes each batch of changed files until
+     * interrupted.
+     *
+     * <p>The formatter stays warm between the batches. The watches are registered before the first pass, so that
+     * changes made meanwhile are not lost. After a change of a {@code .jfmt} file, the {@code --config-file} or the
+     * {@code --import-order-file}, the formatter is created again and all files are processed again.</p>
+     *
+     * <p>A failing batch, e.g. because of an invalid config file, is reported, and the watch goes on: the next change
+     * may well fix it.</p>
+     *
+     * @return {@code 1} if the files cannot be watched, {@code 0} once interrupted.
+     */
+    @Override
+    public Integer call() throws Exception {
+        try {
+            return watch();
+        } finally {
+            getWriter().flush();
+        }
+    }
+
+    private int watch() throws Exception {
+        final DirectoryWatcher watcher;
+
+        try {
+            watcher = DirectoryWatcher.start(List.of(this.globalOptions.filesOrDirectories), givenConfigFiles());
+        } catch (IllegalArgumentException | IOException | UncheckedIOException watchException) {
+            getWriter().error("Cannot watch", watchException.getMessage());
+            return 1;
+        }
+
+        try (watcher) {
+            // the result of the first pass is reported like any other, the watch goes on anyway.
+            processBatch(super::call);
+            getWriter().info("Watching for changes", watcher.watchedDirectories() + " directories");
+
+            while (true) {
+                final Set<Path> changes = watcher.awaitChanges(this.debounce);
+                processBatch(() -> processChanges(watcher, changes));
+            }
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            return 0;
+        }
+    }
+
+    private List<Path> givenConfigFiles() {
+        final FormatterOptions formatterOptions = this.globalOptions.formatterOptions;
+
+        return Stream.of(formatterOptions.configFile, formatterOptions.importOrderFile)
+            .filter(Objects::nonNull)
+            .toList();
+    }
+
+    /**
+     * Reports a failed batch instead of ending the watch.
+     *
+     * <p>The config files of the styles are checked for changes once per batch, which also covers config files named
+     * by a {@code .jfmt} file outside the watched directories.</p>
+     *
+     * <p>The trace of a batch is written by the batch itself, then cleared: the {@code --trace-file} shows the last
+     * batch only, instead of growing with every batch.</p>
+     */
+    private void processBatch(Callable<Integer> batch) throws InterruptedException {
+        try {
+            recheckConfigFiles();
+            batch.call();
+        } catch (InterruptedException interruptedException) {
+            throw interruptedException;
+        } catch (Exception batchException) {
+            getWriter().error("Could not process changes", String.valueOf(batchException.getMessage()));
+            getWriter().flush();
+        } finally {
+            getTraceRecorder().clear();
+        }
+    }
+
+    private int processChanges(DirectoryWatcher watcher, Set<Path> changes) throws Exception {
+        if (changes.stream().anyMatch(watcher::isConfigFile)) {
+            // the style of any number of files may have changed.
+            getWriter().info("Changed config files", "checking all files again");
+            recreateFormatter();
+
+            return super.call();
+        }
+
+        final List<SourceFile> changedFiles = changes.stream()
+            .flatMap(this::stillExisting)
+            .filter(changedFile -> !isOwnWrite(changedFile))
+            .map(Watch::relativeToWorkingDirectory)
+            .toList();
+
+        if (changedFiles.isEmpty()) {
+            return 0;
+        }
+
+        getWriter().debug("Changed files", String.valueOf(changedFiles.size()));
+        final int result = processAll(changedFiles);
+        writeTrace();
+
+        return result;
+    }
+
+    /// A file may be deleted between the change and now, which is not an error.
+    private Stream<SourceFile> stillExisting(Path changedFile) {
+        try {
+            return Stream.of(SourceFile.of(changedFile));
+        } catch (UncheckedIOException ioException) {
+            getWriter().debug("Changed file is gone", changedFile.toString());
+            return Stream.empty();
+        }
+    }
+
+    /**
+     * Whether the only change of the file since it was formatted is our own write.
+     *
+     * <p>Compares size and modification time, like {@code make}. Without it, each write would trigger another
+     * check of the same file.</p>
+     */
+    private boolean isOwnWrite(SourceFile changedFile) {
+        final SourceFile written = this.ownWrites.remove(changedFile.path());
+
+        return changedFile.equals(written);
+    }
+
+    /// The watcher reports absolute paths, while the first pass reports them as given.
+    private static SourceFile relativeToWorkingDirectory(SourceFile changedFile) {
+        final Path workingDirectory = Path.of("").toAbsolutePath();
+        if (!changedFile.path().startsWith(workingDirectory)) {
+            return changedFile;
+        }
+
+        return new SourceFile(
+            workingDirectory.relativize(changedFile.path()),
+            changedFile.size(),
+            changedFile.lastModified()
+        );
+    }
+
+    @Override
+    FileProcessingResult processRevisedSourceCode(
+        Path javaFile,
+        String sourceCode,
+        String revisedSourceCode,
+        List<String> originalSourceLines,
+        List<String> revisedSourceLines,
+        Patch<String> patch
+    ) {
+        if (patch.getDeltas().isEmpty()) {
+            return new FileProcessingResult(javaFile, false, false, true);
+        }
+
+        if (!this.write) {
+            return new FileProcessingResult(javaFile, true, false, this.globalOptions.reportAll());
+        }
+
+        final long start = System.nanoTime();
+        final byte[] revisedBytes = revisedSourceCode.getBytes(StandardCharsets.UTF_8);
+        throttleIo(revisedBytes.length);
+
+        try (var os = Files.newOutputStream(javaFile, StandardOpenOption.TRUNCATE_EXISTING)) {
+            os.write(revisedBytes);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        } finally {
+            getTraceRecorder().record("write", javaFile, start);
+        }
+
+        final Path absoluteFile = javaFile.toAbsolutePath().normalize();
+        this.ownWrites.put(absoluteFile, SourceFile.of(absoluteFile));
+        getWriter().info("Wrote formatted file", javaFile.toString());
+
+        return new FileProcessingResult(javaFile, false, true, this.globalOptions.reportAll());
+    }
+}
@@ -41,15 +41,21 @@ public class Write extends AbstractCommand {
             return new FileProcessingResult(javaFile, false, false, true);
         }
 
+        final long start = System.nanoTime();
+        final byte[] revisedBytes = revisedSourceCode.getBytes(StandardCharsets.UTF_8);
+        throttleIo(revisedBytes.length);
+
         try (var os =
             Files.newOutputStream(javaFile, StandardOpenOption.TRUNCATE_EXISTING)) {
-            os.write(revisedSourceCode.getBytes(StandardCharsets.UTF_8));
+            os.write(revisedBytes);
 
             getWriter().info("Wrote formatted file", javaFile.toString());
 
             return new FileProcessingResult(javaFile, false, true, this.globalOptions.reportAll());
         } catch (IOException ioException) {
             throw new UncheckedIOException(ioException);
+        } finally {
+            getTraceRecorder().record("write", javaFile, start);
         }
     }
 }
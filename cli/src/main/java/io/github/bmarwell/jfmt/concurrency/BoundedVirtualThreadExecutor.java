@@ -1,60 +1,255 @@
 package io.github.bmarwell.jfmt.concurrency;
 
-import java.util.concurrent.Semaphore;
+import io.github.bmarwell.jfmt.trace.TraceRecorder;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.StructuredTaskScope;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 /**
- * Creates virtual threads with bounded concurrency using a semaphore.
+ * Forks virtual threads into a {@link StructuredTaskScope} with bounded concurrency using a semaphore.
  *
  * <p>Limits concurrent execution to avoid starting too many tasks before fail-fast can cancel
  * unstarted ones. Uses virtual threads for lightweight concurrency without OS thread overhead.</p>
  *
- * <p>The semaphore approach is simpler than using a fixed thread pool since StructuredTaskScope
- * expects a ThreadFactory, not an Executor.</p>
+ * <p>The permit is acquired by the forking thread <em>before</em> a subtask is forked, not inside the subtask.
+ * Forking everything up front and letting each thread park on the semaphore would create one virtual thread (plus
+ * its captured closure) per file, so memory would grow with the number of files instead of the concurrency. With
+ * this windowed approach, at most {@code maxConcurrency} subtasks exist at any time, and fail-fast cancellation
+ * only has to cancel those.</p>
+ *
+ * <p>The number of permits follows a {@link ConcurrencyLimit}. An adaptive limit is updated whenever a subtask
+ * completes; shrinking never interrupts running subtasks, it just delays the next fork.</p>
+ *
+ * <p>Besides the concurrency limit, work can be admitted against a {@link MemoryBudget}: the forking thread then
+ * also waits until the estimated working set of the next item fits into the budget.</p>
+ *
+ * <p>The waits of the forking thread are recorded by a {@link TraceRecorder}, as they show when the window or the
+ * budget is the bottleneck. Waits shorter than {@link #MIN_TRACED_WAIT_NANOS} are not recorded: a free permit or
+ * enough memory is the common case, and a span per file for it would only clutter the timeline.</p>
  */
 public class BoundedVirtualThreadExecutor {
 
-    private BoundedVirtualThreadExecutor() {
-        // Utility class
+    /// Waits are only recorded from 100 µs on, which is well above an uncontended acquire.
+    static final long MIN_TRACED_WAIT_NANOS = 100_000L;
+
+    private final ConcurrencyLimit concurrencyLimit;
+
+    private final ResizableSemaphore permits;
+
+    private final MemoryBudget memoryBudget;
+
+    private final TraceRecorder traceRecorder;
+
+    private final ThreadFactory threadFactory = Thread.ofVirtual().name("jfmt-worker-", 0).factory();
+
+    private BoundedVirtualThreadExecutor(
+        ConcurrencyLimit concurrencyLimit,
+        MemoryBudget memoryBudget,
+        TraceRecorder traceRecorder
+    ) {
+        this.concurrencyLimit = concurrencyLimit;
+        this.permits = new ResizableSemaphore(concurrencyLimit.current());
+        this.memoryBudget = memoryBudget;
+        this.traceRecorder = traceRecorder;
     }
 
     /**
-     * Creates a thread factory with bounded virtual thread concurrency.
+     * Creates an executor with the default concurrency limit.
      *
      * <p>Default limit is CPU cores * 1.5, reasonable for I/O-bound operations.
      *
-     * @return thread factory limited to CPU cores * 1.5 concurrent tasks
+     * @return executor limited to CPU cores * 1.5 concurrent tasks
      */
-    public static ThreadFactory create() {
-        int defaultLimit = (int) Math.ceil(Runtime.getRuntime().availableProcessors() * 1.5);
-        return create(defaultLimit);
+    public static BoundedVirtualThreadExecutor create() {
+        return create(defaultConcurrency());
     }
 
     /**
-     * Creates a thread factory with specified concurrency limit.
+     * Creates an executor with specified concurrency limit.
      *
      * @param maxConcurrency
      *     maximum number of concurrent virtual threads
-     * @return bounded thread factory
+     * @return bounded executor
+     */
+    public static BoundedVirtualThreadExecutor create(int maxConcurrency) {
+        return create(ConcurrencyLimit.fixed(maxConcurrency), MemoryBudget.unlimited());
+    }
+
+    /**
+     * Creates an executor with the given (possibly adaptive) concurrency limit, which also admits work against a
+     * memory budget.
+     *
+     * @param concurrencyLimit
+     *     the number of concurrent virtual threads
+     * @param memoryBudget
+     *     the budget used by {@link #forkAll(StructuredTaskScope, Iterator, ToLongFunction, Function)}
+     * @return bounded executor
      */
-    public static ThreadFactory create(int maxConcurrency) {
-        Semaphore semaphore = new Semaphore(maxConcurrency);
-        ThreadFactory virtualFactory = Thread.ofVirtual().factory();
+    public static BoundedVirtualThreadExecutor create(ConcurrencyLimit concurrencyLimit, MemoryBudget memoryBudget) {
+        return create(concurrencyLimit, memoryBudget, TraceRecorder.disabled());
+    }
+
+    /**
+     * Like {@link #create(ConcurrencyLimit, MemoryBudget)}, but records the waits for permits and memory.
+     *
+     * @param concurrencyLimit
+     *     the number of concurrent virtual threads
+     * @param memoryBudget
+     *     the budget used by {@link #forkAll(StructuredTaskScope, Iterator, ToLongFunction, Function)}
+     * @param traceRecorder
+     *     records a span per wait
+     * @return bounded executor
+     */
+    public static BoundedVirtualThreadExecutor create(
+        ConcurrencyLimit concurrencyLimit,
+        MemoryBudget memoryBudget,
+        TraceRecorder traceRecorder
+    ) {
+        return new BoundedVirtualThreadExecutor(concurrencyLimit, memoryBudget, traceRecorder);
+    }
+
+    public static int defaultConcurrency() {
+        return (int) Math.ceil(Runtime.getRuntime().availableProcessors() * 1.5);
+    }
+
+    public ConcurrencyLimit concurrencyLimit() {
+        return this.concurrencyLimit;
+    }
 
-        return task -> {
-            Runnable wrapped = () -> {
+    /**
+     * Thread factory to configure the {@link StructuredTaskScope} with.
+     *
+     * @return a factory for named virtual threads.
+     */
+    public ThreadFactory threadFactory() {
+        return this.threadFactory;
+    }
+
+    /**
+     * Forks the given tasks, but only as permits become available.
+     *
+     * <p>Blocks the calling thread (usually the scope owner) while the window is full. Stops forking as soon as the
+     * scope was cancelled, e.g. by the fail-fast joiner; tasks not yet taken from the iterator are never created.</p>
+     *
+     * @param scope
+     *     the scope to fork into
+     * @param tasks
+     *     the tasks to fork, ideally created lazily
+     * @param <T>
+     *     the result type of the subtasks
+     * @throws InterruptedException
+     *     if interrupted while waiting for a free permit
+     */
+    public <T> void forkAll(StructuredTaskScope<T, ?> scope, Iterator<Callable<T>> tasks)
+        throws InterruptedException {
+        forkAll(scope, tasks, task -> 0L, Function.identity());
+    }
+
+    /**
+     * Forks a subtask per work item, but only as permits become available and the memory budget allows.
+     *
+     * <p>Like {@link #forkAll(StructuredTaskScope, Iterator)}, but before forking, the working set of the item is
+     * reserved in the {@link MemoryBudget}. The reservation is returned when the subtask completes.</p>
+     *
+     * @param scope
+     *     the scope to fork into
+     * @param work
+     *     the work items, in submission order
+     * @param sourceBytes
+     *     the number of source bytes an item processes, used to estimate its working set
+     * @param toTask
+     *     creates the subtask of an item, only called right before forking
+     * @param <W>
+     *     the type of the work items
+     * @param <T>
+     *     the result type of the subtasks
+     * @throws InterruptedException
+     *     if interrupted while waiting for a free permit or for memory
+     */
+    public <W, T> void forkAll(
+        StructuredTaskScope<T, ?> scope,
+        Iterator<W> work,
+        ToLongFunction<? super W> sourceBytes,
+        Function<? super W, Callable<T>> toTask
+    ) throws InterruptedException {
+        while (work.hasNext()) {
+            final long waitStart = System.nanoTime();
+            this.permits.acquire();
+            final long acquired = System.nanoTime();
+            this.concurrencyLimit.onPermitWait(acquired - waitStart);
+            recordWait("wait for permit", waitStart, acquired);
+
+            if (scope.isCancelled()) {
+                this.permits.release();
+                return;
+            }
+
+            final W item = work.next();
+            final long itemBytes = sourceBytes.applyAsLong(item);
+            final long memoryWaitStart = System.nanoTime();
+            final MemoryBudget.Reservation reservation = acquireMemory(itemBytes);
+            recordWait("wait for memory", memoryWaitStart, System.nanoTime());
+
+            if (scope.isCancelled()) {
+                reservation.close();
+                this.permits.release();
+                return;
+            }
+
+            final Callable<T> task = toTask.apply(item);
+            final Runnable release = releaseOnce(reservation);
+            scope.fork(() -> {
                 try {
-                    semaphore.acquire();
-                    try {
-                        task.run();
-                    } finally {
-                        semaphore.release();
-                    }
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
+                    return task.call();
+                } finally {
+                    release.run();
+                    this.permits.resize(this.concurrencyLimit.onCompleted(itemBytes, System.nanoTime()));
                 }
-            };
-            return virtualFactory.newThread(wrapped);
+            });
+
+            // cancelled meanwhile, e.g. by a failing sibling: the subtask may never run, and neither its finally.
+            if (scope.isCancelled()) {
+                release.run();
+                return;
+            }
+        }
+    }
+
+    /**
+     * Returns the permit and the reservation of a subtask, either when it completes or, if it was forked into a
+     * cancelled scope and never runs, by the forking thread. Whichever comes first releases them.
+     */
+    private Runnable releaseOnce(MemoryBudget.Reservation reservation) {
+        final AtomicBoolean released = new AtomicBoolean();
+
+        return () -> {
+            if (!released.compareAndSet(false, true)) {
+                return;
+            }
+
+            reservation.close();
+            this.permits.release();
         };
     }
+
+    private void recordWait(String name, long startNanos, long endNanos) {
+        if (endNanos - startNanos < MIN_TRACED_WAIT_NANOS) {
+            return;
+        }
+
+        this.traceRecorder.record(name, null, startNanos, endNanos);
+    }
+
+    private MemoryBudget.Reservation acquireMemory(long sourceBytes) throws InterruptedException {
+        try {
+            return this.memoryBudget.acquire(sourceBytes);
+        } catch (InterruptedException interruptedException) {
+            this.permits.release();
+            throw interruptedException;
+        }
+    }
 }
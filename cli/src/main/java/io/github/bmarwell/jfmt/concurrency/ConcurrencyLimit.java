@@ -0,0 +1,194 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The number of subtasks allowed to run concurrently, either fixed ({@code --jobs=N}) or tuned while running.
+ *
+ * <p>The best job count depends on the machine: a 64-core machine with an SSD wants many more workers than a 4-core
+ * CI runner reading from NFS. The adaptive limit therefore measures throughput in short windows and climbs towards
+ * its peak (hill climbing): as long as a change improved throughput, it keeps going in the same direction; when
+ * throughput drops, it turns around; when nothing changes, it prefers fewer workers.</p>
+ *
+ * <p>Throughput is measured in source bytes per second rather than files per second, because the default schedule
+ * submits the largest files first: files per second would grow over the run regardless of the limit.</p>
+ *
+ * <p>The limit is only raised while the forking thread spent most of the window waiting for a permit. Otherwise,
+ * something else (the memory budget, the end of the work) is the bottleneck and more workers would not help.</p>
+ */
+public final class ConcurrencyLimit {
+
+    static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(200L);
+
+    /// Relative throughput change below which two windows are considered equal.
+    static final double TOLERANCE = 0.05;
+
+    /// Fraction of a window the forking thread must have waited for permits to consider the workers saturated.
+    static final double SATURATION = 0.5;
+
+    private final boolean adaptive;
+
+    private final int max;
+
+    private int limit;
+
+    private int direction = 1;
+
+    private long windowStartNanos;
+
+    private long windowWork;
+
+    private long windowWaitNanos;
+
+    private double previousThroughput = -1.0;
+
+    private int bestLimit;
+
+    private double bestThroughput = -1.0;
+
+    private int windowsEvaluated;
+
+    private ConcurrencyLimit(boolean adaptive, int initial, int max, long startNanos) {
+        this.adaptive = adaptive;
+        this.max = max;
+        this.limit = Math.clamp(initial, 1, max);
+        this.bestLimit = this.limit;
+        this.windowStartNanos = startNanos;
+    }
+
+    /**
+     * A limit which never changes.
+     *
+     * @param limit
+     *     the number of concurrent subtasks, at least 1.
+     * @return a fixed limit.
+     */
+    public static ConcurrencyLimit fixed(int limit) {
+        return new ConcurrencyLimit(false, limit, Math.max(1, limit), System.nanoTime());
+    }
+
+    /**
+     * A limit which is tuned while running.
+     *
+     * @param initial
+     *     the limit to start with, e.g. the value tuned in a previous run.
+     * @param max
+     *     the upper bound.
+     * @return an adaptive limit.
+     */
+    public static ConcurrencyLimit adaptive(int initial, int max) {
+        return adaptive(initial, max, System.nanoTime());
+    }
+
+    static ConcurrencyLimit adaptive(int initial, int max, long startNanos) {
+        return new ConcurrencyLimit(true, initial, Math.max(1, max), startNanos);
+    }
+
+    /**
+     * Upper bound for adaptive limits: I/O-bound workers may well exceed the number of cores.
+     *
+     * @return four times the available processors.
+     */
+    public static int defaultMaximum() {
+        return Runtime.getRuntime().availableProcessors() * 4;
+    }
+
+    public boolean isAdaptive() {
+        return this.adaptive;
+    }
+
+    public synchronized int current() {
+        return this.limit;
+    }
+
+    /**
+     * The limit which achieved the highest throughput so far, worth persisting for the next run.
+     *
+     * @return the best limit seen.
+     */
+    public synchronized int bestLimit() {
+        return this.bestLimit;
+    }
+
+    public synchronized int windowsEvaluated() {
+        return this.windowsEvaluated;
+    }
+
+    /**
+     * Records the time the forking thread waited for a permit.
+     *
+     * @param waitedNanos
+     *     the time spent waiting.
+     */
+    public synchronized void onPermitWait(long waitedNanos) {
+        this.windowWaitNanos += waitedNanos;
+    }
+
+    /**
+     * Records a completed subtask and evaluates the window once it is over.
+     *
+     * @param sourceBytes
+     *     the amount of work completed.
+     * @param nowNanos
+     *     the current {@link System#nanoTime()}.
+     * @return the limit to use from now on.
+     */
+    public synchronized int onCompleted(long sourceBytes, long nowNanos) {
+        if (!this.adaptive) {
+            return this.limit;
+        }
+
+        // count every task at least once, so tasks without a size still make progress visible.
+        this.windowWork += Math.max(1L, sourceBytes);
+
+        final long elapsed = nowNanos - this.windowStartNanos;
+        if (elapsed < WINDOW_NANOS) {
+            return this.limit;
+        }
+
+        evaluateWindow(elapsed);
+        this.windowStartNanos = nowNanos;
+        this.windowWork = 0L;
+        this.windowWaitNanos = 0L;
+
+        return this.limit;
+    }
+
+    private void evaluateWindow(long elapsedNanos) {
+        final double throughput = (double) this.windowWork / elapsedNanos;
+        final boolean saturated = this.windowWaitNanos >= elapsedNanos * SATURATION;
+        this.windowsEvaluated++;
+
+        if (throughput > this.bestThroughput) {
+            this.bestThroughput = throughput;
+            this.bestLimit = this.limit;
+        }
+
+        this.direction = nextDirection(throughput);
+        this.previousThroughput = throughput;
+
+        if (this.direction > 0 && !saturated) {
+            return;
+        }
+
+        final int step = Math.max(1, this.limit / 8);
+        this.limit = Math.clamp((long) this.limit + (long) this.direction * step, 1, this.max);
+    }
+
+    private int nextDirection(double throughput) {
+        if (this.previousThroughput < 0.0) {
+            return 1;
+        }
+
+        if (throughput > this.previousThroughput * (1.0 + TOLERANCE)) {
+            return this.direction;
+        }
+
+        if (throughput < this.previousThroughput * (1.0 - TOLERANCE)) {
+            return -this.direction;
+        }
+
+        // same throughput: fewer workers are cheaper.
+        return -1;
+    }
+}
@@ -12,11 +12,15 @@ import java.util.concurrent.StructuredTaskScope;
  * <p>Extends standard fail-fast behavior to also cancel on shouldContinue=false, not just exceptions.
  * This enables --no-all flag support: stop processing after first incorrectly formatted file.</p>
  *
+ * <p>Each subtask processes a whole {@link io.github.bmarwell.jfmt.scheduling.WorkUnit WorkUnit} and returns the
+ * results of its files. A unit stops at the first file with shouldContinue=false, so fail-fast still works at file
+ * granularity.</p>
+ *
  * <p>Unlike built-in joiners that throw exceptions, this returns all completed subtasks allowing
  * output from successful tasks to be printed before reporting failure.</p>
  */
 public class FailFastFileProcessingResultJoiner implements
-    StructuredTaskScope.Joiner<FileProcessingResult, List<FileProcessingResult>> {
+    StructuredTaskScope.Joiner<List<FileProcessingResult>, List<FileProcessingResult>> {
 
     private final Collection<FileProcessingResult> results = new ConcurrentLinkedDeque<>();
 
@@ -25,10 +29,10 @@ public class FailFastFileProcessingResultJoiner implements
     /**
      * Returns true to cancel remaining unstarted tasks when:
      * - A task fails with an exception, OR
-     * - A task completes with shouldContinue=false (--no-all mode)
+     * - A task completes with a result having shouldContinue=false (--no-all mode)
      */
     @Override
-    public boolean onComplete(StructuredTaskScope.Subtask<? extends FileProcessingResult> subtask) {
+    public boolean onComplete(StructuredTaskScope.Subtask<? extends List<FileProcessingResult>> subtask) {
         StructuredTaskScope.Joiner.super.onComplete(subtask);
 
         if (subtask.state() == StructuredTaskScope.Subtask.State.FAILED) {
@@ -36,10 +40,10 @@ public class FailFastFileProcessingResultJoiner implements
             return true;
         }
 
-        FileProcessingResult result = subtask.get();
-        this.results.add(result);
+        List<FileProcessingResult> unitResults = subtask.get();
+        this.results.addAll(unitResults);
 
-        return !result.shouldContinue();
+        return unitResults.stream().anyMatch(result -> !result.shouldContinue());
     }
 
     /**
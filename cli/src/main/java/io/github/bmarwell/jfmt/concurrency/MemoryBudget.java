@@ -0,0 +1,275 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Admission control for the heap: a file is only started when its estimated working set fits into the budget.
+ *
+ * <p>While a file is processed, the heap holds several copies of its source (bytes, string, char array, document,
+ * formatted result, diff lines) plus the AST. The working set is therefore estimated as the file size times a
+ * multiplier. The multiplier starts conservatively and is learned from the heap retained after garbage collections
+ * while files are in flight, see {@link #learnFromGarbageCollections()}.</p>
+ *
+ * <p>A file whose estimate exceeds the whole budget is admitted alone: it waits until nothing else is in flight and
+ * blocks all other files until it is done.</p>
+ */
+public class MemoryBudget implements AutoCloseable {
+
+    /// Fraction of the maximum heap used as the default budget, the rest is left for JDT, results and the output.
+    public static final double DEFAULT_HEAP_FRACTION = 0.5;
+
+    static final double INITIAL_MULTIPLIER = 24.0;
+
+    static final double MIN_MULTIPLIER = 4.0;
+
+    static final double MAX_MULTIPLIER = 256.0;
+
+    /// Weight of a new observation in the exponential moving average of the multiplier.
+    static final double LEARNING_RATE = 0.25;
+
+    /// A single sample counts as at most this factor away from the current multiplier.
+    static final double MAX_SAMPLE_RATIO = 2.0;
+
+    /// Below this many bytes in flight, the retained heap is dominated by everything else and tells nothing.
+    static final long MIN_SAMPLE_BYTES = 256L * 1024L;
+
+    private static final long UNLIMITED = Long.MAX_VALUE;
+
+    private final long budgetBytes;
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = this.lock.newCondition();
+
+    private final List<Runnable> unregisterActions = new ArrayList<>();
+
+    private long inFlightCost;
+
+    private long inFlightSourceBytes;
+
+    private double multiplier = INITIAL_MULTIPLIER;
+
+    private MemoryBudget(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /**
+     * A budget which admits everything, but still keeps track of the files in flight.
+     *
+     * @return an unlimited budget.
+     */
+    public static MemoryBudget unlimited() {
+        return new MemoryBudget(UNLIMITED);
+    }
+
+    /**
+     * A budget of the given size.
+     *
+     * @param budgetBytes
+     *     the maximum estimated working set of all files in flight, must be positive.
+     * @return a budget of the given size.
+     */
+    public static MemoryBudget of(long budgetBytes) {
+        if (budgetBytes <= 0L) {
+            throw new IllegalArgumentException("Memory budget must be positive: " + budgetBytes);
+        }
+
+        return new MemoryBudget(budgetBytes);
+    }
+
+    /**
+     * A budget of {@value #DEFAULT_HEAP_FRACTION} times {@link Runtime#maxMemory()}.
+     *
+     * @return a budget derived from the maximum heap size.
+     */
+    public static MemoryBudget fromMaxHeap() {
+        final long maxMemory = Runtime.getRuntime().maxMemory();
+        if (maxMemory == Long.MAX_VALUE) {
+            // no limit configured or known
+            return unlimited();
+        }
+
+        return of((long) (maxMemory * DEFAULT_HEAP_FRACTION));
+    }
+
+    public long budgetBytes() {
+        return this.budgetBytes;
+    }
+
+    public boolean isUnlimited() {
+        return this.budgetBytes == UNLIMITED;
+    }
+
+    public double multiplier() {
+        this.lock.lock();
+        try {
+            return this.multiplier;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Estimated working set of a file, never more than the whole budget.
+     *
+     * @param sourceBytes
+     *     the size of the file(s).
+     * @return the estimated cost in bytes.
+     */
+    public long estimate(long sourceBytes) {
+        return Math.min(this.budgetBytes, (long) Math.ceil(sourceBytes * multiplier()));
+    }
+
+    /**
+     * Waits until the estimated working set of the given source fits into the budget and reserves it.
+     *
+     * @param sourceBytes
+     *     the size of the file(s) to admit.
+     * @return the reservation, to be closed once the file(s) were processed.
+     * @throws InterruptedException
+     *     if interrupted while waiting.
+     */
+    public Reservation acquire(long sourceBytes) throws InterruptedException {
+        this.lock.lockInterruptibly();
+        try {
+            final long cost = Math.min(this.budgetBytes, (long) Math.ceil(sourceBytes * this.multiplier));
+
+            // something is admitted even if it exceeds the budget, but then only alone.
+            while (this.inFlightCost > 0L && this.inFlightCost + cost > this.budgetBytes) {
+                this.released.await();
+            }
+
+            this.inFlightCost += cost;
+            this.inFlightSourceBytes += sourceBytes;
+
+            return new Reservation(this, sourceBytes, cost);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void release(Reservation reservation) {
+        this.lock.lock();
+        try {
+            this.inFlightCost -= reservation.cost();
+            this.inFlightSourceBytes -= reservation.sourceBytes();
+            this.released.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Updates the multiplier from the heap retained by the files currently in flight.
+     *
+     * <p>The retained heap also contains the results of files done meanwhile, and whatever else was allocated since
+     * the baseline. So a single sample may be far off, mostly too high. It is therefore bounded to
+     * {@value #MAX_SAMPLE_RATIO} times (or a fraction of) the current multiplier: outliers only nudge the multiplier,
+     * instead of ratcheting it up to {@value #MAX_MULTIPLIER}, while consistent samples still move it there in a few
+     * collections.</p>
+     *
+     * @param retainedBytes
+     *     heap in use after a garbage collection, minus what was in use before processing started.
+     */
+    void observeRetainedHeap(long retainedBytes) {
+        this.lock.lock();
+        try {
+            if (this.inFlightSourceBytes < MIN_SAMPLE_BYTES || retainedBytes <= 0L) {
+                return;
+            }
+
+            final double sample = (double) retainedBytes / this.inFlightSourceBytes;
+            final double bounded =
+                Math.clamp(sample, this.multiplier / MAX_SAMPLE_RATIO, this.multiplier * MAX_SAMPLE_RATIO);
+            final double clamped = Math.clamp(bounded, MIN_MULTIPLIER, MAX_MULTIPLIER);
+            this.multiplier = this.multiplier + LEARNING_RATE * (clamped - this.multiplier);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Learns the multiplier from garbage collection notifications, if the runtime provides them.
+     *
+     * <p>The heap in use right now is taken as the baseline, so this should be called before the first file is
+     * admitted. Listeners are removed on {@link #close()}.</p>
+     *
+     * @return this budget.
+     */
+    public MemoryBudget learnFromGarbageCollections() {
+        final long baseline = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+        final NotificationListener listener = (notification, handback) -> onNotification(notification, baseline);
+
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            if (!(collector instanceof NotificationEmitter emitter)) {
+                // e.g. native images without GC notifications: keep the initial multiplier.
+                continue;
+            }
+
+            emitter.addNotificationListener(listener, null, null);
+            this.unregisterActions.add(() -> removeListener(emitter, listener));
+        }
+
+        return this;
+    }
+
+    private void onNotification(Notification notification, long baseline) {
+        if (!GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION.equals(notification.getType())) {
+            return;
+        }
+
+        final var info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+        final long usedAfterGc = info.getGcInfo()
+            .getMemoryUsageAfterGc()
+            .values()
+            .stream()
+            .mapToLong(MemoryUsage::getUsed)
+            .sum();
+
+        observeRetainedHeap(usedAfterGc - baseline);
+    }
+
+    private static void removeListener(NotificationEmitter emitter, NotificationListener listener) {
+        try {
+            emitter.removeNotificationListener(listener);
+        } catch (ListenerNotFoundException listenerNotFoundException) {
+            // already gone, nothing to clean up.
+        }
+    }
+
+    @Override
+    public void close() {
+        this.unregisterActions.forEach(Runnable::run);
+        this.unregisterActions.clear();
+    }
+
+    /**
+     * Estimated working set reserved for files in flight.
+     *
+     * @param budget
+     *     the budget to return the reservation to.
+     * @param sourceBytes
+     *     size of the admitted file(s).
+     * @param cost
+     *     the reserved estimate.
+     */
+    public record Reservation(MemoryBudget budget, long sourceBytes, long cost) implements AutoCloseable {
+
+        @Override
+        public void close() {
+            this.budget.release(this);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import java.util.concurrent.Semaphore;
+
+/**
+ * A semaphore whose number of permits can be changed while permits are held.
+ *
+ * <p>Shrinking uses {@link Semaphore#reducePermits(int)}, so the available permits may become negative until enough
+ * holders have released theirs. Running tasks are never interrupted by a shrink.</p>
+ */
+final class ResizableSemaphore extends Semaphore {
+
+    private int limit;
+
+    ResizableSemaphore(int limit) {
+        super(limit);
+        this.limit = limit;
+    }
+
+    synchronized int limit() {
+        return this.limit;
+    }
+
+    synchronized void resize(int newLimit) {
+        final int delta = newLimit - this.limit;
+        this.limit = newLimit;
+
+        if (delta > 0) {
+            release(delta);
+            return;
+        }
+
+        if (delta < 0) {
+            reducePermits(-delta);
+        }
+    }
+}
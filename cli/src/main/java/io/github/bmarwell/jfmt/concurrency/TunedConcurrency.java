@@ -0,0 +1,157 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.Properties;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Remembers the job count tuned by an adaptive {@link ConcurrencyLimit}, so the next run starts at the right level.
+ *
+ * <p>Stored as a small properties file ({@code host key = jobs}) in the
+ * {@link io.github.bmarwell.jfmt.nio.UserCacheDirectory user cache directory}. The key contains the host name and
+ * the number of available processors, because home directories (and with them the cache) may be shared between
+ * machines, and containers on the same host may be given different CPU limits.</p>
+ *
+ * <p>Only used with {@code --remember-jobs}: otherwise, every run (including those of tests and build plugins)
+ * would write to the user cache directory.</p>
+ *
+ * <p>Not thread-safe: only the thread owning the scope reads and updates it.</p>
+ */
+public final class TunedConcurrency {
+
+    static final String FILE_NAME = "tuned-concurrency.properties";
+
+    /// Windows which must have been evaluated before a tuned value is worth remembering.
+    static final int MIN_WINDOWS = 3;
+
+    private final @Nullable Path file;
+
+    private final String hostKey;
+
+    private final Properties properties;
+
+    private TunedConcurrency(@Nullable Path file, String hostKey, Properties properties) {
+        this.file = file;
+        this.hostKey = hostKey;
+        this.properties = properties;
+    }
+
+    /**
+     * Nothing tuned, and nothing is ever persisted.
+     *
+     * @return empty tuned values.
+     */
+    public static TunedConcurrency empty() {
+        return new TunedConcurrency(null, "", new Properties());
+    }
+
+    /**
+     * Loads the tuned values from the given directory. A missing or unreadable file means nothing was tuned yet.
+     *
+     * @param directory
+     *     the directory containing the file.
+     * @return the loaded values.
+     */
+    public static TunedConcurrency load(Path directory) {
+        return load(directory, hostKey(hostName(), Runtime.getRuntime().availableProcessors()));
+    }
+
+    static TunedConcurrency load(Path directory, String hostKey) {
+        final Path tunedFile = directory.resolve(FILE_NAME);
+        final Properties properties = new Properties();
+
+        if (!Files.isRegularFile(tunedFile)) {
+            return new TunedConcurrency(tunedFile, hostKey, properties);
+        }
+
+        try (InputStream in = Files.newInputStream(tunedFile)) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException corrupt) {
+            // only a starting point, start over.
+            properties.clear();
+        }
+
+        return new TunedConcurrency(tunedFile, hostKey, properties);
+    }
+
+    static String hostKey(String hostName, int availableProcessors) {
+        return hostName + "." + availableProcessors + "cpus";
+    }
+
+    /// The local host name. It may take a DNS lookup, which is fine for an opt-in feature.
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException unknownHostException) {
+            return fallbackHostName(System.getenv());
+        }
+    }
+
+    /// {@code HOSTNAME} is set by most shells (but not exported by all of them), {@code COMPUTERNAME} by Windows.
+    static String fallbackHostName(Map<String, String> env) {
+        return env.getOrDefault("HOSTNAME", env.getOrDefault("COMPUTERNAME", "localhost"));
+    }
+
+    /**
+     * The job count tuned in a previous run on this host.
+     *
+     * @return the tuned job count, or empty if there is none.
+     */
+    public OptionalInt jobs() {
+        try {
+            final String value = this.properties.getProperty(this.hostKey);
+            if (value == null) {
+                return OptionalInt.empty();
+            }
+
+            final int jobs = Integer.parseInt(value.trim());
+            if (jobs < 1) {
+                return OptionalInt.empty();
+            }
+
+            return OptionalInt.of(jobs);
+        } catch (NumberFormatException nfe) {
+            return OptionalInt.empty();
+        }
+    }
+
+    /**
+     * Remembers the best limit found by the given controller, if it ran long enough and found something new.
+     *
+     * @param limit
+     *     the adaptive limit of this run.
+     * @throws IOException
+     *     if the file could not be written.
+     */
+    public void save(ConcurrencyLimit limit) throws IOException {
+        if (this.file == null || !limit.isAdaptive() || limit.windowsEvaluated() < MIN_WINDOWS) {
+            return;
+        }
+
+        final int bestLimit = limit.bestLimit();
+        if (jobs().equals(OptionalInt.of(bestLimit))) {
+            return;
+        }
+
+        this.properties.setProperty(this.hostKey, String.valueOf(bestLimit));
+
+        final Path directory = this.file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+        final Path tmp = Files.createTempFile(directory, FILE_NAME, ".tmp");
+
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            this.properties.store(out, "jfmt job counts tuned by --jobs=auto");
+        }
+
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,306 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Minimal JSON codec for the messages of the language server.
+ *
+ * <p>Objects are read into {@link Map}s, arrays into {@link List}s, integral numbers into {@link Long}s and all other
+ * numbers into {@link Double}s. Writing accepts the same types, plus any other {@link Number} and {@link Boolean}.
+ * Neither needs reflection, which keeps the native image free of reflection config for the protocol.</p>
+ */
+final class Json {
+
+    private final String text;
+
+    private int position;
+
+    private Json(String text) {
+        this.text = text;
+    }
+
+    /**
+     * Parses a JSON document.
+     *
+     * @param text
+     *     the document.
+     * @return the value, {@code null} for a JSON {@code null}.
+     * @throws IllegalArgumentException
+     *     if the text is not valid JSON.
+     */
+    static @Nullable Object parse(String text) {
+        final Json json = new Json(text);
+        final Object value = json.readValue();
+        json.skipWhitespace();
+
+        if (json.position != text.length()) {
+            throw json.error("Unexpected trailing content");
+        }
+
+        return value;
+    }
+
+    /**
+     * Writes a value as JSON.
+     *
+     * @param value
+     *     a {@link Map} with {@link String} keys, {@link List}, {@link String}, {@link Number}, {@link Boolean} or
+     *     {@code null}.
+     * @return the JSON text.
+     */
+    static String write(@Nullable Object value) {
+        final StringBuilder out = new StringBuilder();
+        write(out, value);
+
+        return out.toString();
+    }
+
+    private static void write(StringBuilder out, @Nullable Object value) {
+        switch (value) {
+            case null -> out.append("null");
+            case String string -> writeString(out, string);
+            case Boolean bool -> out.append(bool);
+            case Double number when number.isNaN() || number.isInfinite() -> out.append("null");
+            case Number number -> out.append(number);
+            case Map<?, ?> map -> writeObject(out, map);
+            case List<?> list -> writeArray(out, list);
+            default -> throw new IllegalArgumentException("Not a JSON value: " + value.getClass().getName());
+        }
+    }
+
+    private static void writeObject(StringBuilder out, Map<?, ?> map) {
+        out.append('{');
+        boolean first = true;
+
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            writeString(out, String.valueOf(entry.getKey()));
+            out.append(':');
+            write(out, entry.getValue());
+        }
+
+        out.append('}');
+    }
+
+    private static void writeArray(StringBuilder out, List<?> list) {
+        out.append('[');
+
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                out.append(',');
+            }
+            write(out, list.get(i));
+        }
+
+        out.append(']');
+    }
+
+    private static void writeString(StringBuilder out, String string) {
+        out.append('"');
+
+        for (int i = 0; i < string.length(); i++) {
+            final char c = string.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                case '\b' -> out.append("\\b");
+                case '\f' -> out.append("\\f");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+
+        out.append('"');
+    }
+
+    private @Nullable Object readValue() {
+        skipWhitespace();
+
+        if (this.position >= this.text.length()) {
+            throw error("Unexpected end of input");
+        }
+
+        final char c = this.text.charAt(this.position);
+        return switch (c) {
+            case '{' -> readObject();
+            case '[' -> readArray();
+            case '"' -> readString();
+            case 't' -> readLiteral("true", Boolean.TRUE);
+            case 'f' -> readLiteral("false", Boolean.FALSE);
+            case 'n' -> readLiteral("null", null);
+            default -> readNumber();
+        };
+    }
+
+    private Map<String, @Nullable Object> readObject() {
+        final Map<String, @Nullable Object> object = new LinkedHashMap<>();
+        expect('{');
+        skipWhitespace();
+
+        if (peek() == '}') {
+            this.position++;
+            return object;
+        }
+
+        while (true) {
+            skipWhitespace();
+            final String key = readString();
+            skipWhitespace();
+            expect(':');
+            object.put(key, readValue());
+            skipWhitespace();
+
+            if (peek() == '}') {
+                this.position++;
+                return object;
+            }
+            expect(',');
+        }
+    }
+
+    private List<@Nullable Object> readArray() {
+        final List<@Nullable Object> array = new ArrayList<>();
+        expect('[');
+        skipWhitespace();
+
+        if (peek() == ']') {
+            this.position++;
+            return array;
+        }
+
+        while (true) {
+            array.add(readValue());
+            skipWhitespace();
+
+            if (peek() == ']') {
+                this.position++;
+                return array;
+            }
+            expect(',');
+        }
+    }
+
+    private String readString() {
+        expect('"');
+        final StringBuilder string = new StringBuilder();
+
+        while (true) {
+            if (this.position >= this.text.length()) {
+                throw error("Unterminated string");
+            }
+
+            final char c = this.text.charAt(this.position++);
+            if (c == '"') {
+                return string.toString();
+            }
+
+            if (c != '\\') {
+                string.append(c);
+                continue;
+            }
+
+            if (this.position >= this.text.length()) {
+                throw error("Unterminated escape");
+            }
+
+            final char escaped = this.text.charAt(this.position++);
+            switch (escaped) {
+                case '"', '\\', '/' -> string.append(escaped);
+                case 'n' -> string.append('\n');
+                case 'r' -> string.append('\r');
+                case 't' -> string.append('\t');
+                case 'b' -> string.append('\b');
+                case 'f' -> string.append('\f');
+                case 'u' -> string.append(readUnicodeEscape());
+                default -> throw error("Invalid escape \\" + escaped);
+            }
+        }
+    }
+
+    private char readUnicodeEscape() {
+        if (this.position + 4 > this.text.length()) {
+            throw error("Truncated unicode escape");
+        }
+
+        try {
+            final char c = (char) Integer.parseInt(this.text, this.position, this.position + 4, 16);
+            this.position += 4;
+            return c;
+        } catch (NumberFormatException numberFormatException) {
+            throw error("Invalid unicode escape");
+        }
+    }
+
+    private Number readNumber() {
+        final int start = this.position;
+
+        while (this.position < this.text.length() && "+-0123456789.eE".indexOf(this.text.charAt(this.position)) >= 0) {
+            this.position++;
+        }
+
+        final String number = this.text.substring(start, this.position);
+        if (number.isEmpty()) {
+            throw error("Unexpected character '" + this.text.charAt(start) + "'");
+        }
+
+        try {
+            if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                return Long.parseLong(number);
+            }
+
+            return Double.parseDouble(number);
+        } catch (NumberFormatException numberFormatException) {
+            throw error("Invalid number " + number);
+        }
+    }
+
+    private @Nullable Object readLiteral(String literal, @Nullable Object value) {
+        if (!this.text.startsWith(literal, this.position)) {
+            throw error("Unexpected character '" + this.text.charAt(this.position) + "'");
+        }
+
+        this.position += literal.length();
+        return value;
+    }
+
+    private void skipWhitespace() {
+        while (this.position < this.text.length() && Character.isWhitespace(this.text.charAt(this.position))) {
+            this.position++;
+        }
+    }
+
+    private char peek() {
+        if (this.position >= this.text.length()) {
+            throw error("Unexpected end of input");
+        }
+
+        return this.text.charAt(this.position);
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+
+        this.position++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at offset " + this.position);
+    }
+}
@@ -0,0 +1,475 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import io.github.bmarwell.jfmt.format.FileTimeoutException;
+import io.github.bmarwell.jfmt.format.FormatResult;
+import io.github.bmarwell.jfmt.format.InvalidSyntaxException;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.writer.OutputWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * A language server which only formats: {@code textDocument/formatting}, {@code rangeFormatting} and
+ * {@code onTypeFormatting}.
+ *
+ * <p>Open documents are kept in memory (full document sync), so a request never reads from disk. All requests share
+ * one {@link JFmtFormatter}, which stays warm for the lifetime of the server. Each request runs on its own virtual
+ * thread; a newer formatting request for the same document, a change of the document or a {@code $/cancelRequest}
+ * interrupts it, which stops the parser or formatter at its next check.</p>
+ *
+ * <p>The formatting options sent by the editor (tab size etc.) are ignored: the jfmt config and {@code .jfmt} files
+ * decide, exactly like on the command line. Range and on-type formatting format the whole document and return the
+ * edits touching the requested lines.</p>
+ *
+ * <p>If the client supports it, the server asks it to watch the {@code .jfmt} files, and reads them again once the
+ * client reports a change ({@code workspace/didChangeWatchedFiles}).</p>
+ */
+public final class LanguageServer {
+
+    static final int PARSE_ERROR = -32700;
+
+    static final int INVALID_REQUEST = -32600;
+
+    static final int METHOD_NOT_FOUND = -32601;
+
+    static final int INVALID_PARAMS = -32602;
+
+    static final int INTERNAL_ERROR = -32603;
+
+    static final int SERVER_NOT_INITIALIZED = -32002;
+
+    static final int REQUEST_CANCELLED = -32800;
+
+    static final int CONTENT_MODIFIED = -32801;
+
+    /// Document sync kind {@code Full}: every change sends the whole document.
+    private static final int FULL_SYNC = 1;
+
+    /// Id of our only request to the client, whose response is ignored.
+    private static final String REGISTER_WATCHERS_ID = "jfmt-watch-config-files";
+
+    /// Name of documents without a file, e.g. unsaved ones. {@code .jfmt} files in the working directory apply.
+    private static final String UNTITLED_FILE_NAME = "Untitled.java";
+
+    private final JFmtFormatter formatter;
+
+    private final MessageTransport transport;
+
+    private final OutputWriter writer;
+
+    /// The text of each open document, by URI.
+    private final ConcurrentMap<String, String> documents = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Object, PendingRequest> pendingRequests = new ConcurrentHashMap<>();
+
+    private final ExecutorService requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private boolean initialized;
+
+    /// Whether the client can watch files for us, see {@link #registerConfigFileWatcher()}.
+    private boolean clientWatchesFiles;
+
+    private boolean shutdownRequested;
+
+    private LanguageServer(JFmtFormatter formatter, MessageTransport transport, OutputWriter writer) {
+        this.formatter = formatter;
+        this.transport = transport;
+        this.writer = writer;
+    }
+
+    /**
+     * Creates a server for the given streams, usually stdin and stdout.
+     *
+     * @param formatter
+     *     the formatter shared by all requests.
+     * @param in
+     *     the messages from the client. Read one byte at a time, so should be buffered.
+     * @param out
+     *     the messages to the client. Nothing else must be written to it.
+     * @param writer
+     *     for diagnostics, on stderr.
+     * @return the server, not yet running.
+     */
+    public static LanguageServer create(
+        JFmtFormatter formatter,
+        InputStream in,
+        OutputStream out,
+        OutputWriter writer
+    ) {
+        return new LanguageServer(formatter, new MessageTransport(in, out), writer);
+    }
+
+    /**
+     * Serves requests until the client sends {@code exit} or closes the input.
+     *
+     * @return {@code 0} if the client requested a shutdown before, {@code 1} otherwise, as the protocol demands.
+     * @throws IOException
+     *     if reading from the client fails.
+     */
+    public int run() throws IOException {
+        try (this.requestExecutor) {
+            while (true) {
+                final Map<String, @Nullable Object> message;
+
+                try {
+                    message = this.transport.read();
+                } catch (IllegalArgumentException invalidJson) {
+                    respondError(null, PARSE_ERROR, invalidJson.getMessage());
+                    continue;
+                }
+
+                if (message == null || "exit".equals(message.get("method"))) {
+                    cancelAll();
+                    return this.shutdownRequested ? 0 : 1;
+                }
+
+                dispatch(message);
+            }
+        }
+    }
+
+    private void dispatch(Map<String, @Nullable Object> message) {
+        final Object id = message.get("id");
+
+        if (!(message.get("method") instanceof String method)) {
+            // the response to our registration of the .jfmt watcher: nothing to do.
+            return;
+        }
+
+        try {
+            // params are optional, e.g. for shutdown.
+            final Map<String, @Nullable Object> params =
+                message.get("params") == null ? Map.of() : object(message.get("params"));
+
+            if (id == null) {
+                handleNotification(method, params);
+                return;
+            }
+
+            handleRequest(id, method, params);
+        } catch (IllegalArgumentException invalidParams) {
+            if (id == null) {
+                this.writer.warn("Invalid " + method, String.valueOf(invalidParams.getMessage()));
+                return;
+            }
+
+            respondError(id, INVALID_PARAMS, invalidParams.getMessage());
+        }
+    }
+
+    private void handleNotification(String method, Map<String, @Nullable Object> params) {
+        switch (method) {
+            case "textDocument/didOpen" -> {
+                final Map<String, @Nullable Object> textDocument = object(params.get("textDocument"));
+                this.documents.put(string(textDocument, "uri"), string(textDocument, "text"));
+            }
+            case "textDocument/didChange" -> {
+                final String uri = string(object(params.get("textDocument")), "uri");
+                final List<?> changes = list(params.get("contentChanges"));
+                if (changes.isEmpty()) {
+                    return;
+                }
+
+                cancelPendingRequests(uri, CONTENT_MODIFIED);
+                this.documents.put(uri, string(object(changes.getLast()), "text"));
+            }
+            case "textDocument/didClose" -> {
+                final String uri = string(object(params.get("textDocument")), "uri");
+                cancelPendingRequests(uri, CONTENT_MODIFIED);
+                this.documents.remove(uri);
+            }
+            case "$/cancelRequest" -> cancel(params.get("id"), REQUEST_CANCELLED);
+            case "initialized" -> registerConfigFileWatcher();
+            case "workspace/didChangeWatchedFiles" -> {
+                // only .jfmt files are watched, and any of them may change the style of any document.
+                this.formatter.settings().styles().invalidate();
+                this.writer.debug("Changed .jfmt files", "reading them again");
+            }
+            default -> {
+                // $/setTrace, workspace/didChangeConfiguration, ...: nothing to do.
+            }
+        }
+    }
+
+    private void handleRequest(Object id, String method, Map<String, @Nullable Object> params) {
+        if (method.equals("initialize")) {
+            this.initialized = true;
+            this.clientWatchesFiles = supportsWatchedFilesRegistration(params);
+            respond(id, initializeResult());
+            return;
+        }
+
+        if (!this.initialized) {
+            respondError(id, SERVER_NOT_INITIALIZED, "Server not initialized");
+            return;
+        }
+
+        if (this.shutdownRequested) {
+            respondError(id, INVALID_REQUEST, "Server is shutting down");
+            return;
+        }
+
+        switch (method) {
+            case "shutdown" -> {
+                // pending requests may still complete, exit cancels them.
+                this.shutdownRequested = true;
+                respond(id, null);
+            }
+            case "textDocument/formatting" -> submitFormatting(id, params, 0, Integer.MAX_VALUE);
+            case "textDocument/rangeFormatting" -> {
+                final Map<String, @Nullable Object> range = object(params.get("range"));
+                final int startLine = number(object(range.get("start")), "line");
+                final Map<String, @Nullable Object> end = object(range.get("end"));
+                // a range ending at the start of a line does not include that line.
+                final int endLine = number(end, "character") == 0
+                    ? Math.max(startLine, number(end, "line") - 1)
+                    : number(end, "line");
+                submitFormatting(id, params, startLine, endLine);
+            }
+            case "textDocument/onTypeFormatting" -> {
+                final int line = number(object(params.get("position")), "line");
+                // after a line break, the cursor is on the new line and the line before was completed.
+                final int fromLine = "\n".equals(params.get("ch")) ? Math.max(0, line - 1) : line;
+                submitFormatting(id, params, fromLine, line);
+            }
+            default -> respondError(id, METHOD_NOT_FOUND, "Unsupported method " + method);
+        }
+    }
+
+    private static Map<String, Object> initializeResult() {
+        final Map<String, Object> capabilities = new LinkedHashMap<>();
+        capabilities.put("textDocumentSync", Map.of("openClose", true, "change", FULL_SYNC));
+        capabilities.put("documentFormattingProvider", true);
+        capabilities.put("documentRangeFormattingProvider", true);
+        capabilities.put(
+            "documentOnTypeFormattingProvider",
+            Map.of("firstTriggerCharacter", "}", "moreTriggerCharacter", List.of(";", "\n"))
+        );
+
+        return Map.of("capabilities", capabilities, "serverInfo", Map.of("name", "jfmt"));
+    }
+
+    private static boolean supportsWatchedFilesRegistration(Map<String, @Nullable Object> initializeParams) {
+        if (
+            !(initializeParams.get("capabilities") instanceof Map<?, ?> capabilities)
+                || !(capabilities.get("workspace") instanceof Map<?, ?> workspace)
+                || !(workspace.get("didChangeWatchedFiles") instanceof Map<?, ?> didChangeWatchedFiles)
+        ) {
+            return false;
+        }
+
+        return Boolean.TRUE.equals(didChangeWatchedFiles.get("dynamicRegistration"));
+    }
+
+    /**
+     * Asks the client to report changes of {@code .jfmt} files, which can only be registered dynamically.
+     */
+    private void registerConfigFileWatcher() {
+        if (!this.clientWatchesFiles) {
+            return;
+        }
+
+        final Map<String, Object> registration = Map.of(
+            "id",
+            REGISTER_WATCHERS_ID,
+            "method",
+            "workspace/didChangeWatchedFiles",
+            "registerOptions",
+            Map.of("watchers", List.of(Map.of("globPattern", "**/" + StyleResolver.CONFIG_FILE_NAME)))
+        );
+
+        final Map<String, @Nullable Object> request = new LinkedHashMap<>();
+        request.put("jsonrpc", "2.0");
+        request.put("id", REGISTER_WATCHERS_ID);
+        request.put("method", "client/registerCapability");
+        request.put("params", Map.of("registrations", List.of(registration)));
+        send(request);
+    }
+
+    /**
+     * Formats the document of the request on a new virtual thread, superseding pending requests for it.
+     */
+    private void submitFormatting(Object id, Map<String, @Nullable Object> params, int fromLine, int toLine) {
+        final String uri = string(object(params.get("textDocument")), "uri");
+        final String text = this.documents.get(uri);
+        if (text == null) {
+            respondError(id, INVALID_PARAMS, "Document not open: " + uri);
+            return;
+        }
+
+        final Path path = documentPath(uri);
+        cancelPendingRequests(uri, REQUEST_CANCELLED);
+
+        final FutureTask<Void> task = new FutureTask<>(() -> {
+            completeFormatting(id, uri, text, path, fromLine, toLine);
+            return null;
+        });
+        // registered before it starts, so a fast request always finds itself.
+        this.pendingRequests.put(id, new PendingRequest(uri, task));
+        this.requestExecutor.execute(task);
+    }
+
+    private void completeFormatting(Object id, String uri, String text, Path path, int fromLine, int toLine) {
+        final long start = System.nanoTime();
+        final List<Map<String, Object>> edits;
+
+        try {
+            edits = format(uri, text, path, fromLine, toLine);
+        } catch (OperationCanceledException canceledException) {
+            // whoever cancelled the request responded to it.
+            return;
+        } catch (RuntimeException formattingException) {
+            if (this.pendingRequests.remove(id) != null) {
+                respondError(id, INTERNAL_ERROR, String.valueOf(formattingException.getMessage()));
+            }
+            return;
+        }
+
+        // only respond if not cancelled meanwhile.
+        if (this.pendingRequests.remove(id) == null) {
+            return;
+        }
+
+        respond(id, edits);
+        if (this.writer.isDebugEnabled()) {
+            this.writer.debug(
+                "Formatted " + uri,
+                edits.size() + " edits in " + Duration.ofNanos(System.nanoTime() - start).toMillis() + " ms"
+            );
+        }
+    }
+
+    private List<Map<String, Object>> format(String uri, String text, Path path, int fromLine, int toLine) {
+        // config files are not watched: a request is a run of its own.
+        this.formatter.recheckConfigFiles();
+        final FormatResult result = this.formatter.format(path, text);
+
+        if (!result.succeeded()) {
+            final Exception failure = result.failure().orElseThrow();
+            if (failure instanceof InvalidSyntaxException || failure instanceof FileTimeoutException) {
+                // e.g. while typing: nothing to format, the compiler of the editor reports the syntax errors.
+                this.writer.debug("Not formatted " + uri, String.valueOf(failure.getMessage()));
+                return List.of();
+            }
+
+            throw new IllegalStateException("Failed to format " + uri, failure);
+        }
+
+        return TextEdits.between(text, result.formatted())
+            .stream()
+            .filter(edit -> edit.touchesLines(fromLine, toLine))
+            .map(TextEdits.TextEdit::toJson)
+            .toList();
+    }
+
+    private void cancelPendingRequests(String uri, int errorCode) {
+        this.pendingRequests.forEach((id, pendingRequest) -> {
+            if (pendingRequest.uri().equals(uri)) {
+                cancel(id, errorCode);
+            }
+        });
+    }
+
+    private void cancelAll() {
+        this.pendingRequests.keySet().forEach(id -> cancel(id, REQUEST_CANCELLED));
+    }
+
+    private void cancel(@Nullable Object id, int errorCode) {
+        if (id == null) {
+            return;
+        }
+
+        final PendingRequest pendingRequest = this.pendingRequests.remove(id);
+        if (pendingRequest == null) {
+            // already answered
+            return;
+        }
+
+        pendingRequest.task().cancel(true);
+        respondError(id, errorCode, errorCode == CONTENT_MODIFIED ? "Document changed" : "Request cancelled");
+    }
+
+    private void respond(Object id, @Nullable Object result) {
+        final Map<String, @Nullable Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("result", result);
+        send(response);
+    }
+
+    private void respondError(@Nullable Object id, int code, @Nullable String message) {
+        final Map<String, @Nullable Object> response = new LinkedHashMap<>();
+        response.put("jsonrpc", "2.0");
+        response.put("id", id);
+        response.put("error", Map.of("code", code, "message", Objects.requireNonNullElse(message, "")));
+        send(response);
+    }
+
+    private void send(Map<String, @Nullable Object> message) {
+        try {
+            this.transport.write(message);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Could not write to the client", ioException);
+        }
+    }
+
+    private static Path documentPath(String uri) {
+        if (!uri.startsWith("file:")) {
+            return Path.of(UNTITLED_FILE_NAME);
+        }
+
+        return Path.of(URI.create(uri));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, @Nullable Object> object(@Nullable Object value) {
+        if (value instanceof Map<?, ?> map) {
+            return (Map<String, @Nullable Object>) map;
+        }
+
+        throw new IllegalArgumentException("Expected an object, but got " + value);
+    }
+
+    private static List<?> list(@Nullable Object value) {
+        if (value instanceof List<?> list) {
+            return list;
+        }
+
+        throw new IllegalArgumentException("Expected an array, but got " + value);
+    }
+
+    private static String string(Map<String, @Nullable Object> object, String key) {
+        if (object.get(key) instanceof String string) {
+            return string;
+        }
+
+        throw new IllegalArgumentException("Expected a string " + key + ", but got " + object.get(key));
+    }
+
+    private static int number(Map<String, @Nullable Object> object, String key) {
+        if (object.get(key) instanceof Number number) {
+            return number.intValue();
+        }
+
+        throw new IllegalArgumentException("Expected a number " + key + ", but got " + object.get(key));
+    }
+
+    private record PendingRequest(String uri, FutureTask<Void> task) {}
+}
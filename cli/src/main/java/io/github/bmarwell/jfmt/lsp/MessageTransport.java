@@ -0,0 +1,124 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The base protocol of LSP: JSON messages with a {@code Content-Length} header, e.g. on stdin and stdout.
+ *
+ * <p>Messages are read by one thread only. Writing is synchronized, so responses of concurrent requests never
+ * interleave.</p>
+ */
+final class MessageTransport {
+
+    private static final String CONTENT_LENGTH = "content-length";
+
+    private final InputStream in;
+
+    private final OutputStream out;
+
+    MessageTransport(InputStream in, OutputStream out) {
+        this.in = in;
+        this.out = out;
+    }
+
+    /**
+     * Reads the next message.
+     *
+     * @return the message, or {@code null} at the end of the input.
+     * @throws IOException
+     *     if reading fails or a header is invalid.
+     */
+    @Nullable
+    Map<String, @Nullable Object> read() throws IOException {
+        int contentLength = -1;
+
+        while (true) {
+            final String header = readHeaderLine();
+            if (header == null) {
+                return null;
+            }
+
+            if (header.isEmpty()) {
+                break;
+            }
+
+            final int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().toLowerCase(Locale.ROOT).equals(CONTENT_LENGTH)) {
+                contentLength = parseContentLength(header.substring(colon + 1).trim());
+            }
+        }
+
+        if (contentLength < 0) {
+            throw new IOException("Message without Content-Length header");
+        }
+
+        final byte[] content = this.in.readNBytes(contentLength);
+        if (content.length < contentLength) {
+            throw new EOFException("Message truncated after " + content.length + " of " + contentLength + " bytes");
+        }
+
+        if (!(Json.parse(new String(content, StandardCharsets.UTF_8)) instanceof Map<?, ?> message)) {
+            throw new IOException("Message is not a JSON object");
+        }
+
+        @SuppressWarnings("unchecked")
+        final Map<String, @Nullable Object> typedMessage = (Map<String, @Nullable Object>) message;
+        return typedMessage;
+    }
+
+    /**
+     * Writes a message and flushes it.
+     *
+     * @param message
+     *     the message, see {@link Json#write(Object)}.
+     * @throws IOException
+     *     if writing fails, e.g. because the client is gone.
+     */
+    void write(Map<String, @Nullable Object> message) throws IOException {
+        final byte[] content = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        final byte[] header = ("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+
+        synchronized (this.out) {
+            this.out.write(header);
+            this.out.write(content);
+            this.out.flush();
+        }
+    }
+
+    private @Nullable String readHeaderLine() throws IOException {
+        final ByteArrayOutputStream line = new ByteArrayOutputStream();
+
+        while (true) {
+            final int b = this.in.read();
+            if (b == -1) {
+                if (line.size() == 0) {
+                    return null;
+                }
+                throw new EOFException("Input ended within a header");
+            }
+
+            if (b == '\n') {
+                final String header = line.toString(StandardCharsets.US_ASCII);
+                return header.endsWith("\r") ? header.substring(0, header.length() - 1) : header;
+            }
+
+            line.write(b);
+        }
+    }
+
+    private static int parseContentLength(String value) throws IOException {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException numberFormatException) {
+            throw new IOException("Invalid Content-Length: " + value, numberFormatException);
+        }
+    }
+}
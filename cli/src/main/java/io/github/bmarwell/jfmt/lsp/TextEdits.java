@@ -0,0 +1,191 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import com.github.difflib.DiffUtils;
+import com.github.difflib.patch.AbstractDelta;
+import com.github.difflib.patch.Patch;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns a formatted document into the minimal line-based {@link TextEdit}s, like the diff of {@code jfmt diff}.
+ *
+ * <p>Editors keep the cursor, folds and markers on untouched lines, which they would lose if the whole document was
+ * replaced.</p>
+ */
+final class TextEdits {
+
+    private TextEdits() {
+        // utility class
+    }
+
+    /**
+     * A replacement of a range of the original document, with zero-based lines and UTF-16 characters like LSP.
+     *
+     * @param startLine
+     *     first line of the replaced range.
+     * @param startCharacter
+     *     first character of the replaced range.
+     * @param endLine
+     *     line of the (exclusive) end of the replaced range.
+     * @param endCharacter
+     *     character of the (exclusive) end of the replaced range.
+     * @param newText
+     *     the replacement.
+     */
+    record TextEdit(int startLine, int startCharacter, int endLine, int endCharacter, String newText) {
+
+        /// Whether the replaced range touches one of the given lines.
+        boolean touchesLines(int fromLine, int toLine) {
+            return this.startLine <= toLine && this.endLine >= fromLine;
+        }
+
+        Map<String, Object> toJson() {
+            return Map.of(
+                "range",
+                Map.of(
+                    "start",
+                    Map.of("line", this.startLine, "character", this.startCharacter),
+                    "end",
+                    Map.of("line", this.endLine, "character", this.endCharacter)
+                ),
+                "newText",
+                this.newText
+            );
+        }
+    }
+
+    /**
+     * Computes the edits which turn the source into the revised source.
+     *
+     * @param source
+     *     the document as the editor has it.
+     * @param revised
+     *     the formatted document.
+     * @return the edits, in document order, without overlaps. Empty if both are equal.
+     */
+    static List<TextEdit> between(String source, String revised) {
+        if (source.equals(revised)) {
+            return List.of();
+        }
+
+        // Every line is terminated by a line break, including the last one, which makes the offsets below uniform.
+        final String terminatedRevised = revised + "\n";
+        final List<String> sourceLines = Arrays.asList(source.split("\n", -1));
+        final List<String> revisedLines = Arrays.asList(revised.split("\n", -1));
+        final int[] sourceOffsets = lineOffsets(sourceLines);
+        final int[] revisedOffsets = lineOffsets(revisedLines);
+        final Patch<String> patch = DiffUtils.diff(sourceLines, revisedLines);
+
+        final List<int[]> ranges = new ArrayList<>();
+        final List<String> replacements = new ArrayList<>();
+
+        for (AbstractDelta<String> delta : patch.getDeltas()) {
+            final int sourceLine = delta.getSource().getPosition();
+            final int revisedLine = delta.getTarget().getPosition();
+            final int start = sourceOffsets[sourceLine];
+            final int end = sourceOffsets[sourceLine + delta.getSource().size()];
+            final String replacement = terminatedRevised.substring(
+                revisedOffsets[revisedLine],
+                revisedOffsets[revisedLine + delta.getTarget().size()]
+            );
+
+            // adjacent deltas are merged, so that the character in front of each edit is never edited itself.
+            if (!ranges.isEmpty() && ranges.getLast()[1] == start) {
+                ranges.getLast()[1] = end;
+                replacements.add(replacements.removeLast() + replacement);
+                continue;
+            }
+
+            ranges.add(new int[] { start, end });
+            replacements.add(replacement);
+        }
+
+        removeTerminatorOfLastLine(ranges, replacements, source.length());
+
+        final List<TextEdit> edits = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            final int start = ranges.get(i)[0];
+            final int end = ranges.get(i)[1];
+            final int startLine = lineOf(sourceOffsets, start);
+            final int endLine = lineOf(sourceOffsets, end);
+
+            edits.add(
+                new TextEdit(
+                    startLine,
+                    start - sourceOffsets[startLine],
+                    endLine,
+                    end - sourceOffsets[endLine],
+                    replacements.get(i)
+                )
+            );
+        }
+
+        assert apply(source, ranges, replacements).equals(revised)
+            : "edits do not reproduce the formatted document";
+
+        return List.copyOf(edits);
+    }
+
+    /**
+     * Maps an edit of the last line, which includes the artificial terminator, back to the real document.
+     *
+     * <p>Both documents end with the terminator, so an edit reaching the end replaces it with itself: it is dropped
+     * from both the range and the replacement. If the replacement is empty, the line break in front of the edit is
+     * removed instead, which is part of the unchanged text before the edit.</p>
+     */
+    private static void removeTerminatorOfLastLine(List<int[]> ranges, List<String> replacements, int sourceLength) {
+        if (ranges.isEmpty() || ranges.getLast()[1] <= sourceLength) {
+            return;
+        }
+
+        final int[] range = ranges.getLast();
+        final String replacement = replacements.getLast();
+
+        if (range[0] > sourceLength) {
+            // lines appended after the last line
+            range[0] = sourceLength;
+            range[1] = sourceLength;
+            replacements.set(replacements.size() - 1, "\n" + replacement.substring(0, replacement.length() - 1));
+            return;
+        }
+
+        if (replacement.isEmpty()) {
+            // last lines removed
+            range[0] = Math.max(0, range[0] - 1);
+            range[1] = sourceLength;
+            return;
+        }
+
+        range[1] = sourceLength;
+        replacements.set(replacements.size() - 1, replacement.substring(0, replacement.length() - 1));
+    }
+
+    /// Offset of each line and, at the end, of the line after the last line.
+    private static int[] lineOffsets(List<String> lines) {
+        final int[] offsets = new int[lines.size() + 1];
+
+        for (int i = 0; i < lines.size(); i++) {
+            offsets[i + 1] = offsets[i] + lines.get(i).length() + 1;
+        }
+
+        return offsets;
+    }
+
+    private static int lineOf(int[] lineStarts, int offset) {
+        final int index = Arrays.binarySearch(lineStarts, 0, lineStarts.length - 1, offset);
+
+        return index >= 0 ? index : -index - 2;
+    }
+
+    private static String apply(String source, List<int[]> ranges, List<String> replacements) {
+        final StringBuilder result = new StringBuilder(source);
+
+        for (int i = ranges.size() - 1; i >= 0; i--) {
+            result.replace(ranges.get(i)[0], ranges.get(i)[1], replacements.get(i));
+        }
+
+        return result.toString();
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pool of direct byte buffers in power-of-two size classes.
+ *
+ * <p>Direct buffers are expensive to allocate and are only freed by the garbage collector, so allocating one per
+ * file would churn native memory. Released buffers are kept for reuse, up to {@code maxPooledBytes}; anything above
+ * that is left to the garbage collector.</p>
+ */
+public final class DirectBufferPool {
+
+    static final int MIN_CAPACITY = 4 * 1024;
+
+    private final int maxCapacity;
+
+    private final long maxPooledBytes;
+
+    private final Queue<ByteBuffer>[] sizeClasses;
+
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * Creates a pool.
+     *
+     * @param maxCapacity
+     *     the largest buffer handed out, rounded up to a power of two.
+     * @param maxPooledBytes
+     *     how many bytes of released buffers to keep at most.
+     */
+    @SuppressWarnings("unchecked")
+    public DirectBufferPool(int maxCapacity, long maxPooledBytes) {
+        this.maxCapacity = roundUp(maxCapacity);
+        this.maxPooledBytes = maxPooledBytes;
+        this.sizeClasses = new Queue[sizeClass(this.maxCapacity) + 1];
+
+        for (int i = 0; i < this.sizeClasses.length; i++) {
+            this.sizeClasses[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    /**
+     * Hands out a buffer with position 0 and limit {@code size}.
+     *
+     * @param size
+     *     the number of bytes needed, at most the max capacity of this pool.
+     * @return a direct buffer, which should be {@link #release(ByteBuffer) released} after use.
+     */
+    public ByteBuffer acquire(int size) {
+        if (size > this.maxCapacity) {
+            throw new IllegalArgumentException("Requested " + size + " bytes, pool maximum is " + this.maxCapacity);
+        }
+
+        final int capacity = roundUp(size);
+        final ByteBuffer pooled = this.sizeClasses[sizeClass(capacity)].poll();
+
+        if (pooled == null) {
+            return ByteBuffer.allocateDirect(capacity).limit(size);
+        }
+
+        this.pooledBytes.addAndGet(-capacity);
+
+        return pooled.clear().limit(size);
+    }
+
+    /**
+     * Returns a buffer obtained from {@link #acquire(int)}.
+     *
+     * @param buffer
+     *     the buffer, must not be used afterwards.
+     */
+    public void release(ByteBuffer buffer) {
+        final int capacity = buffer.capacity();
+        if (!buffer.isDirect() || Integer.bitCount(capacity) != 1 || capacity > this.maxCapacity) {
+            return;
+        }
+
+        if (this.pooledBytes.addAndGet(capacity) > this.maxPooledBytes) {
+            this.pooledBytes.addAndGet(-capacity);
+            return;
+        }
+
+        this.sizeClasses[sizeClass(capacity)].offer(buffer);
+    }
+
+    long pooledBytes() {
+        return this.pooledBytes.get();
+    }
+
+    private static int roundUp(int size) {
+        if (size <= MIN_CAPACITY) {
+            return MIN_CAPACITY;
+        }
+
+        return Integer.highestOneBit(size - 1) << 1;
+    }
+
+    private static int sizeClass(int capacity) {
+        return Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    }
+}
@@ -0,0 +1,308 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Watches files and directory trees for changed Java files and {@code .jfmt} files, and single config files like the
+ * {@code --config-file}.
+ *
+ * <p>A {@link WatchService} only watches single directories, so every directory below the roots is registered, and
+ * directories created later are registered once they appear. Hidden directories like {@code .git} or {@code .idea}
+ * are skipped: a checkout or an IDE would otherwise flood the watcher with events for files which are never
+ * formatted.</p>
+ *
+ * <p>Events are debounced: {@link #awaitChanges(Duration)} only returns once no event arrived for the quiet period,
+ * so that a burst like a save of many files or a {@code git checkout} results in one batch.</p>
+ */
+public final class DirectoryWatcher implements AutoCloseable {
+
+    /// A batch is returned after this many quiet periods at the latest, even if events keep arriving.
+    private static final int MAX_QUIET_PERIODS_PER_BATCH = 10;
+
+    private final WatchService watchService;
+
+    private final List<Path> roots;
+
+    /// Roots which are files: only their own events count, not those of their siblings.
+    private final Set<Path> fileRoots = new HashSet<>();
+
+    /// Config files outside of {@code .jfmt} files, e.g. the {@code --config-file}.
+    private final Set<Path> configFiles;
+
+    private final Map<WatchKey, Path> directories = new HashMap<>();
+
+    private DirectoryWatcher(WatchService watchService, List<Path> roots, Set<Path> configFiles) {
+        this.watchService = watchService;
+        this.roots = roots;
+        this.configFiles = configFiles;
+    }
+
+    /**
+     * Starts watching the given files and directories.
+     *
+     * @param roots
+     *     files or directories given on the command line.
+     * @return the watcher, which must be closed.
+     * @throws IOException
+     *     if a directory cannot be registered.
+     */
+    public static DirectoryWatcher start(List<Path> roots) throws IOException {
+        return start(roots, List.of());
+    }
+
+    /**
+     * Starts watching the given files and directories, and the given config files.
+     *
+     * @param roots
+     *     files or directories given on the command line.
+     * @param configFiles
+     *     config files given on the command line, which may be outside of the roots. Their changes are reported
+     *     like those of {@code .jfmt} files.
+     * @return the watcher, which must be closed.
+     * @throws IOException
+     *     if a directory cannot be registered.
+     */
+    public static DirectoryWatcher start(List<Path> roots, List<Path> configFiles) throws IOException {
+        final List<Path> absoluteRoots = roots.stream()
+            .map(root -> root.toAbsolutePath().normalize())
+            .toList();
+        final Set<Path> absoluteConfigFiles = configFiles.stream()
+            .map(configFile -> configFile.toAbsolutePath().normalize())
+            .collect(Collectors.toUnmodifiableSet());
+        final DirectoryWatcher watcher =
+            new DirectoryWatcher(FileSystems.getDefault().newWatchService(), absoluteRoots, absoluteConfigFiles);
+
+        try {
+            for (Path root : absoluteRoots) {
+                watcher.registerRoot(root);
+            }
+
+            for (Path configFile : absoluteConfigFiles) {
+                watcher.register(configFile.getParent());
+            }
+        } catch (IOException | RuntimeException registrationException) {
+            watcher.close();
+            throw registrationException;
+        }
+
+        return watcher;
+    }
+
+    public int watchedDirectories() {
+        return this.directories.size();
+    }
+
+    /**
+     * Whether a changed file is a {@code .jfmt} file, which changes the style of the files below it, or one of the
+     * config files given to {@link #start(List, List)}.
+     *
+     * @param changedFile
+     *     a file returned by {@link #awaitChanges(Duration)}.
+     * @return {@code true} for config files.
+     */
+    public boolean isConfigFile(Path changedFile) {
+        if (this.configFiles.contains(changedFile)) {
+            return true;
+        }
+
+        final Path name = changedFile.getFileName();
+
+        return name != null && name.toString().equals(StyleResolver.CONFIG_FILE_NAME);
+    }
+
+    /**
+     * Waits for changes and returns the Java files created or modified since the last call, and the config files
+     * (see {@link #isConfigFile(Path)}) created, modified or deleted.
+     *
+     * @param quietPeriod
+     *     the time without events after which a burst of events is considered complete.
+     * @return the changed Java files which still exist and the changed config files, never empty.
+     * @throws InterruptedException
+     *     if interrupted while waiting.
+     */
+    public Set<Path> awaitChanges(Duration quietPeriod) throws InterruptedException {
+        final Set<Path> changed = new LinkedHashSet<>();
+
+        while (changed.isEmpty()) {
+            WatchKey key = this.watchService.take();
+            final long batchDeadline = System.nanoTime() + quietPeriod.toNanos() * MAX_QUIET_PERIODS_PER_BATCH;
+
+            while (key != null) {
+                collect(key, changed);
+
+                if (System.nanoTime() - batchDeadline > 0) {
+                    break;
+                }
+
+                key = this.watchService.poll(quietPeriod.toNanos(), TimeUnit.NANOSECONDS);
+            }
+
+            // deleted again, or renamed away within the burst. A deleted config file changes the style, though.
+            changed.removeIf(file -> !isConfigFile(file) && !Files.isRegularFile(file));
+        }
+
+        return changed;
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        final Path directory = this.directories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // events were lost: everything may have changed.
+                changed.addAll(rescan());
+                continue;
+            }
+
+            if (directory == null || !(event.context() instanceof Path name)) {
+                continue;
+            }
+
+            final Path child = directory.resolve(name);
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child)) {
+                // the directory of a config file may be outside of the roots.
+                if (!isHidden(child) && isBelowDirectoryRoot(child)) {
+                    // files may have been created in it before it was registered.
+                    changed.addAll(registerTree(child));
+                }
+                continue;
+            }
+
+            if (isWatchedJavaFile(child) || isConfigFile(child)) {
+                changed.add(child);
+            }
+        }
+
+        if (!key.reset()) {
+            // the directory is gone
+            this.directories.remove(key);
+        }
+    }
+
+    private boolean isWatchedJavaFile(Path file) {
+        if (!file.getFileName().toString().endsWith(".java")) {
+            return false;
+        }
+
+        return this.fileRoots.contains(file) || isBelowDirectoryRoot(file);
+    }
+
+    private boolean isBelowDirectoryRoot(Path file) {
+        return this.roots.stream()
+            .filter(root -> !this.fileRoots.contains(root))
+            .anyMatch(file::startsWith);
+    }
+
+    private Set<Path> rescan() {
+        final Set<Path> all = new LinkedHashSet<>();
+
+        for (Path root : this.roots) {
+            if (this.fileRoots.contains(root)) {
+                all.add(root);
+                continue;
+            }
+
+            all.addAll(registerTree(root));
+        }
+
+        return all;
+    }
+
+    private void registerRoot(Path root) throws IOException {
+        if (Files.isDirectory(root)) {
+            registerTree(root);
+            return;
+        }
+
+        if (!Files.isRegularFile(root)) {
+            throw new IllegalArgumentException("Path does not exist: " + root);
+        }
+
+        this.fileRoots.add(root);
+        register(root.getParent());
+    }
+
+    /**
+     * Registers the directory and all directories below it, except hidden ones.
+     *
+     * @return the Java files found in the registered directories.
+     */
+    private Set<Path> registerTree(Path start) {
+        final Set<Path> javaFiles = new LinkedHashSet<>();
+
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attributes)
+                    throws IOException {
+                    if (!directory.equals(start) && isHidden(directory)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+
+                    register(directory);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) {
+                    if (attributes.isRegularFile() && file.getFileName().toString().endsWith(".java")) {
+                        javaFiles.add(file);
+                    }
+
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException exception) {
+                    // e.g. deleted while walking
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Could not watch " + start, ioException);
+        }
+
+        return javaFiles;
+    }
+
+    private void register(Path directory) throws IOException {
+        final WatchKey key = directory.register(this.watchService, ENTRY_CREATE, ENTRY_MODIFY, ENTRY_DELETE);
+        this.directories.put(key, directory);
+    }
+
+    private static boolean isHidden(Path directory) {
+        final Path name = directory.getFileName();
+
+        return name != null && name.toString().startsWith(".");
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.watchService.close();
+    }
+}
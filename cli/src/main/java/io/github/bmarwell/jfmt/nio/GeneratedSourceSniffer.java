@@ -0,0 +1,184 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Tells generated sources apart by looking for markers like {@code @Generated} or {@code DO NOT EDIT} in the first
+ * few KB of a file.
+ *
+ * <p>Only the header is read, and it is searched as raw bytes. It is neither decoded nor parsed, so sniffing a file
+ * is much cheaper than reading it completely. Markers are matched as UTF-8, which is what almost all sources (and
+ * all ASCII markers) are encoded in.</p>
+ *
+ * <p>A marker ending in a letter or digit only matches if no further identifier character follows, so that
+ * {@code @Generated} does not match {@code @GeneratedValue}. An annotation marker like {@code @Generated} also matches
+ * its qualified forms, e.g. {@code @javax.annotation.processing.Generated}.</p>
+ */
+public final class GeneratedSourceSniffer {
+
+    /// Number of bytes read from the start of each file.
+    public static final int HEADER_BYTES = 4 * 1024;
+
+    /// Markers used when none are configured.
+    public static final List<String> DEFAULT_MARKERS = List.of("@Generated", "DO NOT EDIT", "Generated by");
+
+    private final List<Marker> markers;
+
+    private final int headerBytes;
+
+    private GeneratedSourceSniffer(List<String> markers, int headerBytes) {
+        this.markers = markers.stream()
+            .filter(marker -> !marker.isEmpty())
+            .map(Marker::of)
+            .toList();
+        this.headerBytes = headerBytes;
+    }
+
+    /**
+     * Creates a sniffer for the given markers.
+     *
+     * @param markers
+     *     case-sensitive markers, or an empty list for {@link #DEFAULT_MARKERS}.
+     * @return a sniffer reading {@link #HEADER_BYTES} of each file.
+     */
+    public static GeneratedSourceSniffer of(List<String> markers) {
+        return of(markers, HEADER_BYTES);
+    }
+
+    static GeneratedSourceSniffer of(List<String> markers, int headerBytes) {
+        if (markers.isEmpty()) {
+            return new GeneratedSourceSniffer(DEFAULT_MARKERS, headerBytes);
+        }
+
+        return new GeneratedSourceSniffer(markers, headerBytes);
+    }
+
+    /**
+     * Checks whether the header of the given file contains any of the markers.
+     *
+     * @param javaFile
+     *     the file to check.
+     * @return {@code true} if a marker was found. {@code false} if not, or if the file cannot be read: it is then
+     *     processed and its read error reported like for any other file.
+     */
+    public boolean isGenerated(Path javaFile) {
+        final ByteBuffer header = ByteBuffer.allocate(this.headerBytes);
+
+        try (FileChannel channel = FileChannel.open(javaFile, StandardOpenOption.READ)) {
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading, a single read may return less than requested.
+            }
+        } catch (IOException ioException) {
+            return false;
+        }
+
+        final byte[] bytes = header.array();
+        final int length = header.position();
+
+        for (Marker marker : this.markers) {
+            if (marker.foundIn(bytes, length)) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /// Java identifier characters, counting every byte of a multi-byte UTF-8 sequence as one.
+    private static boolean isIdentifierPart(byte b) {
+        return b < 0
+            || b == '_'
+            || b == '$'
+            || (b >= '0' && b <= '9')
+            || (b >= 'a' && b <= 'z')
+            || (b >= 'A' && b <= 'Z');
+    }
+
+    /**
+     * A marker to search for.
+     *
+     * @param bytes
+     *     the marker, without the {@code @} of an annotation.
+     * @param annotation
+     *     whether it is an annotation, which must be preceded by {@code @} or by its package and {@code @}.
+     */
+    private record Marker(byte[] bytes, boolean annotation) {
+
+        static Marker of(String marker) {
+            final byte[] bytes = marker.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length < 2 || bytes[0] != '@') {
+                return new Marker(bytes, false);
+            }
+
+            for (int i = 1; i < bytes.length; i++) {
+                if (!isIdentifierPart(bytes[i])) {
+                    return new Marker(bytes, false);
+                }
+            }
+
+            return new Marker(Arrays.copyOfRange(bytes, 1, bytes.length), true);
+        }
+
+        boolean foundIn(byte[] header, int length) {
+            for (int start = 0; start <= length - this.bytes.length; start++) {
+                if (
+                    matchesAt(header, start)
+                        && isCompleteAt(header, length, start + this.bytes.length)
+                        && isAnnotatedAt(header, start)
+                ) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        private boolean matchesAt(byte[] header, int start) {
+            for (int i = 0; i < this.bytes.length; i++) {
+                if (header[start + i] != this.bytes[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        /// Not followed by an identifier character, unless the marker ends with a non-identifier character itself.
+        private boolean isCompleteAt(byte[] header, int length, int end) {
+            if (end == length || !isIdentifierPart(this.bytes[this.bytes.length - 1])) {
+                return true;
+            }
+
+            return !isIdentifierPart(header[end]);
+        }
+
+        /// Preceded by {@code @}, or by a qualified name like {@code @javax.annotation.} for annotations.
+        private boolean isAnnotatedAt(byte[] header, int start) {
+            if (!this.annotation) {
+                return true;
+            }
+
+            if (start > 0 && header[start - 1] == '@') {
+                return true;
+            }
+
+            if (start == 0 || header[start - 1] != '.') {
+                return false;
+            }
+
+            int position = start - 1;
+            while (position > 0 && (header[position - 1] == '.' || isIdentifierPart(header[position - 1]))) {
+                position--;
+            }
+
+            return position > 0 && header[position - 1] == '@' && header[position] != '.';
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.time.Duration;
+
+/**
+ * Token bucket limiting the bytes read and written per second, shared by all workers.
+ *
+ * <p>The bucket holds at most one second worth of tokens, so short bursts are allowed after idle periods. A request
+ * larger than the available tokens is still granted, but puts the bucket into debt: the caller (and everybody after
+ * it) waits until the debt is paid off. This keeps the average rate without having to split large files.</p>
+ */
+public final class IoRateLimiter {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final double bytesPerSecond;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    private IoRateLimiter(double bytesPerSecond, long nowNanos) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.tokens = bytesPerSecond;
+        this.lastRefillNanos = nowNanos;
+    }
+
+    /**
+     * A limiter which never waits.
+     *
+     * @return an unlimited limiter.
+     */
+    public static IoRateLimiter unlimited() {
+        return new IoRateLimiter(Double.POSITIVE_INFINITY, 0L);
+    }
+
+    /**
+     * A limiter allowing the given number of mebibytes per second.
+     *
+     * @param megabytesPerSecond
+     *     the rate, must be positive.
+     * @return a new limiter.
+     */
+    public static IoRateLimiter ofMegabytesPerSecond(double megabytesPerSecond) {
+        if (!(megabytesPerSecond > 0.0)) {
+            throw new IllegalArgumentException("I/O rate must be positive: " + megabytesPerSecond);
+        }
+
+        return new IoRateLimiter(megabytesPerSecond * 1024.0 * 1024.0, System.nanoTime());
+    }
+
+    public boolean isUnlimited() {
+        return Double.isInfinite(this.bytesPerSecond);
+    }
+
+    /**
+     * Takes the given number of bytes from the bucket, waiting until the rate allows it.
+     *
+     * @param bytes
+     *     the number of bytes about to be (or just) read or written.
+     * @throws InterruptedException
+     *     if interrupted while waiting, e.g. by fail-fast cancellation.
+     */
+    public void acquire(long bytes) throws InterruptedException {
+        if (isUnlimited() || bytes <= 0L) {
+            return;
+        }
+
+        final Duration wait = reserve(bytes, System.nanoTime());
+        if (!wait.isZero()) {
+            Thread.sleep(wait);
+        }
+    }
+
+    /**
+     * Takes the bytes from the bucket and computes how long the caller has to wait for them.
+     *
+     * @param bytes
+     *     the number of bytes.
+     * @param nowNanos
+     *     the current {@link System#nanoTime()}.
+     * @return how long to wait, {@link Duration#ZERO} if the tokens were available.
+     */
+    synchronized Duration reserve(long bytes, long nowNanos) {
+        final double refill = (nowNanos - this.lastRefillNanos) * this.bytesPerSecond / NANOS_PER_SECOND;
+        this.tokens = Math.min(this.bytesPerSecond, this.tokens + refill);
+        this.lastRefillNanos = nowNanos;
+        this.tokens -= bytes;
+
+        if (this.tokens >= 0.0) {
+            return Duration.ZERO;
+        }
+
+        return Duration.ofNanos((long) Math.ceil(-this.tokens * NANOS_PER_SECOND / this.bytesPerSecond));
+    }
+}
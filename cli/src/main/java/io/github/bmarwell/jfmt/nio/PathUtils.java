@@ -1,16 +1,63 @@
 package io.github.bmarwell.jfmt.nio;
 
+import io.github.bmarwell.jfmt.trace.TraceRecorder;
 import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public final class PathUtils {
 
     private PathUtils() {}
 
+    /**
+     * Resolves all Java files below the given paths and reads their attributes, in parallel.
+     *
+     * <p>Overlapping paths like {@code src src/main/java} are allowed: each file is only returned once.</p>
+     *
+     * @param paths
+     *     files or directories given on the command line.
+     * @return all discovered Java files in no particular order.
+     */
+    public static List<SourceFile> discover(List<Path> paths) {
+        return discover(paths, TraceRecorder.disabled());
+    }
+
+    /**
+     * Like {@link #discover(List)}, but records the discovery as a span of the calling thread.
+     *
+     * @param paths
+     *     files or directories given on the command line.
+     * @param traceRecorder
+     *     records the span.
+     * @return all discovered Java files in no particular order.
+     */
+    public static List<SourceFile> discover(List<Path> paths, TraceRecorder traceRecorder) {
+        final long start = System.nanoTime();
+
+        try {
+            return streamAll(paths)
+                .collect(
+                    Collectors.toMap(
+                        file -> file.toAbsolutePath().normalize(),
+                        file -> file,
+                        (first, duplicate) -> first,
+                        LinkedHashMap::new
+                    )
+                )
+                .values()
+                .parallelStream()
+                .map(SourceFile::of)
+                .toList();
+        } finally {
+            traceRecorder.record("discover", null, start);
+        }
+    }
+
     public static Stream<Path> streamAll(List<Path> paths) {
         return paths.parallelStream()
             .flatMap(PathUtils::resolveAsStream);
@@ -0,0 +1,325 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.AsynchronousFileChannel;
+import java.nio.channels.CompletionHandler;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Reads source files ahead of the workers, in scheduling order, so that I/O latency overlaps with formatting.
+ *
+ * <p>Up to {@code readsInFlight} files which were read (or are being read) but not yet taken by a worker are kept.
+ * Whenever a worker {@link #take(Path) takes} a prefetched file, the next file in order is requested. Small files
+ * are read with an {@link AsynchronousFileChannel} into pooled direct buffers; files of at least
+ * {@value #MMAP_THRESHOLD} bytes (usually generated code) are memory-mapped instead, and their pages are loaded
+ * ahead of time. A mapping is only removed once its buffer is garbage collected, so files which are written back are
+ * never mapped: they are read into a heap buffer instead. Truncating a mapped file is unsafe, and fails on Windows,
+ * where a mapped file is locked.</p>
+ *
+ * <p>Each read takes its size from the {@link IoRateLimiter} before it is issued, so that {@code --io-rate} limits
+ * the disk reads themselves. Prefetches wait for the rate on a virtual thread of their own, never on a worker.</p>
+ *
+ * <p>Workers may overtake the prefetching, e.g. right at the start: a file which was not requested yet is then read
+ * on demand, and the prefetching skips it later. A file taken again is read on demand as well. Taken files are
+ * forgotten, so the stage only holds the files in flight, however many files there are.</p>
+ */
+public final class ReadAheadStage implements AutoCloseable {
+
+    /// Files of at least this size are memory-mapped instead of read into a pooled buffer.
+    public static final int MMAP_THRESHOLD = 1024 * 1024;
+
+    /// Keep at most this many bytes of released buffers for reuse.
+    static final long MAX_POOLED_BYTES = 32L * 1024L * 1024L;
+
+    private final List<Path> order;
+
+    private final int readsInFlight;
+
+    private final boolean mapLargeFiles;
+
+    private final IoRateLimiter ioRateLimiter;
+
+    private final DirectBufferPool bufferPool = new DirectBufferPool(MMAP_THRESHOLD, MAX_POOLED_BYTES);
+
+    /// Reads not taken yet, removed once taken.
+    private final Map<Path, CompletableFuture<SourceContent>> reads = new ConcurrentHashMap<>();
+
+    /// Prefetched files not taken yet, their number is bounded by readsInFlight.
+    private final Set<Path> prefetched = ConcurrentHashMap.newKeySet();
+
+    /// Files taken on demand before the prefetching got to them, removed once it skips them.
+    private final Set<Path> takenAhead = new HashSet<>();
+
+    private final Executor readAheadThreads =
+        task -> Thread.ofVirtual().name("jfmt-read-ahead-", 0).start(task);
+
+    private int cursor;
+
+    private boolean closed;
+
+    private ReadAheadStage(List<Path> order, int readsInFlight, boolean mapLargeFiles, IoRateLimiter ioRateLimiter) {
+        this.order = order.stream().distinct().toList();
+        this.readsInFlight = readsInFlight;
+        this.mapLargeFiles = mapLargeFiles;
+        this.ioRateLimiter = ioRateLimiter;
+    }
+
+    /**
+     * Starts prefetching the given files, which are only read.
+     *
+     * @param order
+     *     the files in the order the workers will most likely ask for them.
+     * @param readsInFlight
+     *     how many files to read ahead. {@code 0} disables prefetching: files are read on demand.
+     * @return the started stage.
+     */
+    public static ReadAheadStage start(List<Path> order, int readsInFlight) {
+        return start(order, readsInFlight, false);
+    }
+
+    /**
+     * Starts prefetching the given files.
+     *
+     * @param order
+     *     the files in the order the workers will most likely ask for them.
+     * @param readsInFlight
+     *     how many files to read ahead. {@code 0} disables prefetching: files are read on demand.
+     * @param writesBack
+     *     whether the files may be written while (or after) their content is used, which rules out memory-mapping.
+     * @return the started stage.
+     */
+    public static ReadAheadStage start(List<Path> order, int readsInFlight, boolean writesBack) {
+        return start(order, readsInFlight, writesBack, IoRateLimiter.unlimited());
+    }
+
+    /**
+     * Starts prefetching the given files, with the disk reads limited to the given rate.
+     *
+     * @param order
+     *     the files in the order the workers will most likely ask for them.
+     * @param readsInFlight
+     *     how many files to read ahead. {@code 0} disables prefetching: files are read on demand.
+     * @param writesBack
+     *     whether the files may be written while (or after) their content is used, which rules out memory-mapping.
+     * @param ioRateLimiter
+     *     the limiter every read takes its bytes from, before it is issued.
+     * @return the started stage.
+     */
+    public static ReadAheadStage start(
+        List<Path> order,
+        int readsInFlight,
+        boolean writesBack,
+        IoRateLimiter ioRateLimiter
+    ) {
+        final ReadAheadStage stage = new ReadAheadStage(order, readsInFlight, !writesBack, ioRateLimiter);
+        stage.requestMore();
+
+        return stage;
+    }
+
+    /**
+     * A stage which reads every file on demand, and never maps them.
+     *
+     * @return a stage without prefetching.
+     */
+    public static ReadAheadStage onDemand() {
+        return new ReadAheadStage(List.of(), 0, false, IoRateLimiter.unlimited());
+    }
+
+    /**
+     * Returns the content of the given file, waiting for a prefetch in progress or reading it now.
+     *
+     * @param path
+     *     the file to read.
+     * @return the content, which must be closed after use.
+     * @throws IOException
+     *     if the file could not be read.
+     * @throws InterruptedException
+     *     if interrupted while waiting for the read.
+     */
+    public SourceContent take(Path path) throws IOException, InterruptedException {
+        final CompletableFuture<SourceContent> prefetchedRead = this.reads.remove(path);
+        final CompletableFuture<SourceContent> read =
+            prefetchedRead == null ? takeUnrequested(path) : prefetchedRead;
+
+        try {
+            return read.get();
+        } catch (ExecutionException executionException) {
+            if (executionException.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+
+            throw new IOException("Failed to read " + path, executionException.getCause());
+        } finally {
+            if (this.prefetched.remove(path)) {
+                requestMore();
+            }
+        }
+    }
+
+    /**
+     * Reads a file which is not prefetched, either because the prefetching did not get to it yet, or because it was
+     * taken before.
+     */
+    private CompletableFuture<SourceContent> takeUnrequested(Path path) {
+        synchronized (this) {
+            // requested meanwhile.
+            final CompletableFuture<SourceContent> prefetchedRead = this.reads.remove(path);
+            if (prefetchedRead != null) {
+                return prefetchedRead;
+            }
+
+            if (this.cursor < this.order.size()) {
+                this.takenAhead.add(path);
+            }
+        }
+
+        return read(path);
+    }
+
+    private synchronized void requestMore() {
+        while (!this.closed && this.prefetched.size() < this.readsInFlight && this.cursor < this.order.size()) {
+            final Path next = this.order.get(this.cursor++);
+
+            if (this.takenAhead.remove(next)) {
+                // already taken on demand.
+                continue;
+            }
+
+            // registered before publishing the read, so a concurrent take always finds it.
+            this.prefetched.add(next);
+            this.reads.put(next, prefetch(next));
+        }
+    }
+
+    /// Waiting for the rate would block the caller, i.e. a worker taking a file.
+    private CompletableFuture<SourceContent> prefetch(Path path) {
+        if (this.ioRateLimiter.isUnlimited()) {
+            return read(path);
+        }
+
+        return CompletableFuture.supplyAsync(() -> read(path), this.readAheadThreads).thenCompose(read -> read);
+    }
+
+    private CompletableFuture<SourceContent> read(Path path) {
+        try {
+            final long size;
+            final AsynchronousFileChannel channel = AsynchronousFileChannel.open(path, StandardOpenOption.READ);
+
+            try {
+                size = channel.size();
+                // before reading, so that the rate limits the disk and not only the workers.
+                this.ioRateLimiter.acquire(size);
+            } catch (IOException ioException) {
+                channel.close();
+                throw ioException;
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+                channel.close();
+                throw new InterruptedIOException("Interrupted while waiting for the I/O rate: " + path);
+            }
+
+            if (size < MMAP_THRESHOLD) {
+                return readFully(path, channel, this.bufferPool.acquire((int) size));
+            }
+
+            if (!this.mapLargeFiles) {
+                // not pooled, the garbage collector takes care of it.
+                return readFully(path, channel, ByteBuffer.allocate(Math.toIntExact(size)));
+            }
+
+            channel.close();
+
+            return map(path, size);
+        } catch (IOException ioException) {
+            return CompletableFuture.failedFuture(ioException);
+        }
+    }
+
+    private CompletableFuture<SourceContent> readFully(Path path, AsynchronousFileChannel channel, ByteBuffer buffer) {
+        final CompletableFuture<SourceContent> result = new CompletableFuture<>();
+
+        channel.read(buffer, 0L, buffer, new CompletionHandler<>() {
+            @Override
+            public void completed(Integer bytesRead, ByteBuffer target) {
+                if (bytesRead >= 0 && target.hasRemaining()) {
+                    channel.read(target, target.position(), target, this);
+                    return;
+                }
+
+                finish(bytesRead, target);
+            }
+
+            @Override
+            public void failed(Throwable throwable, ByteBuffer target) {
+                closeQuietly(channel);
+                bufferPool.release(target);
+                result.completeExceptionally(throwable);
+            }
+
+            private void finish(Integer bytesRead, ByteBuffer target) {
+                try {
+                    // a file modified while reading would be formatted (and written back) truncated.
+                    if (target.hasRemaining() || channel.size() != target.limit()) {
+                        throw new IOException("File changed while reading: " + path);
+                    }
+
+                    channel.close();
+                    result.complete(new SourceContent(target.flip(), bufferPool::release));
+                } catch (IOException ioException) {
+                    failed(ioException, target);
+                }
+            }
+        });
+
+        return result;
+    }
+
+    private CompletableFuture<SourceContent> map(Path path, long size) throws IOException {
+        final MappedByteBuffer mapped;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            // the mapping stays valid after closing the channel.
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+        }
+
+        // nothing to release: the mapping is removed once the buffer is garbage collected.
+        return CompletableFuture
+            .supplyAsync(() -> new SourceContent(mapped.load(), buffer -> {}), this.readAheadThreads);
+    }
+
+    private static void closeQuietly(AsynchronousFileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ioException) {
+            // reading already failed or finished, nothing left to do.
+        }
+    }
+
+    /**
+     * Stops prefetching and releases the buffers of files which were read but never taken, e.g. after fail-fast
+     * cancellation.
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            this.closed = true;
+            this.takenAhead.clear();
+        }
+
+        this.reads.values().forEach(read -> read.thenAccept(SourceContent::close));
+    }
+}
@@ -0,0 +1,45 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Prepares the location of the class data sharing (CDS) archive of the JVM distribution.
+ *
+ * <p>The launcher of the JVM distribution starts the JVM with {@code -XX:+AutoCreateSharedArchive} and passes the
+ * archive path in {@code -XX:SharedArchiveFile} and in the system property {@value #ARCHIVE_PROPERTY}. The JVM writes
+ * the archive on exit, and creates it again if the jars or the JDK changed. It does not create missing directories,
+ * though, which is done here.</p>
+ */
+public final class SharedArchiveDirectory {
+
+    /// System property with the path of the archive, set by the launcher.
+    public static final String ARCHIVE_PROPERTY = "jfmt.cds.archive";
+
+    private SharedArchiveDirectory() {
+        // utility class
+    }
+
+    public static void prepare() {
+        prepare(System.getProperty(ARCHIVE_PROPERTY));
+    }
+
+    static void prepare(@Nullable String archive) {
+        if (archive == null || archive.isBlank()) {
+            return;
+        }
+
+        final Path directory = Path.of(archive).toAbsolutePath().getParent();
+        if (directory == null || Files.isDirectory(directory)) {
+            return;
+        }
+
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException ioException) {
+            // no archive then, this only affects startup time.
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * The raw bytes of a source file, read by the {@link ReadAheadStage}.
+ *
+ * <p>The buffer is a pooled direct buffer, a heap buffer or a memory-mapped region. It must not be used after
+ * {@link #close()}, which returns pooled buffers for reuse.</p>
+ */
+public final class SourceContent implements AutoCloseable {
+
+    private final ByteBuffer buffer;
+
+    private final Consumer<ByteBuffer> releaser;
+
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SourceContent(ByteBuffer buffer, Consumer<ByteBuffer> releaser) {
+        this.buffer = buffer;
+        this.releaser = releaser;
+    }
+
+    /**
+     * The content, from position 0 to the limit.
+     *
+     * @return a read-only view on the content.
+     */
+    public ByteBuffer buffer() {
+        return this.buffer.asReadOnlyBuffer();
+    }
+
+    public int size() {
+        return this.buffer.limit();
+    }
+
+    @Override
+    public void close() {
+        // releasing twice would hand the same pooled buffer to two readers.
+        if (this.closed.compareAndSet(false, true)) {
+            this.releaser.accept(this.buffer);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+
+/**
+ * A discovered Java source file together with the attributes read during discovery.
+ *
+ * <p>Reading the attributes while walking the tree (which happens in parallel anyway) lets the scheduler order
+ * files by size or modification time without touching the file system again.</p>
+ *
+ * @param path
+ *     the path of the file, as discovered
+ * @param size
+ *     size in bytes at discovery time
+ * @param lastModified
+ *     last modification time at discovery time
+ */
+public record SourceFile(Path path, long size, FileTime lastModified) {
+
+    /**
+     * Reads the basic attributes of the given file.
+     *
+     * @param path
+     *     an existing regular file.
+     * @return the source file with its attributes.
+     */
+    public static SourceFile of(Path path) {
+        try {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+
+            return new SourceFile(path, attributes.size(), attributes.lastModifiedTime());
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+}
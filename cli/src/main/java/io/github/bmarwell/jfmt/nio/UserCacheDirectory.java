@@ -0,0 +1,54 @@
+package io.github.bmarwell.jfmt.nio;
+
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Resolves the directory where jfmt keeps small state files between runs, e.g. the failure history.
+ *
+ * <p>Lookup order:</p>
+ * <ol>
+ *     <li>{@code JFMT_CACHE_DIR} environment variable,</li>
+ *     <li>{@code XDG_CACHE_HOME/jfmt},</li>
+ *     <li>{@code %LOCALAPPDATA%\jfmt\cache} on Windows, {@code ~/Library/Caches/jfmt} on macOS,</li>
+ *     <li>{@code ~/.cache/jfmt} otherwise.</li>
+ * </ol>
+ *
+ * <p>The directory is not created here; writers create it on demand.</p>
+ */
+public final class UserCacheDirectory {
+
+    private UserCacheDirectory() {
+        // utility class
+    }
+
+    public static Path resolve() {
+        return resolve(System.getenv(), System.getProperty("os.name", ""), System.getProperty("user.home"));
+    }
+
+    static Path resolve(Map<String, String> env, String osName, String userHome) {
+        if (isSet(env.get("JFMT_CACHE_DIR"))) {
+            return Path.of(env.get("JFMT_CACHE_DIR"));
+        }
+
+        if (isSet(env.get("XDG_CACHE_HOME"))) {
+            return Path.of(env.get("XDG_CACHE_HOME"), "jfmt");
+        }
+
+        String os = osName.toLowerCase(Locale.ROOT);
+        if (os.contains("win") && isSet(env.get("LOCALAPPDATA"))) {
+            return Path.of(env.get("LOCALAPPDATA"), "jfmt", "cache");
+        }
+
+        if (os.contains("mac")) {
+            return Path.of(userHome, "Library", "Caches", "jfmt");
+        }
+
+        return Path.of(userHome, ".cache", "jfmt");
+    }
+
+    private static boolean isSet(String value) {
+        return value != null && !value.isBlank();
+    }
+}
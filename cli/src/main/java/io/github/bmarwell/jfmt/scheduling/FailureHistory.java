@@ -0,0 +1,183 @@
+package io.github.bmarwell.jfmt.scheduling;
+
+import io.github.bmarwell.jfmt.format.FileProcessingResult;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Remembers which files failed (were not formatted correctly or could not be processed) in previous runs.
+ *
+ * <p>Stored as a small properties file ({@code absolute path = epoch millis of last failure}) in the
+ * {@link io.github.bmarwell.jfmt.nio.UserCacheDirectory user cache directory}. Files which pass are removed again,
+ * so the file only grows with the number of currently failing files. It is capped at {@value #MAX_ENTRIES} entries
+ * to stay cheap to load.</p>
+ *
+ * <p>Not thread-safe: only the thread owning the scope reads and updates the history.</p>
+ */
+public final class FailureHistory {
+
+    static final String FILE_NAME = "failure-history.properties";
+
+    static final int MAX_ENTRIES = 10_000;
+
+    private final @Nullable Path file;
+
+    private final Map<String, Long> lastFailures;
+
+    private boolean modified;
+
+    private FailureHistory(@Nullable Path file, Map<String, Long> lastFailures) {
+        this.file = file;
+        this.lastFailures = lastFailures;
+    }
+
+    /**
+     * An in-memory history which is never persisted.
+     *
+     * @return an empty history.
+     */
+    public static FailureHistory empty() {
+        return new FailureHistory(null, new HashMap<>());
+    }
+
+    /**
+     * Loads the history from the given directory. A missing or unreadable file results in an empty history, which
+     * will be (re-)created on {@link #save()}.
+     *
+     * @param directory
+     *     the directory containing the history file.
+     * @return the loaded history.
+     */
+    public static FailureHistory load(Path directory) {
+        final Path historyFile = directory.resolve(FILE_NAME);
+        final Map<String, Long> entries = new HashMap<>();
+
+        if (!Files.isRegularFile(historyFile)) {
+            return new FailureHistory(historyFile, entries);
+        }
+
+        try (InputStream in = Files.newInputStream(historyFile)) {
+            Properties properties = new Properties();
+            properties.load(in);
+            properties.forEach((key, value) -> parseEntry(entries, key.toString(), value.toString()));
+        } catch (IOException | IllegalArgumentException corrupt) {
+            // the history is only a scheduling hint, start over.
+            entries.clear();
+        }
+
+        return new FailureHistory(historyFile, entries);
+    }
+
+    private static void parseEntry(Map<String, Long> entries, String key, String value) {
+        try {
+            entries.put(key, Long.parseLong(value.trim()));
+        } catch (NumberFormatException nfe) {
+            // skip broken entry
+        }
+    }
+
+    /**
+     * Time of the last recorded failure.
+     *
+     * @param javaFile
+     *     the file to look up.
+     * @return epoch millis of the last failure, or {@code 0} if the file did not fail recently.
+     */
+    public long lastFailure(Path javaFile) {
+        return this.lastFailures.getOrDefault(key(javaFile), 0L);
+    }
+
+    /**
+     * Updates the history from the results of a run. Files which were not processed (e.g. because of fail-fast
+     * cancellation) are left untouched.
+     *
+     * @param results
+     *     the results of this run.
+     * @param nowMillis
+     *     the time to record for failures.
+     */
+    public void record(List<FileProcessingResult> results, long nowMillis) {
+        for (FileProcessingResult result : results) {
+            recordResult(result, nowMillis);
+        }
+
+        prune();
+    }
+
+    private void recordResult(FileProcessingResult result, long nowMillis) {
+        final String key = key(result.javaFile());
+
+        if (isFailure(result)) {
+            this.lastFailures.put(key, nowMillis);
+            this.modified = true;
+
+            return;
+        }
+
+        if (this.lastFailures.remove(key) != null) {
+            this.modified = true;
+        }
+    }
+
+    private static boolean isFailure(FileProcessingResult result) {
+        // write mode reports changed files via changesWritten instead of hasDiff.
+        return result.hasDiff() || result.changesWritten() || result.exception().isPresent();
+    }
+
+    private void prune() {
+        if (this.lastFailures.size() <= MAX_ENTRIES) {
+            return;
+        }
+
+        List<String> oldest = this.lastFailures.entrySet()
+            .stream()
+            .sorted(Map.Entry.comparingByValue())
+            .limit(this.lastFailures.size() - MAX_ENTRIES)
+            .map(Map.Entry::getKey)
+            .toList();
+        oldest.forEach(this.lastFailures::remove);
+    }
+
+    /**
+     * Writes the history back if it changed. Written to a temporary file first, so concurrent jfmt runs never see a
+     * half-written file.
+     *
+     * @throws IOException
+     *     if the history could not be written.
+     */
+    public void save() throws IOException {
+        if (this.file == null || !this.modified) {
+            return;
+        }
+
+        Files.createDirectories(this.file.toAbsolutePath().getParent());
+        final Path tmp = Files.createTempFile(this.file.toAbsolutePath().getParent(), FILE_NAME, ".tmp");
+
+        Properties properties = new Properties();
+        this.lastFailures.entrySet()
+            .stream()
+            .sorted(Comparator.comparing(Map.Entry::getKey))
+            .forEach(entry -> properties.setProperty(entry.getKey(), String.valueOf(entry.getValue())));
+
+        try (OutputStream out = Files.newOutputStream(tmp)) {
+            properties.store(out, "jfmt failure history, used by --schedule=previously-failed-first");
+        }
+
+        Files.move(tmp, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        this.modified = false;
+    }
+
+    private static String key(Path javaFile) {
+        return javaFile.toAbsolutePath().normalize().toString();
+    }
+}
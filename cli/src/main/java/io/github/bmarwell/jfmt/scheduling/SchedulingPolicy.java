@@ -0,0 +1,97 @@
+package io.github.bmarwell.jfmt.scheduling;
+
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Order in which discovered files are submitted for processing.
+ *
+ * <p>Only a bounded number of files run concurrently, so the order matters: a huge file started last stretches
+ * the total wall time (makespan), and in fail-fast mode (--no-all) the run ends as soon as the first failing file
+ * completes.</p>
+ */
+public enum SchedulingPolicy {
+    /**
+     * Whatever order the (parallel) file tree walk produced.
+     */
+    DISCOVERY("discovery"),
+    /**
+     * Longest processing time first (LPT), using the file size as the estimate. Minimizes the total wall time.
+     */
+    LARGEST_FIRST("largest-first"),
+    /**
+     * Files which failed in previous runs first, most recent failure first. Surfaces failures earliest in fail-fast
+     * mode. Remaining files follow largest-first.
+     */
+    PREVIOUSLY_FAILED_FIRST("previously-failed-first"),
+    /**
+     * Most recently modified files first: freshly edited files are the most likely to be unformatted.
+     */
+    RECENTLY_MODIFIED_FIRST("recently-modified-first");
+
+    private static final Comparator<SourceFile> LARGEST_FIRST_ORDER =
+        Comparator.comparingLong(SourceFile::size).reversed();
+
+    private static final Comparator<SourceFile> RECENTLY_MODIFIED_ORDER =
+        Comparator.comparing(SourceFile::lastModified).reversed();
+
+    private final String cliName;
+
+    SchedulingPolicy(String cliName) {
+        this.cliName = cliName;
+    }
+
+    /**
+     * Whether this policy needs the {@link FailureHistory}. Only then is the history loaded and maintained.
+     *
+     * @return {@code true} if the failure history is used.
+     */
+    public boolean usesFailureHistory() {
+        return this == PREVIOUSLY_FAILED_FIRST;
+    }
+
+    /**
+     * Orders the discovered files according to this policy.
+     *
+     * @param files
+     *     the discovered files.
+     * @param history
+     *     failures of previous runs.
+     * @return the files in submission order.
+     */
+    public List<SourceFile> order(List<SourceFile> files, FailureHistory history) {
+        return switch (this) {
+            case DISCOVERY -> files;
+            case LARGEST_FIRST -> sorted(files, LARGEST_FIRST_ORDER);
+            case PREVIOUSLY_FAILED_FIRST -> previouslyFailedFirst(files, history);
+            case RECENTLY_MODIFIED_FIRST -> sorted(files, RECENTLY_MODIFIED_ORDER);
+        };
+    }
+
+    private static List<SourceFile> previouslyFailedFirst(List<SourceFile> files, FailureHistory history) {
+        // look up each file once instead of on every comparison
+        final Map<SourceFile, Long> lastFailures = files.stream()
+            .collect(Collectors.toMap(Function.identity(), file -> history.lastFailure(file.path()), Math::max));
+        Comparator<SourceFile> byLastFailure = Comparator.comparingLong(lastFailures::get);
+
+        return sorted(files, byLastFailure.reversed().thenComparing(LARGEST_FIRST_ORDER));
+    }
+
+    private static List<SourceFile> sorted(List<SourceFile> files, Comparator<SourceFile> order) {
+        return files.stream()
+            .sorted(order)
+            .toList();
+    }
+
+    /**
+     * The name used on the command line, which picocli also uses for parsing and completion candidates.
+     */
+    @Override
+    public String toString() {
+        return this.cliName;
+    }
+}
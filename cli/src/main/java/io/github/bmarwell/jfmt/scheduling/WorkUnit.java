@@ -0,0 +1,96 @@
+package io.github.bmarwell.jfmt.scheduling;
+
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * One or more files which are processed sequentially by a single worker.
+ *
+ * <p>For tiny files like DTOs or {@code package-info.java}, the per-subtask overhead (virtual thread, permit,
+ * joiner bookkeeping, creating a formatter) is comparable to formatting the file itself. Such files are therefore
+ * grouped into units up to a byte budget, while large files stay units of their own.</p>
+ *
+ * @param files
+ *     the files of this unit, in submission order.
+ */
+public record WorkUnit(List<SourceFile> files) {
+
+    /// Units are never cut smaller than this, so a handful of files is still not split into too many units.
+    static final long MIN_BYTE_BUDGET = 4L * 1024L;
+
+    /// How many units per worker are wanted at least, so that the last units still balance across workers.
+    static final int UNITS_PER_WORKER = 4;
+
+    public WorkUnit {
+        files = List.copyOf(files);
+    }
+
+    /**
+     * Total size of the files in this unit.
+     *
+     * @return the number of source bytes processed by this unit.
+     */
+    public long sourceBytes() {
+        return this.files.stream().mapToLong(SourceFile::size).sum();
+    }
+
+    /**
+     * Groups consecutive small files into units of at most {@code byteBudget} bytes.
+     *
+     * <p>The budget adapts to the amount of work: it shrinks so that there are at least {@value #UNITS_PER_WORKER}
+     * units per worker, otherwise a small tree would end up in very few units and leave workers idle. Files
+     * at least as large as the effective budget become a unit of their own. The submission order of the scheduling
+     * policy is kept: large files are emitted in place, and a unit is emitted once the next file would exceed the
+     * budget. So no unit is larger than the effective budget, unless it is a single large file.</p>
+     *
+     * @param files
+     *     the files in submission order.
+     * @param byteBudget
+     *     the maximum number of bytes per unit. {@code 0} disables batching.
+     * @param parallelism
+     *     the number of workers.
+     * @return the units in submission order.
+     */
+    public static List<WorkUnit> coarsen(List<SourceFile> files, long byteBudget, int parallelism) {
+        final long effectiveBudget = effectiveBudget(files, byteBudget, parallelism);
+        final List<WorkUnit> units = new ArrayList<>();
+        List<SourceFile> current = new ArrayList<>();
+        long currentBytes = 0L;
+
+        for (SourceFile file : files) {
+            if (file.size() >= effectiveBudget) {
+                units.add(new WorkUnit(List.of(file)));
+                continue;
+            }
+
+            if (currentBytes + file.size() > effectiveBudget) {
+                // full: the file would exceed the budget, so it starts the next unit.
+                units.add(new WorkUnit(current));
+                current = new ArrayList<>();
+                currentBytes = 0L;
+            }
+
+            current.add(file);
+            currentBytes += file.size();
+        }
+
+        if (!current.isEmpty()) {
+            units.add(new WorkUnit(current));
+        }
+
+        return List.copyOf(units);
+    }
+
+    static long effectiveBudget(List<SourceFile> files, long byteBudget, int parallelism) {
+        if (byteBudget <= 0L) {
+            // every file is a unit of its own.
+            return 0L;
+        }
+
+        final long totalBytes = files.stream().mapToLong(SourceFile::size).sum();
+        final long perUnit = totalBytes / ((long) Math.max(1, parallelism) * UNITS_PER_WORKER);
+
+        return Math.min(byteBudget, Math.max(MIN_BYTE_BUDGET, perUnit));
+    }
+}
@@ -0,0 +1,292 @@
+package io.github.bmarwell.jfmt.trace;
+
+import io.github.bmarwell.jfmt.format.FormatPhaseListener;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Records what each thread did when, and writes it as a timeline in the Chrome trace event format, which can be
+ * opened in <a href="https://ui.perfetto.dev">Perfetto</a> or {@code chrome://tracing}.
+ *
+ * <p>Each thread records into its own buffer, so recording never contends with other threads. The buffers are only
+ * merged when the trace is written. Every thread becomes a track of the timeline, virtual threads included; the
+ * carrier thread a virtual thread ran on at the end of a span is recorded as an argument of the span.</p>
+ *
+ * <p>A {@link #disabled()} recorder ignores everything, so callers do not need to check whether tracing is on.</p>
+ *
+ * <p>A long-running process like {@code watch} {@link #clear() clears} the recorder after writing each batch, so that
+ * neither the buffers nor the trace file grow with every batch.</p>
+ */
+public final class TraceRecorder implements FormatPhaseListener {
+
+    private static final TraceRecorder DISABLED = new TraceRecorder(false);
+
+    /// All events of one run are one process in the timeline.
+    private static final int PID = 1;
+
+    private final boolean enabled;
+
+    private final long originNanos = System.nanoTime();
+
+    private final Queue<ThreadBuffer> buffers = new ConcurrentLinkedQueue<>();
+
+    private final ThreadLocal<ThreadBuffer> threadBuffer = ThreadLocal.withInitial(this::registerBuffer);
+
+    /// Incremented by {@link #clear()}: buffers of an older generation are no longer written, threads register anew.
+    private final AtomicInteger generation = new AtomicInteger();
+
+    private TraceRecorder(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public static TraceRecorder disabled() {
+        return DISABLED;
+    }
+
+    public static TraceRecorder create() {
+        return new TraceRecorder(true);
+    }
+
+    public boolean isEnabled() {
+        return this.enabled;
+    }
+
+    /**
+     * Records a span of the current thread, which ends now.
+     *
+     * @param name
+     *     what was done, e.g. {@code read}.
+     * @param file
+     *     the file it was done for, if any.
+     * @param startNanos
+     *     the {@link System#nanoTime()} when the span started.
+     */
+    public void record(String name, @Nullable Path file, long startNanos) {
+        if (!this.enabled) {
+            return;
+        }
+
+        record(name, file, startNanos, System.nanoTime());
+    }
+
+    /**
+     * Records a span of the current thread.
+     *
+     * @param name
+     *     what was done, e.g. {@code read}.
+     * @param file
+     *     the file it was done for, if any.
+     * @param startNanos
+     *     the {@link System#nanoTime()} when the span started.
+     * @param endNanos
+     *     the {@link System#nanoTime()} when the span ended.
+     */
+    public void record(String name, @Nullable Path file, long startNanos, long endNanos) {
+        if (!this.enabled) {
+            return;
+        }
+
+        currentBuffer().add(new Span(name, file, startNanos, endNanos, carrierName()));
+    }
+
+    @Override
+    public void onPhase(Phase phase, Path javaFile, long startNanos, long endNanos) {
+        record(phase.name().toLowerCase(Locale.ROOT), javaFile, startNanos, endNanos);
+    }
+
+    /**
+     * Writes everything recorded so far.
+     *
+     * @param traceFile
+     *     the file to write, replaced if it exists.
+     * @throws IOException
+     *     if the file cannot be written.
+     */
+    public void writeTo(Path traceFile) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(traceFile, StandardCharsets.UTF_8)) {
+            writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n");
+            writer.write(metadataEvent("process_name", 0L, "jfmt"));
+
+            for (ThreadBuffer buffer : this.buffers) {
+                writer.write(",\n");
+                writer.write(metadataEvent("thread_name", buffer.threadId(), buffer.threadName()));
+
+                for (Span span : buffer.snapshot()) {
+                    writer.write(",\n");
+                    writer.write(completeEvent(buffer.threadId(), span));
+                }
+            }
+
+            writer.write("\n]}\n");
+        }
+    }
+
+    /**
+     * Forgets everything recorded so far, including the threads which have ended meanwhile.
+     *
+     * <p>Spans recorded concurrently may be lost, so this is meant to be called between runs.</p>
+     */
+    public void clear() {
+        if (!this.enabled) {
+            return;
+        }
+
+        this.generation.incrementAndGet();
+        this.buffers.clear();
+    }
+
+    private ThreadBuffer currentBuffer() {
+        final ThreadBuffer buffer = this.threadBuffer.get();
+        if (buffer.generation() == this.generation.get()) {
+            return buffer;
+        }
+
+        final ThreadBuffer registered = registerBuffer();
+        this.threadBuffer.set(registered);
+
+        return registered;
+    }
+
+    private ThreadBuffer registerBuffer() {
+        final Thread thread = Thread.currentThread();
+        final ThreadBuffer buffer = new ThreadBuffer(thread.threadId(), thread.getName(), this.generation.get());
+        this.buffers.add(buffer);
+
+        return buffer;
+    }
+
+    private static @Nullable String carrierName() {
+        final Thread thread = Thread.currentThread();
+        if (!thread.isVirtual()) {
+            return null;
+        }
+
+        // e.g. VirtualThread[#42,jfmt-worker-3]/runnable@ForkJoinPool-1-worker-2
+        final String description = thread.toString();
+        final int at = description.lastIndexOf('@');
+
+        return at < 0 ? null : description.substring(at + 1);
+    }
+
+    private static String metadataEvent(String name, long threadId, String value) {
+        final StringBuilder event = new StringBuilder(96);
+        event.append("{\"name\":\"").append(name).append("\",\"ph\":\"M\",\"pid\":").append(PID);
+        event.append(",\"tid\":").append(threadId).append(",\"args\":{\"name\":");
+        appendString(event, value);
+
+        return event.append("}}").toString();
+    }
+
+    private String completeEvent(long threadId, Span span) {
+        final StringBuilder event = new StringBuilder(160);
+        event.append("{\"name\":");
+        appendString(event, span.name());
+        event.append(",\"cat\":\"jfmt\",\"ph\":\"X\",\"ts\":");
+        appendMicros(event, span.startNanos() - this.originNanos);
+        event.append(",\"dur\":");
+        appendMicros(event, span.endNanos() - span.startNanos());
+        event.append(",\"pid\":").append(PID).append(",\"tid\":").append(threadId).append(",\"args\":{");
+
+        String separator = "";
+        final Path file = span.file();
+        if (file != null) {
+            event.append("\"file\":");
+            appendString(event, file.toString());
+            separator = ",";
+        }
+
+        final String carrier = span.carrier();
+        if (carrier != null) {
+            event.append(separator).append("\"carrier\":");
+            appendString(event, carrier);
+        }
+
+        return event.append("}}").toString();
+    }
+
+    /// Timestamps are in microseconds, with the nanoseconds as fraction.
+    private static void appendMicros(StringBuilder event, long nanos) {
+        final long positiveNanos = Math.max(0L, nanos);
+        final long fraction = positiveNanos % 1_000L;
+
+        event.append(positiveNanos / 1_000L).append('.');
+        if (fraction < 100L) {
+            event.append(fraction < 10L ? "00" : "0");
+        }
+        event.append(fraction);
+    }
+
+    private static void appendString(StringBuilder event, String value) {
+        event.append('"');
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+            switch (c) {
+                case '"' -> event.append("\\\"");
+                case '\\' -> event.append("\\\\");
+                default -> {
+                    if (c < 0x20) {
+                        event.append(String.format(Locale.ROOT, "\\u%04x", (int) c));
+                    } else {
+                        event.append(c);
+                    }
+                }
+            }
+        }
+
+        event.append('"');
+    }
+
+    private record Span(String name, @Nullable Path file, long startNanos, long endNanos, @Nullable String carrier) {}
+
+    /**
+     * The spans of one thread. Only that thread adds to it; the lock is uncontended unless the trace is written
+     * meanwhile.
+     */
+    private static final class ThreadBuffer {
+
+        private final long threadId;
+
+        private final String threadName;
+
+        private final int generation;
+
+        private final List<Span> spans = new ArrayList<>();
+
+        ThreadBuffer(long threadId, String threadName, int generation) {
+            this.threadId = threadId;
+            this.threadName = threadName;
+            this.generation = generation;
+        }
+
+        long threadId() {
+            return this.threadId;
+        }
+
+        String threadName() {
+            return this.threadName;
+        }
+
+        int generation() {
+            return this.generation;
+        }
+
+        synchronized void add(Span span) {
+            this.spans.add(span);
+        }
+
+        synchronized List<Span> snapshot() {
+            return List.copyOf(this.spans);
+        }
+    }
+}
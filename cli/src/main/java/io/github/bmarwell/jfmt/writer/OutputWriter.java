@@ -1,15 +1,41 @@
 package io.github.bmarwell.jfmt.writer;
 
 import java.io.PrintWriter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
 import picocli.CommandLine;
 
+/**
+ * Writes output to stdout and messages to stderr, from any number of threads.
+ *
+ * <p>Callers only format their lines and put them into a bounded queue. A single writer thread takes them from the
+ * queue in batches, writes them in order and flushes once per batch. So a worker never waits for a slow console,
+ * unless the queue is full, and the lines of a file are never interleaved with those of another one.</p>
+ *
+ * <p>Output which is still queued is lost at exit: call {@link #flush()} before.</p>
+ */
 public class OutputWriter {
-    private final CommandLine.Help.Ansi ansiMode;
+
+    /// Enough for a burst of files listed in {@code list} mode, small enough to keep the memory bounded.
+    static final int QUEUE_CAPACITY = 8_192;
+
+    private static final int MAX_BATCH_SIZE = 1_024;
+
     private final VerbosityLevel verbosityLevel;
     private final PrintWriter out;
     private final PrintWriter err;
 
+    private final Style infoStyle;
+    private final Style debugStyle;
+    private final Style warnStyle;
+    private final Style errorStyle;
+
+    private final BlockingQueue<Chunk> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
     public enum VerbosityLevel {
         SILENT, // Errors only
         DEFAULT, // Warnings and info
@@ -22,10 +48,21 @@ public class OutputWriter {
         PrintWriter out,
         PrintWriter err
     ) {
-        this.ansiMode = ansiMode;
         this.verbosityLevel = verbosityLevel;
         this.out = out;
         this.err = err;
+
+        // the markup is parsed once, not for every message.
+        this.infoStyle = Style.of(ansiMode, "bold,green");
+        this.debugStyle = Style.of(ansiMode, "bold,cyan");
+        this.warnStyle = Style.of(ansiMode, "bold,yellow");
+        this.errorStyle = Style.of(ansiMode, "bold,red");
+
+        Thread.ofVirtual().name("jfmt-output").start(this::writeQueuedChunks);
+    }
+
+    public boolean isDebugEnabled() {
+        return verbosityLevel == VerbosityLevel.VERBOSE;
     }
 
     /**
@@ -33,11 +70,23 @@ public class OutputWriter {
      * This is for structured output like filenames, diffs, or formatted code.
      */
     public void output(String line) {
-        out.println(line);
+        enqueue(new Text(out, line + System.lineSeparator()));
     }
 
+    /**
+     * Writes the lines to stdout as one chunk, so that they are not interleaved with the output of other threads.
+     */
     public void output(List<String> lines) {
-        lines.forEach(this::output);
+        if (lines.isEmpty()) {
+            return;
+        }
+
+        final StringBuilder chunk = new StringBuilder();
+        for (String line : lines) {
+            chunk.append(line).append(System.lineSeparator());
+        }
+
+        enqueue(new Text(out, chunk.toString()));
     }
 
     public void info(String prefix, String message) {
@@ -45,15 +94,26 @@ public class OutputWriter {
             return;
         }
 
-        err.println(ansiMode.string("@|bold,green " + prefix + ":|@ " + message));
+        enqueue(new Text(err, infoStyle.line(prefix, message)));
     }
 
     public void debug(String prefix, String message) {
-        if (verbosityLevel != VerbosityLevel.VERBOSE) {
+        if (!isDebugEnabled()) {
+            return;
+        }
+
+        enqueue(new Text(err, debugStyle.line(prefix, message)));
+    }
+
+    /**
+     * Like {@link #debug(String, String)}, but the message is only built if it is written, e.g. for each file.
+     */
+    public void debug(String prefix, Supplier<String> message) {
+        if (!isDebugEnabled()) {
             return;
         }
 
-        err.println(ansiMode.string("@|bold,cyan " + prefix + ":|@ " + message));
+        debug(prefix, message.get());
     }
 
     public void warn(String prefix, String message) {
@@ -61,7 +121,7 @@ public class OutputWriter {
             return;
         }
 
-        err.println(ansiMode.string("@|bold,yellow " + prefix + ":|@ " + message));
+        enqueue(new Text(err, warnStyle.line(prefix, message)));
     }
 
     /**
@@ -69,7 +129,106 @@ public class OutputWriter {
      * Used for critical errors that must always be reported.
      */
     public void error(String prefix, String message) {
-        err.println(ansiMode.string("@|bold,red " + prefix + ":|@ " + message));
+        enqueue(new Text(err, errorStyle.line(prefix, message)));
+    }
+
+    /**
+     * Waits until everything queued so far is written and flushed.
+     */
+    public void flush() {
+        final CountDownLatch written = new CountDownLatch(1);
+        enqueue(new Barrier(written));
+
+        boolean interrupted = false;
+        while (true) {
+            try {
+                written.await();
+                break;
+            } catch (InterruptedException interruptedException) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Chunk chunk) {
+        // output of cancelled workers must not be lost either.
+        boolean interrupted = false;
+        while (true) {
+            try {
+                this.queue.put(chunk);
+                break;
+            } catch (InterruptedException interruptedException) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeQueuedChunks() {
+        final List<Chunk> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+        while (true) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException interruptedException) {
+                return;
+            }
+
+            this.queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            write(batch);
+            batch.clear();
+        }
+    }
+
+    private void write(List<Chunk> batch) {
+        for (Chunk chunk : batch) {
+            switch (chunk) {
+                case Text(PrintWriter target, String text) -> target.print(text);
+                case Barrier(CountDownLatch written) -> {
+                    flushTargets();
+                    written.countDown();
+                }
+            }
+        }
+
+        flushTargets();
+    }
+
+    private void flushTargets() {
+        out.flush();
         err.flush();
     }
+
+    private sealed interface Chunk permits Text, Barrier {}
+
+    /// Preformatted text, including the line separators.
+    private record Text(PrintWriter target, String text) implements Chunk {}
+
+    private record Barrier(CountDownLatch written) implements Chunk {}
+
+    /**
+     * The escape sequences around a prefix. The message itself is not parsed as markup.
+     */
+    private record Style(String start, String end) {
+
+        private static final String PLACEHOLDER = "\u0000";
+
+        static Style of(CommandLine.Help.Ansi ansiMode, String styles) {
+            final String styled = ansiMode.string("@|" + styles + " " + PLACEHOLDER + "|@");
+            final int placeholder = styled.indexOf(PLACEHOLDER);
+
+            return new Style(styled.substring(0, placeholder), styled.substring(placeholder + PLACEHOLDER.length()));
+        }
+
+        String line(String prefix, String message) {
+            return start + prefix + ":" + end + " " + message + System.lineSeparator();
+        }
+    }
 }
@@ -0,0 +1,88 @@
+package io.github.bmarwell.jfmt;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that the native binary needs (almost) no setup time, because the formatter defaults are part of the image
+ * heap.
+ *
+ * <p>Only runs with the {@code native} profile, which sets {@code jfmt.native.binary}. The budget can be changed with
+ * {@code jfmt.native.startup.budget.millis} for slow CI machines.</p>
+ */
+class NativeStartupIT {
+
+    private static final int RUNS = 5;
+
+    private static final long DEFAULT_BUDGET_MILLIS = 250;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void list_of_a_single_file_stays_within_startup_budget() throws IOException, InterruptedException {
+        // given
+        final Path binary = nativeBinary();
+        final Duration budget =
+            Duration.ofMillis(Long.getLong("jfmt.native.startup.budget.millis", DEFAULT_BUDGET_MILLIS));
+        final Path javaFile = this.tempDir.resolve("SomeFile.java");
+        Files.writeString(javaFile, "package a;\n\npublic class SomeFile {\n\n    void run() {}\n}\n");
+
+        // when
+        final List<Duration> durations = new ArrayList<>(RUNS);
+        for (int run = 0; run < RUNS; run++) {
+            durations.add(runList(binary, javaFile));
+        }
+
+        // then
+        // the median ignores a single outlier, e.g. a cold file system cache on the first run.
+        final Duration median = durations.stream().sorted().toList().get(RUNS / 2);
+        assertTrue(
+            median.compareTo(budget) <= 0,
+            "median startup of " + median.toMillis() + " ms exceeds budget of " + budget.toMillis() + " ms, runs: "
+                + durations
+        );
+    }
+
+    private static Duration runList(Path binary, Path javaFile) throws IOException, InterruptedException {
+        final long start = System.nanoTime();
+        final Process process = new ProcessBuilder(binary.toString(), "list", javaFile.toString())
+            .redirectErrorStream(true)
+            .start();
+        final String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertTrue(process.waitFor(30, TimeUnit.SECONDS), "native binary did not exit");
+        final Duration duration = Duration.ofNanos(System.nanoTime() - start);
+
+        assertFalse(output.contains("Exception"), () -> "native binary failed: " + output);
+
+        return duration;
+    }
+
+    private static Path nativeBinary() {
+        final String configured = System.getProperty("jfmt.native.binary");
+        assumeTrue(configured != null, "no native binary, run with the native profile");
+
+        final Path binary = Path.of(configured);
+        if (Files.isExecutable(binary)) {
+            return binary;
+        }
+
+        // Windows
+        final Path executable = Path.of(configured + ".exe");
+        assumeTrue(Files.isExecutable(executable), () -> "native binary not found: " + configured);
+
+        return executable;
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.bmarwell.jfmt.bench;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.bmarwell.jfmt.scheduling.SchedulingPolicy;
+import org.junit.jupiter.api.Test;
+
+class BenchmarkResultTest {
+
+    private static final BenchmarkConfiguration CONFIGURATION =
+        new BenchmarkConfiguration(4, SchedulingPolicy.LARGEST_FIRST, BenchmarkConfiguration.FormatterCache.ON);
+
+    @Test
+    void percentiles_use_the_nearest_rank() {
+        // given
+        var sorted = new long[] { 10, 20, 30, 40, 50, 60, 70, 80, 90, 100 };
+
+        // then
+        assertEquals(50L, BenchmarkResult.percentile(sorted, 50));
+        assertEquals(90L, BenchmarkResult.percentile(sorted, 90));
+        assertEquals(100L, BenchmarkResult.percentile(sorted, 99));
+        assertEquals(10L, BenchmarkResult.percentile(sorted, 0));
+        assertEquals(0L, BenchmarkResult.percentile(new long[0], 50));
+    }
+
+    @Test
+    void summarizes_all_measured_iterations() {
+        // given
+        var latencies = new long[] { 4_000_000L, 1_000_000L, 3_000_000L, 2_000_000L };
+
+        // when
+        var result = BenchmarkResult.of(CONFIGURATION, 2, 500_000L, 2_000_000_000L, latencies, 30L, 1_000L, 2);
+
+        // then
+        assertEquals(2.0, result.filesPerSecond());
+        assertEquals(0.5, result.megabytesPerSecond());
+        assertEquals(2_000_000L, result.p50Nanos());
+        assertEquals(4_000_000L, result.maxNanos());
+        assertEquals(15L, result.gcMillisPerIteration());
+        assertEquals(1, result.failedFiles());
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.bmarwell.jfmt.bench;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.nio.PathUtils;
+import io.github.bmarwell.jfmt.scheduling.SchedulingPolicy;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BenchmarkRunnerTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void measures_every_file_without_writing() throws Exception {
+        // given
+        var unformatted = "class A{int a;}\n";
+        Files.writeString(this.tempDir.resolve("A.java"), unformatted);
+        Files.writeString(this.tempDir.resolve("B.java"), "class B {\n}\n");
+        Files.writeString(this.tempDir.resolve("C.java"), "class C {");
+        var files = PathUtils.discover(List.of(this.tempDir));
+        var runner = new BenchmarkRunner(() -> JFmtFormatter.create(FormatterStyle.defaults()), 0L, 2);
+        var configuration =
+            new BenchmarkConfiguration(2, SchedulingPolicy.LARGEST_FIRST, BenchmarkConfiguration.FormatterCache.ON);
+
+        // when
+        var result = runner.run(configuration, files, 1, 2);
+
+        // then
+        assertTrue(result.filesPerSecond() > 0.0);
+        assertTrue(result.maxNanos() >= result.p50Nanos());
+        assertTrue(result.p50Nanos() > 0L);
+        assertEquals(1, result.failedFiles());
+        assertEquals(unformatted, Files.readString(this.tempDir.resolve("A.java")));
+    }
+
+    @Test
+    void creates_a_formatter_per_iteration_without_cache() throws Exception {
+        // given
+        Files.writeString(this.tempDir.resolve("A.java"), "class A {\n}\n");
+        var files = PathUtils.discover(List.of(this.tempDir));
+        var created = new AtomicInteger();
+        var runner = new BenchmarkRunner(
+            () -> {
+                created.incrementAndGet();
+                return JFmtFormatter.create(FormatterStyle.defaults());
+            },
+            0L,
+            0
+        );
+        var configuration =
+            new BenchmarkConfiguration(1, SchedulingPolicy.DISCOVERY, BenchmarkConfiguration.FormatterCache.OFF);
+
+        // when
+        runner.run(configuration, files, 1, 2);
+
+        // then
+        assertEquals(3, created.get());
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.bmarwell.jfmt.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import picocli.CommandLine;
+
+class ByteSizeConverterTest {
+
+    private final ByteSizeConverter converter = new ByteSizeConverter();
+
+    @ParameterizedTest
+    @CsvSource(
+        {
+            "0, 0",
+            "4096, 4096",
+            "64k, 65536",
+            "64KiB, 65536",
+            "2m, 2097152",
+            "1GB, 1073741824",
+        }
+    )
+    void converts_human_friendly_sizes(String input, long expectedBytes) {
+        // when
+        long bytes = converter.convert(input);
+
+        // then
+        assertEquals(expectedBytes, bytes);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "abc", "-1k", "1t", "k" })
+    void rejects_invalid_sizes(String input) {
+        // expect
+        assertThrows(CommandLine.TypeConversionException.class, () -> converter.convert(input));
+    }
+}
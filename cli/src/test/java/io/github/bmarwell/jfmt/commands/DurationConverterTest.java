@@ -0,0 +1,40 @@
+package io.github.bmarwell.jfmt.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.Duration;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+import picocli.CommandLine;
+
+class DurationConverterTest {
+
+    private final DurationConverter converter = new DurationConverter();
+
+    @ParameterizedTest
+    @CsvSource(
+        {
+            "500ms, 500",
+            "30s, 30000",
+            "2m, 120000",
+            "10, 10000",
+            "PT1S, 1000",
+        }
+    )
+    void converts_human_friendly_durations(String input, long expectedMillis) {
+        // when
+        Duration duration = converter.convert(input);
+
+        // then
+        assertEquals(expectedMillis, duration.toMillis());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "abc", "0s", "-1", "1h" })
+    void rejects_invalid_durations(String input) {
+        // expect
+        assertThrows(CommandLine.TypeConversionException.class, () -> converter.convert(input));
+    }
+}
@@ -0,0 +1,57 @@
+package io.github.bmarwell.jfmt.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.bmarwell.jfmt.config.FormatterDefaults;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FormatterWarmUpTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void sample_has_no_syntax_errors() {
+        // given
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setSource(FormatterWarmUp.SAMPLE.toCharArray());
+        parser.setUnitName(FormatterWarmUp.SAMPLE_FILE_NAME);
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        parser.setCompilerOptions(FormatterDefaults.parserOptions());
+
+        // when
+        CompilationUnit compilationUnit = (CompilationUnit) parser.createAST(null);
+
+        // then
+        assertEquals(0, compilationUnit.getProblems().length);
+    }
+
+    @Test
+    void sample_is_placed_into_first_directory() {
+        // when
+        Path sampleFile = FormatterWarmUp.sampleFile(new Path[] { this.tempDir });
+
+        // then
+        assertEquals(this.tempDir.resolve(FormatterWarmUp.SAMPLE_FILE_NAME), sampleFile);
+    }
+
+    @Test
+    void sample_is_placed_next_to_first_file() throws IOException {
+        // given
+        Path javaFile = Files.createDirectories(this.tempDir.resolve("src")).resolve("A.java");
+        Files.writeString(javaFile, "class A {}\n");
+
+        // when
+        Path sampleFile = FormatterWarmUp.sampleFile(new Path[] { javaFile });
+
+        // then
+        assertEquals(this.tempDir.resolve("src").resolve(FormatterWarmUp.SAMPLE_FILE_NAME), sampleFile);
+    }
+}
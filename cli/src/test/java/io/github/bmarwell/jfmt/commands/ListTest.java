@@ -4,11 +4,17 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class ListTest extends AbstractCommandTest {
 
+    @TempDir
+    Path tempDir;
+
     private static String pathToMixedImports() {
         return Path.of("target", "test-classes", "imports", "MixedImports.java").toString();
     }
@@ -202,4 +208,108 @@ class ListTest extends AbstractCommandTest {
         );
     }
 
+    @Test
+    void background_mode_with_io_rate_reports_the_same_files() {
+        // given
+        var args = new String[] {
+            "list",
+            "--background",
+            "--io-rate",
+            "50",
+            pathToMixedImports(),
+            pathToStaticImportsAtEnd(),
+        };
+
+        // when
+        var result = doExecute(args);
+
+        // then
+        assertEquals(1, result.returncode());
+
+        String stdout = String.join(System.lineSeparator(), result.stdout());
+        assertTrue(stdout.contains("MixedImports.java"), "stdout should contain first file name but was: " + stdout);
+        assertTrue(
+            stdout.contains("StaticImportsAtEnd.java"),
+            "stdout should contain second file name but was: " + stdout
+        );
+    }
+
+    @Test
+    void skip_generated_skips_files_with_a_marker_in_their_header() {
+        // given
+        var args = new String[] {
+            "list",
+            "--skip-generated",
+            "--generated-marker",
+            "public class MixedImports",
+            pathToMixedImports(),
+            pathToStaticImportsAtEnd(),
+        };
+
+        // when
+        var result = doExecute(args);
+
+        // then
+        assertEquals(1, result.returncode());
+
+        String stdout = String.join(System.lineSeparator(), result.stdout());
+        assertFalse(stdout.contains("MixedImports.java"), "stdout should not contain skipped file but was: " + stdout);
+        assertTrue(stdout.contains("StaticImportsAtEnd.java"), "stdout should contain other file but was: " + stdout);
+
+        String stderr = String.join(System.lineSeparator(), result.stderr());
+        assertTrue(stderr.contains("Skipped generated files: 1"), "stderr should report skipped files: " + stderr);
+    }
+
+    @Test
+    void imports_only_reports_files_with_unordered_imports() {
+        // given
+        var args = new String[] { "list", "--imports-only", pathToMixedImports(), pathToStaticImportsAtEnd() };
+
+        // when
+        var result = doExecute(args);
+
+        // then
+        assertEquals(1, result.returncode());
+
+        String stdout = String.join(System.lineSeparator(), result.stdout());
+        assertTrue(stdout.contains("MixedImports.java"), "stdout should contain first file name but was: " + stdout);
+        assertTrue(
+            stdout.contains("StaticImportsAtEnd.java"),
+            "stdout should contain second file name but was: " + stdout
+        );
+    }
+
+    @Test
+    void reports_each_file_once_for_overlapping_arguments() {
+        // given
+        var importsDir = Path.of("target", "test-classes", "imports").toString();
+        var args = new String[] { "list", importsDir, pathToMixedImports() };
+
+        // when
+        var result = doExecute(args);
+
+        // then
+        assertEquals(1, result.returncode(), "stderr: " + result.stderr());
+        String stdout = String.join(System.lineSeparator(), result.stdout());
+        assertEquals(1, countOccurrences(stdout, "MixedImports.java"), stdout);
+    }
+
+    @Test
+    void writes_a_span_per_file_and_phase_to_the_trace_file() throws IOException {
+        // given
+        var traceFile = this.tempDir.resolve("trace.json");
+        var args = new String[] { "list", "--trace-file", traceFile.toString(), pathToMixedImports() };
+
+        // when
+        doExecute(args);
+
+        // then
+        String trace = Files.readString(traceFile);
+        assertTrue(trace.startsWith("{\"displayTimeUnit\":\"ms\",\"traceEvents\":["), trace);
+        // a single file never waits for a permit, so there is no wait span.
+        for (String phase : new String[] { "discover", "read", "parse", "imports", "format", "diff" }) {
+            assertTrue(trace.contains("\"name\":\"" + phase + "\""), "trace should contain " + phase + ": " + trace);
+        }
+        assertTrue(trace.contains("MixedImports.java"), "spans should name the file: " + trace);
+    }
 }
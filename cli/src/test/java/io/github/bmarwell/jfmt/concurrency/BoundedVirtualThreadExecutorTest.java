@@ -0,0 +1,185 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.trace.TraceRecorder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.StructuredTaskScope;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BoundedVirtualThreadExecutorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void never_runs_more_than_max_concurrency_tasks() throws InterruptedException {
+        // given
+        var executor = BoundedVirtualThreadExecutor.create(3);
+        var running = new AtomicInteger();
+        var maxRunning = new AtomicInteger();
+        var completed = new AtomicInteger();
+
+        // when
+        try (var scope = StructuredTaskScope.open(
+            StructuredTaskScope.Joiner.<Integer>awaitAll(),
+            cf -> cf.withThreadFactory(executor.threadFactory())
+        )) {
+            executor.forkAll(scope, tasks(50, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.sleep(2);
+                running.decrementAndGet();
+                return completed.incrementAndGet();
+            }));
+            scope.join();
+        }
+
+        // then
+        assertEquals(50, completed.get());
+        assertTrue(maxRunning.get() <= 3, "at most 3 tasks may run concurrently, but saw " + maxRunning.get());
+    }
+
+    @Test
+    void stops_forking_once_scope_is_cancelled() throws InterruptedException {
+        // given
+        var executor = BoundedVirtualThreadExecutor.create(2);
+        var created = new AtomicInteger();
+
+        // when
+        try (var scope = StructuredTaskScope.open(
+            new CancelOnFirstCompletionJoiner(),
+            cf -> cf.withThreadFactory(executor.threadFactory())
+        )) {
+            executor.forkAll(
+                scope,
+                IntStream.range(0, 1_000)
+                    .mapToObj(i -> {
+                        created.incrementAndGet();
+                        return (Callable<Integer>) () -> i;
+                    })
+                    .iterator()
+            );
+            scope.join();
+        }
+
+        // then
+        assertTrue(created.get() < 1_000, "tasks after cancellation must not be created, but were: " + created.get());
+    }
+
+    @Test
+    void releases_permit_of_subtask_forked_into_cancelled_scope() {
+        // given
+        var executor = BoundedVirtualThreadExecutor.create(1);
+        var secondTaskCreated = new CountDownLatch(1);
+
+        // when
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            try (var scope = StructuredTaskScope.open(
+                new CancelAfterLatchJoiner(secondTaskCreated),
+                cf -> cf.withThreadFactory(executor.threadFactory())
+            )) {
+                executor.forkAll(scope, IntStream.range(0, 3).iterator(), i -> 0L, i -> {
+                    if (i == 1) {
+                        // the first subtask completed and returned its permit, but cancels only now, before the fork
+                        secondTaskCreated.countDown();
+                        awaitCancellation(scope);
+                    }
+
+                    return () -> i;
+                });
+                scope.join();
+            }
+        });
+
+        // then: the third item did not wait forever for the permit of the second one
+        assertEquals(0L, secondTaskCreated.getCount());
+    }
+
+    @Test
+    void records_only_noticeable_waits() throws Exception {
+        // given
+        var traceRecorder = TraceRecorder.create();
+        var executor =
+            BoundedVirtualThreadExecutor.create(ConcurrencyLimit.fixed(1), MemoryBudget.unlimited(), traceRecorder);
+
+        // when
+        try (var scope = StructuredTaskScope.open(
+            StructuredTaskScope.Joiner.<Integer>awaitAll(),
+            cf -> cf.withThreadFactory(executor.threadFactory())
+        )) {
+            executor.forkAll(scope, tasks(3, () -> {
+                Thread.sleep(20);
+                return 0;
+            }));
+            scope.join();
+        }
+
+        // then: the first permit was free, the other two were waited for; memory was never waited for
+        var traceFile = this.tempDir.resolve("trace.json");
+        traceRecorder.writeTo(traceFile);
+        var trace = Files.readString(traceFile);
+        assertEquals(2, trace.split("\"wait for permit\"", -1).length - 1, trace);
+        assertFalse(trace.contains("\"wait for memory\""), trace);
+    }
+
+    private static Iterator<Callable<Integer>> tasks(int count, Callable<Integer> task) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> task)
+            .iterator();
+    }
+
+    private static void awaitCancellation(StructuredTaskScope<?, ?> scope) {
+        while (!scope.isCancelled()) {
+            LockSupport.parkNanos(1_000_000L);
+        }
+    }
+
+    private static final class CancelOnFirstCompletionJoiner implements StructuredTaskScope.Joiner<Integer, Void> {
+        @Override
+        public boolean onComplete(StructuredTaskScope.Subtask<? extends Integer> subtask) {
+            return true;
+        }
+
+        @Override
+        public Void result() {
+            return null;
+        }
+    }
+
+    private static final class CancelAfterLatchJoiner implements StructuredTaskScope.Joiner<Integer, Void> {
+
+        private final CountDownLatch latch;
+
+        CancelAfterLatchJoiner(CountDownLatch latch) {
+            this.latch = latch;
+        }
+
+        @Override
+        public boolean onComplete(StructuredTaskScope.Subtask<? extends Integer> subtask) {
+            try {
+                this.latch.await();
+            } catch (InterruptedException interruptedException) {
+                Thread.currentThread().interrupt();
+            }
+
+            return true;
+        }
+
+        @Override
+        public Void result() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class ConcurrencyLimitTest {
+
+    private static final long WINDOW = ConcurrencyLimit.WINDOW_NANOS;
+
+    @Test
+    void fixed_limit_never_changes() {
+        // given
+        var limit = ConcurrencyLimit.fixed(4);
+
+        // when
+        limit.onPermitWait(10 * WINDOW);
+        int current = limit.onCompleted(1_000, System.nanoTime() + 10 * WINDOW);
+
+        // then
+        assertEquals(4, current);
+        assertEquals(0, limit.windowsEvaluated());
+    }
+
+    @Test
+    void grows_while_saturated_and_throughput_improves() {
+        // given
+        var limit = ConcurrencyLimit.adaptive(4, 64, 0L);
+
+        // when: each window completes more work than the previous one, the forking thread always waits
+        long now = 0L;
+        for (int window = 1; window <= 3; window++) {
+            now += WINDOW;
+            limit.onPermitWait(WINDOW);
+            limit.onCompleted(window * 1_000L, now);
+        }
+
+        // then
+        assertEquals(7, limit.current());
+        assertEquals(3, limit.windowsEvaluated());
+    }
+
+    @Test
+    void does_not_grow_when_not_saturated() {
+        // given
+        var limit = ConcurrencyLimit.adaptive(4, 64, 0L);
+
+        // when: the forking thread never waits for a permit
+        limit.onCompleted(1_000L, WINDOW);
+
+        // then
+        assertEquals(4, limit.current());
+    }
+
+    @Test
+    void turns_around_when_throughput_drops_and_remembers_the_best_limit() {
+        // given
+        var limit = ConcurrencyLimit.adaptive(4, 64, 0L);
+        limit.onPermitWait(WINDOW);
+        limit.onCompleted(10_000L, WINDOW);
+
+        // when: with 5 jobs, throughput halves
+        limit.onPermitWait(WINDOW);
+        int current = limit.onCompleted(5_000L, 2 * WINDOW);
+
+        // then
+        assertEquals(4, current);
+        assertEquals(4, limit.bestLimit());
+    }
+
+    @Test
+    void never_drops_below_one() {
+        // given
+        var limit = ConcurrencyLimit.adaptive(8, 64, 0L);
+
+        // when: throughput stays the same, so fewer workers are preferred, window after window
+        int lowest = Integer.MAX_VALUE;
+        long now = 0L;
+        for (int window = 1; window <= 30; window++) {
+            now += WINDOW;
+            limit.onPermitWait(WINDOW);
+            lowest = Math.min(lowest, limit.onCompleted(1_000L, now));
+        }
+
+        // then
+        assertEquals(1, lowest);
+        assertEquals(1, limit.current());
+    }
+}
@@ -0,0 +1,124 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.junit.jupiter.api.Test;
+
+class MemoryBudgetTest {
+
+    @Test
+    void estimate_is_capped_at_the_budget() {
+        // given
+        var budget = MemoryBudget.of(1_000);
+
+        // expect
+        assertEquals(240, budget.estimate(10));
+        assertEquals(1_000, budget.estimate(1_000));
+    }
+
+    @Test
+    void admits_files_while_they_fit() throws InterruptedException {
+        // given
+        var budget = MemoryBudget.of(1_000);
+
+        // when
+        try (var first = budget.acquire(10); var second = budget.acquire(10)) {
+            // then
+            assertEquals(480, first.cost() + second.cost());
+        }
+    }
+
+    @Test
+    void file_larger_than_budget_waits_and_runs_alone() throws Exception {
+        // given
+        var budget = MemoryBudget.of(1_000);
+        var small = budget.acquire(10);
+
+        // when
+        var oversized = CompletableFuture.supplyAsync(() -> acquireUninterruptibly(budget, 1_000));
+
+        // then
+        assertThrows(TimeoutException.class, () -> oversized.get(100, TimeUnit.MILLISECONDS));
+        small.close();
+        try (var reservation = oversized.get(5, TimeUnit.SECONDS)) {
+            assertEquals(1_000, reservation.cost());
+        }
+    }
+
+    @Test
+    void learns_multiplier_from_retained_heap() throws InterruptedException {
+        // given
+        var budget = MemoryBudget.unlimited();
+
+        // when
+        try (var reservation = budget.acquire(1024 * 1024)) {
+            budget.observeRetainedHeap(8L * 1024 * 1024);
+        }
+
+        // then
+        assertTrue(budget.multiplier() < MemoryBudget.INITIAL_MULTIPLIER);
+        assertTrue(budget.multiplier() >= MemoryBudget.MIN_MULTIPLIER);
+    }
+
+    @Test
+    void multiplier_converges_despite_outliers() throws InterruptedException {
+        // given
+        var budget = MemoryBudget.unlimited();
+        var sourceBytes = 1024L * 1024;
+
+        // when
+        try (var reservation = budget.acquire(sourceBytes)) {
+            for (int sample = 1; sample <= 1_000; sample++) {
+                // every tenth collection also sees lots of garbage or results of files done meanwhile.
+                var ratio = sample % 10 == 5 ? 1_000 : 40;
+                budget.observeRetainedHeap(ratio * sourceBytes);
+            }
+        }
+
+        // then
+        assertEquals(40.0, budget.multiplier(), 4.0);
+    }
+
+    @Test
+    void consistent_samples_move_the_multiplier_quickly() throws InterruptedException {
+        // given
+        var budget = MemoryBudget.unlimited();
+        var sourceBytes = 1024L * 1024;
+
+        // when
+        try (var reservation = budget.acquire(sourceBytes)) {
+            for (int sample = 1; sample <= 20; sample++) {
+                budget.observeRetainedHeap(100 * sourceBytes);
+            }
+        }
+
+        // then
+        assertEquals(100.0, budget.multiplier(), 5.0);
+    }
+
+    @Test
+    void ignores_samples_without_enough_files_in_flight() {
+        // given
+        var budget = MemoryBudget.unlimited();
+
+        // when
+        budget.observeRetainedHeap(8L * 1024 * 1024);
+
+        // then
+        assertEquals(MemoryBudget.INITIAL_MULTIPLIER, budget.multiplier());
+    }
+
+    private static MemoryBudget.Reservation acquireUninterruptibly(MemoryBudget budget, long sourceBytes) {
+        try {
+            return budget.acquire(sourceBytes);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(interruptedException);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package io.github.bmarwell.jfmt.concurrency;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.OptionalInt;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TunedConcurrencyTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void remembers_best_limit_per_host() throws IOException {
+        // given
+        var limit = ConcurrencyLimit.adaptive(6, 64, 0L);
+        for (int window = 1; window <= TunedConcurrency.MIN_WINDOWS; window++) {
+            limit.onCompleted(1_000L, window * ConcurrencyLimit.WINDOW_NANOS);
+        }
+
+        // when
+        TunedConcurrency.load(this.cacheDir, "ci-runner.4cpus").save(limit);
+
+        // then
+        assertEquals(OptionalInt.of(6), TunedConcurrency.load(this.cacheDir, "ci-runner.4cpus").jobs());
+        assertEquals(OptionalInt.empty(), TunedConcurrency.load(this.cacheDir, "workstation.64cpus").jobs());
+    }
+
+    @Test
+    void short_runs_are_not_remembered() throws IOException {
+        // given
+        var limit = ConcurrencyLimit.adaptive(6, 64, 0L);
+
+        // when
+        TunedConcurrency.load(this.cacheDir, "ci-runner.4cpus").save(limit);
+
+        // then
+        assertFalse(Files.exists(this.cacheDir.resolve(TunedConcurrency.FILE_NAME)));
+    }
+
+    @Test
+    void empty_values_are_never_saved() throws IOException {
+        // given
+        var limit = ConcurrencyLimit.adaptive(6, 64, 0L);
+        for (int window = 1; window <= TunedConcurrency.MIN_WINDOWS; window++) {
+            limit.onCompleted(1_000L, window * ConcurrencyLimit.WINDOW_NANOS);
+        }
+
+        // when
+        var tuned = TunedConcurrency.empty();
+        tuned.save(limit);
+
+        // then
+        assertEquals(OptionalInt.empty(), tuned.jobs());
+    }
+
+    @Test
+    void host_key_contains_host_name_and_processors() {
+        // expect
+        assertEquals("build-42.8cpus", TunedConcurrency.hostKey("build-42", 8));
+    }
+
+    @Test
+    void falls_back_to_environment_for_host_name() {
+        // expect
+        assertEquals("build-42", TunedConcurrency.fallbackHostName(Map.of("HOSTNAME", "build-42")));
+        assertEquals("WIN-7", TunedConcurrency.fallbackHostName(Map.of("COMPUTERNAME", "WIN-7")));
+        assertEquals("localhost", TunedConcurrency.fallbackHostName(Map.of()));
+    }
+}
@@ -0,0 +1,60 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+class JsonTest {
+
+    @Test
+    void parses_lsp_messages() {
+        // given
+        var text = """
+                   {"jsonrpc": "2.0", "id": 7, "method": "textDocument/formatting",
+                    "params": {"options": {"tabSize": 4, "insertSpaces": true, "ratio": 1.5e0}, "list": [null, false]}}
+                   """;
+
+        // when
+        var message = Json.parse(text);
+
+        // then
+        var expected = new LinkedHashMap<String, Object>();
+        expected.put("jsonrpc", "2.0");
+        expected.put("id", 7L);
+        expected.put("method", "textDocument/formatting");
+        expected.put(
+            "params",
+            Map.of(
+                "options",
+                Map.of("tabSize", 4L, "insertSpaces", true, "ratio", 1.5d),
+                "list",
+                Arrays.asList(null, false)
+            )
+        );
+        assertEquals(expected, message);
+    }
+
+    @Test
+    void strings_survive_a_round_trip() {
+        // given
+        var source = "class A {\n\t\"\\u00e4\" \\ / \u00e4 \u0001 \uD83D\uDE00\r\n}";
+
+        // when
+        var written = Json.write(List.of(source));
+
+        // then
+        assertEquals(List.of(source), Json.parse(written));
+    }
+
+    @Test
+    void rejects_invalid_json() {
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": }"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("{\"a\": 1} x"));
+        assertThrows(IllegalArgumentException.class, () -> Json.parse("\"unterminated"));
+    }
+}
@@ -0,0 +1,414 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import io.github.bmarwell.jfmt.format.FormatterSettings;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import io.github.bmarwell.jfmt.writer.OutputWriter;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import picocli.CommandLine;
+
+class LanguageServerTest {
+
+    private static final String URI = "file:///tmp/jfmt-lsp/A.java";
+
+    private static final String UNFORMATTED = """
+                                              package a;
+                                              class A {
+                                              int a;
+                                                  int b;
+                                              void m( ) {int x=1;}
+                                              }
+                                              """;
+
+    private static final JFmtFormatter FORMATTER = JFmtFormatter.create(FormatterStyle.defaults());
+
+    private final ByteArrayOutputStream serverOut = new ByteArrayOutputStream();
+
+    private PipedOutputStream clientOut;
+
+    private CompletableFuture<Integer> exitCode;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        startServer(FORMATTER);
+    }
+
+    private void startServer(JFmtFormatter formatter) throws IOException {
+        this.clientOut = new PipedOutputStream();
+        var serverIn = new PipedInputStream(this.clientOut, 1 << 20);
+        var log = new PrintWriter(new StringWriter());
+        var writer = new OutputWriter(CommandLine.Help.Ansi.OFF, OutputWriter.VerbosityLevel.VERBOSE, log, log);
+        var server = LanguageServer.create(formatter, serverIn, this.serverOut, writer);
+
+        this.exitCode = new CompletableFuture<>();
+        Thread.ofVirtual().start(() -> {
+            try {
+                this.exitCode.complete(server.run());
+            } catch (IOException | RuntimeException serverException) {
+                this.exitCode.completeExceptionally(serverException);
+            }
+        });
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        this.clientOut.close();
+    }
+
+    @Test
+    void formats_an_open_document() throws Exception {
+        // given
+        initialize();
+        open(UNFORMATTED);
+
+        // when
+        var response = request(2, "textDocument/formatting", Map.of("textDocument", Map.of("uri", URI)));
+
+        // then
+        var expected = FORMATTER.format(UNFORMATTED).formatted();
+        assertEquals(expected, apply(UNFORMATTED, edits(response)));
+    }
+
+    @Test
+    void range_formatting_only_touches_the_requested_lines() throws Exception {
+        // given
+        initialize();
+        open(UNFORMATTED);
+        var range = Map.of("start", Map.of("line", 2, "character", 0), "end", Map.of("line", 3, "character", 0));
+
+        // when
+        var response = request(
+            2,
+            "textDocument/rangeFormatting",
+            Map.of("textDocument", Map.of("uri", URI), "range", range)
+        );
+
+        // then
+        var edits = edits(response);
+        assertFalse(edits.isEmpty());
+        for (var edit : edits) {
+            assertTrue(range(edit, "start") <= 2 && range(edit, "end") >= 2, () -> "outside of the range: " + edit);
+        }
+    }
+
+    @Test
+    void syntax_errors_result_in_no_edits() throws Exception {
+        // given
+        initialize();
+        open("class A { void m( {");
+
+        // when
+        var response = request(2, "textDocument/formatting", Map.of("textDocument", Map.of("uri", URI)));
+
+        // then
+        assertEquals(List.of(), response.get("result"));
+    }
+
+    @Test
+    void changes_replace_the_document() throws Exception {
+        // given
+        initialize();
+        open("class B {}");
+        notify(
+            "textDocument/didChange",
+            Map.of(
+                "textDocument",
+                Map.of("uri", URI, "version", 2),
+                "contentChanges",
+                List.of(Map.of("text", UNFORMATTED))
+            )
+        );
+
+        // when
+        var response = request(2, "textDocument/formatting", Map.of("textDocument", Map.of("uri", URI)));
+
+        // then
+        assertEquals(FORMATTER.format(UNFORMATTED).formatted(), apply(UNFORMATTED, edits(response)));
+    }
+
+    @Test
+    void registers_a_watcher_for_config_files_if_supported() throws Exception {
+        // when
+        request(
+            1,
+            "initialize",
+            Map.of(
+                "capabilities",
+                Map.of("workspace", Map.of("didChangeWatchedFiles", Map.of("dynamicRegistration", true)))
+            )
+        );
+        notify("initialized", Map.of());
+
+        // then
+        var registration = awaitMessage("client/registerCapability");
+        assertTrue(
+            Json.write(registration.get("params")).contains("\"globPattern\":\"**/.jfmt\""),
+            registration::toString
+        );
+    }
+
+    @Test
+    void reads_changed_config_files_again() throws Exception {
+        // given
+        var source = "package a;\n\nimport org.b.B;\nimport java.util.List;\n\nclass A {}\n";
+        var configFile = this.tempDir.resolve(StyleResolver.CONFIG_FILE_NAME);
+        var javaFile = this.tempDir.resolve("A.java");
+        var google = JFmtFormatter.create(style(CliNamedImportOrder.google)).format(source).formatted();
+        var eclipse = JFmtFormatter.create(style(CliNamedImportOrder.eclipse)).format(source).formatted();
+        assertNotEquals(google, eclipse);
+
+        this.clientOut.close();
+        startServer(
+            JFmtFormatter.create(
+                FormatterSettings.of(new StyleResolver(FormatterStyle.defaults(), StyleOverrides.none()))
+            )
+        );
+        Files.writeString(configFile, "import-order = google");
+        initialize();
+        var uri = javaFile.toUri().toString();
+        notify(
+            "textDocument/didOpen",
+            Map.of("textDocument", Map.of("uri", uri, "languageId", "java", "version", 1, "text", source))
+        );
+        var firstResponse = request(2, "textDocument/formatting", Map.of("textDocument", Map.of("uri", uri)));
+
+        // when
+        Files.writeString(configFile, "import-order = eclipse");
+        notify(
+            "workspace/didChangeWatchedFiles",
+            Map.of("changes", List.of(Map.of("uri", configFile.toUri().toString(), "type", 2)))
+        );
+        var secondResponse = request(3, "textDocument/formatting", Map.of("textDocument", Map.of("uri", uri)));
+
+        // then
+        assertEquals(google, apply(source, edits(firstResponse)));
+        assertEquals(eclipse, apply(source, edits(secondResponse)));
+    }
+
+    @Test
+    void cancelled_requests_are_answered_as_cancelled() throws Exception {
+        // given
+        initialize();
+        var large = new StringBuilder("class Large {\n");
+        for (int i = 0; i < 20_000; i++) {
+            large.append("void m").append(i).append("( ) {int x=").append(i).append(";}\n");
+        }
+        open(large.append("}\n").toString());
+
+        // when
+        send(
+            Map.of(
+                "jsonrpc",
+                "2.0",
+                "id",
+                2,
+                "method",
+                "textDocument/formatting",
+                "params",
+                Map.of("textDocument", Map.of("uri", URI))
+            )
+        );
+        notify("$/cancelRequest", Map.of("id", 2));
+        var response = awaitResponse(2);
+
+        // then
+        assertEquals(LanguageServer.REQUEST_CANCELLED, error(response));
+    }
+
+    @Test
+    void requests_before_initialize_fail() throws Exception {
+        // when
+        var response = request(1, "textDocument/formatting", Map.of("textDocument", Map.of("uri", URI)));
+
+        // then
+        assertEquals(LanguageServer.SERVER_NOT_INITIALIZED, error(response));
+    }
+
+    @Test
+    void unknown_requests_fail() throws Exception {
+        // given
+        initialize();
+
+        // when
+        var response = request(2, "textDocument/hover", Map.of());
+
+        // then
+        assertEquals(LanguageServer.METHOD_NOT_FOUND, error(response));
+    }
+
+    @Test
+    void exits_cleanly_after_shutdown() throws Exception {
+        // given
+        initialize();
+        request(2, "shutdown", Map.of());
+
+        // when
+        notify("exit", Map.of());
+
+        // then
+        assertEquals(0, this.exitCode.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void exit_without_shutdown_is_an_error() throws Exception {
+        // when
+        notify("exit", Map.of());
+
+        // then
+        assertEquals(1, this.exitCode.get(10, TimeUnit.SECONDS));
+    }
+
+    private void initialize() throws Exception {
+        var response = request(1, "initialize", Map.of("capabilities", Map.of()));
+        assertTrue(response.get("result") instanceof Map<?, ?>);
+        notify("initialized", Map.of());
+    }
+
+    private static FormatterStyle style(CliNamedImportOrder importOrder) {
+        return new FormatterStyle(CliNamedConfig.builtin, null, importOrder, null);
+    }
+
+    private void open(String text) throws IOException {
+        notify(
+            "textDocument/didOpen",
+            Map.of("textDocument", Map.of("uri", URI, "languageId", "java", "version", 1, "text", text))
+        );
+    }
+
+    private Map<?, ?> request(int id, String method, Map<String, ?> params) throws Exception {
+        send(Map.of("jsonrpc", "2.0", "id", id, "method", method, "params", params));
+
+        return awaitResponse(id);
+    }
+
+    private void notify(String method, Map<String, ?> params) throws IOException {
+        send(Map.of("jsonrpc", "2.0", "method", method, "params", params));
+    }
+
+    private void send(Map<String, ?> message) throws IOException {
+        final byte[] content = Json.write(message).getBytes(StandardCharsets.UTF_8);
+        this.clientOut.write(("Content-Length: " + content.length + "\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+        this.clientOut.write(content);
+        this.clientOut.flush();
+    }
+
+    private Map<?, ?> awaitResponse(long id) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+
+        while (System.nanoTime() < deadline) {
+            for (var message : responses()) {
+                if (Long.valueOf(id).equals(message.get("id"))) {
+                    return message;
+                }
+            }
+            Thread.sleep(5);
+        }
+
+        return fail("No response to request " + id);
+    }
+
+    private Map<?, ?> awaitMessage(String method) throws Exception {
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+
+        while (System.nanoTime() < deadline) {
+            for (var message : responses()) {
+                if (method.equals(message.get("method"))) {
+                    return message;
+                }
+            }
+            Thread.sleep(5);
+        }
+
+        return fail("No message " + method);
+    }
+
+    private List<Map<String, ?>> responses() throws IOException {
+        final byte[] written;
+        synchronized (this.serverOut) {
+            written = this.serverOut.toByteArray();
+        }
+
+        var transport = new MessageTransport(new ByteArrayInputStream(written), OutputStream.nullOutputStream());
+        var messages = new ArrayList<Map<String, ?>>();
+        for (var message = transport.read(); message != null; message = transport.read()) {
+            messages.add(message);
+        }
+
+        return messages;
+    }
+
+    private static List<?> edits(Map<?, ?> response) {
+        if (response.get("result") instanceof List<?> edits) {
+            return edits;
+        }
+
+        return fail("Not a list of edits: " + response);
+    }
+
+    private static long error(Map<?, ?> response) {
+        return (Long) ((Map<?, ?>) response.get("error")).get("code");
+    }
+
+    private static int range(Object edit, String end) {
+        var range = (Map<?, ?>) ((Map<?, ?>) edit).get("range");
+
+        return ((Long) ((Map<?, ?>) range.get(end)).get("line")).intValue();
+    }
+
+    /// Applies the edits like an editor: by line and character, from the last to the first.
+    private static String apply(String source, List<?> edits) {
+        var result = new StringBuilder(source);
+
+        for (var edit : edits.reversed()) {
+            var range = (Map<?, ?>) ((Map<?, ?>) edit).get("range");
+            result.replace(
+                offset(source, (Map<?, ?>) range.get("start")),
+                offset(source, (Map<?, ?>) range.get("end")),
+                (String) ((Map<?, ?>) edit).get("newText")
+            );
+        }
+
+        return result.toString();
+    }
+
+    private static int offset(String text, Map<?, ?> position) {
+        int offset = 0;
+        for (long i = 0; i < (Long) position.get("line"); i++) {
+            offset = text.indexOf('\n', offset) + 1;
+        }
+
+        return offset + ((Long) position.get("character")).intValue();
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.bmarwell.jfmt.lsp;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+class TextEditsTest {
+
+    @Test
+    void equal_documents_need_no_edits() {
+        // when
+        var edits = TextEdits.between("class A {}\n", "class A {}\n");
+
+        // then
+        assertTrue(edits.isEmpty());
+    }
+
+    @Test
+    void only_changed_lines_are_replaced() {
+        // given
+        var source = "class A {\n  int a;\n    int b;\n  int c;\n}\n";
+        var revised = "class A {\n    int a;\n    int b;\n    int c;\n}\n";
+
+        // when
+        var edits = TextEdits.between(source, revised);
+
+        // then
+        assertEquals(
+            List.of(
+                new TextEdits.TextEdit(1, 0, 2, 0, "    int a;\n"),
+                new TextEdits.TextEdit(3, 0, 4, 0, "    int c;\n")
+            ),
+            edits
+        );
+        assertEquals(revised, apply(source, edits));
+    }
+
+    @ParameterizedTest
+    @CsvSource(
+        delimiter = '|',
+        textBlock = """
+                    # source                     | revised
+                    class A {}                   | class A {}\\n
+                    class A {}\\n\\n\\n          | class A {}\\n
+                    class A {}\\n                | class A {}
+                    a\\nb                        | a\\nc
+                    a\\nb                        | a\\nb\\nc\\nd
+                    a\\nb\\nc\\nd                | a\\nb
+                    x                            | ''
+                    ''                           | class A {}\\n
+                    a\\n\\nb\\n\\n\\nc           | a\\nb\\nc\\n
+                    """
+    )
+    void edits_reproduce_the_revised_document(String source, String revised) {
+        // given
+        var unescapedSource = source.replace("\\n", "\n");
+        var unescapedRevised = revised.replace("\\n", "\n");
+
+        // when
+        var edits = TextEdits.between(unescapedSource, unescapedRevised);
+
+        // then
+        assertEquals(unescapedRevised, apply(unescapedSource, edits));
+    }
+
+    @Test
+    void edits_know_the_lines_they_touch() {
+        // given
+        var edit = new TextEdits.TextEdit(3, 0, 5, 0, "");
+
+        // then
+        assertTrue(edit.touchesLines(0, 3));
+        assertTrue(edit.touchesLines(5, 9));
+        assertFalse(edit.touchesLines(6, 9));
+    }
+
+    /// Applies the edits like an editor: by line and character, from the last to the first.
+    private static String apply(String source, List<TextEdits.TextEdit> edits) {
+        var result = new StringBuilder(source);
+
+        for (var edit : edits.reversed()) {
+            result.replace(
+                offset(source, edit.startLine(), edit.startCharacter()),
+                offset(source, edit.endLine(), edit.endCharacter()),
+                edit.newText()
+            );
+        }
+
+        return result.toString();
+    }
+
+    private static int offset(String text, int line, int character) {
+        int offset = 0;
+        for (int i = 0; i < line; i++) {
+            offset = text.indexOf('\n', offset) + 1;
+        }
+
+        return offset + character;
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+class DirectBufferPoolTest {
+
+    @Test
+    void reuses_released_buffers_of_the_same_size_class() {
+        // given
+        var pool = new DirectBufferPool(1024 * 1024, 1024 * 1024);
+        var buffer = pool.acquire(5_000);
+
+        // when
+        pool.release(buffer);
+        var reused = pool.acquire(6_000);
+
+        // then
+        assertSame(buffer, reused);
+        assertEquals(8 * 1024, reused.capacity());
+        assertEquals(6_000, reused.limit());
+        assertTrue(reused.isDirect());
+    }
+
+    @Test
+    void keeps_at_most_max_pooled_bytes() {
+        // given
+        var pool = new DirectBufferPool(1024 * 1024, 8 * 1024);
+
+        // when
+        pool.release(pool.acquire(8 * 1024));
+        pool.release(pool.acquire(8 * 1024 - 1));
+        pool.release(pool.acquire(4 * 1024));
+
+        // then
+        assertEquals(8 * 1024, pool.pooledBytes());
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DirectoryWatcherTest {
+
+    private static final Duration QUIET_PERIOD = Duration.ofMillis(200);
+
+    @TempDir
+    Path tempDir;
+
+    private Path sourceDir;
+
+    @BeforeEach
+    void setUp() {
+        this.sourceDir = this.tempDir.toAbsolutePath().normalize();
+    }
+
+    @Test
+    void reports_modified_files() throws Exception {
+        // given
+        var existing = write("Existing.java", "class Existing {}");
+
+        try (var watcher = DirectoryWatcher.start(List.of(this.sourceDir))) {
+            // when
+            write("Existing.java", "class Existing { int a; }");
+
+            // then
+            assertEquals(Set.of(existing), awaitChanges(watcher));
+        }
+    }
+
+    @Test
+    void reports_files_in_new_directories() throws Exception {
+        try (var watcher = DirectoryWatcher.start(List.of(this.sourceDir))) {
+            // when
+            var created = write("a/b/Created.java", "class Created {}");
+
+            // then
+            assertEquals(Set.of(created), awaitChanges(watcher));
+        }
+    }
+
+    @Test
+    void ignores_hidden_directories_and_other_files() throws Exception {
+        // given
+        write(".git/Ignored.java", "class Ignored {}");
+
+        try (var watcher = DirectoryWatcher.start(List.of(this.sourceDir))) {
+            // when
+            write(".git/Ignored.java", "class Ignored { int a; }");
+            write("README.md", "readme");
+            var changed = write("Changed.java", "class Changed {}");
+
+            // then
+            assertEquals(Set.of(changed), awaitChanges(watcher));
+        }
+    }
+
+    @Test
+    void reports_changed_and_deleted_config_files() throws Exception {
+        // given
+        var configFile = write("pkg/.jfmt", "import-order = google");
+
+        try (var watcher = DirectoryWatcher.start(List.of(this.sourceDir))) {
+            // when
+            write("pkg/.jfmt", "import-order = apache");
+            var modified = awaitChanges(watcher);
+            Files.delete(configFile);
+            var deleted = awaitChanges(watcher);
+
+            // then
+            assertEquals(Set.of(configFile), modified);
+            assertEquals(Set.of(configFile), deleted);
+            assertTrue(watcher.isConfigFile(configFile));
+        }
+    }
+
+    @Test
+    void reports_given_config_files_outside_of_the_roots() throws Exception {
+        // given
+        var javaFile = write("src/Existing.java", "class Existing {}");
+        var configFile = write("config/formatter.xml", "<profiles/>");
+        var sourceRoot = javaFile.getParent();
+
+        try (var watcher = DirectoryWatcher.start(List.of(sourceRoot), List.of(configFile))) {
+            // when
+            write("config/Sibling.java", "class Sibling {}");
+            write("config/other/Nested.java", "class Nested {}");
+            write("config/formatter.xml", "<profiles></profiles>");
+
+            // then
+            assertEquals(Set.of(configFile), awaitChanges(watcher));
+            assertTrue(watcher.isConfigFile(configFile));
+        }
+    }
+
+    @Test
+    void reports_a_burst_of_changes_as_one_batch() throws Exception {
+        try (var watcher = DirectoryWatcher.start(List.of(this.sourceDir))) {
+            // when
+            var first = write("First.java", "class First {}");
+            var second = write("Second.java", "class Second {}");
+            var third = write("pkg/Third.java", "class Third {}");
+
+            // then
+            assertEquals(Set.of(first, second, third), awaitChanges(watcher));
+        }
+    }
+
+    @Test
+    void only_reports_the_file_for_file_roots() throws Exception {
+        // given
+        var watched = write("Watched.java", "class Watched {}");
+
+        try (var watcher = DirectoryWatcher.start(List.of(watched))) {
+            // when
+            write("Sibling.java", "class Sibling {}");
+            write("Watched.java", "class Watched { int a; }");
+
+            // then
+            assertEquals(Set.of(watched), awaitChanges(watcher));
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        var file = this.sourceDir.resolve(name);
+        Files.createDirectories(file.getParent());
+
+        return Files.writeString(file, content);
+    }
+
+    private static Set<Path> awaitChanges(DirectoryWatcher watcher) throws Exception {
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var changes = executor.submit(() -> watcher.awaitChanges(QUIET_PERIOD));
+
+            try {
+                return changes.get(10, TimeUnit.SECONDS);
+            } finally {
+                changes.cancel(true);
+            }
+        }
+    }
+}
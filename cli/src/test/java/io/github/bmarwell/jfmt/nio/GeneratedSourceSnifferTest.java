@@ -0,0 +1,115 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class GeneratedSourceSnifferTest {
+
+    @TempDir
+    Path sourceDir;
+
+    @Test
+    void detects_default_markers() throws IOException {
+        // given
+        var annotated = write("Annotated.java", "@Generated(\"protoc\")\nclass Annotated {}");
+        var commented = write("Commented.java", "// Code generated by a tool. DO NOT EDIT.\nclass Commented {}");
+        var handWritten = write("HandWritten.java", "class HandWritten {}");
+
+        // when
+        var sniffer = GeneratedSourceSniffer.of(List.of());
+
+        // then
+        assertTrue(sniffer.isGenerated(annotated));
+        assertTrue(sniffer.isGenerated(commented));
+        assertFalse(sniffer.isGenerated(handWritten));
+    }
+
+    @Test
+    void markers_are_not_prefixes_of_longer_words() throws IOException {
+        // given
+        var entity = write(
+            "Entity.java",
+            """
+            import jakarta.persistence.GeneratedValue;
+
+            @Entity
+            class Entity {
+                @Id
+                @GeneratedValue
+                Long id;
+                // Generated bytes are counted below.
+            }
+            """
+        );
+
+        // when
+        var sniffer = GeneratedSourceSniffer.of(List.of());
+
+        // then
+        assertFalse(sniffer.isGenerated(entity));
+    }
+
+    @Test
+    void detects_qualified_annotations_but_not_imports() throws IOException {
+        // given
+        var qualified = write("Qualified.java", "@javax.annotation.processing.Generated(\"x\")\nclass Qualified {}");
+        var atEnd = write("AtEnd.java", "class AtEnd {} // @Generated");
+        var imported = write("Imported.java", "import javax.annotation.processing.Generated;\nclass Imported {}");
+        var qualifiedValue = write("Value.java", "class Value { @jakarta.persistence.GeneratedValue Long id; }");
+
+        // when
+        var sniffer = GeneratedSourceSniffer.of(List.of());
+
+        // then
+        assertTrue(sniffer.isGenerated(qualified));
+        assertTrue(sniffer.isGenerated(atEnd));
+        assertFalse(sniffer.isGenerated(imported));
+        assertFalse(sniffer.isGenerated(qualifiedValue));
+    }
+
+    @Test
+    void configured_markers_replace_the_defaults() throws IOException {
+        // given
+        var annotated = write("Annotated.java", "@Generated\nclass Annotated {}");
+        var custom = write("Custom.java", "// @formatter:generated\nclass Custom {}");
+
+        // when
+        var sniffer = GeneratedSourceSniffer.of(List.of("@formatter:generated"));
+
+        // then
+        assertFalse(sniffer.isGenerated(annotated));
+        assertTrue(sniffer.isGenerated(custom));
+    }
+
+    @Test
+    void only_reads_the_header() throws IOException {
+        // given
+        var late = write("Late.java", "class Late {\n" + " ".repeat(64) + "}\n// DO NOT EDIT\n");
+
+        // when
+        var sniffer = GeneratedSourceSniffer.of(List.of(), 32);
+
+        // then
+        assertFalse(sniffer.isGenerated(late));
+    }
+
+    @Test
+    void unreadable_files_are_not_skipped() {
+        // when
+        var sniffer = GeneratedSourceSniffer.of(List.of());
+
+        // then
+        assertFalse(sniffer.isGenerated(this.sourceDir.resolve("Missing.java")));
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(this.sourceDir.resolve(name), content);
+    }
+}
@@ -0,0 +1,73 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+class IoRateLimiterTest {
+
+    private static final long MIB = 1024L * 1024L;
+
+    @Test
+    void allows_a_burst_of_one_second() {
+        // given
+        var limiter = IoRateLimiter.ofMegabytesPerSecond(1.0);
+
+        // when
+        Duration wait = limiter.reserve(MIB, System.nanoTime());
+
+        // then
+        assertEquals(Duration.ZERO, wait);
+    }
+
+    @Test
+    void waits_for_the_debt_to_be_paid_off() {
+        // given
+        var limiter = IoRateLimiter.ofMegabytesPerSecond(1.0);
+        long now = System.nanoTime();
+        limiter.reserve(MIB, now);
+
+        // when: another 512 KiB right away
+        Duration wait = limiter.reserve(MIB / 2, now);
+
+        // then
+        assertEquals(500, wait.toMillis());
+    }
+
+    @Test
+    void refills_over_time() {
+        // given
+        var limiter = IoRateLimiter.ofMegabytesPerSecond(1.0);
+        long now = System.nanoTime();
+        limiter.reserve(MIB, now);
+
+        // when: half a second later
+        Duration wait = limiter.reserve(MIB / 2, now + Duration.ofMillis(500).toNanos());
+
+        // then
+        assertEquals(Duration.ZERO, wait);
+    }
+
+    @Test
+    void unlimited_never_waits() throws InterruptedException {
+        // given
+        var limiter = IoRateLimiter.unlimited();
+        long start = System.nanoTime();
+
+        // when
+        limiter.acquire(Long.MAX_VALUE);
+
+        // then
+        assertTrue(limiter.isUnlimited());
+        assertTrue(System.nanoTime() - start < Duration.ofSeconds(1).toNanos());
+    }
+
+    @Test
+    void rejects_non_positive_rates() {
+        // expect
+        assertThrows(IllegalArgumentException.class, () -> IoRateLimiter.ofMegabytesPerSecond(0.0));
+    }
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.stream.Stream;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -61,4 +62,17 @@ class PathUtilsTest {
         // then
         assertEquals(0L, pathStream.count());
     }
+
+    @Test
+    void overlapping_paths_are_discovered_once() throws IOException {
+        // given
+        var nested = Files.createDirectories(tempDir.resolve("src/main/java"));
+        Files.writeString(nested.resolve("A.java"), "class A {}\n", StandardCharsets.UTF_8);
+
+        // when
+        var discovered = PathUtils.discover(List.of(tempDir.resolve("src"), nested, nested.resolve("./A.java")));
+
+        // then
+        assertEquals(List.of(nested.resolve("A.java")), discovered.stream().map(SourceFile::path).toList());
+    }
 }
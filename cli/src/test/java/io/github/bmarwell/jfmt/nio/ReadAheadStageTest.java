@@ -0,0 +1,129 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ReadAheadStageTest {
+
+    @TempDir
+    Path sourceDir;
+
+    @Test
+    void reads_prefetched_files_in_any_order() throws Exception {
+        // given
+        var first = write("First.java", "class First {}");
+        var second = write("Second.java", "class Second {}");
+        var empty = write("package-info.java", "");
+
+        // when
+        try (var stage = ReadAheadStage.start(List.of(first, second, empty), 2)) {
+            // then
+            assertEquals("class Second {}", take(stage, second));
+            assertEquals("class First {}", take(stage, first));
+            assertEquals("", take(stage, empty));
+        }
+    }
+
+    @Test
+    void reads_files_on_demand_without_prefetching() throws Exception {
+        // given
+        var notScheduled = write("NotScheduled.java", "class NotScheduled {}");
+
+        // when
+        try (var stage = ReadAheadStage.onDemand()) {
+            // then
+            assertEquals("class NotScheduled {}", take(stage, notScheduled));
+        }
+    }
+
+    @Test
+    void reads_a_file_taken_again_on_demand() throws Exception {
+        // given
+        var first = write("First.java", "class First {}");
+        var second = write("Second.java", "class Second {}");
+
+        // when
+        try (var stage = ReadAheadStage.start(List.of(first, second, first), 1)) {
+            // then
+            assertEquals("class First {}", take(stage, first));
+            assertEquals("class First {}", take(stage, first));
+            assertEquals("class Second {}", take(stage, second));
+        }
+    }
+
+    @Test
+    void memory_maps_large_files() throws Exception {
+        // given
+        var content = "// generated\n".repeat(ReadAheadStage.MMAP_THRESHOLD / 10);
+        var generated = write("Generated.java", content);
+
+        // when
+        try (var stage = ReadAheadStage.start(List.of(generated), 1)) {
+            // then
+            assertEquals(content, take(stage, generated));
+        }
+    }
+
+    @Test
+    void never_maps_files_which_are_written_back() throws Exception {
+        // given
+        var content = "// generated\n".repeat(ReadAheadStage.MMAP_THRESHOLD / 10);
+        var generated = write("Generated.java", content);
+
+        // when
+        try (var stage = ReadAheadStage.start(List.of(generated), 1, true);
+            var taken = stage.take(generated)) {
+            // then: a heap buffer, so that truncating the file is safe.
+            assertFalse(taken.buffer().isDirect());
+            assertEquals(content, StandardCharsets.UTF_8.decode(taken.buffer()).toString());
+        }
+    }
+
+    @Test
+    void prefetching_takes_the_io_rate_before_any_take() throws Exception {
+        // given: the bucket holds 0.1 MiB, both files together are twice as much
+        var ioRateLimiter = IoRateLimiter.ofMegabytesPerSecond(0.1);
+        var first = write("First.java", "x".repeat(100 * 1024));
+        var second = write("Second.java", "y".repeat(100 * 1024));
+
+        // when
+        try (var stage = ReadAheadStage.start(List.of(first, second), 2, false, ioRateLimiter)) {
+            // then: the bucket went into debt, although no worker took a file yet
+            var deadline = System.nanoTime() + 5_000_000_000L;
+            while (ioRateLimiter.reserve(0L, System.nanoTime()).isZero() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertFalse(ioRateLimiter.reserve(0L, System.nanoTime()).isZero());
+        }
+    }
+
+    @Test
+    void reports_missing_files_on_take() {
+        // given
+        var missing = this.sourceDir.resolve("Missing.java");
+
+        // expect
+        try (var stage = ReadAheadStage.start(List.of(missing), 1)) {
+            assertThrows(IOException.class, () -> stage.take(missing));
+        }
+    }
+
+    private Path write(String name, String content) throws IOException {
+        return Files.writeString(this.sourceDir.resolve(name), content);
+    }
+
+    private static String take(ReadAheadStage stage, Path path) throws IOException, InterruptedException {
+        try (var content = stage.take(path)) {
+            return StandardCharsets.UTF_8.decode(content.buffer()).toString();
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package io.github.bmarwell.jfmt.nio;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SharedArchiveDirectoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void creates_missing_directory_of_archive() {
+        // given
+        final Path archive = this.tempDir.resolve("cache/cds/jfmt.jsa");
+
+        // when
+        SharedArchiveDirectory.prepare(archive.toString());
+
+        // then
+        assertTrue(Files.isDirectory(archive.getParent()));
+        assertFalse(Files.exists(archive), "the JVM writes the archive itself");
+    }
+
+    @Test
+    void ignores_missing_property() {
+        assertDoesNotThrow(() -> SharedArchiveDirectory.prepare(null));
+    }
+
+    @Test
+    void ignores_directory_which_cannot_be_created() throws IOException {
+        // given
+        final Path file = Files.writeString(this.tempDir.resolve("not-a-directory"), "");
+
+        // expect
+        assertDoesNotThrow(() -> SharedArchiveDirectory.prepare(file.resolve("jfmt.jsa").toString()));
+    }
+}
@@ -0,0 +1,71 @@
+package io.github.bmarwell.jfmt.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.format.FileProcessingResult;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FailureHistoryTest {
+
+    @TempDir
+    Path cacheDir;
+
+    @Test
+    void persists_failures_and_forgets_fixed_files() throws IOException {
+        // given
+        Path failing = Path.of("Failing.java");
+        Path fixed = Path.of("Fixed.java");
+        FailureHistory first = FailureHistory.load(cacheDir);
+        first.record(
+            List.of(
+                new FileProcessingResult(failing, true, false, true),
+                new FileProcessingResult(fixed, true, false, true)
+            ),
+            1_000L
+        );
+        first.save();
+
+        // when
+        FailureHistory second = FailureHistory.load(cacheDir);
+        second.record(List.of(new FileProcessingResult(fixed, false, false, true)), 2_000L);
+        second.save();
+
+        // then
+        FailureHistory third = FailureHistory.load(cacheDir);
+        assertEquals(1_000L, third.lastFailure(failing));
+        assertEquals(0L, third.lastFailure(fixed));
+    }
+
+    @Test
+    void does_not_write_file_without_changes() throws IOException {
+        // given
+        FailureHistory history = FailureHistory.load(cacheDir);
+
+        // when
+        history.record(List.of(new FileProcessingResult(Path.of("Ok.java"), false, false, true)), 1L);
+        history.save();
+
+        // then
+        assertFalse(Files.exists(cacheDir.resolve(FailureHistory.FILE_NAME)));
+    }
+
+    @Test
+    void corrupt_file_results_in_empty_history() throws IOException {
+        // given
+        Files.writeString(cacheDir.resolve(FailureHistory.FILE_NAME), "\\u12");
+
+        // when
+        FailureHistory history = FailureHistory.load(cacheDir);
+
+        // then
+        assertEquals(0L, history.lastFailure(Path.of("Any.java")));
+        assertTrue(Files.exists(cacheDir.resolve(FailureHistory.FILE_NAME)));
+    }
+}
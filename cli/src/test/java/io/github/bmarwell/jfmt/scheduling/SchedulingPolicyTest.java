@@ -0,0 +1,69 @@
+package io.github.bmarwell.jfmt.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import io.github.bmarwell.jfmt.format.FileProcessingResult;
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class SchedulingPolicyTest {
+
+    private static final SourceFile SMALL_OLD = source("Small.java", 100, 1_000);
+    private static final SourceFile HUGE_OLDEST = source("Huge.java", 20_000, 10);
+    private static final SourceFile MEDIUM_NEW = source("Medium.java", 5_000, 9_000);
+
+    private static final List<SourceFile> DISCOVERED = List.of(SMALL_OLD, HUGE_OLDEST, MEDIUM_NEW);
+
+    private static SourceFile source(String name, long size, long lastModifiedMillis) {
+        return new SourceFile(Path.of(name), size, FileTime.fromMillis(lastModifiedMillis));
+    }
+
+    @Test
+    void discovery_keeps_order() {
+        // when
+        var ordered = SchedulingPolicy.DISCOVERY.order(DISCOVERED, FailureHistory.empty());
+
+        // then
+        assertEquals(DISCOVERED, ordered);
+    }
+
+    @Test
+    void largest_first_orders_by_size_descending() {
+        // when
+        var ordered = SchedulingPolicy.LARGEST_FIRST.order(DISCOVERED, FailureHistory.empty());
+
+        // then
+        assertEquals(List.of(HUGE_OLDEST, MEDIUM_NEW, SMALL_OLD), ordered);
+    }
+
+    @Test
+    void recently_modified_first_orders_by_modification_time_descending() {
+        // when
+        var ordered = SchedulingPolicy.RECENTLY_MODIFIED_FIRST.order(DISCOVERED, FailureHistory.empty());
+
+        // then
+        assertEquals(List.of(MEDIUM_NEW, SMALL_OLD, HUGE_OLDEST), ordered);
+    }
+
+    @Test
+    void previously_failed_first_puts_failures_before_largest_first() {
+        // given
+        var history = FailureHistory.empty();
+        history.record(List.of(new FileProcessingResult(SMALL_OLD.path(), true, false, true)), 42L);
+
+        // when
+        var ordered = SchedulingPolicy.PREVIOUSLY_FAILED_FIRST.order(DISCOVERED, history);
+
+        // then
+        assertEquals(List.of(SMALL_OLD, HUGE_OLDEST, MEDIUM_NEW), ordered);
+    }
+
+    @Test
+    void cli_names_are_dashed() {
+        // expect
+        assertEquals("previously-failed-first", SchedulingPolicy.PREVIOUSLY_FAILED_FIRST.toString());
+    }
+}
@@ -0,0 +1,92 @@
+package io.github.bmarwell.jfmt.scheduling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.nio.SourceFile;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.Test;
+
+class WorkUnitTest {
+
+    private static SourceFile source(String name, long size) {
+        return new SourceFile(Path.of(name), size, FileTime.fromMillis(0L));
+    }
+
+    private static List<SourceFile> tinyFiles(int count, long size) {
+        return IntStream.range(0, count)
+            .mapToObj(i -> source("Dto" + i + ".java", size))
+            .toList();
+    }
+
+    @Test
+    void large_files_stay_units_of_their_own() {
+        // given
+        var huge = source("Huge.java", 1_000_000);
+        var files = List.of(huge, source("Small.java", 100));
+
+        // when
+        var units = WorkUnit.coarsen(files, 64 * 1024, 1);
+
+        // then
+        assertEquals(List.of(new WorkUnit(List.of(huge)), new WorkUnit(List.of(files.get(1)))), units);
+    }
+
+    @Test
+    void small_files_are_grouped_up_to_the_budget_in_submission_order() {
+        // given: 1000 files of 1 KiB, 1 worker -> the budget stays at 64 KiB
+        var files = tinyFiles(1000, 1024);
+
+        // when
+        var units = WorkUnit.coarsen(files, 64 * 1024, 1);
+
+        // then
+        assertEquals(16, units.size());
+        assertEquals(64, units.getFirst().files().size());
+        assertEquals(files, units.stream().flatMap(unit -> unit.files().stream()).toList());
+    }
+
+    @Test
+    void units_never_exceed_the_budget() {
+        // given: 6 KiB and 3 KiB files alternating, 10 KiB budget
+        var files = IntStream.range(0, 40)
+            .mapToObj(i -> source("Dto" + i + ".java", i % 2 == 0 ? 6 * 1024 : 3 * 1024))
+            .toList();
+
+        // when
+        var units = WorkUnit.coarsen(files, 10 * 1024, 1);
+
+        // then
+        assertEquals(20, units.size());
+        assertTrue(units.stream().allMatch(unit -> unit.sourceBytes() <= 10 * 1024));
+        assertEquals(files, units.stream().flatMap(unit -> unit.files().stream()).toList());
+    }
+
+    @Test
+    void budget_shrinks_to_keep_all_workers_busy() {
+        // given: 256 KiB in total, 8 workers -> at most 8 KiB per unit
+        var files = tinyFiles(256, 1024);
+
+        // when
+        var units = WorkUnit.coarsen(files, 64 * 1024, 8);
+
+        // then
+        assertEquals(32, units.size());
+        assertEquals(8, units.getFirst().files().size());
+    }
+
+    @Test
+    void zero_budget_disables_batching() {
+        // given
+        var files = tinyFiles(10, 10);
+
+        // when
+        var units = WorkUnit.coarsen(files, 0, 1);
+
+        // then
+        assertEquals(10, units.size());
+    }
+}
@@ -0,0 +1,105 @@
+package io.github.bmarwell.jfmt.trace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.format.FormatPhaseListener;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TraceRecorderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void writes_a_track_per_thread() throws Exception {
+        // given
+        var recorder = TraceRecorder.create();
+        var start = System.nanoTime();
+        recorder.record("discover", null, start);
+        var worker = Thread.ofVirtual().name("jfmt-worker-7").start(() -> {
+            recorder.onPhase(FormatPhaseListener.Phase.PARSE, Path.of("A.java"), start, start + 1_500L);
+        });
+        worker.join();
+
+        // when
+        var traceFile = this.tempDir.resolve("trace.json");
+        recorder.writeTo(traceFile);
+
+        // then
+        var trace = Files.readString(traceFile);
+        assertTrue(
+            trace.contains(
+                "{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":" + worker.threadId()
+                    + ",\"args\":{\"name\":\"jfmt-worker-7\"}}"
+            ),
+            trace
+        );
+        assertTrue(trace.contains("\"name\":\"parse\""), trace);
+        assertTrue(trace.contains("\"dur\":1.500,\"pid\":1,\"tid\":" + worker.threadId()), trace);
+        assertTrue(trace.contains("\"file\":\"A.java\",\"carrier\":\""), trace);
+        assertTrue(trace.contains("\"name\":\"discover\""), trace);
+        assertTrue(trace.contains("\"tid\":" + Thread.currentThread().threadId() + ",\"args\":{}}"), trace);
+    }
+
+    @Test
+    void escapes_file_names() throws Exception {
+        // given
+        var recorder = TraceRecorder.create();
+        recorder.record("read", Path.of("we\"ird\\Name.java"), System.nanoTime());
+
+        // when
+        var traceFile = this.tempDir.resolve("trace.json");
+        recorder.writeTo(traceFile);
+
+        // then
+        assertTrue(Files.readString(traceFile).contains("\"file\":\"we\\\"ird\\\\Name.java\""));
+    }
+
+    @Test
+    void clear_forgets_earlier_spans_and_ended_threads() throws Exception {
+        // given
+        var recorder = TraceRecorder.create();
+        recorder.record("first batch", null, System.nanoTime());
+        var worker = Thread.ofVirtual().name("jfmt-worker-1").start(() -> {
+            recorder.record("read", Path.of("A.java"), System.nanoTime());
+        });
+        worker.join();
+
+        // when
+        recorder.clear();
+        recorder.record("second batch", null, System.nanoTime());
+
+        // then
+        var traceFile = this.tempDir.resolve("trace.json");
+        recorder.writeTo(traceFile);
+        var trace = Files.readString(traceFile);
+        assertFalse(trace.contains("first batch"), trace);
+        assertFalse(trace.contains("jfmt-worker-1"), trace);
+        assertTrue(trace.contains("second batch"), trace);
+    }
+
+    @Test
+    void disabled_recorder_records_nothing() throws Exception {
+        // given
+        var recorder = TraceRecorder.disabled();
+        recorder.record("read", Path.of("A.java"), System.nanoTime());
+
+        // when
+        var traceFile = this.tempDir.resolve("trace.json");
+        recorder.writeTo(traceFile);
+
+        // then
+        assertFalse(recorder.isEnabled());
+        assertEquals(
+            "{\"displayTimeUnit\":\"ms\",\"traceEvents\":[\n"
+                + "{\"name\":\"process_name\",\"ph\":\"M\",\"pid\":1,\"tid\":0,\"args\":{\"name\":\"jfmt\"}}\n"
+                + "]}\n",
+            Files.readString(traceFile)
+        );
+    }
+}
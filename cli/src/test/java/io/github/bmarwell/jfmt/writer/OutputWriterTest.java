@@ -0,0 +1,107 @@
+package io.github.bmarwell.jfmt.writer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.Test;
+import picocli.CommandLine;
+
+class OutputWriterTest {
+
+    private final StringWriter out = new StringWriter();
+
+    private final StringWriter err = new StringWriter();
+
+    @Test
+    void writes_everything_in_order_on_flush() {
+        // given
+        var writer = writer(CommandLine.Help.Ansi.OFF, OutputWriter.VerbosityLevel.DEFAULT);
+
+        // when
+        for (int i = 0; i < 3 * OutputWriter.QUEUE_CAPACITY; i++) {
+            writer.output("File" + i + ".java");
+        }
+        writer.error("Error processing file", "File.java");
+        writer.flush();
+
+        // then
+        var lines = lines(this.out);
+        assertEquals(3 * OutputWriter.QUEUE_CAPACITY, lines.size());
+        assertEquals("File0.java", lines.getFirst());
+        assertEquals("File" + (3 * OutputWriter.QUEUE_CAPACITY - 1) + ".java", lines.getLast());
+        assertEquals(List.of("Error processing file: File.java"), lines(this.err));
+    }
+
+    @Test
+    void keeps_the_lines_of_one_call_together() {
+        // given
+        var writer = writer(CommandLine.Help.Ansi.OFF, OutputWriter.VerbosityLevel.DEFAULT);
+
+        // when
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int file = 0; file < 100; file++) {
+                var name = "File" + file + ".java";
+                executor.submit(() -> writer.output(List.of("--- " + name, "+++ " + name)));
+            }
+        }
+        writer.flush();
+
+        // then
+        var lines = lines(this.out);
+        assertEquals(200, lines.size());
+        for (int i = 0; i < lines.size(); i += 2) {
+            assertEquals(lines.get(i).substring(4), lines.get(i + 1).substring(4));
+        }
+    }
+
+    @Test
+    void does_not_build_debug_messages_unless_verbose() {
+        // given
+        var writer = writer(CommandLine.Help.Ansi.OFF, OutputWriter.VerbosityLevel.DEFAULT);
+        var built = new AtomicBoolean();
+
+        // when
+        writer.debug("Processing file", () -> {
+            built.set(true);
+            return "File.java";
+        });
+        writer.flush();
+
+        // then
+        assertEquals(false, built.get());
+        assertEquals("", this.err.toString());
+    }
+
+    @Test
+    void styles_the_prefix_but_not_the_message() {
+        // given
+        var writer = writer(CommandLine.Help.Ansi.ON, OutputWriter.VerbosityLevel.DEFAULT);
+
+        // when
+        writer.warn("Not formatted correctly", "@|red File.java|@");
+        writer.flush();
+
+        // then
+        var line = lines(this.err).getFirst();
+        assertTrue(line.startsWith("\u001B["), line);
+        assertTrue(line.contains("Not formatted correctly:"), line);
+        assertTrue(line.endsWith("\u001B[0m @|red File.java|@"), line);
+    }
+
+    private OutputWriter writer(CommandLine.Help.Ansi ansi, OutputWriter.VerbosityLevel verbosityLevel) {
+        return new OutputWriter(ansi, verbosityLevel, new PrintWriter(this.out), new PrintWriter(this.err));
+    }
+
+    private static List<String> lines(StringWriter written) {
+        var lines = new ArrayList<String>();
+        written.toString().lines().forEach(lines::add);
+
+        return lines;
+    }
+}
@@ -0,0 +1,183 @@
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Compiles the bundled formatter configs ({@code *.xml}) and import orders ({@code importorder.*.properties}) into
+ * the Java class {@code io.github.bmarwell.jfmt.config.BundledConfigs}, so they need not be parsed at runtime.
+ *
+ * <p>Runs as single-file source program during {@code generate-sources}, see core/pom.xml:</p>
+ *
+ * <pre>java GenerateBundledConfigs.java &lt;config resource directory&gt; &lt;output source directory&gt;</pre>
+ */
+public class GenerateBundledConfigs {
+
+    private static final String PACKAGE = "io.github.bmarwell.jfmt.config";
+
+    private static final String RESOURCE_PREFIX = "/" + PACKAGE.replace('.', '/') + "/";
+
+    public static void main(String[] args) throws IOException, XMLStreamException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: GenerateBundledConfigs <config directory> <output directory>");
+        }
+
+        final Path configDirectory = Path.of(args[0]);
+        final Path outputFile = Path.of(args[1], PACKAGE.replace('.', '/'), "BundledConfigs.java");
+
+        final Map<String, Map<String, String>> formatterConfigs = new TreeMap<>();
+        final Map<String, List<String>> importOrders = new TreeMap<>();
+
+        try (Stream<Path> files = Files.list(configDirectory)) {
+            for (Path file : files.sorted().toList()) {
+                final String name = file.getFileName().toString();
+
+                if (name.endsWith(".xml")) {
+                    formatterConfigs.put(RESOURCE_PREFIX + name, readFormatterConfig(file));
+                }
+
+                if (name.startsWith("importorder.") && name.endsWith(".properties")) {
+                    importOrders.put(RESOURCE_PREFIX + name, readImportOrder(file));
+                }
+            }
+        }
+
+        Files.createDirectories(outputFile.getParent());
+        Files.writeString(outputFile, render(formatterConfigs, importOrders), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> readFormatterConfig(Path file) throws IOException, XMLStreamException {
+        final Map<String, String> settings = new TreeMap<>();
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+
+        try (InputStream in = Files.newInputStream(file)) {
+            final XMLStreamReader reader = factory.createXMLStreamReader(in);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && "setting".equals(reader.getLocalName())) {
+                    settings.put(
+                        Objects.requireNonNullElse(reader.getAttributeValue(null, "id"), ""),
+                        Objects.requireNonNullElse(reader.getAttributeValue(null, "value"), "")
+                    );
+                }
+            }
+            reader.close();
+        }
+
+        return settings;
+    }
+
+    private static List<String> readImportOrder(Path file) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(file, StandardCharsets.ISO_8859_1)) {
+            properties.load(reader);
+        }
+
+        // same order as ImportOrderLoader: by numeric key.
+        final TreeMap<Integer, String> groups = new TreeMap<>();
+        properties.forEach((key, value) -> groups.put(Integer.parseInt(key.toString().trim()), value.toString()));
+
+        return new ArrayList<>(groups.values());
+    }
+
+    private static String render(
+        Map<String, Map<String, String>> formatterConfigs,
+        Map<String, List<String>> importOrders
+    ) {
+        final StringBuilder source = new StringBuilder()
+            .append("package ")
+            .append(PACKAGE)
+            .append(";\n\n")
+            .append("import java.util.List;\n")
+            .append("import java.util.Map;\n")
+            .append("import org.jspecify.annotations.Nullable;\n\n")
+            .append("/**\n")
+            .append(
+                " * The bundled formatter configs and import orders, compiled at build time by GenerateBundledConfigs.\n"
+            )
+            .append(" *\n")
+            .append(
+                " * <p>Generated, do not edit. Each config is held by its own class, so it is only created when used.</p>\n"
+            )
+            .append(" */\n")
+            .append("public final class BundledConfigs {\n\n")
+            .append("    private BundledConfigs() {}\n\n");
+
+        source.append("    public static @Nullable Map<String, String> formatterOptions(String resourcePath) {\n")
+            .append("        return switch (resourcePath) {\n");
+        int index = 0;
+        for (String resourcePath : formatterConfigs.keySet()) {
+            source.append("            case ")
+                .append(literal(resourcePath))
+                .append(" -> FormatterConfig")
+                .append(index++)
+                .append(".OPTIONS;\n");
+        }
+        source.append("            default -> null;\n        };\n    }\n\n");
+
+        source.append("    public static @Nullable List<String> importOrderGroups(String resourcePath) {\n")
+            .append("        return switch (resourcePath) {\n");
+        for (Map.Entry<String, List<String>> importOrder : importOrders.entrySet()) {
+            source.append("            case ").append(literal(importOrder.getKey())).append(" -> List.of(");
+            source.append(
+                String.join(", ", importOrder.getValue().stream().map(GenerateBundledConfigs::literal).toList())
+            );
+            source.append(");\n");
+        }
+        source.append("            default -> null;\n        };\n    }\n");
+
+        index = 0;
+        for (Map<String, String> settings : formatterConfigs.values()) {
+            source.append("\n    private static final class FormatterConfig")
+                .append(index++)
+                .append(" {\n\n")
+                .append("        static final Map<String, String> OPTIONS = Map.ofEntries(\n");
+            final List<String> entries = settings.entrySet()
+                .stream()
+                .map(
+                    setting -> "            Map.entry(" + literal(setting.getKey()) + ", " + literal(setting.getValue())
+                        + ")"
+                )
+                .toList();
+            source.append(String.join(",\n", entries)).append("\n        );\n    }\n");
+        }
+
+        return source.append("}\n").toString();
+    }
+
+    private static String literal(String value) {
+        final StringBuilder literal = new StringBuilder("\"");
+        for (char c : value.toCharArray()) {
+            switch (c) {
+                case '"' -> literal.append("\\\"");
+                case '\\' -> literal.append("\\\\");
+                case '\n' -> literal.append("\\n");
+                case '\r' -> literal.append("\\r");
+                case '\t' -> literal.append("\\t");
+                default -> {
+                    if (c < 0x20 || c > 0x7e) {
+                        literal.append(String.format("\\u%04x", (int) c));
+                        continue;
+                    }
+
+                    literal.append(c);
+                }
+            }
+        }
+
+        return literal.append('"').toString();
+    }
+}
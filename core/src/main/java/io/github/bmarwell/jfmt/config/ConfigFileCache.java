@@ -0,0 +1,96 @@
+package io.github.bmarwell.jfmt.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Parsed config files, which are read again only when their size or modification time changed, and parsed again only
+ * when their checksum changed. Until then, the very same value is returned, which callers may use to tell that
+ * nothing changed.
+ *
+ * <p>The modification time may be too coarse to tell two writes apart. So the size and modification time of a file
+ * which was modified shortly before it was read are not trusted: it is read again the next time, like git does for
+ * racily clean files. Safe to use from several threads.</p>
+ *
+ * @param <T>
+ *     the type of the parsed content.
+ */
+public final class ConfigFileCache<T> {
+
+    /// The coarsest modification time of common file systems: FAT has two seconds.
+    static final Duration RACY_INTERVAL = Duration.ofSeconds(2);
+
+    private final ConcurrentMap<Path, CachedFile<T>> files = new ConcurrentHashMap<>();
+
+    private final Function<byte[], T> parser;
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param parser
+     *     parses the content of a file, throws an unchecked exception if it is invalid.
+     */
+    public ConfigFileCache(Function<byte[], T> parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Returns the parsed content of a file.
+     *
+     * @param file
+     *     the config file.
+     * @return the same instance as before, unless the content of the file changed.
+     * @throws UncheckedIOException
+     *     if the file cannot be read.
+     */
+    public T load(Path file) {
+        try {
+            final Path path = file.toAbsolutePath().normalize();
+            final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            final CachedFile<T> cached = this.files.get(path);
+            if (cached != null && cached.isUnchanged(attributes)) {
+                return cached.value();
+            }
+
+            final Instant readAt = Instant.now();
+            final byte[] content = Files.readAllBytes(path);
+            final long checksum = checksum(content);
+            final T value =
+                cached != null && cached.checksum() == checksum ? cached.value() : this.parser.apply(content);
+
+            final FileTime lastModified = attributes.lastModifiedTime();
+            final boolean racy = !lastModified.toInstant().isBefore(readAt.minus(RACY_INTERVAL));
+            this.files.put(path, new CachedFile<>(lastModified, attributes.size(), racy, checksum, value));
+
+            return value;
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        }
+    }
+
+    private static long checksum(byte[] content) {
+        final CRC32C crc = new CRC32C();
+        crc.update(content);
+
+        return crc.getValue();
+    }
+
+    private record CachedFile<T>(FileTime lastModified, long size, boolean racy, long checksum, T value) {
+
+        boolean isUnchanged(BasicFileAttributes attributes) {
+            return !this.racy
+                && this.lastModified.equals(attributes.lastModifiedTime())
+                && this.size == attributes.size();
+        }
+    }
+}
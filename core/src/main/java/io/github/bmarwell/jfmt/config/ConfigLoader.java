@@ -0,0 +1,88 @@
+package io.github.bmarwell.jfmt.config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Loads Eclipse formatter configs.
+ *
+ * <p>The bundled configs are compiled into {@link BundledConfigs} at build time and are not parsed at all. Other
+ * configs are streamed with StAX. Config files are parsed again only when their content changed (see
+ * {@link ConfigFileCache}): until then, the very same options are returned, which callers may use to tell that nothing
+ * changed.</p>
+ */
+public class ConfigLoader {
+
+    private static final String RESOURCE_PREFIX = "/" + ConfigLoader.class.getPackageName().replace('.', '/') + "/";
+
+    private static final ConfigFileCache<Map<String, String>> CONFIG_FILES = new ConfigFileCache<>(ConfigLoader::parse);
+
+    public static Map<String, String> load(String resourcePath) {
+        final String absoluteResourcePath =
+            resourcePath.startsWith("/") ? resourcePath : RESOURCE_PREFIX + resourcePath;
+        final Map<String, String> bundled = BundledConfigs.formatterOptions(absoluteResourcePath);
+        if (bundled != null) {
+            return bundled;
+        }
+
+        try (var in = ConfigLoader.class.getResourceAsStream(resourcePath)) {
+            if (in == null) {
+                throw new IllegalStateException("Config not found: " + resourcePath);
+            }
+
+            return loadConfig(in);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException(ioException);
+        } catch (XMLStreamException xmlException) {
+            throw new IllegalStateException(xmlException);
+        }
+    }
+
+    public static Map<String, String> load(Path externalConfig) {
+        return CONFIG_FILES.load(externalConfig);
+    }
+
+    static Map<String, String> loadConfig(InputStream in) throws XMLStreamException {
+        final Map<String, String> map = new HashMap<>();
+
+        final XMLInputFactory factory = XMLInputFactory.newFactory();
+        // formatter configs never need a DTD, and external entities must not be resolved.
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+
+        final XMLStreamReader reader = factory.createXMLStreamReader(in);
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() != XMLStreamConstants.START_ELEMENT || !"setting".equals(reader.getLocalName())) {
+                    continue;
+                }
+
+                final String id = Objects.requireNonNullElse(reader.getAttributeValue(null, "id"), "");
+                final String value = Objects.requireNonNullElse(reader.getAttributeValue(null, "value"), "");
+                map.put(id, value);
+            }
+        } finally {
+            reader.close();
+        }
+
+        return Map.copyOf(map);
+    }
+
+    private static Map<String, String> parse(byte[] content) {
+        try {
+            return loadConfig(new ByteArrayInputStream(content));
+        } catch (XMLStreamException xmlException) {
+            throw new IllegalStateException(xmlException);
+        }
+    }
+}
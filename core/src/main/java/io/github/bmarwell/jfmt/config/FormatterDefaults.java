@@ -0,0 +1,77 @@
+package io.github.bmarwell.jfmt.config;
+
+import io.github.bmarwell.jfmt.imports.ImportOrderConfiguration;
+import io.github.bmarwell.jfmt.imports.ImportOrderLoader;
+import io.github.bmarwell.jfmt.imports.NamedImportOrder;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+
+/**
+ * Everything which is the same for every invocation: the parser options, and the formatter options and import order
+ * of each named config.
+ *
+ * <p>Computed once per process. The native image initializes this class at build time (see
+ * {@code native-image.properties}), so the values are part of the image heap and need no setup at all at runtime.
+ * Therefore it must only hold immutable values, and nothing depending on the environment. The classes of these values
+ * must be initialized at build time, too: a new class of value must be added there.</p>
+ */
+public final class FormatterDefaults {
+
+    private static final Map<String, String> PARSER_OPTIONS = createParserOptions();
+
+    private static final Map<NamedConfig, Map<String, String>> FORMATTER_OPTIONS = createFormatterOptions();
+
+    private static final Map<NamedImportOrder, ImportOrderConfiguration> IMPORT_ORDERS = createImportOrders();
+
+    private FormatterDefaults() {}
+
+    /**
+     * The compiler options for parsing compilation units, at the latest language level.
+     *
+     * @return an unmodifiable map, copy it before changing options.
+     */
+    public static Map<String, String> parserOptions() {
+        return PARSER_OPTIONS;
+    }
+
+    public static Map<String, String> formatterOptions(NamedConfig config) {
+        return FORMATTER_OPTIONS.get(config);
+    }
+
+    public static ImportOrderConfiguration importOrder(NamedImportOrder importOrder) {
+        return IMPORT_ORDERS.get(importOrder);
+    }
+
+    private static Map<String, String> createParserOptions() {
+        final Map<String, String> options = new HashMap<>(JavaCore.getOptions());
+        final String latest = String.valueOf(AST.getJLSLatest());
+        options.put(JavaCore.COMPILER_SOURCE, latest);
+        options.put(JavaCore.COMPILER_COMPLIANCE, latest);
+        options.put(JavaCore.COMPILER_CODEGEN_TARGET_PLATFORM, latest);
+
+        return Collections.unmodifiableMap(options);
+    }
+
+    private static Map<NamedConfig, Map<String, String>> createFormatterOptions() {
+        final Map<NamedConfig, Map<String, String>> options = new EnumMap<>(NamedConfig.class);
+        for (NamedConfig config : NamedConfig.values()) {
+            options.put(config, ConfigLoader.load(config.getResourcePath()));
+        }
+
+        return options;
+    }
+
+    private static Map<NamedImportOrder, ImportOrderConfiguration> createImportOrders() {
+        final Map<NamedImportOrder, ImportOrderConfiguration> importOrders = new EnumMap<>(NamedImportOrder.class);
+        final ImportOrderLoader loader = new ImportOrderLoader();
+        for (NamedImportOrder importOrder : NamedImportOrder.values()) {
+            importOrders.put(importOrder, loader.loadFromResource(importOrder.getResourcePath()));
+        }
+
+        return importOrders;
+    }
+}
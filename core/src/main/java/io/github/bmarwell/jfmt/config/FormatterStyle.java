@@ -0,0 +1,111 @@
+package io.github.bmarwell.jfmt.config;
+
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import io.github.bmarwell.jfmt.imports.ImportOrderConfiguration;
+import io.github.bmarwell.jfmt.imports.ImportOrderLoader;
+import io.github.bmarwell.jfmt.imports.NamedImportOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The effective formatter config and import order of a file.
+ *
+ * <p>A file (if set and existing) takes precedence over the named config, just like {@code --config-file} does over
+ * {@code --config}. Used as cache key, so files with the same style share their formatters.</p>
+ *
+ * @param config
+ *     named formatter config.
+ * @param configFile
+ *     formatter config file, or {@code null} to use the named config.
+ * @param importOrder
+ *     named import order.
+ * @param importOrderFile
+ *     import order file, or {@code null} to use the named import order.
+ */
+public record FormatterStyle(
+    CliNamedConfig config,
+    @Nullable Path configFile,
+    CliNamedImportOrder importOrder,
+    @Nullable Path importOrderFile
+) {
+
+    /**
+     * The style without any options, i.e. the {@code builtin} config and the {@code defaultorder} import order.
+     *
+     * @return the default style.
+     */
+    public static FormatterStyle defaults() {
+        return new FormatterStyle(CliNamedConfig.builtin, null, CliNamedImportOrder.defaultorder, null);
+    }
+
+    /**
+     * Applies the settings of a {@code .jfmt} file or the command line.
+     *
+     * <p>Setting a named config (or import order) replaces a file inherited from a parent directory, and vice
+     * versa.</p>
+     *
+     * @param overrides
+     *     the settings to apply.
+     * @return the resulting style.
+     */
+    public FormatterStyle with(StyleOverrides overrides) {
+        CliNamedConfig newConfig = this.config;
+        Path newConfigFile = this.configFile;
+        if (overrides.config() != null) {
+            newConfig = overrides.config();
+            newConfigFile = null;
+        }
+        if (overrides.configFile() != null) {
+            newConfigFile = overrides.configFile();
+        }
+
+        CliNamedImportOrder newImportOrder = this.importOrder;
+        Path newImportOrderFile = this.importOrderFile;
+        if (overrides.importOrder() != null) {
+            newImportOrder = overrides.importOrder();
+            newImportOrderFile = null;
+        }
+        if (overrides.importOrderFile() != null) {
+            newImportOrderFile = overrides.importOrderFile();
+        }
+
+        return new FormatterStyle(newConfig, newConfigFile, newImportOrder, newImportOrderFile);
+    }
+
+    /**
+     * Whether a config file or import order file is set, whose content may change while the style is in use.
+     *
+     * @return {@code true} if any file is set, even if it does not exist.
+     */
+    public boolean hasConfigFiles() {
+        return this.configFile != null || this.importOrderFile != null;
+    }
+
+    /**
+     * Loads the formatter config. Named configs are not parsed, see {@link FormatterDefaults}.
+     *
+     * @return the formatter options.
+     */
+    public Map<String, String> loadFormatterOptions() {
+        if (this.configFile != null && Files.isRegularFile(this.configFile)) {
+            return ConfigLoader.load(this.configFile);
+        }
+
+        return FormatterDefaults.formatterOptions(NamedConfig.valueOf(this.config.name()));
+    }
+
+    /**
+     * Reads the import order.
+     *
+     * @return the import order configuration.
+     */
+    public ImportOrderConfiguration loadImportOrder() {
+        if (this.importOrderFile != null && Files.isRegularFile(this.importOrderFile)) {
+            return new ImportOrderLoader().loadFromFile(this.importOrderFile);
+        }
+
+        return FormatterDefaults.importOrder(NamedImportOrder.fromCli(this.importOrder));
+    }
+}
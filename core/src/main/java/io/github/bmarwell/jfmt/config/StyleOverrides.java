@@ -0,0 +1,104 @@
+package io.github.bmarwell.jfmt.config;
+
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.Properties;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * The parts of a {@link FormatterStyle} set by one {@code .jfmt} file, or explicitly on the command line.
+ *
+ * <p>A {@code .jfmt} file is a properties file with the keys {@code config}, {@code config-file},
+ * {@code import-order} and {@code import-order-file}, named like the command line options. Paths are relative to the
+ * directory of the file. {@code root = true} stops the lookup of {@code .jfmt} files in parent directories.</p>
+ *
+ * @param config
+ *     named formatter config, or {@code null} if not set.
+ * @param configFile
+ *     formatter config file, or {@code null} if not set.
+ * @param importOrder
+ *     named import order, or {@code null} if not set.
+ * @param importOrderFile
+ *     import order file, or {@code null} if not set.
+ * @param root
+ *     whether settings of parent directories are ignored.
+ */
+public record StyleOverrides(
+    @Nullable CliNamedConfig config,
+    @Nullable Path configFile,
+    @Nullable CliNamedImportOrder importOrder,
+    @Nullable Path importOrderFile,
+    boolean root
+) {
+
+    public static StyleOverrides none() {
+        return new StyleOverrides(null, null, null, null, false);
+    }
+
+    /**
+     * Reads a {@code .jfmt} file.
+     *
+     * @param jfmtFile
+     *     the file to read.
+     * @return the settings of the file.
+     * @throws IllegalArgumentException
+     *     if a named config or import order does not exist.
+     * @throws UncheckedIOException
+     *     if the file cannot be read.
+     */
+    public static StyleOverrides load(Path jfmtFile) {
+        final Properties properties = new Properties();
+
+        try (Reader reader = Files.newBufferedReader(jfmtFile, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Unable to read " + jfmtFile, ioException);
+        }
+
+        final Path directory = jfmtFile.toAbsolutePath().getParent();
+
+        return new StyleOverrides(
+            named(CliNamedConfig.class, properties, "config", jfmtFile),
+            path(directory, properties, "config-file"),
+            named(CliNamedImportOrder.class, properties, "import-order", jfmtFile),
+            path(directory, properties, "import-order-file"),
+            Boolean.parseBoolean(properties.getProperty("root", "false").trim())
+        );
+    }
+
+    private static <E extends Enum<E>> @Nullable E named(
+        Class<E> type,
+        Properties properties,
+        String key,
+        Path jfmtFile
+    ) {
+        final String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        try {
+            return Enum.valueOf(type, value.trim().toLowerCase(Locale.ROOT));
+        } catch (IllegalArgumentException unknownName) {
+            throw new IllegalArgumentException(
+                "Unknown " + key + " '" + value.trim() + "' in " + jfmtFile,
+                unknownName
+            );
+        }
+    }
+
+    private static @Nullable Path path(Path directory, Properties properties, String key) {
+        final String value = properties.getProperty(key);
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+
+        return directory.resolve(value.trim()).normalize();
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.bmarwell.jfmt.config;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves the {@link FormatterStyle} of a file from the {@code .jfmt} files in its directory and all parent
+ * directories.
+ *
+ * <p>Settings are inherited down the tree: the style of the command line defaults is overridden by the topmost
+ * {@code .jfmt} file, which is overridden by the next one and so on, until a file with {@code root = true}.
+ * Options given explicitly on the command line override all of them.</p>
+ *
+ * <p>Every {@code .jfmt} file is read once, and the style is memoized per directory, so that resolving the style of
+ * a file usually is a single map lookup. Long-running callers like {@code watch} or the language server call
+ * {@link #invalidate()} when a {@code .jfmt} file changed. Safe to use from several threads.</p>
+ */
+public final class StyleResolver {
+
+    /// Name of the per-directory configuration file.
+    public static final String CONFIG_FILE_NAME = ".jfmt";
+
+    private final FormatterStyle defaults;
+
+    private final StyleOverrides commandLine;
+
+    private final boolean readsConfigFiles;
+
+    private final ConcurrentMap<Path, FormatterStyle> stylesByDirectory = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Path, Optional<StyleOverrides>> configFiles = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a resolver.
+     *
+     * @param defaults
+     *     the style if there are no {@code .jfmt} files, i.e. the defaults of the command line options.
+     * @param commandLine
+     *     options given explicitly on the command line, which take precedence over all {@code .jfmt} files.
+     */
+    public StyleResolver(FormatterStyle defaults, StyleOverrides commandLine) {
+        this(defaults, commandLine, true);
+    }
+
+    private StyleResolver(FormatterStyle defaults, StyleOverrides commandLine, boolean readsConfigFiles) {
+        this.defaults = defaults;
+        this.commandLine = commandLine;
+        this.readsConfigFiles = readsConfigFiles;
+    }
+
+    /**
+     * Creates a resolver which returns the same style for every file and never reads {@code .jfmt} files, e.g. for
+     * formatting sources which are not files, or when embedding the formatter with a fixed config.
+     *
+     * @param style
+     *     the style of all files.
+     * @return a resolver for the given style.
+     */
+    public static StyleResolver fixed(FormatterStyle style) {
+        return new StyleResolver(style, StyleOverrides.none(), false);
+    }
+
+    /**
+     * Resolves the style of a Java file.
+     *
+     * @param javaFile
+     *     the file to format.
+     * @return its effective style.
+     */
+    public FormatterStyle resolve(Path javaFile) {
+        if (!this.readsConfigFiles) {
+            return this.defaults;
+        }
+
+        final Path directory = javaFile.toAbsolutePath().normalize().getParent();
+        if (directory == null) {
+            return this.defaults.with(this.commandLine);
+        }
+
+        return resolveDirectory(directory).with(this.commandLine);
+    }
+
+    /**
+     * Forgets all {@code .jfmt} files read so far, so that they are read again when the style of a file is resolved
+     * the next time. Styles resolved concurrently may still be based on the old files.
+     */
+    public void invalidate() {
+        this.configFiles.clear();
+        this.stylesByDirectory.clear();
+    }
+
+    private FormatterStyle resolveDirectory(Path directory) {
+        final FormatterStyle known = this.stylesByDirectory.get(directory);
+        if (known != null) {
+            return known;
+        }
+
+        // not computeIfAbsent: the parent directories are resolved recursively.
+        final FormatterStyle resolved = computeStyle(directory);
+        final FormatterStyle raced = this.stylesByDirectory.putIfAbsent(directory, resolved);
+
+        return raced != null ? raced : resolved;
+    }
+
+    private FormatterStyle computeStyle(Path directory) {
+        final Optional<StyleOverrides> configFile = this.configFiles.computeIfAbsent(directory, StyleResolver::read);
+        final Path parent = directory.getParent();
+        final boolean root = configFile.map(StyleOverrides::root).orElse(false);
+
+        final FormatterStyle inherited = parent == null || root ? this.defaults : resolveDirectory(parent);
+
+        return configFile.map(inherited::with).orElse(inherited);
+    }
+
+    private static Optional<StyleOverrides> read(Path directory) {
+        final Path configFile = directory.resolve(CONFIG_FILE_NAME);
+        if (!Files.isRegularFile(configFile)) {
+            return Optional.empty();
+        }
+
+        return Optional.of(StyleOverrides.load(configFile));
+    }
+}
@@ -0,0 +1,72 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.time.Duration;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Progress monitor which reports itself as cancelled once a deadline has passed or the current thread was interrupted.
+ *
+ * <p>JDT only checks for cancellation when it is handed a monitor, so passing {@code null} to
+ * {@code ASTParser.createAST} makes a running parse impossible to stop. Structured Concurrency cancels subtasks by
+ * interrupting their threads, which is why the interrupt flag is checked as well: in fail-fast mode (--no-all),
+ * in-flight parses then stop at the next node instead of running to completion.</p>
+ */
+public class DeadlineProgressMonitor extends NullProgressMonitor {
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final @Nullable Duration timeout;
+
+    private final long deadlineNanos;
+
+    private DeadlineProgressMonitor(@Nullable Duration timeout, long deadlineNanos) {
+        this.timeout = timeout;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    /**
+     * Creates a monitor whose deadline starts counting now.
+     *
+     * @param timeout
+     *     the maximum time allowed, or {@code null} to only react to interrupts.
+     * @return a new monitor.
+     */
+    public static DeadlineProgressMonitor startingNow(@Nullable Duration timeout) {
+        if (timeout == null) {
+            return new DeadlineProgressMonitor(null, NO_DEADLINE);
+        }
+
+        return new DeadlineProgressMonitor(timeout, System.nanoTime() + timeout.toNanos());
+    }
+
+    @Override
+    public boolean isCanceled() {
+        return super.isCanceled() || Thread.currentThread().isInterrupted() || isTimedOut();
+    }
+
+    public boolean hasDeadline() {
+        return this.deadlineNanos != NO_DEADLINE;
+    }
+
+    public boolean isTimedOut() {
+        return hasDeadline() && System.nanoTime() - this.deadlineNanos >= 0;
+    }
+
+    /**
+     * Time left until the deadline.
+     *
+     * @return the remaining time, never negative. {@link Duration#ZERO} if there is no deadline.
+     */
+    public Duration remaining() {
+        if (!hasDeadline()) {
+            return Duration.ZERO;
+        }
+
+        return Duration.ofNanos(Math.max(0L, this.deadlineNanos - System.nanoTime()));
+    }
+
+    public @Nullable Duration timeout() {
+        return timeout;
+    }
+}
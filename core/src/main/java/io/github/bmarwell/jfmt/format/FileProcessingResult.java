@@ -22,7 +22,8 @@ import org.jspecify.annotations.Nullable;
  * @param outputLines
  *     formatted output or diff lines to display
  * @param exception
- *     {@link Nullable} exception that occurred during processing (e.g., syntax errors)
+ *     {@link Nullable} exception that occurred during processing (e.g., syntax errors or
+ *     {@link FileTimeoutException timeouts})
  */
 public record FileProcessingResult(
     Path javaFile,
@@ -45,4 +46,13 @@ public record FileProcessingResult(
     ) {
         this(javaFile, hasDiff, changesWritten, shouldContinue, outputLines, Optional.empty());
     }
+
+    /**
+     * Whether processing was aborted because it exceeded the per-file timeout.
+     *
+     * <p>Timed out files are neither reported as incorrectly formatted nor as syntax errors.</p>
+     */
+    public boolean timedOut() {
+        return exception().filter(FileTimeoutException.class::isInstance).isPresent();
+    }
 }
@@ -0,0 +1,24 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Thrown when parsing or formatting a single file exceeds the configured per-file timeout (--file-timeout).
+ *
+ * <p>Kept separate from {@link InvalidSyntaxException}: a timed out file might be perfectly valid Java, it was just
+ * too expensive to format within the budget.</p>
+ */
+public class FileTimeoutException extends Exception {
+
+    private final Duration timeout;
+
+    public FileTimeoutException(Path javaFile, Duration timeout) {
+        super("Formatting " + javaFile + " exceeded the timeout of " + timeout.toMillis() + " ms");
+        this.timeout = timeout;
+    }
+
+    public Duration getTimeout() {
+        return timeout;
+    }
+}
@@ -0,0 +1,41 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.nio.file.Path;
+
+/**
+ * Is told how long each phase of formatting a source took, e.g. to record a timeline.
+ *
+ * <p>Called on the formatting thread, right after the phase, also if it failed. It must be cheap and thread-safe.</p>
+ */
+@FunctionalInterface
+public interface FormatPhaseListener {
+
+    /// Ignores all phases.
+    FormatPhaseListener NONE = (phase, javaFile, startNanos, endNanos) -> {};
+
+    /**
+     * The phases of formatting a source, in this order.
+     */
+    enum Phase {
+        /// Parsing the source, or only scanning the import block in imports-only mode.
+        PARSE,
+        /// Reordering the imports.
+        IMPORTS,
+        /// Formatting the code, not in imports-only mode.
+        FORMAT
+    }
+
+    /**
+     * Called after a phase.
+     *
+     * @param phase
+     *     the completed phase.
+     * @param javaFile
+     *     the file of the source, see {@link JFmtFormatter#format(Path, CharSequence)}.
+     * @param startNanos
+     *     the {@link System#nanoTime()} when the phase started.
+     * @param endNanos
+     *     the {@link System#nanoTime()} when the phase ended.
+     */
+    void onPhase(Phase phase, Path javaFile, long startNanos, long endNanos);
+}
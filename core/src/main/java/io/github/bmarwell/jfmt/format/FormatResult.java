@@ -0,0 +1,52 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.nio.file.Path;
+import java.util.Optional;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Result of formatting a single source with a {@link JFmtFormatter}.
+ *
+ * @param file
+ *     the formatted file, or {@code null} if the source was not read from a file.
+ * @param source
+ *     the original source code.
+ * @param formatted
+ *     the formatted source code, or the original source code if formatting failed.
+ * @param failure
+ *     why the source could not be formatted, e.g. {@link InvalidSyntaxException syntax errors} or a
+ *     {@link FileTimeoutException timeout}.
+ */
+public record FormatResult(
+    @Nullable Path file,
+    String source,
+    String formatted,
+    Optional<Exception> failure
+) {
+
+    static FormatResult formatted(@Nullable Path file, String source, String formatted) {
+        return new FormatResult(file, source, formatted, Optional.empty());
+    }
+
+    static FormatResult failed(@Nullable Path file, String source, Exception failure) {
+        return new FormatResult(file, source, source, Optional.of(failure));
+    }
+
+    /**
+     * Whether the source was formatted.
+     *
+     * @return {@code true} unless there is a {@link #failure()}.
+     */
+    public boolean succeeded() {
+        return this.failure.isEmpty();
+    }
+
+    /**
+     * Whether the source was not formatted correctly before.
+     *
+     * @return {@code true} if the source was formatted and the formatted source differs from it.
+     */
+    public boolean changed() {
+        return succeeded() && !this.source.equals(this.formatted);
+    }
+}
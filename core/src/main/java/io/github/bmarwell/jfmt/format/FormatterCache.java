@@ -0,0 +1,228 @@
+package io.github.bmarwell.jfmt.format;
+
+import io.github.bmarwell.jfmt.config.ConfigLoader;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.imports.ImportOrderConfiguration;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Ready-to-use formatters and import order processors per {@link FormatterStyle}, shared by all workers.
+ *
+ * <p>Each style's config is parsed once. {@link ImportOrderProcessor}s are stateless and shared directly.
+ * {@link CodeFormatter}s are not thread-safe, so they are pooled instead: a worker acquires one for a file and
+ * releases it afterwards. Only the most recently used styles are kept, so a tree with many different
+ * {@code .jfmt} files does not keep every formatter alive. Likewise, only a limited number of idle formatters is
+ * pooled per style: a burst of concurrent callers does not leave all of its formatters behind.</p>
+ *
+ * <p>The config files of a style are checked for changes when a formatter of the style is
+ * {@link #acquireFormatter(FormatterStyle) acquired} for the first time after {@link #recheckConfigFiles()}, i.e. once
+ * per run instead of once per file. {@link ConfigLoader} returns the same options as long as the content of a config
+ * file is unchanged. Once it changed, the style is loaded again, and formatters acquired before are not pooled
+ * anymore.</p>
+ */
+final class FormatterCache {
+
+    /// Number of styles kept by default. Most trees use one or two.
+    public static final int DEFAULT_MAX_STYLES = 16;
+
+    private final Map<FormatterStyle, StyleEntry> entries;
+
+    /// Styles whose config files were checked since the last {@link #recheckConfigFiles()}.
+    private final Set<FormatterStyle> checkedStyles = ConcurrentHashMap.newKeySet();
+
+    private final int maxIdleFormatters;
+
+    public FormatterCache() {
+        this(DEFAULT_MAX_STYLES);
+    }
+
+    FormatterCache(int maxStyles) {
+        this(maxStyles, defaultMaxIdleFormatters());
+    }
+
+    FormatterCache(int maxStyles, int maxIdleFormatters) {
+        this.maxIdleFormatters = maxIdleFormatters;
+        // access order: the eldest entry is the least recently used one.
+        this.entries = new LinkedHashMap<>(maxStyles, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<FormatterStyle, StyleEntry> eldest) {
+                if (size() <= maxStyles) {
+                    return false;
+                }
+
+                FormatterCache.this.checkedStyles.remove(eldest.getKey());
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Takes an idle formatter of the given style from the pool, or creates one.
+     *
+     * @param style
+     *     the style to format with.
+     * @return a formatter only used by the caller until {@link #releaseFormatter released}.
+     */
+    public CodeFormatter acquireFormatter(FormatterStyle style) {
+        final StyleEntry entry = currentEntry(style);
+        final CodeFormatter idle = entry.idleFormatters().pollFirst();
+        if (idle != null) {
+            return idle;
+        }
+
+        return entry.createFormatter();
+    }
+
+    /**
+     * Returns a formatter to the pool, unless the pool of its style is full: then it is left to the garbage
+     * collector.
+     *
+     * <p>Must not be called for a formatter which might still be in use, e.g. by an abandoned thread after a
+     * timeout.</p>
+     *
+     * @param style
+     *     the style the formatter was acquired for.
+     * @param formatter
+     *     the formatter, no longer used by the caller.
+     */
+    public void releaseFormatter(FormatterStyle style, CodeFormatter formatter) {
+        final StyleEntry entry;
+        synchronized (this.entries) {
+            entry = this.entries.get(style);
+        }
+
+        if (entry == null || !entry.created(formatter)) {
+            // acquired before the config files changed, or before the style was evicted.
+            return;
+        }
+
+        final Deque<CodeFormatter> idleFormatters = entry.idleFormatters();
+        // size() is not exact under contention, which only means the pool may briefly hold a few more.
+        if (idleFormatters.size() >= this.maxIdleFormatters) {
+            return;
+        }
+
+        idleFormatters.offerFirst(formatter);
+    }
+
+    /**
+     * Creates a new formatter which is not pooled.
+     *
+     * @param style
+     *     the style to format with.
+     * @return a new formatter.
+     */
+    public CodeFormatter newFormatter(FormatterStyle style) {
+        return ToolFactory.createCodeFormatter(entry(style).formatterOptions());
+    }
+
+    public Map<String, String> formatterOptions(FormatterStyle style) {
+        return entry(style).formatterOptions();
+    }
+
+    public ImportOrderProcessor importOrderProcessor(FormatterStyle style) {
+        return entry(style).importOrderProcessor();
+    }
+
+    /**
+     * Checks the config files of each style for changes again, the next time a formatter of the style is acquired.
+     * Long-running callers call it once per run, e.g. before each batch while watching.
+     */
+    public void recheckConfigFiles() {
+        this.checkedStyles.clear();
+    }
+
+    /// One idle formatter per worker is enough, twice as many covers the parallel region formatting of large files.
+    static int defaultMaxIdleFormatters() {
+        return 2 * Runtime.getRuntime().availableProcessors();
+    }
+
+    private StyleEntry entry(FormatterStyle style) {
+        synchronized (this.entries) {
+            final StyleEntry cached = this.entries.get(style);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        return load(style, null);
+    }
+
+    /// Like {@link #entry(FormatterStyle)}, but loads the style again if its config files changed since the last check.
+    private StyleEntry currentEntry(FormatterStyle style) {
+        final StyleEntry cached = entry(style);
+        if (!style.hasConfigFiles() || !this.checkedStyles.add(style)) {
+            return cached;
+        }
+
+        final Map<String, String> formatterOptions = style.loadFormatterOptions();
+        final ImportOrderConfiguration importOrder = style.loadImportOrder();
+        // the same options instance as long as the content of the config file is the same.
+        if (formatterOptions == cached.formatterOptions() && importOrder.equals(cached.importOrder())) {
+            return cached;
+        }
+
+        return load(style, cached);
+    }
+
+    private StyleEntry load(FormatterStyle style, @Nullable StyleEntry stale) {
+        // parse outside the lock, other styles stay available meanwhile. A concurrent parse of the same style is
+        // wasted, but harmless.
+        final StyleEntry loaded = StyleEntry.load(style);
+
+        synchronized (this.entries) {
+            final StyleEntry raced = this.entries.get(style);
+            if (raced != null && raced != stale) {
+                return raced;
+            }
+
+            this.entries.put(style, loaded);
+            this.checkedStyles.add(style);
+
+            return loaded;
+        }
+    }
+
+    private record StyleEntry(
+        Map<String, String> formatterOptions,
+        ImportOrderConfiguration importOrder,
+        ImportOrderProcessor importOrderProcessor,
+        Deque<CodeFormatter> idleFormatters,
+        Set<CodeFormatter> createdFormatters
+    ) {
+
+        static StyleEntry load(FormatterStyle style) {
+            final ImportOrderConfiguration importOrder = style.loadImportOrder();
+
+            return new StyleEntry(
+                style.loadFormatterOptions(),
+                importOrder,
+                new ImportOrderProcessor(importOrder),
+                new ConcurrentLinkedDeque<>(),
+                // weak: formatters which are not pooled are left to the garbage collector.
+                Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()))
+            );
+        }
+
+        CodeFormatter createFormatter() {
+            final CodeFormatter formatter = ToolFactory.createCodeFormatter(this.formatterOptions);
+            this.createdFormatters.add(formatter);
+
+            return formatter;
+        }
+
+        boolean created(CodeFormatter formatter) {
+            return this.createdFormatters.contains(formatter);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.text.edits.TextEdit;
+import org.jspecify.annotations.Nullable;
+
+class FormatterProcessor {
+
+    private final CodeFormatter formatter;
+
+    private final @Nullable ParallelRegionFormatter regionFormatter;
+
+    public FormatterProcessor(CodeFormatter formatter) {
+        this(formatter, null);
+    }
+
+    /**
+     * Creates a processor which formats very large units region by region, see {@link ParallelRegionFormatter}.
+     *
+     * @param formatter
+     *     the formatter for single-threaded formatting, also used as fallback.
+     * @param regionFormatter
+     *     formats the regions concurrently, or {@code null} to always format single-threaded.
+     */
+    public FormatterProcessor(CodeFormatter formatter, @Nullable ParallelRegionFormatter regionFormatter) {
+        this.formatter = formatter;
+        this.regionFormatter = regionFormatter;
+    }
+
+    /**
+     * Formats the entire document according to the configured formatter.
+     *
+     * @param workingDoc
+     *     the document to format
+     * @throws BadLocationException
+     *     if the text edits cannot be applied
+     */
+    public void formatDocument(IDocument workingDoc) throws BadLocationException {
+        computeEdit(workingDoc.get()).apply(workingDoc);
+    }
+
+    /**
+     * Formats the entire document, but gives up once the deadline of the given monitor has passed.
+     *
+     * <p>{@link CodeFormatter#format} accepts no progress monitor and never checks for interrupts. Therefore, the
+     * edit is computed on a separate virtual thread which is abandoned when the deadline passes. The abandoned
+     * thread keeps running until the formatter returns, but its result is discarded and the caller can move on.</p>
+     *
+     * <p>With a {@link ParallelRegionFormatter}, the regions are formatted concurrently.</p>
+     *
+     * @param workingDoc
+     *     the document to format
+     * @param monitor
+     *     the monitor holding the deadline. Without a deadline, formatting happens on the calling thread.
+     * @throws BadLocationException
+     *     if the text edits cannot be applied
+     * @throws TimeoutException
+     *     if the formatter did not finish before the deadline
+     * @throws InterruptedException
+     *     if the calling thread was interrupted while waiting, e.g. by fail-fast cancellation
+     */
+    public void formatDocument(IDocument workingDoc, DeadlineProgressMonitor monitor)
+        throws BadLocationException, TimeoutException, InterruptedException {
+        final String source = workingDoc.get();
+
+        if (!monitor.hasDeadline()) {
+            computeEditByRegions(source).apply(workingDoc);
+            return;
+        }
+
+        final FutureTask<TextEdit> formatting = new FutureTask<>(() -> computeEditByRegions(source));
+        Thread.ofVirtual().name("jfmt-format-watchdog").start(formatting);
+
+        try {
+            formatting.get(monitor.remaining().toNanos(), TimeUnit.NANOSECONDS).apply(workingDoc);
+        } catch (ExecutionException executionException) {
+            throw rethrowCause(executionException);
+        } finally {
+            // no-op if already completed, otherwise signals the abandoned thread.
+            formatting.cancel(true);
+        }
+    }
+
+    private TextEdit computeEditByRegions(String source) throws InterruptedException {
+        if (this.regionFormatter == null) {
+            return computeEdit(source);
+        }
+
+        final TextEdit merged = this.regionFormatter.format(source);
+        if (merged == null) {
+            // the regions did not split cleanly, the result must not differ from a single-threaded run.
+            return computeEdit(source);
+        }
+
+        return merged;
+    }
+
+    private TextEdit computeEdit(String source) {
+        final TextEdit edit = formatter.format(
+            CodeFormatter.K_COMPILATION_UNIT,
+            source,
+            0,
+            source.length(),
+            0,
+            "\n"
+        );
+
+        return Objects.requireNonNull(edit, "Formatting edits must not be null.");
+    }
+
+    private static RuntimeException rethrowCause(ExecutionException executionException) {
+        if (executionException.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+
+        if (executionException.getCause() instanceof Error error) {
+            throw error;
+        }
+
+        return new IllegalStateException("Formatting failed", executionException.getCause());
+    }
+}
@@ -0,0 +1,125 @@
+package io.github.bmarwell.jfmt.format;
+
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import java.time.Duration;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Settings of a {@link JFmtFormatter}, fixed when it is created.
+ *
+ * @param styles
+ *     resolves the style of each file, see {@link StyleResolver#fixed(FormatterStyle)} for a single style.
+ * @param importsOnly
+ *     only reorder the imports, without formatting.
+ * @param parallelFormatThreshold
+ *     sources of at least this many characters are formatted region by region in parallel, {@code 0} to never do so.
+ * @param timeout
+ *     the time budget per source, or {@code null} for no limit.
+ * @param parallelism
+ *     the maximum number of sources formatted concurrently by the asynchronous methods.
+ * @param phaseListener
+ *     is told the duration of each phase, {@link FormatPhaseListener#NONE} by default.
+ */
+public record FormatterSettings(
+    StyleResolver styles,
+    boolean importsOnly,
+    long parallelFormatThreshold,
+    @Nullable Duration timeout,
+    int parallelism,
+    FormatPhaseListener phaseListener
+) {
+
+    /// Same as the default of {@code --parallel-format-threshold}.
+    public static final long DEFAULT_PARALLEL_FORMAT_THRESHOLD = 512L * 1024L;
+
+    public FormatterSettings {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1, but was " + parallelism);
+        }
+    }
+
+    /**
+     * Default settings which format every source with the given style.
+     *
+     * @param style
+     *     the style of all sources.
+     * @return the settings.
+     */
+    public static FormatterSettings of(FormatterStyle style) {
+        return of(StyleResolver.fixed(style));
+    }
+
+    /**
+     * Default settings which format each file with the style resolved for it.
+     *
+     * @param styles
+     *     resolves the style of each file.
+     * @return the settings.
+     */
+    public static FormatterSettings of(StyleResolver styles) {
+        return new FormatterSettings(
+            styles,
+            false,
+            DEFAULT_PARALLEL_FORMAT_THRESHOLD,
+            null,
+            Runtime.getRuntime().availableProcessors(),
+            FormatPhaseListener.NONE
+        );
+    }
+
+    public FormatterSettings withImportsOnly(boolean newImportsOnly) {
+        return new FormatterSettings(
+            this.styles,
+            newImportsOnly,
+            this.parallelFormatThreshold,
+            this.timeout,
+            this.parallelism,
+            this.phaseListener
+        );
+    }
+
+    public FormatterSettings withParallelFormatThreshold(long newParallelFormatThreshold) {
+        return new FormatterSettings(
+            this.styles,
+            this.importsOnly,
+            newParallelFormatThreshold,
+            this.timeout,
+            this.parallelism,
+            this.phaseListener
+        );
+    }
+
+    public FormatterSettings withTimeout(@Nullable Duration newTimeout) {
+        return new FormatterSettings(
+            this.styles,
+            this.importsOnly,
+            this.parallelFormatThreshold,
+            newTimeout,
+            this.parallelism,
+            this.phaseListener
+        );
+    }
+
+    public FormatterSettings withParallelism(int newParallelism) {
+        return new FormatterSettings(
+            this.styles,
+            this.importsOnly,
+            this.parallelFormatThreshold,
+            this.timeout,
+            newParallelism,
+            this.phaseListener
+        );
+    }
+
+    public FormatterSettings withPhaseListener(FormatPhaseListener newPhaseListener) {
+        return new FormatterSettings(
+            this.styles,
+            this.importsOnly,
+            this.parallelFormatThreshold,
+            this.timeout,
+            this.parallelism,
+            newPhaseListener
+        );
+    }
+}
@@ -0,0 +1,169 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.compiler.IScanner;
+import org.eclipse.jdt.core.compiler.ITerminalSymbols;
+import org.eclipse.jdt.core.compiler.InvalidInputException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.ImportDeclaration;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Locates the import declarations of a source with the JDT scanner instead of a full parse.
+ *
+ * <p>Only the tokens up to the first type (or module) declaration are read. The result is a synthetic
+ * {@link CompilationUnit} holding nothing but the imports and their source ranges, which is all
+ * {@link ImportOrderProcessor} needs.</p>
+ *
+ * <p>JDT attaches comments next to an import to it, and {@link ImportOrderProcessor} moves them along with the
+ * import. The scanner cannot reproduce these rules, so the scan gives up as soon as a comment appears around the
+ * imports (a Javadoc in front of the type excepted), and so does it for anything unusual like module imports. The
+ * caller then falls back to a full parse.</p>
+ */
+final class ImportBlockScanner {
+
+    private ImportBlockScanner() {}
+
+    /**
+     * Scans the import block of the given source.
+     *
+     * @param source
+     *     the source, with unix line endings.
+     * @return a compilation unit containing only the imports (possibly none), or {@code null} if the imports cannot be
+     *     located reliably without a full parse.
+     */
+    public static @Nullable CompilationUnit scan(String source) {
+        final IScanner scanner = ToolFactory.createScanner(
+            true,
+            false,
+            false,
+            JavaCore.latestSupportedJavaVersion(),
+            JavaCore.latestSupportedJavaVersion()
+        );
+        scanner.setSource(source.toCharArray());
+
+        try {
+            return scanImports(scanner);
+        } catch (InvalidInputException | IllegalArgumentException invalidImport) {
+            // e.g. an unterminated comment, or a name segment AST#newName does not accept.
+            return null;
+        }
+    }
+
+    private static @Nullable CompilationUnit scanImports(IScanner scanner) throws InvalidInputException {
+        final AST ast = AST.newAST(AST.getJLSLatest(), false);
+        final List<ImportDeclaration> imports = new ArrayList<>();
+
+        int token = scanner.getNextToken();
+        boolean headerComment = false;
+        while (isComment(token)) {
+            headerComment = true;
+            token = scanner.getNextToken();
+        }
+
+        // without a package declaration, JDT may attach the header comment to the first import.
+        int commentsBefore = headerComment ? 1 : 0;
+        boolean javadocBefore = false;
+
+        if (token == ITerminalSymbols.TokenNameAT) {
+            // an annotated package declaration (package-info.java) or type, both rare enough to just parse.
+            return null;
+        }
+
+        if (token == ITerminalSymbols.TokenNamepackage) {
+            while (token != ITerminalSymbols.TokenNameSEMICOLON && token != ITerminalSymbols.TokenNameEOF) {
+                token = scanner.getNextToken();
+            }
+
+            token = scanner.getNextToken();
+            commentsBefore = 0;
+        }
+
+        while (token != ITerminalSymbols.TokenNameEOF) {
+            if (isComment(token)) {
+                commentsBefore++;
+                javadocBefore = token == ITerminalSymbols.TokenNameCOMMENT_JAVADOC;
+                token = scanner.getNextToken();
+                continue;
+            }
+
+            if (token != ITerminalSymbols.TokenNameimport) {
+                break;
+            }
+
+            final ImportDeclaration importDeclaration = scanImport(ast, scanner);
+            if (commentsBefore > 0 || importDeclaration == null) {
+                return null;
+            }
+
+            imports.add(importDeclaration);
+            token = scanner.getNextToken();
+        }
+
+        // only the Javadoc of the type may follow the imports, it belongs to the type declaration.
+        if (!imports.isEmpty() && (commentsBefore > 1 || (commentsBefore == 1 && !javadocBefore))) {
+            return null;
+        }
+
+        final CompilationUnit compilationUnit = ast.newCompilationUnit();
+        compilationUnit.imports().addAll(imports);
+
+        return compilationUnit;
+    }
+
+    private static @Nullable ImportDeclaration scanImport(AST ast, IScanner scanner) throws InvalidInputException {
+        final int start = scanner.getCurrentTokenStartPosition();
+        final ImportDeclaration importDeclaration = ast.newImportDeclaration();
+
+        int token = scanner.getNextToken();
+        if (token == ITerminalSymbols.TokenNamestatic) {
+            importDeclaration.setStatic(true);
+            token = scanner.getNextToken();
+        }
+
+        if (token != ITerminalSymbols.TokenNameIdentifier) {
+            return null;
+        }
+
+        final StringBuilder name = new StringBuilder().append(scanner.getCurrentTokenSource());
+        token = scanner.getNextToken();
+
+        while (token == ITerminalSymbols.TokenNameDOT) {
+            token = scanner.getNextToken();
+
+            if (token == ITerminalSymbols.TokenNameMULTIPLY) {
+                importDeclaration.setOnDemand(true);
+                token = scanner.getNextToken();
+                break;
+            }
+
+            if (token != ITerminalSymbols.TokenNameIdentifier) {
+                return null;
+            }
+
+            name.append('.').append(scanner.getCurrentTokenSource());
+            token = scanner.getNextToken();
+        }
+
+        // anything else, e.g. "import module java.base;" or a comment inside the declaration.
+        if (token != ITerminalSymbols.TokenNameSEMICOLON) {
+            return null;
+        }
+
+        importDeclaration.setName(ast.newName(name.toString()));
+        importDeclaration.setSourceRange(start, scanner.getCurrentTokenEndPosition() + 1 - start);
+
+        return importDeclaration;
+    }
+
+    private static boolean isComment(int token) {
+        return token == ITerminalSymbols.TokenNameCOMMENT_LINE
+            || token == ITerminalSymbols.TokenNameCOMMENT_BLOCK
+            || token == ITerminalSymbols.TokenNameCOMMENT_JAVADOC
+            || token == ITerminalSymbols.TokenNameCOMMENT_MARKDOWN;
+    }
+}
@@ -1,4 +1,4 @@
-package io.github.bmarwell.jfmt.commands;
+package io.github.bmarwell.jfmt.format;
 
 import io.github.bmarwell.jfmt.imports.ImportOrderConfiguration;
 import java.util.ArrayList;
@@ -0,0 +1,446 @@
+package io.github.bmarwell.jfmt.format;
+
+import io.github.bmarwell.jfmt.config.FormatterDefaults;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Formats Java sources: reorders the imports and formats the code according to the {@link FormatterStyle} of each
+ * file.
+ *
+ * <p>Create one instance per set of {@link FormatterSettings} and share it: it is safe to use from any number of
+ * threads. Configs are parsed once per style, and the JDT formatters, which are not thread-safe, are pooled (see
+ * {@link FormatterCache}). Both caches are bounded.</p>
+ *
+ * <p>Problems with a single source, like syntax errors, timeouts or an invalid {@code .jfmt} file of its directory,
+ * are reported in its {@link FormatResult}, never thrown. An interrupted caller gets an
+ * {@link OperationCanceledException}.</p>
+ */
+public final class JFmtFormatter {
+
+    /// File name used for the parser and for resolving the style of sources which are not read from a file.
+    static final String SOURCE_FILE_NAME = "Source.java";
+
+    /// Every asynchronous task runs on its own virtual thread, the {@link #asyncPermits} limit how many format.
+    private static final Executor VIRTUAL_THREADS = task -> Thread.ofVirtual().name("jfmt-format").start(task);
+
+    private final FormatterSettings settings;
+
+    private final FormatterCache formatterCache = new FormatterCache();
+
+    private final Semaphore asyncPermits;
+
+    private JFmtFormatter(FormatterSettings settings) {
+        this.settings = settings;
+        this.asyncPermits = new Semaphore(settings.parallelism());
+    }
+
+    /**
+     * Creates a formatter.
+     *
+     * @param settings
+     *     the settings of all sources formatted by it.
+     * @return a new formatter.
+     */
+    public static JFmtFormatter create(FormatterSettings settings) {
+        return new JFmtFormatter(settings);
+    }
+
+    /**
+     * Creates a formatter with default settings, which formats all sources with the given style.
+     *
+     * @param style
+     *     the style of all sources.
+     * @return a new formatter.
+     */
+    public static JFmtFormatter create(FormatterStyle style) {
+        return create(FormatterSettings.of(style));
+    }
+
+    public FormatterSettings settings() {
+        return this.settings;
+    }
+
+    /**
+     * Checks the config files of each style for changes again, once per style before it is used the next time.
+     * Long-running callers, which keep the formatter warm, call it once per run, e.g. before each batch while watching
+     * or per request of the language server. Changed {@code .jfmt} files are handled by the
+     * {@link StyleResolver#invalidate() style resolver}.
+     */
+    public void recheckConfigFiles() {
+        this.formatterCache.recheckConfigFiles();
+    }
+
+    /**
+     * Formats a source which is not a file, e.g. from an editor buffer. Its style is resolved as if it was a file in
+     * the working directory.
+     *
+     * @param source
+     *     the source code.
+     * @return the result, without {@link FormatResult#file() file}.
+     */
+    public FormatResult format(CharSequence source) {
+        return format(null, Path.of(SOURCE_FILE_NAME), source.toString());
+    }
+
+    /**
+     * Reads and formats a file. The file is not changed.
+     *
+     * @param javaFile
+     *     the file to format.
+     * @return the result, with an {@link IOException} as failure if the file cannot be read.
+     */
+    public FormatResult format(Path javaFile) {
+        final String source;
+        try {
+            source = SourceDecoder.decode(ByteBuffer.wrap(Files.readAllBytes(javaFile)));
+        } catch (IOException ioException) {
+            return FormatResult.failed(javaFile, "", ioException);
+        }
+
+        return format(javaFile, source);
+    }
+
+    /**
+     * Formats the given content of a file, e.g. unsaved changes or content read by the caller.
+     *
+     * @param javaFile
+     *     the file the source belongs to, used for its style and for messages. It is neither read nor written.
+     * @param source
+     *     the source code.
+     * @return the result.
+     */
+    public FormatResult format(Path javaFile, CharSequence source) {
+        return format(javaFile, javaFile, source.toString());
+    }
+
+    /**
+     * Reads and formats all files, up to {@link FormatterSettings#parallelism()} at a time.
+     *
+     * @param javaFiles
+     *     the files to format.
+     * @return the results, in the order of the files.
+     */
+    public List<FormatResult> formatAll(Collection<Path> javaFiles) {
+        final List<CompletableFuture<FormatResult>> futures = new ArrayList<>(javaFiles.size());
+        for (Path javaFile : javaFiles) {
+            futures.add(formatAsync(javaFile));
+        }
+
+        final List<FormatResult> results = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<FormatResult> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException completionException) {
+            futures.forEach(future -> future.cancel(true));
+            throw unwrap(completionException);
+        }
+
+        return List.copyOf(results);
+    }
+
+    /**
+     * Reads and formats a file on a virtual thread, see {@link #format(Path)}.
+     *
+     * @param javaFile
+     *     the file to format.
+     * @return the future result.
+     */
+    public CompletableFuture<FormatResult> formatAsync(Path javaFile) {
+        return CompletableFuture.supplyAsync(() -> withPermit(() -> format(javaFile)), VIRTUAL_THREADS);
+    }
+
+    /**
+     * Formats a source on a virtual thread, see {@link #format(CharSequence)}.
+     *
+     * @param source
+     *     the source code, which must not be changed until the future is completed.
+     * @return the future result.
+     */
+    public CompletableFuture<FormatResult> formatAsync(CharSequence source) {
+        return CompletableFuture.supplyAsync(() -> withPermit(() -> format(source)), VIRTUAL_THREADS);
+    }
+
+    /**
+     * Streams the results of formatting the given files, in their order.
+     *
+     * <p>The publisher is cold: each subscriber starts its own run over the files. Results are only produced as fast
+     * as the subscriber requests them, and the run stops once the subscription is cancelled.</p>
+     *
+     * @param javaFiles
+     *     the files to format.
+     * @return a publisher of one result per file.
+     */
+    public Flow.Publisher<FormatResult> formatPublisher(Collection<Path> javaFiles) {
+        final List<Path> files = List.copyOf(javaFiles);
+
+        return subscriber -> {
+            final SubmissionPublisher<FormatResult> publisher =
+                new SubmissionPublisher<>(VIRTUAL_THREADS, Flow.defaultBufferSize());
+            publisher.subscribe(subscriber);
+
+            VIRTUAL_THREADS.execute(() -> publish(publisher, files));
+        };
+    }
+
+    private void publish(SubmissionPublisher<FormatResult> publisher, List<Path> files) {
+        try {
+            for (Path javaFile : files) {
+                if (!publisher.hasSubscribers()) {
+                    // cancelled
+                    publisher.close();
+                    return;
+                }
+
+                // blocks while the buffer of the subscriber is full.
+                publisher.submit(format(javaFile));
+            }
+
+            publisher.close();
+        } catch (RuntimeException runtimeException) {
+            // not closed before: the subscriber must not mistake the truncated stream for a complete one.
+            publisher.closeExceptionally(runtimeException);
+        }
+    }
+
+    private FormatResult format(@Nullable Path reportedFile, Path javaFile, String source) {
+        final FormatterStyle style;
+        final CodeFormatter formatter;
+        try {
+            style = this.settings.styles().resolve(javaFile);
+            formatter = this.formatterCache.acquireFormatter(style);
+        } catch (IllegalArgumentException | IllegalStateException | UncheckedIOException configException) {
+            // an invalid or unreadable .jfmt file or config file: only the files using it fail.
+            return FormatResult.failed(reportedFile, source, configException);
+        }
+
+        final var monitor = DeadlineProgressMonitor.startingNow(this.settings.timeout());
+        boolean reusable = true;
+
+        try {
+            final String formatted = createRevisedSourceCode(style, formatter, javaFile, source, monitor);
+
+            return FormatResult.formatted(reportedFile, source, formatted);
+        } catch (InvalidSyntaxException invalidSyntaxException) {
+            return FormatResult.failed(reportedFile, source, invalidSyntaxException);
+        } catch (FileTimeoutException timeoutException) {
+            // not released: the abandoned formatting thread might still use the formatter, which is not thread-safe.
+            reusable = false;
+
+            return FormatResult.failed(reportedFile, source, timeoutException);
+        } catch (BadLocationException | CoreException formattingException) {
+            return FormatResult.failed(reportedFile, source, formattingException);
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Cancelled while formatting " + javaFile);
+        } finally {
+            // also after unexpected runtime exceptions: only a timed out formatter may still be in use.
+            if (reusable) {
+                this.formatterCache.releaseFormatter(style, formatter);
+            }
+        }
+    }
+
+    private String createRevisedSourceCode(
+        FormatterStyle style,
+        CodeFormatter formatter,
+        Path javaFile,
+        String sourceCode,
+        DeadlineProgressMonitor monitor
+    ) throws BadLocationException, CoreException, InvalidSyntaxException, FileTimeoutException, InterruptedException {
+        var unixSourceCode = sourceCode.replace("\r\n", "\n");
+        final ImportOrderProcessor importOrderProcessor = this.formatterCache.importOrderProcessor(style);
+        final FormatPhaseListener phaseListener = this.settings.phaseListener();
+
+        if (this.settings.importsOnly()) {
+            return reorderImportsOnly(importOrderProcessor, javaFile, unixSourceCode, monitor, phaseListener);
+        }
+
+        final long parseStart = System.nanoTime();
+        final CompilationUnit compilationUnit;
+        try {
+            compilationUnit = getParsedCompilationUnit(unixSourceCode, javaFile, monitor);
+        } finally {
+            phaseListener.onPhase(FormatPhaseListener.Phase.PARSE, javaFile, parseStart, System.nanoTime());
+        }
+
+        // If there are imports, reorder them deterministically, according to style.
+        final long importsStart = System.nanoTime();
+        final IDocument workingDoc = new Document(unixSourceCode);
+
+        importOrderProcessor.rewriteImportsIfAny(compilationUnit, workingDoc);
+        final long formatStart = System.nanoTime();
+        phaseListener.onPhase(FormatPhaseListener.Phase.IMPORTS, javaFile, importsStart, formatStart);
+
+        // Now format the (possibly) updated document
+        FormatterProcessor formatterProcessor =
+            createFormatterProcessor(style, formatter, compilationUnit, workingDoc.get());
+        try {
+            formatterProcessor.formatDocument(workingDoc, monitor);
+        } catch (TimeoutException timeoutException) {
+            throw new FileTimeoutException(javaFile, Objects.requireNonNull(monitor.timeout()));
+        } finally {
+            phaseListener.onPhase(FormatPhaseListener.Phase.FORMAT, javaFile, formatStart, System.nanoTime());
+        }
+
+        return workingDoc.get();
+    }
+
+    /**
+     * Reorders the imports without formatting ({@link FormatterSettings#importsOnly()}).
+     *
+     * <p>The import block is located by {@link ImportBlockScanner}, which only scans the tokens in front of the first
+     * type. Only if it cannot do so reliably, e.g. because of comments between the imports, the file is parsed.</p>
+     */
+    private static String reorderImportsOnly(
+        ImportOrderProcessor importOrderProcessor,
+        Path javaFile,
+        String unixSourceCode,
+        DeadlineProgressMonitor monitor,
+        FormatPhaseListener phaseListener
+    ) throws BadLocationException, InvalidSyntaxException, FileTimeoutException {
+        final long parseStart = System.nanoTime();
+        CompilationUnit compilationUnit;
+        try {
+            compilationUnit = ImportBlockScanner.scan(unixSourceCode);
+            if (compilationUnit == null) {
+                compilationUnit = getParsedCompilationUnit(unixSourceCode, javaFile, monitor);
+            }
+        } finally {
+            phaseListener.onPhase(FormatPhaseListener.Phase.PARSE, javaFile, parseStart, System.nanoTime());
+        }
+
+        final long importsStart = System.nanoTime();
+        final IDocument workingDoc = new Document(unixSourceCode);
+        importOrderProcessor.rewriteImportsIfAny(compilationUnit, workingDoc);
+        phaseListener.onPhase(FormatPhaseListener.Phase.IMPORTS, javaFile, importsStart, System.nanoTime());
+
+        return workingDoc.get();
+    }
+
+    private static CompilationUnit getParsedCompilationUnit(
+        String unixSourceCode,
+        Path javaFile,
+        DeadlineProgressMonitor monitor
+    ) throws InvalidSyntaxException, FileTimeoutException {
+        CompilationUnit compilationUnit = getCompilationUnitFrom(unixSourceCode, javaFile, monitor);
+
+        if (compilationUnit.getProblems() != null && compilationUnit.getProblems().length > 0) {
+            throw new InvalidSyntaxException("CompilationUnit has syntax errors", compilationUnit.getProblems());
+        }
+
+        return compilationUnit;
+    }
+
+    private FormatterProcessor createFormatterProcessor(
+        FormatterStyle style,
+        CodeFormatter formatter,
+        CompilationUnit compilationUnit,
+        String source
+    ) {
+        final long threshold = this.settings.parallelFormatThreshold();
+        if (threshold <= 0L || source.length() < threshold) {
+            return new FormatterProcessor(formatter);
+        }
+
+        final int parts = Runtime.getRuntime().availableProcessors();
+        final List<IRegion> regions = ParallelRegionFormatter.splitAtMembers(
+            compilationUnit,
+            source,
+            this.formatterCache.formatterOptions(style),
+            parts
+        );
+        if (regions.size() < 2) {
+            return new FormatterProcessor(formatter);
+        }
+
+        return new FormatterProcessor(
+            formatter,
+            new ParallelRegionFormatter(
+                () -> this.formatterCache.newFormatter(style),
+                regions
+            )
+        );
+    }
+
+    private static CompilationUnit getCompilationUnitFrom(
+        String sourceCode,
+        Path javaFile,
+        DeadlineProgressMonitor monitor
+    ) throws FileTimeoutException {
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setSource(sourceCode.toCharArray());
+        parser.setUnitName(javaFile.getFileName().toString());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+
+        // Configure compiler options
+        parser.setCompilerOptions(FormatterDefaults.parserOptions());
+
+        final CompilationUnit compilationUnit;
+        try {
+            // the monitor makes the parser stop on timeouts and on interrupts from cancellation.
+            compilationUnit = (CompilationUnit) parser.createAST(monitor);
+        } catch (OperationCanceledException canceled) {
+            if (monitor.isTimedOut()) {
+                throw new FileTimeoutException(javaFile, Objects.requireNonNull(monitor.timeout()));
+            }
+
+            throw canceled;
+        }
+        compilationUnit.recordModifications();
+
+        return compilationUnit;
+    }
+
+    private FormatResult withPermit(Supplier<FormatResult> formatting) {
+        try {
+            this.asyncPermits.acquire();
+        } catch (InterruptedException interruptedException) {
+            Thread.currentThread().interrupt();
+            throw new OperationCanceledException("Cancelled while waiting to format");
+        }
+
+        try {
+            return formatting.get();
+        } finally {
+            this.asyncPermits.release();
+        }
+    }
+
+    private static RuntimeException unwrap(CompletionException completionException) {
+        if (completionException.getCause() instanceof RuntimeException runtimeException) {
+            return runtimeException;
+        }
+
+        return completionException;
+    }
+}
@@ -0,0 +1,298 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.dom.AbstractTypeDeclaration;
+import org.eclipse.jdt.core.dom.AnnotationTypeDeclaration;
+import org.eclipse.jdt.core.dom.BodyDeclaration;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.dom.EnumDeclaration;
+import org.eclipse.jdt.core.dom.RecordDeclaration;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jdt.core.formatter.DefaultCodeFormatterConstants;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.jface.text.Region;
+import org.eclipse.text.edits.MultiTextEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Formats one very large compilation unit with several {@link CodeFormatter}s at once.
+ *
+ * <p>The source is split into contiguous regions at member boundaries of the top-level types. Each region is
+ * formatted by its own formatter (they are not thread-safe) using the region-based
+ * {@link CodeFormatter#format(int, String, IRegion[], int, String)}. Every formatter still parses the whole unit, but
+ * line wrapping, by far the most expensive step, only runs inside its region.</p>
+ *
+ * <p>JDT derives the indentation of a region from the original indentation of the code in front of it and indents
+ * the region relative to that. Regions are therefore only split in front of members which begin on their own line
+ * <em>and</em> whose line, as well as the line in front of them, is already indented the way the formatter would
+ * indent the member. The split happens right after the last token (or comment) in front of the member, so the blank
+ * lines before it belong to the member's region. Badly indented
+ * units are simply split less often, or not at all. If the edits of the regions overlap anyway,
+ * {@link #format(String)} gives up and the caller formats the unit single-threaded.</p>
+ */
+final class ParallelRegionFormatter {
+
+    private final Supplier<CodeFormatter> formatterFactory;
+
+    private final List<IRegion> regions;
+
+    /**
+     * Creates a formatter for the given regions.
+     *
+     * @param formatterFactory
+     *     creates one formatter per region.
+     * @param regions
+     *     contiguous regions covering the whole source, see {@link #splitAtMembers}.
+     */
+    public ParallelRegionFormatter(Supplier<CodeFormatter> formatterFactory, List<IRegion> regions) {
+        this.formatterFactory = formatterFactory;
+        this.regions = List.copyOf(regions);
+    }
+
+    /**
+     * Splits the source into up to {@code parts} regions of similar size, at member boundaries.
+     *
+     * @param compilationUnit
+     *     the parsed unit.
+     * @param source
+     *     the source which will be formatted. It may differ from the parsed source before the first type (e.g. by
+     *     reordered imports), but must be identical from there on.
+     * @param formatterOptions
+     *     the options of the formatters, used to tell which members are already indented correctly.
+     * @param parts
+     *     the maximum number of regions.
+     * @return contiguous regions covering the whole source, a single region if it cannot be split.
+     */
+    public static List<IRegion> splitAtMembers(
+        CompilationUnit compilationUnit,
+        String source,
+        Map<String, String> formatterOptions,
+        int parts
+    ) {
+        if (parts < 2) {
+            return List.of(new Region(0, source.length()));
+        }
+
+        // everything from the first type on only moved by the length change of the import section.
+        final int shift = source.length() - compilationUnit.getLength();
+        final List<Integer> candidates = memberStarts(compilationUnit, source, formatterOptions, shift);
+
+        if (candidates.isEmpty()) {
+            return List.of(new Region(0, source.length()));
+        }
+
+        final List<IRegion> regions = new ArrayList<>(parts);
+        final int targetLength = source.length() / parts;
+        int regionStart = 0;
+
+        for (int candidate : candidates) {
+            if (candidate - regionStart >= targetLength && regions.size() < parts - 1) {
+                regions.add(new Region(regionStart, candidate - regionStart));
+                regionStart = candidate;
+            }
+        }
+
+        regions.add(new Region(regionStart, source.length() - regionStart));
+
+        return List.copyOf(regions);
+    }
+
+    private static List<Integer> memberStarts(
+        CompilationUnit compilationUnit,
+        String source,
+        Map<String, String> formatterOptions,
+        int shift
+    ) {
+        final CodeFormatter indenter = ToolFactory.createCodeFormatter(formatterOptions);
+        final List<Integer> starts = new ArrayList<>();
+
+        for (Object type : compilationUnit.types()) {
+            final AbstractTypeDeclaration typeDeclaration = (AbstractTypeDeclaration) type;
+            addIfOnOwnLine(starts, source, typeDeclaration.getStartPosition() + shift, "");
+
+            final String memberIndentation = indenter.createIndentationString(
+                bodyIndentationLevel(typeDeclaration, formatterOptions)
+            );
+            for (Object member : typeDeclaration.bodyDeclarations()) {
+                addIfOnOwnLine(
+                    starts,
+                    source,
+                    ((BodyDeclaration) member).getStartPosition() + shift,
+                    memberIndentation
+                );
+            }
+        }
+
+        starts.removeIf(start -> start <= 0);
+        starts.sort(Comparator.naturalOrder());
+
+        return starts;
+    }
+
+    private static int bodyIndentationLevel(AbstractTypeDeclaration type, Map<String, String> formatterOptions) {
+        final String option = bodyIndentationOption(type);
+
+        return DefaultCodeFormatterConstants.FALSE.equals(formatterOptions.get(option)) ? 0 : 1;
+    }
+
+    private static String bodyIndentationOption(AbstractTypeDeclaration type) {
+        if (type instanceof EnumDeclaration) {
+            return DefaultCodeFormatterConstants.FORMATTER_INDENT_BODY_DECLARATIONS_COMPARE_TO_ENUM_DECLARATION_HEADER;
+        }
+
+        if (type instanceof AnnotationTypeDeclaration) {
+            return DefaultCodeFormatterConstants.FORMATTER_INDENT_BODY_DECLARATIONS_COMPARE_TO_ANNOTATION_DECLARATION_HEADER;
+        }
+
+        if (type instanceof RecordDeclaration) {
+            return DefaultCodeFormatterConstants.FORMATTER_INDENT_BODY_DECLARATIONS_COMPARE_TO_RECORD_HEADER;
+        }
+
+        return DefaultCodeFormatterConstants.FORMATTER_INDENT_BODY_DECLARATIONS_COMPARE_TO_TYPE_HEADER;
+    }
+
+    private static void addIfOnOwnLine(List<Integer> starts, String source, int start, String expectedIndentation) {
+        if (start <= 0 || start >= source.length()) {
+            return;
+        }
+
+        int previousEnd = start;
+        while (previousEnd > 0 && Character.isWhitespace(source.charAt(previousEnd - 1))) {
+            previousEnd--;
+        }
+
+        // splitting in the middle of a line (e.g. two fields on one line) would make the wrapping differ.
+        if (previousEnd == 0 || source.indexOf('\n', previousEnd) >= start) {
+            return;
+        }
+
+        // JDT derives the indentation of a region from the line in front of it, so both must already be right.
+        if (
+            !hasIndentation(source, start, expectedIndentation)
+                || !hasIndentation(source, previousEnd - 1, expectedIndentation)
+        ) {
+            return;
+        }
+
+        starts.add(previousEnd);
+    }
+
+    private static boolean hasIndentation(String source, int position, String expectedIndentation) {
+        final int lineStart = source.lastIndexOf('\n', position) + 1;
+        final int indentationEnd = lineStart + expectedIndentation.length();
+
+        return source.startsWith(expectedIndentation, lineStart)
+            && indentationEnd < source.length()
+            && !Character.isWhitespace(source.charAt(indentationEnd));
+    }
+
+    public List<IRegion> regions() {
+        return this.regions;
+    }
+
+    /**
+     * Formats all regions concurrently and merges their edits.
+     *
+     * @param source
+     *     the source to format.
+     * @return the merged edit, or {@code null} if the region edits overlap and the unit must be formatted as a whole.
+     * @throws InterruptedException
+     *     if interrupted while waiting for the regions.
+     */
+    public @Nullable TextEdit format(String source) throws InterruptedException {
+        // not a StructuredTaskScope: it is a preview API, and jfmt-core must be usable without --enable-preview.
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            final List<Future<TextEdit>> regionEdits = new ArrayList<>(this.regions.size());
+            for (IRegion region : this.regions) {
+                regionEdits.add(executor.submit(() -> formatRegion(source, region)));
+            }
+
+            final List<TextEdit> edits = new ArrayList<>(regionEdits.size());
+            for (Future<TextEdit> regionEdit : regionEdits) {
+                edits.add(await(regionEdit, executor));
+            }
+
+            return merge(source, edits);
+        }
+    }
+
+    /// Like {@code Joiner.allSuccessfulOrThrow()}: the first failure cancels the other regions.
+    private static TextEdit await(Future<TextEdit> regionEdit, ExecutorService executor)
+        throws InterruptedException {
+        try {
+            return regionEdit.get();
+        } catch (InterruptedException interruptedException) {
+            executor.shutdownNow();
+            throw interruptedException;
+        } catch (ExecutionException executionException) {
+            executor.shutdownNow();
+
+            if (executionException.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+
+            throw new IllegalStateException("Formatting a region failed", executionException.getCause());
+        }
+    }
+
+    private TextEdit formatRegion(String source, IRegion region) {
+        final TextEdit edit = this.formatterFactory.get()
+            .format(CodeFormatter.K_COMPILATION_UNIT, source, new IRegion[] { region }, 0, "\n");
+
+        if (edit == null) {
+            throw new IllegalStateException("Formatting edits must not be null.");
+        }
+
+        return edit;
+    }
+
+    static @Nullable TextEdit merge(String source, List<TextEdit> regionEdits) {
+        final List<TextEdit> edits = new ArrayList<>();
+        for (TextEdit regionEdit : regionEdits) {
+            flatten(regionEdit, edits);
+        }
+
+        edits.sort(Comparator.comparingInt(TextEdit::getOffset).thenComparingInt(TextEdit::getLength));
+
+        final MultiTextEdit merged = new MultiTextEdit(0, source.length());
+        @Nullable
+        TextEdit previous = null;
+
+        for (TextEdit edit : edits) {
+            if (previous != null && edit.getOffset() < previous.getExclusiveEnd()) {
+                return null;
+            }
+
+            // empty insertions at the same offset would be applied in an arbitrary order.
+            if (previous != null && edit.getLength() == 0 && edit.getOffset() == previous.getOffset()) {
+                return null;
+            }
+
+            merged.addChild(edit);
+            previous = edit;
+        }
+
+        return merged;
+    }
+
+    private static void flatten(TextEdit edit, List<TextEdit> target) {
+        if (!(edit instanceof MultiTextEdit)) {
+            target.add(edit);
+            return;
+        }
+
+        for (TextEdit child : edit.removeChildren()) {
+            flatten(child, target);
+        }
+    }
+}
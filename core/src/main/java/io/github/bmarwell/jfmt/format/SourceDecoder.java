@@ -0,0 +1,39 @@
+package io.github.bmarwell.jfmt.format;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the bytes of a Java source file.
+ *
+ * <p>Sources are expected to be UTF-8. Files which are not valid UTF-8 are decoded as ISO-8859-1, which never fails
+ * and keeps all bytes, so that at least the formatting does not garble them.</p>
+ */
+public final class SourceDecoder {
+
+    private SourceDecoder() {
+        // utility class
+    }
+
+    /**
+     * Decodes the remaining bytes of the buffer, without changing its position.
+     *
+     * @param bytes
+     *     the content of a source file, e.g. a direct or mapped buffer.
+     * @return the source code.
+     */
+    public static String decode(ByteBuffer bytes) {
+        try {
+            // Simple UTF-8 validity check
+            return StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .decode(bytes.duplicate())
+                .toString();
+        } catch (CharacterCodingException e) {
+            // Otherwise, assume ISO-8859-1 or CP1252 (safe Latin fallbacks)
+            return StandardCharsets.ISO_8859_1.decode(bytes.duplicate()).toString();
+        }
+    }
+}
@@ -1,9 +1,11 @@
 package io.github.bmarwell.jfmt.imports;
 
+import io.github.bmarwell.jfmt.config.BundledConfigs;
+import io.github.bmarwell.jfmt.config.ConfigFileCache;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -11,12 +13,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
-/** Utility to load Eclipse JDT import order tokens from resources or files. */
+/**
+ * Utility to load Eclipse JDT import order tokens from resources or files.
+ *
+ * <p>Import order files are parsed again only when their content changed (see {@link ConfigFileCache}).</p>
+ */
 public class ImportOrderLoader {
 
+    private static final ConfigFileCache<ImportOrderConfiguration> IMPORT_ORDER_FILES =
+        new ConfigFileCache<>(ImportOrderLoader::parse);
+
     public ImportOrderLoader() {}
 
     public ImportOrderConfiguration loadFromResource(String resourcePath) {
+        // the bundled import orders are compiled in at build time.
+        final List<String> bundled = BundledConfigs.importOrderGroups(resourcePath);
+        if (bundled != null) {
+            return fromGroups(bundled);
+        }
+
         try (InputStream in = ImportOrderLoader.class.getResourceAsStream(resourcePath)) {
             if (in == null)
                 return ImportOrderConfiguration.empty();
@@ -27,11 +42,7 @@ public class ImportOrderLoader {
     }
 
     public ImportOrderConfiguration loadFromFile(Path propsFile) {
-        try (InputStream in = Files.newInputStream(propsFile)) {
-            return readTokens(in);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        return IMPORT_ORDER_FILES.load(propsFile);
     }
 
     public ImportOrderConfiguration readTokens(InputStream in) throws IOException {
@@ -49,11 +60,30 @@ public class ImportOrderLoader {
         // make sure the user did not mess up the order :)
         entries.sort(Map.Entry.comparingByKey());
 
+        return fromGroups(entries.stream().map(Map.Entry::getValue).toList());
+    }
+
+    private static ImportOrderConfiguration parse(byte[] content) {
+        try {
+            return new ImportOrderLoader().readTokens(new ByteArrayInputStream(content));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates the configuration from the values of an import order file, in order.
+     *
+     * @param groups
+     *     one value per group, with the prefixes of a group separated by {@code |}.
+     * @return the import order configuration.
+     */
+    static ImportOrderConfiguration fromGroups(List<String> groups) {
         // collect found groups
-        List<ImportOrderConfiguration.ImportOrderGroup> result = new ArrayList<>(entries.size());
+        List<ImportOrderConfiguration.ImportOrderGroup> result = new ArrayList<>(groups.size());
 
-        for (Map.Entry<Integer, String> e : entries) {
-            java.util.List<String> prefixes = Arrays.asList(e.getValue().split("\\|"));
+        for (String group : groups) {
+            java.util.List<String> prefixes = Arrays.asList(group.split("\\|"));
 
             result.add(new ImportOrderConfiguration.ImportOrderGroup(prefixes));
         }
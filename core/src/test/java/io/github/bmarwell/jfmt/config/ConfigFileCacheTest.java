@@ -0,0 +1,85 @@
+package io.github.bmarwell.jfmt.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConfigFileCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void file_with_the_same_size_and_modification_time_is_not_read_again() throws IOException {
+        // given
+        var parsed = new AtomicInteger();
+        var cache = new ConfigFileCache<>(content -> {
+            parsed.incrementAndGet();
+            return new String(content, StandardCharsets.UTF_8);
+        });
+        var lastModified = FileTime.from(Instant.now().minus(Duration.ofHours(1)));
+        var file = write("four", lastModified);
+        var first = cache.load(file);
+
+        // when
+        write("five", lastModified);
+        var second = cache.load(file);
+
+        // then
+        assertSame(first, second);
+        assertEquals("four", second);
+        assertEquals(1, parsed.get());
+    }
+
+    @Test
+    void file_modified_shortly_before_it_was_read_is_read_again() throws IOException {
+        // given
+        var cache = new ConfigFileCache<>(content -> new String(content, StandardCharsets.UTF_8));
+        var lastModified = FileTime.from(Instant.now());
+        var file = write("four", lastModified);
+        cache.load(file);
+
+        // when
+        write("five", lastModified);
+        var second = cache.load(file);
+
+        // then
+        assertEquals("five", second);
+    }
+
+    @Test
+    void file_with_an_other_modification_time_but_the_same_content_is_not_parsed_again() throws IOException {
+        // given
+        var parsed = new AtomicInteger();
+        var cache = new ConfigFileCache<>(content -> {
+            parsed.incrementAndGet();
+            return new String(content, StandardCharsets.UTF_8);
+        });
+        var file = write("four", FileTime.from(Instant.now().minus(Duration.ofHours(2))));
+        var first = cache.load(file);
+
+        // when
+        write("four", FileTime.from(Instant.now().minus(Duration.ofHours(1))));
+        var second = cache.load(file);
+
+        // then
+        assertSame(first, second);
+        assertEquals(1, parsed.get());
+    }
+
+    private Path write(String content, FileTime lastModified) throws IOException {
+        var file = Files.writeString(this.tempDir.resolve("config.txt"), content);
+
+        return Files.setLastModifiedTime(file, lastModified);
+    }
+}
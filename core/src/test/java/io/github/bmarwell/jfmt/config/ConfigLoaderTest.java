@@ -0,0 +1,72 @@
+package io.github.bmarwell.jfmt.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import javax.xml.stream.XMLStreamException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class ConfigLoaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @ParameterizedTest
+    @EnumSource(NamedConfig.class)
+    void bundled_config_equals_parsed_xml(NamedConfig value) throws IOException, XMLStreamException {
+        // given
+        final Map<String, String> parsed;
+        try (InputStream in = ConfigLoader.class.getResourceAsStream(value.getResourcePath())) {
+            assertNotNull(in);
+            parsed = ConfigLoader.loadConfig(in);
+        }
+
+        // when
+        final Map<String, String> bundled = ConfigLoader.load(value.getResourcePath());
+
+        // then
+        assertEquals(parsed, bundled);
+    }
+
+    @Test
+    void config_file_is_parsed_again_only_when_changed() throws IOException {
+        // given
+        final Path configFile = this.tempDir.resolve("formatter.xml");
+        writeConfig(configFile, "4");
+        final Map<String, String> first = ConfigLoader.load(configFile);
+
+        // when
+        final Map<String, String> unchanged = ConfigLoader.load(configFile);
+        writeConfig(configFile, "8");
+        final Map<String, String> changed = ConfigLoader.load(configFile);
+
+        // then
+        assertSame(first, unchanged);
+        assertEquals("4", first.get("org.eclipse.jdt.core.formatter.tabulation.size"));
+        assertEquals("8", changed.get("org.eclipse.jdt.core.formatter.tabulation.size"));
+    }
+
+    private static void writeConfig(Path configFile, String tabSize) throws IOException {
+        // same length and (possibly) same modification time, only the checksum differs.
+        Files.writeString(
+            configFile,
+            """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <profiles version="23">
+              <profile kind="CodeFormatterProfile" name="test" version="23">
+                <setting id="org.eclipse.jdt.core.formatter.tabulation.size" value="%s"/>
+              </profile>
+            </profiles>
+            """.formatted(tabSize)
+        );
+    }
+}
@@ -0,0 +1,40 @@
+package io.github.bmarwell.jfmt.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.bmarwell.jfmt.imports.ImportOrderLoader;
+import io.github.bmarwell.jfmt.imports.NamedImportOrder;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+class FormatterDefaultsTest {
+
+    @Test
+    void parser_options_use_latest_language_level_and_are_immutable() {
+        // when
+        var options = FormatterDefaults.parserOptions();
+
+        // then
+        assertEquals(String.valueOf(AST.getJLSLatest()), options.get(JavaCore.COMPILER_SOURCE));
+        assertThrows(UnsupportedOperationException.class, () -> options.put(JavaCore.COMPILER_SOURCE, "1.8"));
+    }
+
+    @ParameterizedTest
+    @EnumSource(NamedConfig.class)
+    void formatter_options_equal_loaded_config(NamedConfig config) {
+        assertEquals(ConfigLoader.load(config.getResourcePath()), FormatterDefaults.formatterOptions(config));
+    }
+
+    @ParameterizedTest
+    @EnumSource(NamedImportOrder.class)
+    void import_order_equals_loaded_import_order(NamedImportOrder importOrder) {
+        assertEquals(
+            new ImportOrderLoader().loadFromResource(importOrder.getResourcePath()),
+            FormatterDefaults.importOrder(importOrder)
+        );
+    }
+}
@@ -0,0 +1,137 @@
+package io.github.bmarwell.jfmt.config;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StyleResolverTest {
+
+    private static final FormatterStyle DEFAULTS =
+        new FormatterStyle(CliNamedConfig.builtin, null, CliNamedImportOrder.defaultorder, null);
+
+    @TempDir
+    Path tree;
+
+    @Test
+    void settings_are_inherited_down_the_tree() throws IOException {
+        // given
+        writeConfig(this.tree, "import-order = google");
+        writeConfig(this.tree.resolve("module"), "config = equalsverifier");
+        var resolver = new StyleResolver(DEFAULTS, StyleOverrides.none());
+
+        // when
+        var style = resolver.resolve(this.tree.resolve("module/src/A.java"));
+
+        // then
+        assertEquals(CliNamedConfig.equalsverifier, style.config());
+        assertEquals(CliNamedImportOrder.google, style.importOrder());
+    }
+
+    @Test
+    void root_stops_inheritance_and_paths_are_relative_to_the_config_file() throws IOException {
+        // given
+        writeConfig(this.tree, "import-order = google");
+        writeConfig(this.tree.resolve("module"), "root = true\nconfig-file = style/formatter.xml");
+        var resolver = new StyleResolver(DEFAULTS, StyleOverrides.none());
+
+        // when
+        var style = resolver.resolve(this.tree.resolve("module/A.java"));
+
+        // then
+        assertEquals(CliNamedImportOrder.defaultorder, style.importOrder());
+        assertEquals(this.tree.resolve("module/style/formatter.xml").toAbsolutePath(), style.configFile());
+    }
+
+    @Test
+    void named_config_replaces_inherited_config_file() throws IOException {
+        // given
+        writeConfig(this.tree, "config-file = formatter.xml");
+        writeConfig(this.tree.resolve("module"), "config = equalsverifier");
+        var resolver = new StyleResolver(DEFAULTS, StyleOverrides.none());
+
+        // when
+        var style = resolver.resolve(this.tree.resolve("module/A.java"));
+
+        // then
+        assertEquals(CliNamedConfig.equalsverifier, style.config());
+        assertNull(style.configFile());
+    }
+
+    @Test
+    void invalidate_reads_changed_config_files_again() throws IOException {
+        // given
+        writeConfig(this.tree, "import-order = google");
+        var resolver = new StyleResolver(DEFAULTS, StyleOverrides.none());
+        resolver.resolve(this.tree.resolve("A.java"));
+        writeConfig(this.tree, "import-order = apache");
+
+        // when
+        var cached = resolver.resolve(this.tree.resolve("A.java"));
+        resolver.invalidate();
+        var reread = resolver.resolve(this.tree.resolve("A.java"));
+
+        // then
+        assertEquals(CliNamedImportOrder.google, cached.importOrder());
+        assertEquals(CliNamedImportOrder.apache, reread.importOrder());
+    }
+
+    @Test
+    void explicit_command_line_options_override_all_config_files() throws IOException {
+        // given
+        writeConfig(this.tree, "import-order = google\nconfig = equalsverifier");
+        var commandLine = new StyleOverrides(null, null, CliNamedImportOrder.apache, null, false);
+        var resolver = new StyleResolver(DEFAULTS, commandLine);
+
+        // when
+        var style = resolver.resolve(this.tree.resolve("A.java"));
+
+        // then
+        assertEquals(CliNamedImportOrder.apache, style.importOrder());
+        assertEquals(CliNamedConfig.equalsverifier, style.config());
+    }
+
+    @Test
+    void styles_are_memoized_per_directory() throws IOException {
+        // given
+        writeConfig(this.tree, "import-order = google");
+        var resolver = new StyleResolver(DEFAULTS, StyleOverrides.none());
+        var first = resolver.resolve(this.tree.resolve("A.java"));
+
+        // when
+        Files.delete(this.tree.resolve(StyleResolver.CONFIG_FILE_NAME));
+        var second = resolver.resolve(this.tree.resolve("B.java"));
+
+        // then
+        assertEquals(CliNamedImportOrder.google, second.importOrder());
+        assertEquals(first, second);
+    }
+
+    @Test
+    void unknown_names_are_reported_with_the_file() throws IOException {
+        // given
+        writeConfig(this.tree, "import-order = nonexistent");
+        var resolver = new StyleResolver(DEFAULTS, StyleOverrides.none());
+
+        // when
+        var exception =
+            assertThrows(IllegalArgumentException.class, () -> resolver.resolve(this.tree.resolve("A.java")));
+
+        // then
+        assertEquals(
+            "Unknown import-order 'nonexistent' in " + this.tree.resolve(StyleResolver.CONFIG_FILE_NAME),
+            exception.getMessage()
+        );
+    }
+
+    private static void writeConfig(Path directory, String content) throws IOException {
+        Files.createDirectories(directory);
+        Files.writeString(directory.resolve(StyleResolver.CONFIG_FILE_NAME), content);
+    }
+}
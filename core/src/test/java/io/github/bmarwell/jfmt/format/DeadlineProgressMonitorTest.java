@@ -0,0 +1,56 @@
+package io.github.bmarwell.jfmt.format;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class DeadlineProgressMonitorTest {
+
+    @AfterEach
+    void clearInterrupt() {
+        // make sure an interrupt set by a test does not leak into other tests
+        Thread.interrupted();
+    }
+
+    @Test
+    void without_timeout_is_not_cancelled() {
+        // given
+        var monitor = DeadlineProgressMonitor.startingNow(null);
+
+        // expect
+        assertFalse(monitor.hasDeadline());
+        assertFalse(monitor.isCanceled());
+        assertEquals(Duration.ZERO, monitor.remaining());
+    }
+
+    @Test
+    void is_cancelled_once_deadline_passed() throws InterruptedException {
+        // given
+        var monitor = DeadlineProgressMonitor.startingNow(Duration.ofMillis(1));
+
+        // when
+        Thread.sleep(5);
+
+        // then
+        assertTrue(monitor.isTimedOut());
+        assertTrue(monitor.isCanceled());
+        assertEquals(Duration.ZERO, monitor.remaining());
+    }
+
+    @Test
+    void is_cancelled_when_thread_is_interrupted() {
+        // given
+        var monitor = DeadlineProgressMonitor.startingNow(Duration.ofMinutes(1));
+
+        // when
+        Thread.currentThread().interrupt();
+
+        // then
+        assertTrue(monitor.isCanceled(), "interrupts from fail-fast cancellation must cancel parsing");
+        assertFalse(monitor.isTimedOut(), "an interrupt is not a timeout");
+    }
+}
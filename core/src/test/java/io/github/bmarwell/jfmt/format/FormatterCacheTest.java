@@ -0,0 +1,161 @@
+package io.github.bmarwell.jfmt.format;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class FormatterCacheTest {
+
+    private static final FormatterStyle BUILTIN =
+        new FormatterStyle(CliNamedConfig.builtin, null, CliNamedImportOrder.defaultorder, null);
+
+    private static final FormatterStyle EQUALSVERIFIER =
+        new FormatterStyle(CliNamedConfig.equalsverifier, null, CliNamedImportOrder.equalsverifier, null);
+
+    private static final String TAB_SIZE = "org.eclipse.jdt.core.formatter.tabulation.size";
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void released_formatters_are_reused() {
+        // given
+        var cache = new FormatterCache();
+        var first = cache.acquireFormatter(BUILTIN);
+
+        // when
+        var concurrent = cache.acquireFormatter(BUILTIN);
+        cache.releaseFormatter(BUILTIN, first);
+        var next = cache.acquireFormatter(BUILTIN);
+
+        // then
+        assertNotSame(first, concurrent);
+        assertSame(first, next);
+    }
+
+    @Test
+    void import_order_processors_are_shared_per_style() {
+        // given
+        var cache = new FormatterCache();
+
+        // when
+        var builtin = cache.importOrderProcessor(BUILTIN);
+        var equalsverifier = cache.importOrderProcessor(EQUALSVERIFIER);
+
+        // then
+        assertSame(builtin, cache.importOrderProcessor(BUILTIN));
+        assertNotSame(builtin, equalsverifier);
+    }
+
+    @Test
+    void least_recently_used_style_is_evicted() {
+        // given
+        var cache = new FormatterCache(1);
+        var processor = cache.importOrderProcessor(BUILTIN);
+
+        // when
+        cache.importOrderProcessor(EQUALSVERIFIER);
+
+        // then
+        // bundled options are compile-time constants, so look at the processor created per entry.
+        assertNotSame(processor, cache.importOrderProcessor(BUILTIN), "style should have been loaded again");
+    }
+
+    @Test
+    void idle_formatters_beyond_the_limit_are_dropped() {
+        // given
+        var cache = new FormatterCache(FormatterCache.DEFAULT_MAX_STYLES, 1);
+        var first = cache.acquireFormatter(BUILTIN);
+        var second = cache.acquireFormatter(BUILTIN);
+
+        // when
+        cache.releaseFormatter(BUILTIN, first);
+        cache.releaseFormatter(BUILTIN, second);
+
+        // then
+        assertSame(first, cache.acquireFormatter(BUILTIN));
+        assertNotSame(second, cache.acquireFormatter(BUILTIN), "pool should have been full");
+    }
+
+    @Test
+    void changed_config_file_is_loaded_again() throws IOException {
+        // given
+        var configFile = writeConfig("4");
+        var style = new FormatterStyle(CliNamedConfig.builtin, configFile, CliNamedImportOrder.defaultorder, null);
+        var cache = new FormatterCache();
+        var before = cache.acquireFormatter(style);
+
+        // when
+        writeConfig("8");
+        cache.recheckConfigFiles();
+        var after = cache.acquireFormatter(style);
+        cache.releaseFormatter(style, before);
+
+        // then
+        assertNotSame(before, after);
+        assertEquals("8", cache.formatterOptions(style).get(TAB_SIZE));
+        assertNotSame(before, cache.acquireFormatter(style), "formatter of the old config should not be pooled");
+    }
+
+    @Test
+    void rewritten_but_unchanged_config_file_keeps_the_pooled_formatters() throws IOException {
+        // given
+        var configFile = writeConfig("4");
+        var style = new FormatterStyle(CliNamedConfig.builtin, configFile, CliNamedImportOrder.defaultorder, null);
+        var cache = new FormatterCache();
+        var first = cache.acquireFormatter(style);
+        cache.releaseFormatter(style, first);
+
+        // when
+        writeConfig("4");
+
+        // then
+        assertSame(first, cache.acquireFormatter(style));
+    }
+
+    @Test
+    void config_files_are_checked_once_per_run() throws IOException {
+        // given
+        var configFile = writeConfig("4");
+        var style = new FormatterStyle(CliNamedConfig.builtin, configFile, CliNamedImportOrder.defaultorder, null);
+        var cache = new FormatterCache();
+        var first = cache.acquireFormatter(style);
+        cache.releaseFormatter(style, first);
+
+        // when
+        writeConfig("8");
+        var sameRun = cache.acquireFormatter(style);
+        cache.releaseFormatter(style, sameRun);
+        cache.recheckConfigFiles();
+        var nextRun = cache.acquireFormatter(style);
+
+        // then
+        assertSame(first, sameRun, "config file should not have been checked again in the same run");
+        assertNotSame(first, nextRun);
+        assertEquals("8", cache.formatterOptions(style).get(TAB_SIZE));
+    }
+
+    private Path writeConfig(String tabSize) throws IOException {
+        // same length for each tab size: only the checksum tells the versions apart.
+        return Files.writeString(
+            this.tempDir.resolve("formatter.xml"),
+            """
+            <?xml version="1.0" encoding="UTF-8" standalone="no"?>
+            <profiles version="23">
+              <profile kind="CodeFormatterProfile" name="test" version="23">
+                <setting id="org.eclipse.jdt.core.formatter.tabulation.size" value="%s"/>
+              </profile>
+            </profiles>
+            """.formatted(tabSize)
+        );
+    }
+}
@@ -0,0 +1,112 @@
+package io.github.bmarwell.jfmt.format;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import io.github.bmarwell.jfmt.imports.ImportOrderLoader;
+import io.github.bmarwell.jfmt.imports.NamedImportOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ImportBlockScannerTest {
+
+    private static CompilationUnit parse(String source) {
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setSource(source.toCharArray());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.latestSupportedJavaVersion(), options);
+        parser.setCompilerOptions(options);
+
+        return (CompilationUnit) parser.createAST(null);
+    }
+
+    private static String reorder(NamedImportOrder importOrder, CompilationUnit compilationUnit, String source)
+        throws Exception {
+        var configuration = new ImportOrderLoader().loadFromResource(importOrder.getResourcePath());
+        IDocument document = new Document(source);
+        new ImportOrderProcessor(configuration).rewriteImportsIfAny(compilationUnit, document);
+
+        return document.get();
+    }
+
+    @ParameterizedTest
+    @EnumSource(NamedImportOrder.class)
+    void scanned_imports_are_reordered_like_parsed_ones(NamedImportOrder importOrder) throws Exception {
+        for (String name : new String[] {
+            "AbstractCommandLike.java",
+            "MavenCore.java",
+            "MixedImports.java",
+            "StaticImportsAtEnd.java"
+        }) {
+            // given
+            String source = Files.readString(Path.of("src/test/resources/imports", name)).replace("\r\n", "\n");
+
+            // when
+            CompilationUnit scanned = ImportBlockScanner.scan(source);
+
+            // then
+            assertNotNull(scanned, name + " should be scanned without parsing");
+            assertEquals(reorder(importOrder, parse(source), source), reorder(importOrder, scanned, source), name);
+        }
+    }
+
+    @Test
+    void scans_static_and_on_demand_imports_in_front_of_a_javadoc() throws Exception {
+        // given
+        String source = """
+                        // header
+                        package a;
+
+                        import java.util.*;
+                        import org.example.Z;
+                        import static java.util.Map.*;
+                        import com.example.A;
+
+                        /** Javadoc of the type. */
+                        class A {}
+                        """;
+
+        // when
+        CompilationUnit scanned = ImportBlockScanner.scan(source);
+
+        // then
+        assertNotNull(scanned);
+        assertEquals(parse(source).imports().toString(), scanned.imports().toString());
+        assertEquals(
+            reorder(NamedImportOrder.defaultorder, parse(source), source),
+            reorder(NamedImportOrder.defaultorder, scanned, source)
+        );
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "package a;\n\nimport b.B; // trailing\nimport c.C;\n\nclass A {}\n",
+            "package a;\n\nimport b.B;\n// leading\nimport c.C;\n\nclass A {}\n",
+            "// header attached to the first import\nimport b.B;\n\nclass A {}\n",
+            "package a;\n\nimport module java.base;\n\nclass A {}\n",
+            "@Deprecated\npackage a;\n\nimport b.B;\n",
+            "package a;\n\nimport b.B;\n\n// comment\nclass A {}\n",
+        }
+    )
+    void falls_back_when_comments_or_unusual_declarations_are_around(String source) {
+        // when
+        CompilationUnit scanned = ImportBlockScanner.scan(source);
+
+        // then
+        assertNull(scanned);
+    }
+}
@@ -1,4 +1,4 @@
-package io.github.bmarwell.jfmt.commands;
+package io.github.bmarwell.jfmt.format;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -0,0 +1,242 @@
+package io.github.bmarwell.jfmt.format;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JFmtFormatterTest {
+
+    private static final String UNFORMATTED = "package a;\nimport java.util.List;\nclass A{List<String> l;}\n";
+
+    private static final String FORMATTED =
+        "package a;\n\nimport java.util.List;\n\nclass A {\n    List<String> l;\n}\n";
+
+    private final JFmtFormatter formatter = JFmtFormatter.create(FormatterStyle.defaults());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void formats_char_sequence() {
+        // when
+        var result = this.formatter.format(new StringBuilder(UNFORMATTED));
+
+        // then
+        assertTrue(result.succeeded());
+        assertTrue(result.changed());
+        assertNull(result.file());
+        assertEquals(FORMATTED, result.formatted());
+    }
+
+    @Test
+    void formatted_source_is_unchanged() {
+        // when
+        var result = this.formatter.format(FORMATTED);
+
+        // then
+        assertTrue(result.succeeded());
+        assertFalse(result.changed());
+    }
+
+    @Test
+    void syntax_errors_are_reported_as_failure() {
+        // when
+        var result = this.formatter.format("class A { void broken( }");
+
+        // then
+        assertFalse(result.succeeded());
+        assertFalse(result.changed());
+        assertInstanceOf(InvalidSyntaxException.class, result.failure().orElseThrow());
+    }
+
+    @Test
+    void unreadable_file_is_reported_as_failure() {
+        // when
+        var result = this.formatter.format(this.tempDir.resolve("Missing.java"));
+
+        // then
+        assertInstanceOf(IOException.class, result.failure().orElseThrow());
+    }
+
+    @Test
+    void invalid_config_files_are_reported_as_failure() throws IOException {
+        // given
+        Files.writeString(this.tempDir.resolve(StyleResolver.CONFIG_FILE_NAME), "config = unknown");
+        var resolving = JFmtFormatter.create(
+            FormatterSettings.of(new StyleResolver(FormatterStyle.defaults(), StyleOverrides.none()))
+        );
+
+        // when
+        var result = resolving.format(this.tempDir.resolve("A.java"), UNFORMATTED);
+
+        // then
+        assertInstanceOf(IllegalArgumentException.class, result.failure().orElseThrow());
+        assertEquals(UNFORMATTED, result.formatted());
+    }
+
+    @Test
+    void imports_only_does_not_format() {
+        // given
+        var importsOnly = JFmtFormatter.create(FormatterSettings.of(FormatterStyle.defaults()).withImportsOnly(true));
+        var source = "package a;\nimport java.util.Map;\nimport java.util.List;\nclass A{}\n";
+
+        // when
+        var result = importsOnly.format(source);
+
+        // then
+        assertEquals("package a;\nimport java.util.List;\nimport java.util.Map;\n\nclass A{}\n", result.formatted());
+    }
+
+    @Test
+    void reports_each_phase_in_order() {
+        // given
+        var phases = new CopyOnWriteArrayList<FormatPhaseListener.Phase>();
+        var settings = FormatterSettings.of(FormatterStyle.defaults())
+            .withPhaseListener((phase, javaFile, startNanos, endNanos) -> {
+                assertTrue(startNanos <= endNanos);
+                phases.add(phase);
+            });
+
+        // when
+        JFmtFormatter.create(settings).format(UNFORMATTED);
+
+        // then
+        assertEquals(
+            List.of(
+                FormatPhaseListener.Phase.PARSE,
+                FormatPhaseListener.Phase.IMPORTS,
+                FormatPhaseListener.Phase.FORMAT
+            ),
+            phases
+        );
+    }
+
+    @Test
+    void formats_files_asynchronously() throws IOException {
+        // given
+        var javaFile = writeFile("A.java", UNFORMATTED);
+
+        // when
+        CompletableFuture<FormatResult> future = this.formatter.formatAsync(javaFile);
+
+        // then
+        var result = future.join();
+        assertEquals(javaFile, result.file());
+        assertEquals(FORMATTED, result.formatted());
+    }
+
+    @Test
+    void formats_all_files_in_order() throws IOException {
+        // given
+        var files = List.of(
+            writeFile("A.java", UNFORMATTED),
+            writeFile("B.java", FORMATTED),
+            writeFile("C.java", "class C {")
+        );
+
+        // when
+        var results = this.formatter.formatAll(files);
+
+        // then
+        assertEquals(files, results.stream().map(FormatResult::file).toList());
+        assertTrue(results.get(0).changed());
+        assertFalse(results.get(1).changed());
+        assertFalse(results.get(2).succeeded());
+    }
+
+    @Test
+    void publishes_results_on_request() throws IOException, InterruptedException {
+        // given
+        var files = List.of(writeFile("A.java", UNFORMATTED), writeFile("B.java", FORMATTED));
+        var subscriber = new CollectingSubscriber();
+
+        // when
+        this.formatter.formatPublisher(files).subscribe(subscriber);
+
+        // then
+        assertTrue(subscriber.completed.await(30, TimeUnit.SECONDS), "publisher did not complete");
+        assertEquals(files, subscriber.results.stream().map(FormatResult::file).toList());
+        assertTrue(subscriber.results.get(0).changed());
+    }
+
+    @Test
+    void publisher_reports_unexpected_failures_as_error() throws IOException, InterruptedException {
+        // given
+        var failing = JFmtFormatter.create(
+            FormatterSettings.of(FormatterStyle.defaults())
+                .withPhaseListener((phase, javaFile, startNanos, endNanos) -> {
+                    throw new IllegalStateException("listener failed");
+                })
+        );
+        var files = List.of(writeFile("A.java", UNFORMATTED), writeFile("B.java", FORMATTED));
+        var subscriber = new CollectingSubscriber();
+
+        // when
+        failing.formatPublisher(files).subscribe(subscriber);
+
+        // then
+        assertTrue(subscriber.completed.await(30, TimeUnit.SECONDS), "publisher did not terminate");
+        assertInstanceOf(IllegalStateException.class, subscriber.error);
+        assertFalse(subscriber.onCompleteCalled);
+        assertTrue(subscriber.results.isEmpty());
+    }
+
+    private Path writeFile(String name, String content) throws IOException {
+        return Files.writeString(this.tempDir.resolve(name), content);
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<FormatResult> {
+
+        final List<FormatResult> results = new CopyOnWriteArrayList<>();
+
+        final CountDownLatch completed = new CountDownLatch(1);
+
+        volatile Throwable error;
+
+        volatile boolean onCompleteCalled;
+
+        private Flow.Subscription subscription;
+
+        @Override
+        public void onSubscribe(Flow.Subscription newSubscription) {
+            this.subscription = newSubscription;
+            // one at a time, to exercise back pressure.
+            newSubscription.request(1);
+        }
+
+        @Override
+        public void onNext(FormatResult item) {
+            this.results.add(item);
+            this.subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            this.error = throwable;
+            this.completed.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+            this.onCompleteCalled = true;
+            this.completed.countDown();
+        }
+    }
+}
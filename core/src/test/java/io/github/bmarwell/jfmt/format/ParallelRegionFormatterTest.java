@@ -0,0 +1,189 @@
+package io.github.bmarwell.jfmt.format;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.config.ConfigLoader;
+import io.github.bmarwell.jfmt.config.NamedConfig;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.eclipse.jdt.core.JavaCore;
+import org.eclipse.jdt.core.ToolFactory;
+import org.eclipse.jdt.core.dom.AST;
+import org.eclipse.jdt.core.dom.ASTParser;
+import org.eclipse.jdt.core.dom.CompilationUnit;
+import org.eclipse.jdt.core.formatter.CodeFormatter;
+import org.eclipse.jface.text.Document;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IRegion;
+import org.eclipse.text.edits.ReplaceEdit;
+import org.eclipse.text.edits.TextEdit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+class ParallelRegionFormatterTest {
+
+    private static CodeFormatter createFormatter(NamedConfig namedConfig) {
+        Map<String, String> config = ConfigLoader.load(namedConfig.getResourcePath());
+
+        return ToolFactory.createCodeFormatter(config);
+    }
+
+    private static CompilationUnit parse(String source) {
+        ASTParser parser = ASTParser.newParser(AST.getJLSLatest());
+        parser.setSource(source.toCharArray());
+        parser.setKind(ASTParser.K_COMPILATION_UNIT);
+        Map<String, String> options = JavaCore.getOptions();
+        JavaCore.setComplianceOptions(JavaCore.latestSupportedJavaVersion(), options);
+        parser.setCompilerOptions(options);
+
+        return (CompilationUnit) parser.createAST(null);
+    }
+
+    private static String formatSingleThreaded(CodeFormatter formatter, String source) throws Exception {
+        IDocument document = new Document(source);
+        new FormatterProcessor(formatter).formatDocument(document);
+
+        return document.get();
+    }
+
+    private static List<IRegion> split(NamedConfig namedConfig, String source, int parts) {
+        return ParallelRegionFormatter.splitAtMembers(
+            parse(source),
+            source,
+            ConfigLoader.load(namedConfig.getResourcePath()),
+            parts
+        );
+    }
+
+    private static String formatByRegions(NamedConfig namedConfig, String source, int parts) throws Exception {
+        var regions = split(namedConfig, source, parts);
+        assertTrue(regions.size() > 1, "source should be split, but got " + regions);
+
+        TextEdit edit = new ParallelRegionFormatter(() -> createFormatter(namedConfig), regions).format(source);
+        assertTrue(edit != null, "region edits should not overlap");
+
+        IDocument document = new Document(source);
+        edit.apply(document);
+
+        return document.get();
+    }
+
+    /**
+     * A large, badly formatted unit: long lines to wrap, odd blank lines, comments between members, nested types and
+     * two fields on one line. Only the members themselves start at the indentation the bundled configs produce.
+     */
+    private static String generatedSource(int methods) {
+        var source = new StringBuilder("""
+                                       package com.example.generated;
+
+                                       import java.util.List;
+                                       import java.util.Map;
+
+                                       /** Generated. */
+                                       public class Generated   {
+                                         private int a; private int b;
+
+
+                                           // leading comment
+                                       """);
+
+        for (int i = 0; i < methods; i++) {
+            source.append(
+                """
+                    /**
+                       * Method %1$d.
+                   */
+                    public   List<String>  method%1$d( Map<String,Integer> firstArgument, String secondArgument, int third) {
+                if(firstArgument.isEmpty()){return List.of(secondArgument, secondArgument.trim(), String.valueOf(third), "%1$d");}
+                      return   List.of( );
+                  }
+                // trailing comment %1$d
+
+
+
+                    static class Nested%1$d {  int value = %1$d ;  }
+                """.formatted(
+                    i
+                )
+            );
+        }
+
+        return source.append("}\n").toString();
+    }
+
+    @ParameterizedTest
+    @EnumSource(NamedConfig.class)
+    void regions_format_generated_source_byte_for_byte(NamedConfig namedConfig) throws Exception {
+        // given
+        String source = generatedSource(200);
+
+        // when
+        String single = formatSingleThreaded(createFormatter(namedConfig), source);
+        String parallel = formatByRegions(namedConfig, source, 8);
+
+        // then
+        assertEquals(single, parallel);
+    }
+
+    @ParameterizedTest
+    @ValueSource(
+        strings = {
+            "src/main/java/io/github/bmarwell/jfmt/format/ParallelRegionFormatter.java",
+            "src/test/resources/imports/MavenCore.java",
+        }
+    )
+    void regions_format_real_sources_byte_for_byte(String path) throws Exception {
+        // given
+        String source = Files.readString(Path.of(path));
+
+        // when
+        String single = formatSingleThreaded(createFormatter(NamedConfig.builtin), source);
+        String parallel = formatByRegions(NamedConfig.builtin, source, 4);
+
+        // then
+        assertEquals(single, parallel);
+    }
+
+    @Test
+    void does_not_split_without_members_on_their_own_line() {
+        // given
+        String source = "class A { int a; int b; }";
+
+        // when
+        var regions = split(NamedConfig.builtin, source, 4);
+
+        // then
+        assertEquals(1, regions.size());
+    }
+
+    @Test
+    void does_not_split_in_front_of_misindented_members() {
+        // given
+        String source = "class A {\n  int a;\n\n  void m() {\n  }\n\n  void n() {\n  }\n}\n";
+
+        // when
+        var regions = split(NamedConfig.builtin, source, 4);
+
+        // then
+        assertEquals(1, regions.size());
+    }
+
+    @Test
+    void overlapping_region_edits_are_rejected() {
+        // given
+        var first = new ReplaceEdit(0, 5, "x");
+        var second = new ReplaceEdit(3, 4, "y");
+
+        // when
+        TextEdit merged = ParallelRegionFormatter.merge("0123456789", List.of(first, second));
+
+        // then
+        assertNull(merged);
+    }
+}
@@ -6,7 +6,7 @@ import static io.github.bmarwell.jfmt.imports.ImportOrderTestUtil.loadTestResour
 import static io.github.bmarwell.jfmt.imports.ImportOrderTestUtil.parseCompilationUnit;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
-import io.github.bmarwell.jfmt.commands.ImportOrderProcessor;
+import io.github.bmarwell.jfmt.format.ImportOrderProcessor;
 import org.eclipse.jdt.core.dom.CompilationUnit;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocument;
@@ -4,8 +4,11 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
 class ImportOrderLoaderTest {
 
@@ -23,4 +26,20 @@ class ImportOrderLoaderTest {
         assertEquals("java", last.prefixes().getFirst(), "should have java prefix");
         assertEquals("jakarta", last.prefixes().getLast(), "should have jakarta prefix last");
     }
+
+    @ParameterizedTest
+    @EnumSource(NamedImportOrder.class)
+    void bundled_import_order_equals_parsed_properties(NamedImportOrder value) throws IOException {
+        // given
+        final ImportOrderConfiguration parsed;
+        try (InputStream in = ImportOrderLoader.class.getResourceAsStream(value.getResourcePath())) {
+            parsed = new ImportOrderLoader().readTokens(in);
+        }
+
+        // when
+        ImportOrderConfiguration bundled = new ImportOrderLoader().loadFromResource(value.getResourcePath());
+
+        // then
+        assertEquals(parsed, bundled);
+    }
 }
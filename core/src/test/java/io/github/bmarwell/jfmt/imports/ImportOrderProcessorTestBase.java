@@ -2,7 +2,7 @@ package io.github.bmarwell.jfmt.imports;
 
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
-import io.github.bmarwell.jfmt.commands.ImportOrderProcessor;
+import io.github.bmarwell.jfmt.format.ImportOrderProcessor;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
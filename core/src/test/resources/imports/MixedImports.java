@@ -0,0 +1,16 @@
+import static com.example.Util.CONSTANT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static java.util.Collections.emptyList;
+
+import org.assertj.core.api.Assertions;
+import jakarta.inject.Inject;
+import java.util.List;
+import java.io.File;
+import java.lang.String;
+import javax.annotation.Nullable;
+import com.example.App;
+import a.b.c.Alpha;
+import z.y.Xray;
+
+public class MixedImports {
+}
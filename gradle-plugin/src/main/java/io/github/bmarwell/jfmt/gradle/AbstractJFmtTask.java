@@ -0,0 +1,214 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.stream.StreamSupport;
+import javax.inject.Inject;
+import org.gradle.api.DefaultTask;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.DirectoryProperty;
+import org.gradle.api.file.FileType;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.api.tasks.Classpath;
+import org.gradle.api.tasks.IgnoreEmptyDirectories;
+import org.gradle.api.tasks.Input;
+import org.gradle.api.tasks.InputFiles;
+import org.gradle.api.tasks.Internal;
+import org.gradle.api.tasks.Optional;
+import org.gradle.api.tasks.PathSensitive;
+import org.gradle.api.tasks.PathSensitivity;
+import org.gradle.api.tasks.SkipWhenEmpty;
+import org.gradle.api.tasks.TaskAction;
+import org.gradle.work.ChangeType;
+import org.gradle.work.FileChange;
+import org.gradle.work.Incremental;
+import org.gradle.work.InputChanges;
+import org.gradle.workers.WorkQueue;
+import org.gradle.workers.WorkerExecutor;
+
+/**
+ * Checks or formats the changed Java sources through the Worker API.
+ *
+ * <p>The inputs are the sources, the {@link #getStyleFiles() .jfmt files} and the
+ * {@link #getEffectiveConfigHash() hash of the effective config}. Only the sources changed since the last run are
+ * passed to the {@link JFmtWorkAction}, which runs in a class loader isolated from the build script, with jfmt-core
+ * from the {@link #getJfmtClasspath() jfmt classpath}.</p>
+ *
+ * <p>No {@link org.gradle.api.Project} is used at execution time, so the tasks are compatible with the configuration
+ * cache.</p>
+ */
+public abstract class AbstractJFmtTask extends DefaultTask {
+
+    @Incremental
+    @InputFiles
+    @SkipWhenEmpty
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getSource();
+
+    /// Covered by {@link #getEffectiveConfigHash()}.
+    @Internal
+    public abstract Property<String> getConfig();
+
+    /// Covered by {@link #getEffectiveConfigHash()}.
+    @Internal
+    public abstract RegularFileProperty getConfigFile();
+
+    /// Covered by {@link #getEffectiveConfigHash()}.
+    @Internal
+    public abstract Property<String> getImportOrder();
+
+    /// Covered by {@link #getEffectiveConfigHash()}.
+    @Internal
+    public abstract RegularFileProperty getImportOrderFile();
+
+    /// Covered by {@link #getEffectiveConfigHash()}.
+    @Internal
+    public abstract Property<Boolean> getImportsOnly();
+
+    /**
+     * The {@code .jfmt} files which may apply to the sources, including candidates which do not exist (yet).
+     *
+     * <p>A file input, so that creating, changing or deleting one makes the task out of date even when the
+     * configuration cache is reused. Their contents and paths relative to the {@link #getBaseDirectory() base
+     * directory} are also covered by {@link #getEffectiveConfigHash()}, which tells the workers about them.</p>
+     */
+    @InputFiles
+    @Optional
+    @IgnoreEmptyDirectories
+    @PathSensitive(PathSensitivity.RELATIVE)
+    public abstract ConfigurableFileCollection getStyleFiles();
+
+    /// The paths of the {@link #getStyleFiles() .jfmt files} are hashed relative to it, so the cache is relocatable.
+    @Internal
+    public abstract DirectoryProperty getBaseDirectory();
+
+    /// jfmt-core and its dependencies.
+    @Classpath
+    public abstract ConfigurableFileCollection getJfmtClasspath();
+
+    @Inject
+    protected abstract WorkerExecutor getWorkerExecutor();
+
+    /**
+     * The effective config: the options and the content of the config files and all {@code .jfmt} files. Together
+     * with the sources, these are all inputs of the formatter.
+     *
+     * @return a SHA-256 hash.
+     */
+    @Input
+    public String getEffectiveConfigHash() {
+        final MessageDigest digest = sha256();
+        final Path baseDirectory = getBaseDirectory().get().getAsFile().toPath();
+
+        update(digest, getConfig().getOrElse("-"));
+        update(digest, getImportOrder().getOrElse("-"));
+        update(digest, getImportsOnly().get().toString());
+        update(digest, getConfigFile());
+        update(digest, getImportOrderFile());
+
+        final List<File> styleFiles = getStyleFiles().getFiles()
+            .stream()
+            .filter(File::isFile)
+            .sorted()
+            .toList();
+        for (File styleFile : styleFiles) {
+            update(digest, baseDirectory.relativize(styleFile.toPath()).toString());
+            update(digest, readAllBytes(styleFile.toPath()));
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /// Write formatted files, otherwise fail for them.
+    abstract boolean write();
+
+    /**
+     * Called after all stale files were processed successfully.
+     *
+     * @param processedFiles
+     *     the number of stale files.
+     */
+    abstract void completed(int processedFiles) throws IOException;
+
+    @TaskAction
+    public void execute(InputChanges inputChanges) throws IOException {
+        final List<File> staleFiles =
+            StreamSupport.stream(inputChanges.getFileChanges(getSource()).spliterator(), false)
+                .filter(change -> change.getFileType() == FileType.FILE)
+                .filter(change -> change.getChangeType() != ChangeType.REMOVED)
+                .map(FileChange::getFile)
+                .filter(file -> file.getName().endsWith(".java"))
+                .toList();
+        getLogger().info(
+            "jfmt: {} stale files ({})",
+            staleFiles.size(),
+            inputChanges.isIncremental() ? "incremental" : "all files"
+        );
+
+        if (!staleFiles.isEmpty()) {
+            final WorkQueue workQueue = getWorkerExecutor()
+                .classLoaderIsolation(spec -> spec.getClasspath().from(getJfmtClasspath()));
+            final String configHash = getEffectiveConfigHash();
+
+            workQueue.submit(JFmtWorkAction.class, parameters -> {
+                parameters.getFiles().from(staleFiles);
+                parameters.getConfig().set(getConfig());
+                parameters.getConfigFile().set(getConfigFile());
+                parameters.getImportOrder().set(getImportOrder());
+                parameters.getImportOrderFile().set(getImportOrderFile());
+                parameters.getImportsOnly().set(getImportsOnly());
+                parameters.getConfigHash().set(configHash);
+                parameters.getWrite().set(write());
+            });
+            workQueue.await();
+        }
+
+        completed(staleFiles.size());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException("SHA-256 is always available", noSuchAlgorithmException);
+        }
+    }
+
+    private static void update(MessageDigest digest, RegularFileProperty file) {
+        if (!file.isPresent()) {
+            update(digest, "-");
+            return;
+        }
+
+        update(digest, readAllBytes(file.get().getAsFile().toPath()));
+    }
+
+    private static void update(MessageDigest digest, String value) {
+        update(digest, value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void update(MessageDigest digest, byte[] bytes) {
+        // length prefix, so that the concatenation of two values is unambiguous.
+        digest.update(Integer.toString(bytes.length).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    private static byte[] readAllBytes(Path file) {
+        try {
+            return Files.readAllBytes(file);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Could not read jfmt config " + file, ioException);
+        }
+    }
+}
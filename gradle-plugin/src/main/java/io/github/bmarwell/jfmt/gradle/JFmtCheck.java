@@ -0,0 +1,35 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.CacheableTask;
+import org.gradle.api.tasks.OutputFile;
+
+/**
+ * Fails if any source is not formatted correctly, like {@code jfmt check}.
+ *
+ * <p>The task is cacheable: a successful check is restored from the build cache for the same sources and effective
+ * config, and only the changed sources are checked when it runs incrementally.</p>
+ */
+@CacheableTask
+public abstract class JFmtCheck extends AbstractJFmtTask {
+
+    /// Records the successful check, so Gradle has an output to cache.
+    @OutputFile
+    public abstract RegularFileProperty getReportFile();
+
+    @Override
+    boolean write() {
+        return false;
+    }
+
+    @Override
+    void completed(int processedFiles) throws IOException {
+        final String report = "config " + getEffectiveConfigHash() + System.lineSeparator()
+            + "checked " + getSource().getFiles().size() + " files" + System.lineSeparator();
+
+        Files.writeString(getReportFile().get().getAsFile().toPath(), report, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,27 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+
+/**
+ * The {@code jfmt} extension, with the same options as the command line. {@code .jfmt} files in the source
+ * directories and their parents are honoured as well. Like the options of the command line, the values set here take
+ * precedence over all {@code .jfmt} files; values which are not set leave the style to the {@code .jfmt} files.
+ */
+public abstract class JFmtExtension {
+
+    /// Named formatter config, like {@code --config}. Default: {@code builtin}, unless set by {@code .jfmt}.
+    public abstract Property<String> getConfig();
+
+    /// Formatter config file, like {@code --config-file}. Takes precedence over {@link #getConfig()}.
+    public abstract RegularFileProperty getConfigFile();
+
+    /// Named import order, like {@code --import-order}. Default: {@code defaultorder}, unless set by {@code .jfmt}.
+    public abstract Property<String> getImportOrder();
+
+    /// Import order file, like {@code --import-order-file}. Takes precedence over {@link #getImportOrder()}.
+    public abstract RegularFileProperty getImportOrderFile();
+
+    /// Only reorder the imports, like {@code --imports-only}.
+    public abstract Property<Boolean> getImportsOnly();
+}
@@ -0,0 +1,35 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.tasks.OutputFile;
+import org.gradle.work.DisableCachingByDefault;
+
+/**
+ * Formats the sources in place, like {@code jfmt write}.
+ *
+ * <p>Only the sources changed since the last run are formatted. As the task rewrites its own inputs, restoring it from
+ * the build cache would be wrong, but the formatted sources are up to date for the next run.</p>
+ */
+@DisableCachingByDefault(because = "Rewrites its own inputs")
+public abstract class JFmtFormat extends AbstractJFmtTask {
+
+    /// Marks the last run, so Gradle can tell whether the task is up to date.
+    @OutputFile
+    public abstract RegularFileProperty getMarkerFile();
+
+    @Override
+    boolean write() {
+        return true;
+    }
+
+    @Override
+    void completed(int processedFiles) throws IOException {
+        final String marker = "config " + getEffectiveConfigHash() + System.lineSeparator()
+            + "formatted " + processedFiles + " changed files" + System.lineSeparator();
+
+        Files.writeString(getMarkerFile().get().getAsFile().toPath(), marker, StandardCharsets.UTF_8);
+    }
+}
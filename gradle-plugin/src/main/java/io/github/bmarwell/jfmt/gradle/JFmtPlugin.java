@@ -0,0 +1,140 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.Properties;
+import java.util.Set;
+import org.gradle.api.Plugin;
+import org.gradle.api.Project;
+import org.gradle.api.artifacts.Configuration;
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.plugins.JavaBasePlugin;
+import org.gradle.api.tasks.SourceSet;
+import org.gradle.api.tasks.SourceSetContainer;
+import org.gradle.api.tasks.TaskProvider;
+
+/**
+ * Adds the {@code jfmt} extension and the tasks {@code jfmtCheck} and {@code jfmtFormat} for all source sets of a Java
+ * project. {@code check} depends on {@code jfmtCheck}.
+ *
+ * <p>The formatter is not on the build script classpath. The tasks resolve jfmt-core from the {@code jfmt}
+ * configuration and run it in workers with an isolated class loader, which Gradle keeps for the lifetime of the daemon
+ * and shares between all projects and builds.</p>
+ */
+public class JFmtPlugin implements Plugin<Project> {
+
+    public static final String EXTENSION_NAME = "jfmt";
+
+    public static final String CONFIGURATION_NAME = "jfmt";
+
+    public static final String CHECK_TASK_NAME = "jfmtCheck";
+
+    public static final String FORMAT_TASK_NAME = "jfmtFormat";
+
+    private static final String STYLE_FILE_NAME = ".jfmt";
+
+    private static final String PLUGIN_PROPERTIES = "jfmt-gradle-plugin.properties";
+
+    @Override
+    public void apply(Project project) {
+        final JFmtExtension extension = project.getExtensions().create(EXTENSION_NAME, JFmtExtension.class);
+        // no conventions for the style: values which are not set leave it to the .jfmt files.
+        extension.getImportsOnly().convention(false);
+
+        final Configuration jfmtClasspath = project.getConfigurations().create(CONFIGURATION_NAME, configuration -> {
+            configuration.setDescription("jfmt-core, loaded by the jfmt workers.");
+            configuration.setCanBeConsumed(false);
+            configuration.setVisible(false);
+            configuration.defaultDependencies(
+                dependencies -> dependencies.add(project.getDependencies().create(defaultJfmtCore()))
+            );
+        });
+
+        project.getPlugins().withType(JavaBasePlugin.class, _ -> {
+            final TaskProvider<JFmtCheck> check =
+                project.getTasks().register(CHECK_TASK_NAME, JFmtCheck.class, task -> {
+                    task.setDescription("Checks that all Java sources are formatted.");
+                    task.getReportFile().set(project.getLayout().getBuildDirectory().file("jfmt/check.txt"));
+                    configure(project, extension, jfmtClasspath, task);
+                });
+            project.getTasks().register(FORMAT_TASK_NAME, JFmtFormat.class, task -> {
+                task.setDescription("Formats all Java sources.");
+                task.getMarkerFile().set(project.getLayout().getBuildDirectory().file("jfmt/format.txt"));
+                configure(project, extension, jfmtClasspath, task);
+            });
+
+            project.getTasks()
+                .named(JavaBasePlugin.CHECK_TASK_NAME)
+                .configure(checkTask -> checkTask.dependsOn(check));
+        });
+    }
+
+    private static void configure(
+        Project project,
+        JFmtExtension extension,
+        Configuration jfmtClasspath,
+        AbstractJFmtTask task
+    ) {
+        task.setGroup(JavaBasePlugin.VERIFICATION_GROUP);
+
+        final SourceSetContainer sourceSets = project.getExtensions().getByType(SourceSetContainer.class);
+        for (SourceSet sourceSet : sourceSets) {
+            task.getSource().from(sourceSet.getAllJava());
+        }
+        task.getStyleFiles().from(project.provider(() -> styleFiles(project, sourceSets)));
+        task.getBaseDirectory().set(project.getRootProject().getLayout().getProjectDirectory());
+
+        task.getConfig().set(extension.getConfig());
+        task.getConfigFile().set(extension.getConfigFile());
+        task.getImportOrder().set(extension.getImportOrder());
+        task.getImportOrderFile().set(extension.getImportOrderFile());
+        task.getImportsOnly().set(extension.getImportsOnly());
+        task.getJfmtClasspath().from(jfmtClasspath);
+    }
+
+    /**
+     * The {@code .jfmt} files which may apply to the sources: those inside the source directories, and the candidates
+     * in the parent directories of the source directories.
+     *
+     * <p>The candidates are added whether they exist or not. Their existence is only checked when the task runs: a
+     * check here would be cached by the configuration cache, which would then miss a {@code .jfmt} file created
+     * later.</p>
+     */
+    private static ConfigurableFileCollection styleFiles(Project project, SourceSetContainer sourceSets) {
+        final ConfigurableFileCollection styleFiles = project.getObjects().fileCollection();
+        final Set<Path> parentStyleFiles = new LinkedHashSet<>();
+
+        for (SourceSet sourceSet : sourceSets) {
+            for (File sourceDirectory : sourceSet.getAllJava().getSrcDirs()) {
+                styleFiles.from(project.fileTree(sourceDirectory, tree -> tree.include("**/" + STYLE_FILE_NAME)));
+
+                for (Path parent = sourceDirectory.toPath().toAbsolutePath().getParent();
+                    parent != null;
+                    parent = parent.getParent()) {
+                    parentStyleFiles.add(parent.resolve(STYLE_FILE_NAME));
+                }
+            }
+        }
+
+        return styleFiles.from(parentStyleFiles);
+    }
+
+    private static String defaultJfmtCore() {
+        final Properties properties = new Properties();
+
+        try (InputStream is = JFmtPlugin.class.getResourceAsStream(PLUGIN_PROPERTIES)) {
+            if (is == null) {
+                throw new IllegalStateException("Missing " + PLUGIN_PROPERTIES);
+            }
+            properties.load(is);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Could not read " + PLUGIN_PROPERTIES, ioException);
+        }
+
+        return properties.getProperty("groupId") + ":jfmt-core:" + properties.getProperty("version");
+    }
+}
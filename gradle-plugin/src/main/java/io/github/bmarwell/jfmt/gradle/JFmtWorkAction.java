@@ -0,0 +1,120 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.format.FormatResult;
+import io.github.bmarwell.jfmt.format.InvalidSyntaxException;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import org.gradle.api.GradleException;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.logging.Logger;
+import org.gradle.api.logging.Logging;
+import org.gradle.workers.WorkAction;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Checks or formats the stale files of a task, in the isolated class loader with jfmt-core.
+ */
+public abstract class JFmtWorkAction implements WorkAction<JFmtWorkParameters> {
+
+    private static final Logger LOGGER = Logging.getLogger(JFmtWorkAction.class);
+
+    @Override
+    public void execute() {
+        final JFmtWorkParameters parameters = getParameters();
+        // only the values set in the extension, which take precedence over all .jfmt files.
+        final StyleOverrides configured = new StyleOverrides(
+            named(CliNamedConfig.class, "config", parameters.getConfig().getOrNull()),
+            path(parameters.getConfigFile()),
+            named(CliNamedImportOrder.class, "importOrder", parameters.getImportOrder().getOrNull()),
+            path(parameters.getImportOrderFile()),
+            false
+        );
+        final JFmtFormatter formatter = WorkerFormatters
+            .formatter(configured, parameters.getImportsOnly().get(), parameters.getConfigHash().get());
+        final boolean write = parameters.getWrite().get();
+
+        final List<Path> javaFiles = parameters.getFiles()
+            .getFiles()
+            .stream()
+            .map(File::toPath)
+            .sorted()
+            .toList();
+        final List<String> problems = new ArrayList<>();
+
+        for (FormatResult result : formatter.formatAll(javaFiles)) {
+            final Path javaFile = Objects.requireNonNull(result.file());
+
+            if (!result.succeeded()) {
+                problems.addAll(describeFailure(javaFile, result.failure().orElseThrow()));
+                continue;
+            }
+
+            if (!result.changed()) {
+                continue;
+            }
+
+            if (!write) {
+                problems.add("Not formatted correctly: " + javaFile);
+                continue;
+            }
+
+            write(javaFile, result.formatted());
+            LOGGER.info("Formatted {}", javaFile);
+        }
+
+        if (!problems.isEmpty()) {
+            final String hint = write ? "" : System.lineSeparator() + "Run the jfmtFormat task to fix them.";
+            throw new GradleException(String.join(System.lineSeparator(), problems) + hint);
+        }
+    }
+
+    private static List<String> describeFailure(Path javaFile, Exception failure) {
+        if (!(failure instanceof InvalidSyntaxException invalidSyntaxException)) {
+            return List.of("Error processing file " + javaFile + ": " + failure.getMessage());
+        }
+
+        return invalidSyntaxException.getProblems()
+            .stream()
+            .map(problem -> javaFile + ": Line " + problem.getSourceLineNumber() + ": " + problem)
+            .toList();
+    }
+
+    private static void write(Path javaFile, String formatted) {
+        try {
+            Files.write(javaFile, formatted.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Could not write " + javaFile, ioException);
+        }
+    }
+
+    private static <E extends Enum<E>> @Nullable E named(Class<E> type, String parameter, @Nullable String name) {
+        if (name == null) {
+            return null;
+        }
+
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException invalidName) {
+            throw new GradleException(
+                "Invalid jfmt " + parameter + " '" + name + "', expected one of "
+                    + Arrays.toString(type.getEnumConstants())
+            );
+        }
+    }
+
+    private static @Nullable Path path(RegularFileProperty file) {
+        return file.isPresent() ? file.get().getAsFile().toPath() : null;
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import org.gradle.api.file.ConfigurableFileCollection;
+import org.gradle.api.file.RegularFileProperty;
+import org.gradle.api.provider.Property;
+import org.gradle.workers.WorkParameters;
+
+/**
+ * Parameters of a {@link JFmtWorkAction}. Only Gradle types and strings: the task does not see the jfmt-core classes.
+ */
+public interface JFmtWorkParameters extends WorkParameters {
+
+    /// The stale files to check or format.
+    ConfigurableFileCollection getFiles();
+
+    Property<String> getConfig();
+
+    RegularFileProperty getConfigFile();
+
+    Property<String> getImportOrder();
+
+    RegularFileProperty getImportOrderFile();
+
+    Property<Boolean> getImportsOnly();
+
+    /// Identifies the effective config, see {@link AbstractJFmtTask#getEffectiveConfigHash()}.
+    Property<String> getConfigHash();
+
+    /// Write formatted files instead of failing for them.
+    Property<Boolean> getWrite();
+}
@@ -0,0 +1,62 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import io.github.bmarwell.jfmt.format.FormatterSettings;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The formatters of the isolated worker class loader.
+ *
+ * <p>Gradle keeps the class loader of a worker classpath as long as the daemon lives, so every task of every project
+ * and build with the same effective config gets the same, already warmed up formatter. Only the most recently used
+ * configs are kept.</p>
+ */
+final class WorkerFormatters {
+
+    /// Number of configs kept. Most builds use one.
+    static final int MAX_CONFIGS = 8;
+
+    private static final Map<Key, JFmtFormatter> FORMATTERS = new LinkedHashMap<>(MAX_CONFIGS, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, JFmtFormatter> eldest) {
+            return size() > MAX_CONFIGS;
+        }
+    };
+
+    private WorkerFormatters() {
+        // utility class
+    }
+
+    /**
+     * Returns the formatter for the given config.
+     *
+     * @param configured
+     *     the values set in the extension, which take precedence over all {@code .jfmt} files.
+     * @param importsOnly
+     *     whether to only reorder the imports.
+     * @param configHash
+     *     the hash of the effective config, including the content of all config and {@code .jfmt} files. A changed
+     *     file gets a new formatter, as the styles of the old one are memoized.
+     * @return the shared formatter.
+     */
+    static JFmtFormatter formatter(StyleOverrides configured, boolean importsOnly, String configHash) {
+        final Key key = new Key(configured, importsOnly, configHash);
+
+        synchronized (FORMATTERS) {
+            return FORMATTERS.computeIfAbsent(key, WorkerFormatters::create);
+        }
+    }
+
+    private static JFmtFormatter create(Key key) {
+        final FormatterStyle defaults = FormatterStyle.defaults().with(key.configured());
+        final StyleResolver styles = new StyleResolver(defaults, key.configured());
+
+        return JFmtFormatter.create(FormatterSettings.of(styles).withImportsOnly(key.importsOnly()));
+    }
+
+    private record Key(StyleOverrides configured, boolean importsOnly, String configHash) {}
+}
@@ -0,0 +1,133 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import org.gradle.testkit.runner.BuildResult;
+import org.gradle.testkit.runner.GradleRunner;
+import org.gradle.testkit.runner.TaskOutcome;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the plugin in a real Gradle build.
+ *
+ * <p>The plugin classes and the classpath of the jfmt workers are passed in by failsafe, see {@code pom.xml}.</p>
+ */
+class JFmtPluginIT {
+
+    private static final String CHECK_TASK = ":app:" + JFmtPlugin.CHECK_TASK_NAME;
+
+    @TempDir
+    Path projectDir;
+
+    @Test
+    void new_parent_jfmt_file_makes_the_check_out_of_date_with_a_reused_configuration_cache() throws IOException {
+        // given
+        write("settings.gradle", "rootProject.name = 'example'\ninclude 'app'\n");
+        write(
+            "app/build.gradle",
+            """
+            plugins {
+                id 'java'
+                id 'io.github.bmarwell.jfmt'
+            }
+
+            dependencies {
+                jfmt files(%s)
+            }
+            """.formatted(workerClasspath())
+        );
+        write("app/src/main/java/example/Example.java", "package example;\n\npublic class Example {\n}\n");
+        run(JFmtPlugin.FORMAT_TASK_NAME);
+        var stored = run(JFmtPlugin.CHECK_TASK_NAME, "--configuration-cache");
+        var reused = run(JFmtPlugin.CHECK_TASK_NAME, "--configuration-cache");
+
+        // when
+        write(".jfmt", "config = builtin\n");
+        var afterNewStyleFile = run(JFmtPlugin.CHECK_TASK_NAME, "--configuration-cache");
+
+        // then
+        assertEquals(TaskOutcome.SUCCESS, stored.task(CHECK_TASK).getOutcome());
+        assertEquals(TaskOutcome.UP_TO_DATE, reused.task(CHECK_TASK).getOutcome());
+        assertTrue(reused.getOutput().contains("Reusing configuration cache."));
+        assertEquals(TaskOutcome.SUCCESS, afterNewStyleFile.task(CHECK_TASK).getOutcome());
+        assertTrue(afterNewStyleFile.getOutput().contains("Reusing configuration cache."));
+    }
+
+    @Test
+    void extension_values_take_precedence_over_jfmt_files() throws IOException {
+        // given: google puts the static imports first, apache last.
+        write("settings.gradle", "rootProject.name = 'example'\ninclude 'app'\n");
+        write(
+            "app/build.gradle",
+            """
+            plugins {
+                id 'java'
+                id 'io.github.bmarwell.jfmt'
+            }
+
+            dependencies {
+                jfmt files(%s)
+            }
+
+            jfmt {
+                importOrder = 'google'
+            }
+            """.formatted(workerClasspath())
+        );
+        write(".jfmt", "import-order = apache\n");
+        write(
+            "app/src/main/java/example/Example.java",
+            """
+            package example;
+
+            import java.util.List;
+            import static java.util.Objects.requireNonNull;
+
+            public class Example {
+                List<String> names = requireNonNull(List.of());
+            }
+            """
+        );
+
+        // when
+        run(JFmtPlugin.FORMAT_TASK_NAME);
+
+        // then
+        var formatted = Files.readString(this.projectDir.resolve("app/src/main/java/example/Example.java"));
+        assertTrue(
+            formatted.indexOf("import static java.util.Objects") < formatted.indexOf("import java.util.List"),
+            formatted
+        );
+    }
+
+    private BuildResult run(String... arguments) {
+        return GradleRunner.create()
+            .withGradleVersion(System.getProperty("gradle.version"))
+            .withProjectDir(this.projectDir.toFile())
+            .withPluginClasspath(List.of(new File(System.getProperty("jfmt.plugin.classes"))))
+            .withArguments(arguments)
+            .build();
+    }
+
+    /// jfmt-core and its dependencies as arguments of {@code files(…)} in a Groovy build script.
+    private static String workerClasspath() {
+        return Arrays.stream(System.getProperty("jfmt.core.classpath").split(File.pathSeparator))
+            .map(entry -> "'" + entry.replace("\\", "\\\\") + "'")
+            .collect(Collectors.joining(", "));
+    }
+
+    private void write(String name, String content) throws IOException {
+        var file = this.projectDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, content);
+    }
+}
@@ -0,0 +1,95 @@
+package io.github.bmarwell.jfmt.gradle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class WorkerFormattersTest {
+
+    private static final StyleOverrides EQUALSVERIFIER =
+        new StyleOverrides(CliNamedConfig.equalsverifier, null, CliNamedImportOrder.equalsverifier, null, false);
+
+    /// Google puts the static imports first, apache last.
+    private static final String SOURCE = """
+                                         package example;
+
+                                         import static java.util.Objects.requireNonNull;
+                                         import java.util.List;
+
+                                         class Example {
+                                             List<String> names = requireNonNull(List.of());
+                                         }
+                                         """;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void tasks_with_the_same_config_share_the_formatter() {
+        // when
+        var first = WorkerFormatters.formatter(StyleOverrides.none(), false, "a");
+        var second = WorkerFormatters.formatter(StyleOverrides.none(), false, "a");
+
+        // then
+        assertSame(first, second);
+    }
+
+    @Test
+    void other_configs_get_their_own_formatter() {
+        // when
+        var builtin = WorkerFormatters.formatter(StyleOverrides.none(), false, "b");
+        var equalsverifier = WorkerFormatters.formatter(EQUALSVERIFIER, false, "b");
+        var importsOnly = WorkerFormatters.formatter(StyleOverrides.none(), true, "b");
+
+        // then
+        assertNotSame(builtin, equalsverifier);
+        assertNotSame(builtin, importsOnly);
+    }
+
+    @Test
+    void changed_config_files_get_a_new_formatter() {
+        // given
+        var before = WorkerFormatters.formatter(StyleOverrides.none(), false, "c");
+
+        // when
+        var after = WorkerFormatters.formatter(StyleOverrides.none(), false, "d");
+
+        // then
+        assertNotSame(before, after);
+    }
+
+    @Test
+    void configured_values_take_precedence_over_jfmt_files() throws IOException {
+        // given
+        Files.writeString(this.tempDir.resolve(".jfmt"), "import-order = apache\n");
+        var javaFile = this.tempDir.resolve("Example.java");
+        var google = new StyleOverrides(null, null, CliNamedImportOrder.google, null, false);
+
+        // when
+        var configured = WorkerFormatters.formatter(google, false, "e").format(javaFile, SOURCE);
+        var notConfigured = WorkerFormatters.formatter(StyleOverrides.none(), false, "e").format(javaFile, SOURCE);
+
+        // then
+        assertEquals(formatted(CliNamedImportOrder.google), configured.formatted());
+        assertEquals(formatted(CliNamedImportOrder.apache), notConfigured.formatted());
+        assertNotEquals(configured.formatted(), notConfigured.formatted());
+    }
+
+    private static String formatted(CliNamedImportOrder importOrder) {
+        var style = new FormatterStyle(CliNamedConfig.builtin, null, importOrder, null);
+
+        return JFmtFormatter.create(style).format(SOURCE).formatted();
+    }
+}
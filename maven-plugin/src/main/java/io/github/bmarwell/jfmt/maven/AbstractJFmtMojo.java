@@ -0,0 +1,342 @@
+package io.github.bmarwell.jfmt.maven;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import io.github.bmarwell.jfmt.format.FormatResult;
+import io.github.bmarwell.jfmt.format.InvalidSyntaxException;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.jdt.core.compiler.IProblem;
+import org.jspecify.annotations.Nullable;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Formats the sources of a module in-process, with the formatter shared by all modules (see
+ * {@link FormatterSession}).
+ *
+ * <p>Only stale files are processed: files changed since the last successful run (see {@link UpToDateMarker}) and,
+ * in incremental IDE builds, only files with changes according to the {@link BuildContext}.</p>
+ */
+abstract class AbstractJFmtMojo extends AbstractMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true, required = true)
+    MavenProject project;
+
+    @Parameter(defaultValue = "${session.request.startTime}", readonly = true)
+    @Nullable
+    Date buildStartTime;
+
+    @Component
+    BuildContext buildContext;
+
+    /// Named formatter config, like {@code --config}. Default: {@code builtin}, unless set by {@code .jfmt}.
+    @Parameter(property = "jfmt.config")
+    @Nullable
+    String config;
+
+    /// Formatter config file, like {@code --config-file}. Takes precedence over {@link #config}.
+    @Parameter(property = "jfmt.configFile")
+    @Nullable
+    File configFile;
+
+    /// Named import order, like {@code --import-order}. Default: {@code defaultorder}, unless set by {@code .jfmt}.
+    @Parameter(property = "jfmt.importOrder")
+    @Nullable
+    String importOrder;
+
+    /// Import order file, like {@code --import-order-file}. Takes precedence over {@link #importOrder}.
+    @Parameter(property = "jfmt.importOrderFile")
+    @Nullable
+    File importOrderFile;
+
+    /// Only reorder the imports, like {@code --imports-only}.
+    @Parameter(property = "jfmt.importsOnly", defaultValue = "false")
+    boolean importsOnly;
+
+    /// Directories to format, by default the compile and test source roots of the module.
+    @Parameter
+    @Nullable
+    List<File> sourceDirectories;
+
+    /// Set to {@code false} to process all files, not only the files changed since the last run.
+    @Parameter(property = "jfmt.incremental", defaultValue = "true")
+    boolean incremental = true;
+
+    @Parameter(property = "jfmt.skip", defaultValue = "false")
+    boolean skip;
+
+    @Override
+    public void execute() throws MojoExecutionException, MojoFailureException {
+        if (this.skip) {
+            getLog().info("Skipping jfmt");
+            return;
+        }
+
+        final StyleOverrides configured = configuredStyle();
+        final JFmtFormatter formatter = sessionFormatter(configured);
+
+        final List<Path> javaFiles = discoverJavaFiles();
+        final UpToDateMarker marker = UpToDateMarker.load(markerFile(), settingsFingerprint(configured, javaFiles));
+        final List<Path> staleFiles = javaFiles.stream()
+            .filter(javaFile -> isStale(marker, javaFile))
+            .toList();
+        getLog().debug("jfmt: " + staleFiles.size() + " of " + javaFiles.size() + " files are stale");
+
+        if (staleFiles.isEmpty()) {
+            return;
+        }
+
+        staleFiles.forEach(javaFile -> this.buildContext.removeMessages(javaFile.toFile()));
+        final List<FormatResult> results = formatter.formatAll(staleFiles);
+
+        try {
+            processResults(results, marker);
+        } finally {
+            marker.save();
+        }
+    }
+
+    /**
+     * Handles the results of all stale files and marks the correctly formatted ones as {@link UpToDateMarker up to
+     * date}.
+     *
+     * @param results
+     *     the results, in the order of the files.
+     * @param marker
+     *     the marker of this module and goal.
+     * @throws MojoFailureException
+     *     if files are not formatted correctly, or could not be formatted.
+     */
+    abstract void processResults(List<FormatResult> results, UpToDateMarker marker) throws MojoFailureException;
+
+    /// Name of the goal, each goal has its own {@link UpToDateMarker}.
+    abstract String goal();
+
+    /**
+     * Reports a file which could not be formatted, in the build log and, for IDEs, on the file.
+     *
+     * @param result
+     *     a result with a {@link FormatResult#failure() failure}.
+     */
+    void reportFailure(FormatResult result) {
+        final File file = Objects.requireNonNull(result.file()).toFile();
+        final Exception failure = result.failure().orElseThrow();
+
+        if (!(failure instanceof InvalidSyntaxException invalidSyntaxException)) {
+            getLog().error("Error processing file " + file + ": " + failure.getMessage());
+            this.buildContext.addMessage(
+                file,
+                0,
+                0,
+                String.valueOf(failure.getMessage()),
+                BuildContext.SEVERITY_ERROR,
+                failure
+            );
+
+            return;
+        }
+
+        for (IProblem problem : invalidSyntaxException.getProblems()) {
+            getLog().error(file + ": Line " + problem.getSourceLineNumber() + ": " + problem);
+            this.buildContext.addMessage(
+                file,
+                problem.getSourceLineNumber(),
+                0,
+                problem.getMessage(),
+                BuildContext.SEVERITY_ERROR,
+                null
+            );
+        }
+    }
+
+    /**
+     * The parameters set in the POM or on the command line. Like the options of the command line, they take
+     * precedence over all {@code .jfmt} files; parameters which are not set leave the style to the {@code .jfmt}
+     * files.
+     */
+    private StyleOverrides configuredStyle() throws MojoExecutionException {
+        return new StyleOverrides(
+            named(CliNamedConfig.class, "config", this.config),
+            this.configFile == null ? null : this.configFile.toPath(),
+            named(CliNamedImportOrder.class, "importOrder", this.importOrder),
+            this.importOrderFile == null ? null : this.importOrderFile.toPath(),
+            false
+        );
+    }
+
+    private static <E extends Enum<E>> @Nullable E named(Class<E> type, String parameter, @Nullable String name)
+        throws MojoExecutionException {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+
+        try {
+            return Enum.valueOf(type, name);
+        } catch (IllegalArgumentException invalidName) {
+            throw new MojoExecutionException(
+                "Invalid " + parameter + " '" + name + "', expected one of " + Arrays.toString(type.getEnumConstants())
+            );
+        }
+    }
+
+    private JFmtFormatter sessionFormatter(StyleOverrides configured) {
+        final long buildId = this.buildStartTime == null ? 0L : this.buildStartTime.getTime();
+
+        return FormatterSession.formatter(buildId, configured, this.importsOnly);
+    }
+
+    private boolean isStale(UpToDateMarker marker, Path javaFile) {
+        if (!this.incremental) {
+            return true;
+        }
+
+        // IDEs like Eclipse (m2e) know exactly which files changed.
+        if (this.buildContext.isIncremental() && !this.buildContext.hasDelta(javaFile.toFile())) {
+            return false;
+        }
+
+        return !marker.isUpToDate(javaFile);
+    }
+
+    private List<Path> discoverJavaFiles() {
+        final Set<Path> javaFiles = new LinkedHashSet<>();
+
+        for (Path sourceDirectory : sourceDirectories()) {
+            if (!Files.isDirectory(sourceDirectory)) {
+                continue;
+            }
+
+            try (Stream<Path> files = Files.walk(sourceDirectory)) {
+                files.filter(file -> file.getFileName().toString().endsWith(".java"))
+                    .filter(Files::isRegularFile)
+                    .map(file -> file.toAbsolutePath().normalize())
+                    .sorted()
+                    .forEach(javaFiles::add);
+            } catch (IOException ioException) {
+                throw new UncheckedIOException("Could not list " + sourceDirectory, ioException);
+            }
+        }
+
+        return List.copyOf(javaFiles);
+    }
+
+    private List<Path> sourceDirectories() {
+        if (this.sourceDirectories != null && !this.sourceDirectories.isEmpty()) {
+            return this.sourceDirectories.stream().map(File::toPath).toList();
+        }
+
+        final List<Path> roots = new ArrayList<>();
+        this.project.getCompileSourceRoots().forEach(root -> roots.add(Path.of(root)));
+        this.project.getTestCompileSourceRoots().forEach(root -> roots.add(Path.of(root)));
+
+        // generated sources are added as source roots as well, but are never formatted.
+        final Path buildDirectory = Path.of(this.project.getBuild().getDirectory());
+
+        return roots.stream()
+            .filter(root -> !root.startsWith(buildDirectory))
+            .toList();
+    }
+
+    private Path markerFile() {
+        return Path.of(this.project.getBuild().getDirectory(), "jfmt", goal() + ".properties");
+    }
+
+    /**
+     * Everything which changes the formatted output, including the {@code .jfmt} files which may apply to the given
+     * files.
+     */
+    private String settingsFingerprint(StyleOverrides configured, List<Path> javaFiles) {
+        final FormatterStyle style = FormatterStyle.defaults().with(configured);
+
+        return String.join(
+            "|",
+            String.valueOf(getClass().getPackage().getImplementationVersion()),
+            style.toString(),
+            String.valueOf(this.importsOnly),
+            lastModified(style.configFile()),
+            lastModified(style.importOrderFile()),
+            styleFilesHash(javaFiles)
+        );
+    }
+
+    /**
+     * Hashes the paths and contents of the {@code .jfmt} files in the directories of the given files and in all of
+     * their parent directories, like {@link StyleResolver} reads them.
+     */
+    private static String styleFilesHash(List<Path> javaFiles) {
+        final Set<Path> directories = new TreeSet<>();
+        for (Path javaFile : javaFiles) {
+            Path directory = javaFile.getParent();
+            // the parents of a directory seen before have been seen as well.
+            while (directory != null && directories.add(directory)) {
+                directory = directory.getParent();
+            }
+        }
+
+        final MessageDigest digest = sha256();
+        for (Path directory : directories) {
+            final Path styleFile = directory.resolve(StyleResolver.CONFIG_FILE_NAME);
+            if (!Files.isRegularFile(styleFile)) {
+                continue;
+            }
+
+            digest.update(styleFile.toString().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            try {
+                digest.update(Files.readAllBytes(styleFile));
+            } catch (IOException ioException) {
+                // an unreadable .jfmt file fails the formatting anyway.
+                digest.update((byte) '?');
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException noSuchAlgorithmException) {
+            throw new IllegalStateException("SHA-256 is always available", noSuchAlgorithmException);
+        }
+    }
+
+    private static String lastModified(@Nullable Path file) {
+        if (file == null) {
+            return "-";
+        }
+
+        try {
+            return String.valueOf(Files.getLastModifiedTime(file).toMillis());
+        } catch (IOException ioException) {
+            // a missing file fails the formatting anyway.
+            return "?";
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package io.github.bmarwell.jfmt.maven;
+
+import io.github.bmarwell.jfmt.format.FormatResult;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.sonatype.plexus.build.incremental.BuildContext;
+
+/**
+ * Fails the build if sources are not formatted correctly, like {@code jfmt list}.
+ */
+@Mojo(name = "check", defaultPhase = LifecyclePhase.VERIFY, threadSafe = true)
+public class CheckMojo extends AbstractJFmtMojo {
+
+    @Override
+    void processResults(List<FormatResult> results, UpToDateMarker marker) throws MojoFailureException {
+        int notFormatted = 0;
+
+        for (FormatResult result : results) {
+            final Path javaFile = Objects.requireNonNull(result.file());
+
+            if (!result.succeeded()) {
+                reportFailure(result);
+                marker.forget(javaFile);
+                notFormatted++;
+
+                continue;
+            }
+
+            if (result.changed()) {
+                getLog().error("Not formatted correctly: " + javaFile);
+                this.buildContext.addMessage(
+                    javaFile.toFile(),
+                    0,
+                    0,
+                    "Not formatted correctly, run mvn jfmt:format",
+                    BuildContext.SEVERITY_ERROR,
+                    null
+                );
+                marker.forget(javaFile);
+                notFormatted++;
+
+                continue;
+            }
+
+            marker.markUpToDate(javaFile);
+        }
+
+        if (notFormatted > 0) {
+            throw new MojoFailureException(
+                notFormatted + " file(s) not formatted correctly, run mvn jfmt:format to fix them"
+            );
+        }
+    }
+
+    @Override
+    String goal() {
+        return "check";
+    }
+}
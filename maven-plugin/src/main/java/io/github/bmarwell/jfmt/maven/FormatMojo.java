@@ -0,0 +1,61 @@
+package io.github.bmarwell.jfmt.maven;
+
+import io.github.bmarwell.jfmt.format.FormatResult;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * Formats the sources in place, like {@code jfmt write}.
+ */
+@Mojo(name = "format", defaultPhase = LifecyclePhase.PROCESS_SOURCES, threadSafe = true)
+public class FormatMojo extends AbstractJFmtMojo {
+
+    @Override
+    void processResults(List<FormatResult> results, UpToDateMarker marker) throws MojoFailureException {
+        int failed = 0;
+
+        for (FormatResult result : results) {
+            final Path javaFile = Objects.requireNonNull(result.file());
+
+            if (!result.succeeded()) {
+                reportFailure(result);
+                marker.forget(javaFile);
+                failed++;
+
+                continue;
+            }
+
+            if (result.changed()) {
+                write(javaFile, result.formatted());
+                getLog().info("Formatted " + javaFile);
+            }
+
+            marker.markUpToDate(javaFile);
+        }
+
+        if (failed > 0) {
+            throw new MojoFailureException(failed + " file(s) could not be formatted");
+        }
+    }
+
+    /// Writes through the {@link org.sonatype.plexus.build.incremental.BuildContext}, so IDEs pick up the change.
+    private void write(Path javaFile, String formatted) throws MojoFailureException {
+        try (OutputStream outputStream = this.buildContext.newFileOutputStream(javaFile.toFile())) {
+            outputStream.write(formatted.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException ioException) {
+            throw new MojoFailureException("Could not write " + javaFile, ioException);
+        }
+    }
+
+    @Override
+    String goal() {
+        return "format";
+    }
+}
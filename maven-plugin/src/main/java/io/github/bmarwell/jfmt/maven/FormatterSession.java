@@ -0,0 +1,52 @@
+package io.github.bmarwell.jfmt.maven;
+
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.config.StyleResolver;
+import io.github.bmarwell.jfmt.format.FormatterSettings;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The formatters shared by all modules of a build.
+ *
+ * <p>Maven loads the plugin once per build, so all modules (and all threads of {@code mvn -T}) with the same config
+ * share one formatter: configs are parsed and the JDT classes are warmed up once per build instead of once per
+ * module. A daemon like mvnd keeps the plugin loaded between builds, so formatters of previous builds are dropped, as
+ * {@code .jfmt} files may have changed meanwhile.</p>
+ */
+final class FormatterSession {
+
+    private static final ConcurrentMap<Key, JFmtFormatter> FORMATTERS = new ConcurrentHashMap<>();
+
+    private FormatterSession() {
+        // utility class
+    }
+
+    /**
+     * Returns the formatter for the given config, shared with all other modules of the build.
+     *
+     * @param buildId
+     *     identifies the build, e.g. its start time.
+     * @param configured
+     *     the parameters set in the POM or on the command line, which take precedence over {@code .jfmt} files.
+     * @param importsOnly
+     *     whether to only reorder the imports.
+     * @return the shared formatter.
+     */
+    static JFmtFormatter formatter(long buildId, StyleOverrides configured, boolean importsOnly) {
+        FORMATTERS.keySet().removeIf(key -> key.buildId() != buildId);
+
+        return FORMATTERS.computeIfAbsent(new Key(buildId, configured, importsOnly), FormatterSession::create);
+    }
+
+    private static JFmtFormatter create(Key key) {
+        final FormatterStyle defaults = FormatterStyle.defaults().with(key.configured());
+        final StyleResolver styles = new StyleResolver(defaults, key.configured());
+
+        return JFmtFormatter.create(FormatterSettings.of(styles).withImportsOnly(key.importsOnly()));
+    }
+
+    private record Key(long buildId, StyleOverrides configured, boolean importsOnly) {}
+}
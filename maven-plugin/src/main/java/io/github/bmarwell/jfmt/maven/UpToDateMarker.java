@@ -0,0 +1,124 @@
+package io.github.bmarwell.jfmt.maven;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+import org.jspecify.annotations.Nullable;
+
+/**
+ * Remembers which files of a module were formatted correctly, so that the next build only processes stale files.
+ *
+ * <p>A file is up to date while its modification time and size are unchanged. The marker also records a fingerprint
+ * of the settings: if they differ, e.g. after changing the config, all files are stale again.</p>
+ *
+ * <p>Each module and goal has its own marker file, so parallel builds ({@code mvn -T}) never share one. Not safe to
+ * use from several threads.</p>
+ */
+final class UpToDateMarker {
+
+    /// Key of the settings fingerprint, cannot clash with the absolute paths of the files.
+    private static final String SETTINGS_KEY = "jfmt.settings";
+
+    private final Path markerFile;
+
+    private final Properties entries;
+
+    private UpToDateMarker(Path markerFile, Properties entries) {
+        this.markerFile = markerFile;
+        this.entries = entries;
+    }
+
+    /**
+     * Reads a marker file.
+     *
+     * @param markerFile
+     *     the marker file, which does not need to exist.
+     * @param settingsFingerprint
+     *     the fingerprint of the current settings.
+     * @return the marker, empty if the file does not exist, cannot be read or was written with other settings.
+     */
+    static UpToDateMarker load(Path markerFile, String settingsFingerprint) {
+        final Properties entries = new Properties();
+
+        if (Files.isRegularFile(markerFile)) {
+            try (InputStream inputStream = Files.newInputStream(markerFile)) {
+                entries.load(inputStream);
+            } catch (IOException | IllegalArgumentException readException) {
+                // only an optimization, start over.
+                entries.clear();
+            }
+        }
+
+        if (!settingsFingerprint.equals(entries.getProperty(SETTINGS_KEY))) {
+            entries.clear();
+            entries.setProperty(SETTINGS_KEY, settingsFingerprint);
+        }
+
+        return new UpToDateMarker(markerFile, entries);
+    }
+
+    boolean isUpToDate(Path javaFile) {
+        final String stamp = stamp(javaFile);
+
+        return stamp != null && stamp.equals(this.entries.getProperty(key(javaFile)));
+    }
+
+    /**
+     * Marks a file as formatted correctly, in its current state.
+     *
+     * @param javaFile
+     *     the file, after writing it if it was changed.
+     */
+    void markUpToDate(Path javaFile) {
+        final String stamp = stamp(javaFile);
+        if (stamp == null) {
+            forget(javaFile);
+
+            return;
+        }
+
+        this.entries.setProperty(key(javaFile), stamp);
+    }
+
+    void forget(Path javaFile) {
+        this.entries.remove(key(javaFile));
+    }
+
+    /**
+     * Writes the marker file. It is replaced atomically, so an interrupted build never leaves a broken marker.
+     *
+     * @throws UncheckedIOException
+     *     if the marker cannot be written.
+     */
+    void save() {
+        try {
+            Files.createDirectories(this.markerFile.toAbsolutePath().getParent());
+            final Path tempFile = this.markerFile.resolveSibling(this.markerFile.getFileName() + ".tmp");
+
+            try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+                this.entries.store(outputStream, "jfmt up-to-date marker, safe to delete");
+            }
+
+            Files.move(tempFile, this.markerFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ioException) {
+            throw new UncheckedIOException("Could not write up-to-date marker " + this.markerFile, ioException);
+        }
+    }
+
+    private static String key(Path javaFile) {
+        return javaFile.toAbsolutePath().normalize().toString();
+    }
+
+    private static @Nullable String stamp(Path javaFile) {
+        try {
+            return Files.getLastModifiedTime(javaFile).toMillis() + ":" + Files.size(javaFile);
+        } catch (IOException ioException) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package io.github.bmarwell.jfmt.maven;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.FormatterStyle;
+import io.github.bmarwell.jfmt.format.JFmtFormatter;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.sonatype.plexus.build.incremental.DefaultBuildContext;
+
+class AbstractJFmtMojoTest {
+
+    /// Google puts the static imports first, apache last.
+    private static final String SOURCE = """
+                                         package example;
+
+                                         import static java.util.Objects.requireNonNull;
+                                         import java.util.List;
+
+                                         class Example {
+                                             List<String> names = requireNonNull(List.of());
+                                         }
+                                         """;
+
+    @TempDir
+    Path projectDir;
+
+    Path sourceDir;
+
+    Path javaFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.sourceDir = Files.createDirectories(this.projectDir.resolve("src/main/java"));
+        this.javaFile = Files.createDirectories(this.sourceDir.resolve("example")).resolve("Example.java");
+    }
+
+    @Test
+    void configured_import_order_takes_precedence_over_jfmt_files() throws Exception {
+        // given
+        Files.writeString(this.sourceDir.resolve(".jfmt"), "import-order = apache\n");
+        Files.writeString(this.javaFile, SOURCE);
+        var mojo = configure(new FormatMojo());
+        mojo.importOrder = "google";
+
+        // when
+        mojo.execute();
+
+        // then
+        assertEquals(formatted(CliNamedImportOrder.google), Files.readString(this.javaFile));
+        assertNotEquals(formatted(CliNamedImportOrder.apache), formatted(CliNamedImportOrder.google));
+    }
+
+    @Test
+    void jfmt_files_apply_without_configured_import_order() throws Exception {
+        // given
+        Files.writeString(this.sourceDir.resolve(".jfmt"), "import-order = apache\n");
+        Files.writeString(this.javaFile, SOURCE);
+        var mojo = configure(new FormatMojo());
+
+        // when
+        mojo.execute();
+
+        // then
+        assertEquals(formatted(CliNamedImportOrder.apache), Files.readString(this.javaFile));
+    }
+
+    @Test
+    void check_reports_files_which_are_not_formatted() throws Exception {
+        // given
+        Files.writeString(this.javaFile, SOURCE);
+        var mojo = configure(new CheckMojo());
+        mojo.importOrder = "google";
+        var buildContext = (RecordingBuildContext) mojo.buildContext;
+
+        // when
+        var failure = assertThrows(MojoFailureException.class, mojo::execute);
+
+        // then
+        assertTrue(failure.getMessage().startsWith("1 file(s) not formatted correctly"), failure.getMessage());
+        assertEquals(List.of(this.javaFile.toFile()), buildContext.messages);
+    }
+
+    @Test
+    void up_to_date_files_are_skipped() throws Exception {
+        // given: a formatted file passed the check
+        Files.writeString(this.javaFile, formatted(CliNamedImportOrder.google));
+        var firstRun = configure(new CheckMojo());
+        firstRun.importOrder = "google";
+        firstRun.execute();
+
+        // when: same size and modification time, but not formatted anymore
+        var lastModified = Files.getLastModifiedTime(this.javaFile);
+        Files.writeString(this.javaFile, swapImports(Files.readString(this.javaFile)));
+        Files.setLastModifiedTime(this.javaFile, lastModified);
+        var secondRun = configure(new CheckMojo());
+        secondRun.importOrder = "google";
+        var notIncremental = configure(new CheckMojo());
+        notIncremental.importOrder = "google";
+        notIncremental.incremental = false;
+
+        // then: the marker skips the file, unless incremental is off
+        assertTrue(Files.isRegularFile(this.projectDir.resolve("target/jfmt/check.properties")));
+        assertDoesNotThrow(secondRun::execute);
+        assertThrows(MojoFailureException.class, notIncremental::execute);
+    }
+
+    @Test
+    void other_configuration_makes_up_to_date_files_stale() throws Exception {
+        // given
+        Files.writeString(this.javaFile, formatted(CliNamedImportOrder.google));
+        var firstRun = configure(new CheckMojo());
+        firstRun.importOrder = "google";
+        firstRun.execute();
+
+        // when
+        var otherImportOrder = configure(new CheckMojo());
+        otherImportOrder.importOrder = "apache";
+
+        // then
+        assertThrows(MojoFailureException.class, otherImportOrder::execute);
+    }
+
+    @Test
+    void changed_jfmt_file_makes_up_to_date_files_stale() throws Exception {
+        // given
+        Files.writeString(this.projectDir.resolve(".jfmt"), "import-order = google\n");
+        Files.writeString(this.javaFile, formatted(CliNamedImportOrder.google));
+        configure(new CheckMojo()).execute();
+
+        // when: the next build, which gets a new formatter
+        Files.writeString(this.projectDir.resolve(".jfmt"), "import-order = apache\n");
+        var secondRun = configure(new CheckMojo());
+        secondRun.buildStartTime = new Date();
+
+        // then
+        assertThrows(MojoFailureException.class, secondRun::execute);
+    }
+
+    private <M extends AbstractJFmtMojo> M configure(M mojo) {
+        var project = new MavenProject();
+        project.getBuild().setDirectory(this.projectDir.resolve("target").toString());
+
+        mojo.project = project;
+        mojo.buildContext = new RecordingBuildContext();
+        mojo.sourceDirectories = List.of(this.sourceDir.toFile());
+
+        return mojo;
+    }
+
+    private static String formatted(CliNamedImportOrder importOrder) {
+        var style = new FormatterStyle(CliNamedConfig.builtin, null, importOrder, null);
+
+        return JFmtFormatter.create(style).format(SOURCE).formatted();
+    }
+
+    /// Swaps the two import lines, which keeps the size.
+    private static String swapImports(String source) {
+        var lines = new ArrayList<>(source.lines().toList());
+        var first = lines.indexOf("import static java.util.Objects.requireNonNull;");
+        var second = lines.indexOf("import java.util.List;");
+        lines.set(first, "import java.util.List;");
+        lines.set(second, "import static java.util.Objects.requireNonNull;");
+
+        return String.join("\n", lines) + "\n";
+    }
+
+    /// Records the files which got an error message, e.g. a marker in the IDE.
+    private static final class RecordingBuildContext extends DefaultBuildContext {
+
+        final List<File> messages = new ArrayList<>();
+
+        @Override
+        public void addMessage(File file, int line, int column, String message, int severity, Throwable cause) {
+            this.messages.add(file);
+        }
+
+        @Override
+        public void removeMessages(File file) {
+            this.messages.remove(file);
+        }
+    }
+}
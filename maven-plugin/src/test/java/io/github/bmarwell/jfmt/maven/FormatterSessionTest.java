@@ -0,0 +1,49 @@
+package io.github.bmarwell.jfmt.maven;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.github.bmarwell.jfmt.config.CliNamedConfig;
+import io.github.bmarwell.jfmt.config.StyleOverrides;
+import io.github.bmarwell.jfmt.imports.CliNamedImportOrder;
+import org.junit.jupiter.api.Test;
+
+class FormatterSessionTest {
+
+    private static final StyleOverrides EQUALSVERIFIER =
+        new StyleOverrides(CliNamedConfig.equalsverifier, null, CliNamedImportOrder.equalsverifier, null, false);
+
+    @Test
+    void modules_with_the_same_config_share_the_formatter() {
+        // when
+        var first = FormatterSession.formatter(1L, StyleOverrides.none(), false);
+        var second = FormatterSession.formatter(1L, StyleOverrides.none(), false);
+
+        // then
+        assertSame(first, second);
+    }
+
+    @Test
+    void other_configs_get_their_own_formatter() {
+        // when
+        var builtin = FormatterSession.formatter(2L, StyleOverrides.none(), false);
+        var equalsverifier = FormatterSession.formatter(2L, EQUALSVERIFIER, false);
+        var importsOnly = FormatterSession.formatter(2L, StyleOverrides.none(), true);
+
+        // then
+        assertNotSame(builtin, equalsverifier);
+        assertNotSame(builtin, importsOnly);
+    }
+
+    @Test
+    void next_build_gets_a_new_formatter() {
+        // given
+        var previousBuild = FormatterSession.formatter(3L, StyleOverrides.none(), false);
+
+        // when
+        var nextBuild = FormatterSession.formatter(4L, StyleOverrides.none(), false);
+
+        // then
+        assertNotSame(previousBuild, nextBuild);
+    }
+}
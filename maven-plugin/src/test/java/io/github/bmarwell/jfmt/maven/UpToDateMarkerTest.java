@@ -0,0 +1,97 @@
+package io.github.bmarwell.jfmt.maven;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class UpToDateMarkerTest {
+
+    @TempDir
+    Path tempDir;
+
+    Path markerFile;
+
+    Path javaFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        this.markerFile = this.tempDir.resolve("target/jfmt/check.properties");
+        this.javaFile = Files.writeString(this.tempDir.resolve("A.java"), "class A {}\n");
+    }
+
+    @Test
+    void marked_file_is_up_to_date_in_next_build() {
+        // given
+        var marker = UpToDateMarker.load(this.markerFile, "settings");
+        marker.markUpToDate(this.javaFile);
+
+        // when
+        marker.save();
+
+        // then
+        assertTrue(UpToDateMarker.load(this.markerFile, "settings").isUpToDate(this.javaFile));
+    }
+
+    @Test
+    void modified_file_is_stale() throws IOException {
+        // given
+        var marker = UpToDateMarker.load(this.markerFile, "settings");
+        marker.markUpToDate(this.javaFile);
+        marker.save();
+
+        // when
+        Files.writeString(this.javaFile, "class A { }\n");
+        Files.setLastModifiedTime(this.javaFile, FileTime.from(Instant.now().plusSeconds(10)));
+
+        // then
+        assertFalse(UpToDateMarker.load(this.markerFile, "settings").isUpToDate(this.javaFile));
+    }
+
+    @Test
+    void other_settings_make_all_files_stale() {
+        // given
+        var marker = UpToDateMarker.load(this.markerFile, "settings");
+        marker.markUpToDate(this.javaFile);
+        marker.save();
+
+        // when
+        var otherSettings = UpToDateMarker.load(this.markerFile, "other settings");
+
+        // then
+        assertFalse(otherSettings.isUpToDate(this.javaFile));
+    }
+
+    @Test
+    void forgotten_file_is_stale() {
+        // given
+        var marker = UpToDateMarker.load(this.markerFile, "settings");
+        marker.markUpToDate(this.javaFile);
+
+        // when
+        marker.forget(this.javaFile);
+
+        // then
+        assertFalse(marker.isUpToDate(this.javaFile));
+    }
+
+    @Test
+    void broken_marker_file_is_ignored() throws IOException {
+        // given
+        Files.createDirectories(this.markerFile.getParent());
+        Files.writeString(this.markerFile, "\\u00zz");
+
+        // when
+        var marker = UpToDateMarker.load(this.markerFile, "settings");
+
+        // then
+        assertFalse(marker.isUpToDate(this.javaFile));
+    }
+}